@@ -25,7 +25,7 @@ public class MonthlyReportMapper {
         String toAddress = monthlyReport.user().getEmail();
         String userName = monthlyReport.user().getFirstName();
         String monthName = new SimpleDateFormat("MMMM").format(monthlyReport.afterTime());
-        int trainingsCompleted = monthlyReport.trainings().size();
+        int trainingsCompleted = monthlyReport.summary().trainingCount();
         String emailBody = String.format(EMAIL_BODY_TEMPLATE, userName, monthName, trainingsCompleted);
         return new EmailDto(toAddress, EMAIL_TITLE, emailBody);
     }
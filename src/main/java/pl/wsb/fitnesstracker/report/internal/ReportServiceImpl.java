@@ -6,13 +6,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import pl.wsb.fitnesstracker.report.api.MonthlyReport;
 import pl.wsb.fitnesstracker.report.api.ReportService;
-import pl.wsb.fitnesstracker.training.api.Training;
 import pl.wsb.fitnesstracker.training.api.TrainingProvider;
+import pl.wsb.fitnesstracker.training.api.TrainingSummary;
+import pl.wsb.fitnesstracker.user.api.User;
+import pl.wsb.fitnesstracker.user.api.UserProvider;
 
 import java.util.Date;
 import java.util.List;
-
-import static java.util.stream.Collectors.groupingBy;
+import java.util.Map;
+import java.util.Objects;
 
 @Service
 @RequiredArgsConstructor
@@ -22,14 +24,19 @@ public class ReportServiceImpl implements ReportService {
     @Autowired
     private final TrainingProvider trainingProvider;
 
+    @Autowired
+    private final UserProvider userProvider;
+
     @Override
     public List<MonthlyReport> generateMonthlyReports(Date afterTime) {
-        return trainingProvider.findTrainingsWithEndDateAfter(afterTime)
-                .stream()
-                .collect(groupingBy(Training::getUser))
-                .entrySet()
-                .stream()
-                .map(entry -> new MonthlyReport(entry.getKey(), entry.getValue(), afterTime))
+        List<TrainingSummary> summaries = trainingProvider.summarizeTrainingsWithEndDateAfter(afterTime);
+        Map<Long, User> users = userProvider.getUsers(summaries.stream().map(TrainingSummary::userId).toList());
+        return summaries.stream()
+                .map(summary -> {
+                    User user = users.get(summary.userId());
+                    return user == null ? null : new MonthlyReport(user, summary, afterTime);
+                })
+                .filter(Objects::nonNull)
                 .toList();
     }
 }
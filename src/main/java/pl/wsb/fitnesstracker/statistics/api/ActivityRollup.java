@@ -0,0 +1,26 @@
+package pl.wsb.fitnesstracker.statistics.api;
+
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+
+import java.time.LocalDate;
+
+/**
+ * Totals of the trainings of a single activity type started by a user within a range of days.
+ *
+ * @param from                first day of the range
+ * @param to                  last day of the range
+ * @param activityType        activity type of the trainings
+ * @param trainingCount       number of trainings
+ * @param totalDistance       sum of the distances of the trainings
+ * @param totalDurationMillis sum of the durations of the trainings in milliseconds
+ * @param averageSpeed        mean of the average speeds of the trainings
+ */
+public record ActivityRollup(LocalDate from,
+                             LocalDate to,
+                             ActivityType activityType,
+                             int trainingCount,
+                             double totalDistance,
+                             long totalDurationMillis,
+                             double averageSpeed) {
+
+}
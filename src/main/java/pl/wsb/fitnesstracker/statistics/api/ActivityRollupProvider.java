@@ -0,0 +1,37 @@
+package pl.wsb.fitnesstracker.statistics.api;
+
+import pl.wsb.fitnesstracker.exception.api.BusinessException;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Read access to training totals of users rolled up by activity type and time bucket.
+ */
+public interface ActivityRollupProvider {
+
+    /**
+     * Retrieves the buckets of the user overlapping a range of days, one per activity type with trainings.
+     *
+     * @param userId      the ID of the user
+     * @param granularity the length of the buckets
+     * @param from        the first day of the range
+     * @param to          the last day of the range
+     * @return A list of bucket totals, ordered by bucket and activity type
+     * @throws IllegalArgumentException if any argument is null
+     * @throws BusinessException if the range is reversed or spans too many buckets
+     */
+    List<ActivityRollup> getRollups(Long userId, RollupGranularity granularity, LocalDate from, LocalDate to);
+
+    /**
+     * Retrieves the totals of the user over a range of days, one per activity type with trainings.
+     *
+     * @param userId the ID of the user
+     * @param from   the first day of the range
+     * @param to     the last day of the range
+     * @return A list of totals over the whole range, ordered by activity type
+     * @throws IllegalArgumentException if any argument is null
+     * @throws BusinessException if the range is reversed
+     */
+    List<ActivityRollup> summarize(Long userId, LocalDate from, LocalDate to);
+}
@@ -0,0 +1,18 @@
+package pl.wsb.fitnesstracker.statistics.api;
+
+/**
+ * Position of a user on a leaderboard.
+ *
+ * @param rank                position on the leaderboard, starting from 1
+ * @param userId              ID of the user
+ * @param totalTrainings      total number of trainings of the user
+ * @param totalDistance       total distance covered by the user
+ * @param totalCaloriesBurned total calories burned by the user
+ */
+public record LeaderboardEntry(int rank,
+                               long userId,
+                               int totalTrainings,
+                               double totalDistance,
+                               int totalCaloriesBurned) {
+
+}
@@ -0,0 +1,10 @@
+package pl.wsb.fitnesstracker.statistics.api;
+
+/**
+ * Statistics metric users are ranked by on a leaderboard.
+ */
+public enum LeaderboardMetric {
+    CALORIES,
+    DISTANCE,
+    TRAININGS
+}
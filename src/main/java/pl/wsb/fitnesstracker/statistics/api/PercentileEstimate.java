@@ -0,0 +1,26 @@
+package pl.wsb.fitnesstracker.statistics.api;
+
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+
+import java.time.YearMonth;
+
+/**
+ * Approximate position of a value within the distribution of a training figure.
+ *
+ * @param activityType  activity type of the trainings
+ * @param metric        figure of the trainings
+ * @param from          first month of the trainings, or {@code null} if not limited
+ * @param to            last month of the trainings, or {@code null} if not limited
+ * @param trainingCount number of trainings in the distribution
+ * @param rank          fraction of trainings with a lower value, between 0 and 1
+ * @param value         value of the figure
+ */
+public record PercentileEstimate(ActivityType activityType,
+                                 PercentileMetric metric,
+                                 YearMonth from,
+                                 YearMonth to,
+                                 long trainingCount,
+                                 double rank,
+                                 double value) {
+
+}
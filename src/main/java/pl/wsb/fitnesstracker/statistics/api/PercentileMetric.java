@@ -0,0 +1,9 @@
+package pl.wsb.fitnesstracker.statistics.api;
+
+/**
+ * Training figure whose distribution is sketched for percentile queries.
+ */
+public enum PercentileMetric {
+    AVERAGE_SPEED,
+    DISTANCE
+}
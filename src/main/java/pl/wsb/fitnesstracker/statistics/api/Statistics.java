@@ -5,7 +5,9 @@ import lombok.*;
 import pl.wsb.fitnesstracker.user.api.User;
 
 @Entity
-@Table(name = "statistics")
+@Table(name = "statistics",
+        indexes = @Index(name = "ix_statistics_total_calories_burned_id", columnList = "total_calories_burned, id"),
+        uniqueConstraints = @UniqueConstraint(name = "ux_statistics_user_id", columnNames = "user_id"))
 @Getter
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
@@ -16,7 +18,7 @@ public class Statistics {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User user;
 
@@ -29,6 +31,10 @@ public class Statistics {
     @Column(name = "total_calories_burned")
     private int totalCaloriesBurned;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
+
     /**
      * Creates a new Statistics entity with the specified values.
      *
@@ -0,0 +1,22 @@
+package pl.wsb.fitnesstracker.statistics.api;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import pl.wsb.fitnesstracker.exception.api.BusinessException;
+
+/**
+ * Exception thrown when statistics are created for a user who already has statistics.
+ * Will resolve to the {@link HttpStatus#CONFLICT} if handled by the Spring's exception handler.
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class StatisticsAlreadyExistException extends BusinessException {
+
+    /**
+     * Creates a new StatisticsAlreadyExistException with a message indicating that the user already has statistics.
+     *
+     * @param userId The ID of the user who already has statistics
+     */
+    public StatisticsAlreadyExistException(Long userId) {
+        super("Statistics of user with ID " + userId + " already exist");
+    }
+}
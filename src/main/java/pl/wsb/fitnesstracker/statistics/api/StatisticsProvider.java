@@ -1,5 +1,7 @@
 package pl.wsb.fitnesstracker.statistics.api;
 
+import pl.wsb.fitnesstracker.exception.api.BusinessException;
+
 import java.util.List;
 import java.util.Optional;
 
@@ -30,10 +32,33 @@ public interface StatisticsProvider {
     List<Statistics> findAllStatistics();
 
     /**
-     * Retrieves all statistics where total calories burned is greater than the specified value.
+     * Retrieves all statistics where total calories burned is greater than the specified value, in ascending
+     * order of calories.
      *
      * @param calories the minimum number of calories
      * @return A list of statistics where total calories burned is greater than the specified value
      */
     List<Statistics> findStatisticsWithCaloriesGreaterThan(int calories);
+
+    /**
+     * Retrieves statistics where total calories burned is greater than the specified value, in ascending order
+     * of calories.
+     *
+     * @param calories the minimum number of calories
+     * @param limit    the maximum number of statistics to return
+     * @return A list of at most limit statistics closest above the specified value
+     * @throws BusinessException if limit is out of range
+     */
+    List<Statistics> findStatisticsWithCaloriesGreaterThan(int calories, int limit);
+
+    /**
+     * Retrieves the users with the highest values of a metric, ties broken by the lower user ID.
+     *
+     * @param metric the metric to rank users by
+     * @param k      the maximum number of users to return
+     * @return A list of at most k leaderboard entries, from rank 1 down
+     * @throws IllegalArgumentException if metric is null
+     * @throws BusinessException if k is out of range
+     */
+    List<LeaderboardEntry> getLeaderboard(LeaderboardMetric metric, int k);
 }
@@ -8,16 +8,19 @@ package pl.wsb.fitnesstracker.statistics.api;
 public interface StatisticsService extends StatisticsProvider {
     
     /**
-     * Creates new statistics for a user.
+     * Creates new statistics for a user. The totals are projected from the trainings of the user,
+     * so the new statistics start from zero whatever totals are given.
      *
      * @param statistics The statistics entity to be created
      * @param userId The ID of the user to associate with the statistics
      * @return The persisted statistics entity with assigned ID
+     * @throws StatisticsAlreadyExistException if the user already has statistics
      */
     Statistics createStatistics(Statistics statistics, Long userId);
     
     /**
-     * Updates existing statistics.
+     * Updates existing statistics. The totals are projected from the trainings of the user,
+     * so they are kept whatever totals are given.
      *
      * @param statistics The statistics entity with updated values
      * @param statisticsId The ID of the statistics to update
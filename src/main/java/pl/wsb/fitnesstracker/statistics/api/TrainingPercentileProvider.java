@@ -0,0 +1,46 @@
+package pl.wsb.fitnesstracker.statistics.api;
+
+import pl.wsb.fitnesstracker.exception.api.BusinessException;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+
+import java.time.YearMonth;
+import java.util.Optional;
+
+/**
+ * Approximate percentiles of training figures per activity type, such as "faster than 80% of runs".
+ * <p>
+ * Trainings are counted by the month they start in (UTC). A query may be limited to a range of months,
+ * otherwise it covers all trainings.
+ */
+public interface TrainingPercentileProvider {
+
+    /**
+     * Estimates the value of the figure below which the given fraction of trainings falls.
+     *
+     * @param activityType the activity type of the trainings
+     * @param metric       the figure of the trainings
+     * @param from         the first month of the trainings, or {@code null} to not limit it
+     * @param to           the last month of the trainings, or {@code null} to not limit it
+     * @param quantile     the fraction of trainings, between 0 and 1
+     * @return An {@link Optional} containing the estimate, or {@link Optional#empty()} if there are no such trainings
+     * @throws IllegalArgumentException if activityType or metric is null
+     * @throws BusinessException        if the quantile is out of range or the range of months is reversed
+     */
+    Optional<PercentileEstimate> getQuantile(ActivityType activityType, PercentileMetric metric, YearMonth from,
+                                             YearMonth to, double quantile);
+
+    /**
+     * Estimates the fraction of trainings with a lower value of the figure.
+     *
+     * @param activityType the activity type of the trainings
+     * @param metric       the figure of the trainings
+     * @param from         the first month of the trainings, or {@code null} to not limit it
+     * @param to           the last month of the trainings, or {@code null} to not limit it
+     * @param value        the value to rank
+     * @return An {@link Optional} containing the estimate, or {@link Optional#empty()} if there are no such trainings
+     * @throws IllegalArgumentException if activityType or metric is null
+     * @throws BusinessException        if the value is not finite or the range of months is reversed
+     */
+    Optional<PercentileEstimate> getRank(ActivityType activityType, PercentileMetric metric, YearMonth from,
+                                         YearMonth to, double value);
+}
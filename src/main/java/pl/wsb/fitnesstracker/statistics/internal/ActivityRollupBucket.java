@@ -0,0 +1,104 @@
+package pl.wsb.fitnesstracker.statistics.internal;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.Version;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+import pl.wsb.fitnesstracker.statistics.api.ActivityRollup;
+import pl.wsb.fitnesstracker.statistics.api.RollupGranularity;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+import pl.wsb.fitnesstracker.user.api.User;
+
+import java.time.LocalDate;
+
+/**
+ * Totals of the trainings of a user with one activity type started within one time bucket.
+ * <p>
+ * Buckets are maintained incrementally by the {@link StatisticsProjector}. The unique key lets concurrent
+ * projections of the first training of a bucket detect each other, and the version detects concurrent updates.
+ * Buckets are removed by the database together with their user.
+ */
+@Entity
+@Table(name = "activity_rollups", uniqueConstraints = @UniqueConstraint(name = "ux_activity_rollups_bucket",
+        columnNames = {"user_id", "granularity", "bucket_start", "activity_type"}))
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+class ActivityRollupBucket {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "user_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User user;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "granularity", nullable = false)
+    private RollupGranularity granularity;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDate bucketStart;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "activity_type", nullable = false)
+    private ActivityType activityType;
+
+    @Column(name = "training_count", nullable = false)
+    private int trainingCount;
+
+    @Column(name = "total_distance", nullable = false)
+    private double totalDistance;
+
+    @Column(name = "total_duration_ms", nullable = false)
+    private long totalDurationMillis;
+
+    @Column(name = "total_average_speed", nullable = false)
+    private double totalAverageSpeed;
+
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
+
+    ActivityRollupBucket(User user, RollupGranularity granularity, LocalDate bucketStart, ActivityType activityType) {
+        this.user = user;
+        this.granularity = granularity;
+        this.bucketStart = bucketStart;
+        this.activityType = activityType;
+    }
+
+    void add(int trainings, double distance, long durationMillis, double averageSpeed) {
+        trainingCount += trainings;
+        totalDistance += distance;
+        totalDurationMillis += durationMillis;
+        totalAverageSpeed += averageSpeed;
+    }
+
+    void replace(int trainings, double distance, long durationMillis, double averageSpeed) {
+        trainingCount = trainings;
+        totalDistance = distance;
+        totalDurationMillis = durationMillis;
+        totalAverageSpeed = averageSpeed;
+    }
+
+    ActivityRollup toRollup() {
+        return new ActivityRollup(bucketStart, granularity.nextBucketStart(bucketStart).minusDays(1), activityType,
+                trainingCount, totalDistance, totalDurationMillis,
+                trainingCount == 0 ? 0 : totalAverageSpeed / trainingCount);
+    }
+}
@@ -0,0 +1,70 @@
+package pl.wsb.fitnesstracker.statistics.internal;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import pl.wsb.fitnesstracker.statistics.api.RollupGranularity;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository interface for {@link ActivityRollupBucket} entities.
+ */
+interface ActivityRollupBucketRepository extends JpaRepository<ActivityRollupBucket, Long> {
+
+    /**
+     * Finds the bucket of a user with the given granularity, start and activity type.
+     *
+     * @param userId       The ID of the user
+     * @param granularity  The length of the bucket
+     * @param bucketStart  The first day of the bucket
+     * @param activityType The activity type of the bucket
+     * @return An optional containing the bucket, or empty if the user has no such trainings
+     */
+    @Query("""
+            select b from ActivityRollupBucket b
+            where b.user.id = :userId and b.granularity = :granularity and b.bucketStart = :bucketStart
+              and b.activityType = :activityType
+            """)
+    Optional<ActivityRollupBucket> findBucket(Long userId, RollupGranularity granularity, LocalDate bucketStart,
+                                              ActivityType activityType);
+
+    /**
+     * Finds the buckets of a user with the given granularity starting within a range of days.
+     *
+     * @param userId      The ID of the user
+     * @param granularity The length of the buckets
+     * @param from        The lower bound of the bucket start (inclusive)
+     * @param to          The upper bound of the bucket start (inclusive)
+     * @return A list of buckets ordered by start and activity type
+     */
+    @Query("""
+            select b from ActivityRollupBucket b
+            where b.user.id = :userId and b.granularity = :granularity and b.bucketStart between :from and :to
+            order by b.bucketStart, b.activityType
+            """)
+    List<ActivityRollupBucket> findBucketsStartingBetween(Long userId, RollupGranularity granularity, LocalDate from,
+                                                          LocalDate to);
+
+    /**
+     * Finds all buckets of a user.
+     *
+     * @param userId The ID of the user
+     * @return A list of buckets of the specified user
+     */
+    @Query("select b from ActivityRollupBucket b where b.user.id = :userId")
+    List<ActivityRollupBucket> findBucketsOfUser(Long userId);
+
+    /**
+     * Finds IDs of buckets of a specific user, ordered by ID.
+     *
+     * @param userId The ID of the user
+     * @param limit The maximum number of IDs to return
+     * @return A list of bucket IDs of the specified user
+     */
+    @Query("select b.id from ActivityRollupBucket b where b.user.id = :userId order by b.id")
+    List<Long> findIdsByUserId(Long userId, Limit limit);
+}
@@ -0,0 +1,159 @@
+package pl.wsb.fitnesstracker.statistics.internal;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import pl.wsb.fitnesstracker.exception.api.BusinessException;
+import pl.wsb.fitnesstracker.statistics.api.ActivityRollup;
+import pl.wsb.fitnesstracker.statistics.api.ActivityRollupProvider;
+import pl.wsb.fitnesstracker.statistics.api.RollupGranularity;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementation of the {@link ActivityRollupProvider} reading the buckets maintained by the
+ * {@link StatisticsProjector}, so no query reads trainings.
+ * <p>
+ * A range of days is summarized from the fewest buckets covering it exactly: whole months inside the range,
+ * then whole weeks inside the remainder, then single days, so a range of a year reads at most about a dozen
+ * month buckets and a few dozen week and day buckets per activity type. The buckets are read with at most
+ * seven range queries, however long the range is.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+class ActivityRollupServiceImpl implements ActivityRollupProvider {
+
+    /** Maximum number of buckets of a single granularity returned by a single query */
+    static final int MAX_BUCKETS = 1_000;
+
+    private final ActivityRollupBucketRepository bucketRepository;
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ActivityRollup> getRollups(Long userId, RollupGranularity granularity, LocalDate from, LocalDate to) {
+        log.debug("Fetching {} rollups of user {} from {} to {}", granularity, userId, from, to);
+        validateRange(userId, from, to);
+        if (granularity == null) {
+            throw new IllegalArgumentException("Granularity cannot be null");
+        }
+        LocalDate firstBucketStart = granularity.bucketStart(from);
+        ChronoUnit unit = switch (granularity) {
+            case DAY -> ChronoUnit.DAYS;
+            case WEEK -> ChronoUnit.WEEKS;
+            case MONTH -> ChronoUnit.MONTHS;
+        };
+        if (unit.between(firstBucketStart, to) >= MAX_BUCKETS) {
+            throw new BusinessException("Range cannot span more than " + MAX_BUCKETS + " buckets");
+        }
+        return bucketRepository.findBucketsStartingBetween(userId, granularity, firstBucketStart, to).stream()
+                .map(ActivityRollupBucket::toRollup)
+                .toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ActivityRollup> summarize(Long userId, LocalDate from, LocalDate to) {
+        log.debug("Summarizing trainings of user {} from {} to {}", userId, from, to);
+        validateRange(userId, from, to);
+        Map<ActivityType, Totals> totals = new EnumMap<>(ActivityType.class);
+        for (BucketRange range : cover(from, to)) {
+            bucketRepository.findBucketsStartingBetween(userId, range.granularity(), range.firstStart(),
+                    range.lastStart()).forEach(bucket ->
+                    totals.computeIfAbsent(bucket.getActivityType(), type -> new Totals()).add(bucket));
+        }
+        List<ActivityRollup> summary = new ArrayList<>(totals.size());
+        totals.forEach((activityType, total) -> summary.add(total.toRollup(from, to, activityType)));
+        return summary;
+    }
+
+    /**
+     * Splits the range of days into the coarsest buckets lying entirely within it: the whole months inside the
+     * range, then the whole weeks inside the parts before and after them, then the remaining days.
+     * <p>
+     * Buckets of the same granularity are adjacent within each part, so they are returned as at most one run
+     * of months, two runs of weeks and four runs of days, however long the range is.
+     *
+     * @return runs of adjacent buckets, in order of days
+     */
+    static List<BucketRange> cover(LocalDate from, LocalDate to) {
+        List<BucketRange> ranges = new ArrayList<>();
+        cover(RollupGranularity.MONTH, from, to, ranges);
+        return ranges;
+    }
+
+    private static void cover(RollupGranularity granularity, LocalDate from, LocalDate to, List<BucketRange> ranges) {
+        if (from.isAfter(to)) {
+            return;
+        }
+        LocalDate bucketStart = granularity.bucketStart(from);
+        LocalDate firstStart = bucketStart.equals(from) ? from : granularity.nextBucketStart(bucketStart);
+        LocalDate afterLast = granularity.bucketStart(to.plusDays(1));
+        RollupGranularity finer = switch (granularity) {
+            case MONTH -> RollupGranularity.WEEK;
+            case WEEK, DAY -> RollupGranularity.DAY;
+        };
+        if (!firstStart.isBefore(afterLast)) {
+            cover(finer, from, to, ranges);
+            return;
+        }
+        cover(finer, from, firstStart.minusDays(1), ranges);
+        ranges.add(new BucketRange(granularity, firstStart, granularity.bucketStart(afterLast.minusDays(1))));
+        cover(finer, afterLast, to, ranges);
+    }
+
+    private static void validateRange(Long userId, LocalDate from, LocalDate to) {
+        if (userId == null) {
+            throw new IllegalArgumentException("User ID cannot be null");
+        }
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Range bounds cannot be null");
+        }
+        if (from.isAfter(to)) {
+            throw new BusinessException("Range start cannot be after its end");
+        }
+    }
+
+    /**
+     * Run of adjacent buckets of one granularity.
+     *
+     * @param granularity The length of the buckets
+     * @param firstStart  The first day of the first bucket
+     * @param lastStart   The first day of the last bucket
+     */
+    record BucketRange(RollupGranularity granularity, LocalDate firstStart, LocalDate lastStart) {
+    }
+
+    /**
+     * Running totals of the buckets of one activity type.
+     */
+    private static final class Totals {
+
+        private int trainingCount;
+
+        private double totalDistance;
+
+        private long totalDurationMillis;
+
+        private double totalAverageSpeed;
+
+        void add(ActivityRollupBucket bucket) {
+            trainingCount += bucket.getTrainingCount();
+            totalDistance += bucket.getTotalDistance();
+            totalDurationMillis += bucket.getTotalDurationMillis();
+            totalAverageSpeed += bucket.getTotalAverageSpeed();
+        }
+
+        ActivityRollup toRollup(LocalDate from, LocalDate to, ActivityType activityType) {
+            return new ActivityRollup(from, to, activityType, trainingCount, totalDistance, totalDurationMillis,
+                    trainingCount == 0 ? 0 : totalAverageSpeed / trainingCount);
+        }
+    }
+}
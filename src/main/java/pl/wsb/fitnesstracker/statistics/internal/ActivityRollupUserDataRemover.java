@@ -0,0 +1,34 @@
+package pl.wsb.fitnesstracker.statistics.internal;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import pl.wsb.fitnesstracker.user.api.UserDataRemover;
+
+import java.util.List;
+
+/**
+ * Removes activity rollups of a user being removed, and requests to rebuild them.
+ */
+@Component
+@RequiredArgsConstructor
+class ActivityRollupUserDataRemover implements UserDataRemover {
+
+    private final ActivityRollupBucketRepository bucketRepository;
+
+    private final StatisticsRebuildRepository rebuildRepository;
+
+    @Override
+    public int removeChunk(Long userId, int limit) {
+        List<Long> rebuildIds = rebuildRepository.findIdsByUserId(userId, Limit.of(limit));
+        if (!rebuildIds.isEmpty()) {
+            rebuildRepository.deleteAllByIdInBatch(rebuildIds);
+            return rebuildIds.size();
+        }
+        List<Long> bucketIds = bucketRepository.findIdsByUserId(userId, Limit.of(limit));
+        if (!bucketIds.isEmpty()) {
+            bucketRepository.deleteAllByIdInBatch(bucketIds);
+        }
+        return bucketIds.size();
+    }
+}
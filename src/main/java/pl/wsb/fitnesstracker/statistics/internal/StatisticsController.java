@@ -1,6 +1,7 @@
 package pl.wsb.fitnesstracker.statistics.internal;
 
 // Spring Framework imports
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -14,6 +15,8 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 // Java standard imports
+import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.List;
 
 // Lombok imports
@@ -21,8 +24,17 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 // Application imports
+import pl.wsb.fitnesstracker.statistics.api.ActivityRollup;
+import pl.wsb.fitnesstracker.statistics.api.ActivityRollupProvider;
+import pl.wsb.fitnesstracker.statistics.api.LeaderboardEntry;
+import pl.wsb.fitnesstracker.statistics.api.LeaderboardMetric;
+import pl.wsb.fitnesstracker.statistics.api.PercentileEstimate;
+import pl.wsb.fitnesstracker.statistics.api.PercentileMetric;
+import pl.wsb.fitnesstracker.statistics.api.RollupGranularity;
 import pl.wsb.fitnesstracker.statistics.api.Statistics;
 import pl.wsb.fitnesstracker.statistics.api.StatisticsService;
+import pl.wsb.fitnesstracker.statistics.api.TrainingPercentileProvider;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
 
 /**
  * REST Controller for managing statistics-related operations.
@@ -40,11 +52,25 @@ import pl.wsb.fitnesstracker.statistics.api.StatisticsService;
 @Slf4j
 public class StatisticsController {
 
+    // ========== Constants ==========
+
+    /** Default number of statistics returned by the calorie threshold endpoint */
+    static final String DEFAULT_CALORIES_LIMIT = "100";
+
+    /** Default number of users returned by the leaderboard endpoint */
+    static final String DEFAULT_LEADERBOARD_SIZE = "10";
+
     // ========== Dependencies ==========
 
     /** Service for statistics operations */
     private final StatisticsService statisticsService;
 
+    /** Provider of training totals rolled up by activity type and time bucket */
+    private final ActivityRollupProvider activityRollupProvider;
+
+    /** Provider of approximate percentiles of training figures */
+    private final TrainingPercentileProvider trainingPercentileProvider;
+
     /** Mapper for converting between entity and DTO objects */
     private final StatisticsMapper statisticsMapper;
 
@@ -91,16 +117,20 @@ public class StatisticsController {
     }
 
     /**
-     * Retrieves statistics with calories burned greater than the specified threshold.
+     * Retrieves statistics with calories burned greater than the specified threshold,
+     * in ascending order of calories.
      * 
      * @param calories The minimum number of calories
-     * @return A list of statistics with calories burned greater than the specified value
+     * @param limit The maximum number of statistics to return
+     * @return A list of at most limit statistics with calories burned greater than the specified value
      */
     @GetMapping("/calories")
-    public List<StatisticsDto> retrieveStatisticsAboveCalorieThreshold(@RequestParam int calories) {
-        log.info("Received request to retrieve statistics with calories greater than: {}", calories);
+    public List<StatisticsDto> retrieveStatisticsAboveCalorieThreshold(
+            @RequestParam int calories,
+            @RequestParam(defaultValue = DEFAULT_CALORIES_LIMIT) int limit) {
+        log.info("Received request to retrieve {} statistics with calories greater than: {}", limit, calories);
 
-        List<StatisticsDto> statistics = statisticsService.findStatisticsWithCaloriesGreaterThan(calories)
+        List<StatisticsDto> statistics = statisticsService.findStatisticsWithCaloriesGreaterThan(calories, limit)
                 .stream()
                 .map(statisticsMapper::toDto)
                 .toList();
@@ -109,6 +139,114 @@ public class StatisticsController {
         return statistics;
     }
 
+    /**
+     * Retrieves the users with the highest values of a statistics metric.
+     * 
+     * @param metric The metric to rank users by
+     * @param k The maximum number of users to return
+     * @return A list of at most k leaderboard entries, from rank 1 down
+     */
+    @GetMapping("/leaderboard")
+    public List<LeaderboardEntry> retrieveLeaderboard(
+            @RequestParam LeaderboardMetric metric,
+            @RequestParam(defaultValue = DEFAULT_LEADERBOARD_SIZE) int k) {
+        log.info("Received request to retrieve top {} users by {}", k, metric);
+
+        List<LeaderboardEntry> leaderboard = statisticsService.getLeaderboard(metric, k);
+
+        log.info("Returning {} leaderboard entries", leaderboard.size());
+        return leaderboard;
+    }
+
+    /**
+     * Retrieves the training totals of a user per activity type and time bucket.
+     * 
+     * @param userId The ID of the user
+     * @param granularity The length of the buckets
+     * @param from The first day of the range
+     * @param to The last day of the range
+     * @return A list of bucket totals overlapping the range, ordered by bucket and activity type
+     */
+    @GetMapping("/user/{userId}/rollups")
+    public List<ActivityRollup> retrieveActivityRollups(
+            @PathVariable Long userId,
+            @RequestParam RollupGranularity granularity,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        log.info("Received request to retrieve {} rollups of user ID: {} from {} to {}", granularity, userId, from, to);
+
+        List<ActivityRollup> rollups = activityRollupProvider.getRollups(userId, granularity, from, to);
+
+        log.info("Returning {} rollups", rollups.size());
+        return rollups;
+    }
+
+    /**
+     * Retrieves the training totals of a user per activity type over a range of days.
+     * 
+     * @param userId The ID of the user
+     * @param from The first day of the range
+     * @param to The last day of the range
+     * @return A list of totals over the whole range, ordered by activity type
+     */
+    @GetMapping("/user/{userId}/activity")
+    public List<ActivityRollup> retrieveActivitySummary(
+            @PathVariable Long userId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        log.info("Received request to summarize activity of user ID: {} from {} to {}", userId, from, to);
+
+        List<ActivityRollup> summary = activityRollupProvider.summarize(userId, from, to);
+
+        log.info("Returning totals of {} activity types", summary.size());
+        return summary;
+    }
+
+    /**
+     * Estimates the value of a training figure below which the given fraction of trainings falls.
+     * 
+     * @param activityType The activity type of the trainings
+     * @param metric The figure of the trainings
+     * @param quantile The fraction of trainings, between 0 and 1
+     * @param from The first month of the trainings, or all trainings if not given
+     * @param to The last month of the trainings, or all trainings if not given
+     * @return The estimate, or 404 if there are no such trainings
+     */
+    @GetMapping("/percentiles")
+    public ResponseEntity<PercentileEstimate> retrievePercentile(
+            @RequestParam ActivityType activityType,
+            @RequestParam PercentileMetric metric,
+            @RequestParam double quantile,
+            @RequestParam(required = false) YearMonth from,
+            @RequestParam(required = false) YearMonth to) {
+        log.info("Received request to estimate {} quantile {} of {} from {} to {}",
+                metric, quantile, activityType, from, to);
+
+        return ResponseEntity.of(trainingPercentileProvider.getQuantile(activityType, metric, from, to, quantile));
+    }
+
+    /**
+     * Estimates the fraction of trainings with a lower value of a training figure.
+     * 
+     * @param activityType The activity type of the trainings
+     * @param metric The figure of the trainings
+     * @param value The value to rank
+     * @param from The first month of the trainings, or all trainings if not given
+     * @param to The last month of the trainings, or all trainings if not given
+     * @return The estimate, or 404 if there are no such trainings
+     */
+    @GetMapping("/percentiles/rank")
+    public ResponseEntity<PercentileEstimate> retrievePercentileRank(
+            @RequestParam ActivityType activityType,
+            @RequestParam PercentileMetric metric,
+            @RequestParam double value,
+            @RequestParam(required = false) YearMonth from,
+            @RequestParam(required = false) YearMonth to) {
+        log.info("Received request to rank {} {} of {} from {} to {}", metric, value, activityType, from, to);
+
+        return ResponseEntity.of(trainingPercentileProvider.getRank(activityType, metric, from, to, value));
+    }
+
     // ========== Command Endpoints (POST, PUT, DELETE) ==========
 
     /**
@@ -0,0 +1,129 @@
+package pl.wsb.fitnesstracker.statistics.internal;
+
+import org.springframework.stereotype.Component;
+import pl.wsb.fitnesstracker.statistics.api.LeaderboardEntry;
+import pl.wsb.fitnesstracker.statistics.api.LeaderboardMetric;
+import pl.wsb.fitnesstracker.statistics.api.Statistics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * In-memory rankings of users by every {@link LeaderboardMetric}, kept in line with the {@code statistics} table.
+ * <p>
+ * Every metric has a skip list of the statistics rows ordered from the highest value down, so a write costs
+ * O(log n) and the top K are read in O(K) without sorting or touching the database. Writes are serialized,
+ * reads take no lock: a row is added under its new value before the old one is dropped, and readers skip
+ * entries that are no longer current, so a concurrent read never returns a user twice, though it may miss a
+ * user whose rank is changing at the same moment. Values are ranked by the version of their row, so values of
+ * transactions committed in a row but reported out of order do not replace newer ones.
+ */
+@Component
+class StatisticsLeaderboard {
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    private final Map<LeaderboardMetric, ConcurrentSkipListSet<Entry>> rankings = new EnumMap<>(LeaderboardMetric.class);
+
+    StatisticsLeaderboard() {
+        for (LeaderboardMetric metric : LeaderboardMetric.values()) {
+            rankings.put(metric, new ConcurrentSkipListSet<>(comparator(metric)));
+        }
+    }
+
+    /**
+     * Ranked values of a single statistics row.
+     *
+     * @param statisticsId        ID of the statistics
+     * @param userId              ID of the user
+     * @param totalTrainings      total number of trainings
+     * @param totalDistance       total distance
+     * @param totalCaloriesBurned total calories burned
+     * @param version             version of the statistics row
+     */
+    record Entry(long statisticsId, long userId, int totalTrainings, double totalDistance, int totalCaloriesBurned,
+                 long version) {
+
+        static Entry of(Statistics statistics) {
+            return new Entry(statistics.getId(), statistics.getUser().getId(), statistics.getTotalTrainings(),
+                    statistics.getTotalDistance(), statistics.getTotalCaloriesBurned(), statistics.getVersion());
+        }
+    }
+
+    /**
+     * Ranks the statistics, replacing the previously ranked values unless they are of a newer version.
+     *
+     * @param entry current values of the statistics
+     * @return previously ranked values, or {@code null} if the statistics were not ranked
+     */
+    synchronized Entry put(Entry entry) {
+        Entry previous = entries.get(entry.statisticsId());
+        if (entry.equals(previous) || (previous != null && previous.version() > entry.version())) {
+            return previous;
+        }
+        rankings.values().forEach(ranking -> ranking.add(entry));
+        entries.put(entry.statisticsId(), entry);
+        if (previous != null) {
+            rankings.values().forEach(ranking -> ranking.remove(previous));
+        }
+        return previous;
+    }
+
+    /**
+     * Removes the statistics from the rankings.
+     *
+     * @param statisticsId ID of the statistics
+     */
+    synchronized void remove(long statisticsId) {
+        Entry previous = entries.remove(statisticsId);
+        if (previous != null) {
+            rankings.values().forEach(ranking -> ranking.remove(previous));
+        }
+    }
+
+    /**
+     * Returns the users with the highest values of the metric, ties broken by the lower user ID.
+     *
+     * @param metric metric to rank by
+     * @param k      maximum number of users to return
+     * @return leaderboard entries, from rank 1 down
+     */
+    List<LeaderboardEntry> top(LeaderboardMetric metric, int k) {
+        List<LeaderboardEntry> top = new ArrayList<>(Math.min(k, entries.size()));
+        Iterator<Entry> iterator = rankings.get(metric).iterator();
+        while (iterator.hasNext() && top.size() < k) {
+            Entry entry = iterator.next();
+            if (entry.equals(entries.get(entry.statisticsId()))) {
+                top.add(new LeaderboardEntry(top.size() + 1, entry.userId(), entry.totalTrainings(),
+                        entry.totalDistance(), entry.totalCaloriesBurned()));
+            }
+        }
+        return top;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private static Comparator<Entry> comparator(LeaderboardMetric metric) {
+        Comparator<Entry> byValue = switch (metric) {
+            case CALORIES -> Comparator.comparingInt(Entry::totalCaloriesBurned);
+            case DISTANCE -> Comparator.comparingDouble(Entry::totalDistance);
+            case TRAININGS -> Comparator.comparingInt(Entry::totalTrainings);
+        };
+        // entries differing in any value must not compare as equal, or the skip list would treat them as one
+        return byValue.reversed()
+                .thenComparingLong(Entry::userId)
+                .thenComparingLong(Entry::statisticsId)
+                .thenComparing(Comparator.comparingInt(Entry::totalCaloriesBurned).reversed())
+                .thenComparing(Comparator.comparingDouble(Entry::totalDistance).reversed())
+                .thenComparing(Comparator.comparingInt(Entry::totalTrainings).reversed())
+                .thenComparingLong(Entry::version);
+    }
+}
@@ -0,0 +1,50 @@
+package pl.wsb.fitnesstracker.statistics.internal;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+
+/**
+ * Builds the leaderboard from the statistics already stored in the database.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+class StatisticsLeaderboardInitializer {
+
+    private final StatisticsLeaderboard leaderboard;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void buildLeaderboard() {
+        AtomicInteger count = new AtomicInteger();
+        try (Stream<StatisticsLeaderboard.Entry> entries = entityManager
+                .createQuery("""
+                        select s.id, u.id, s.totalTrainings, s.totalDistance, s.totalCaloriesBurned, s.version
+                        from Statistics s join s.user u
+                        """, Object[].class)
+                .setHint(HINT_FETCH_SIZE, 500)
+                .getResultStream()
+                .map(row -> new StatisticsLeaderboard.Entry((Long) row[0], (Long) row[1], (Integer) row[2],
+                        (Double) row[3], (Integer) row[4], (Long) row[5]))) {
+            entries.forEach(entry -> {
+                leaderboard.put(entry);
+                count.incrementAndGet();
+            });
+        }
+        log.info("Ranked {} statistics", count.get());
+    }
+}
@@ -0,0 +1,42 @@
+package pl.wsb.fitnesstracker.statistics.internal;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.stereotype.Component;
+import pl.wsb.fitnesstracker.statistics.api.Statistics;
+import pl.wsb.fitnesstracker.transaction.api.EntityWriteListener;
+import pl.wsb.fitnesstracker.transaction.api.EntityWriteListeners;
+
+import static pl.wsb.fitnesstracker.transaction.api.TransactionCallbacks.afterCommit;
+
+/**
+ * Entity write listener keeping the leaderboard in sync with every write to the {@code statistics} table that
+ * goes through JPA.
+ * <p>
+ * Values are ranked once the transaction that wrote them commits, as the leaderboard is served without checking
+ * the database. Removals are deferred the same way.
+ */
+@Component
+class StatisticsLeaderboardListener implements EntityWriteListener<Statistics> {
+
+    private final StatisticsLeaderboard leaderboard;
+
+    StatisticsLeaderboardListener(StatisticsLeaderboard leaderboard, EntityManagerFactory entityManagerFactory) {
+        this.leaderboard = leaderboard;
+        EntityWriteListeners.register(entityManagerFactory, Statistics.class, this);
+    }
+
+    @Override
+    public void onSave(Statistics statistics) {
+        if (statistics.getUser() == null) {
+            return;
+        }
+        StatisticsLeaderboard.Entry entry = StatisticsLeaderboard.Entry.of(statistics);
+        afterCommit(() -> leaderboard.put(entry));
+    }
+
+    @Override
+    public void onRemove(Statistics statistics) {
+        Long statisticsId = statistics.getId();
+        afterCommit(() -> leaderboard.remove(statisticsId));
+    }
+}
@@ -0,0 +1,268 @@
+package pl.wsb.fitnesstracker.statistics.internal;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.wsb.fitnesstracker.statistics.api.RollupGranularity;
+import pl.wsb.fitnesstracker.statistics.api.Statistics;
+import pl.wsb.fitnesstracker.training.api.Training;
+import pl.wsb.fitnesstracker.training.api.TrainingCreatedEvent;
+import pl.wsb.fitnesstracker.training.api.TrainingMetrics;
+import pl.wsb.fitnesstracker.training.api.TrainingProvider;
+import pl.wsb.fitnesstracker.training.api.TrainingUpdatedEvent;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+import pl.wsb.fitnesstracker.user.api.User;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Keeps the statistics and the activity rollups of every user in line with their trainings.
+ * <p>
+ * Training events are applied once the training is committed, each as a constant-time delta to the single
+ * statistics row of the affected user and to the day, week and month buckets the training starts in, created
+ * on the first training. Buckets left without trainings are removed. All rows touched by an event are updated in
+ * one transaction. Concurrent writers of the same row are detected by its version (or, for the first training,
+ * by the unique key), and the event is then reapplied to fresh copies of the rows, up to {@value #MAX_ATTEMPTS}
+ * times.
+ * <p>
+ * If the event still cannot be applied, a {@link StatisticsRebuild} is stored for every affected user, and
+ * a scheduled runner recomputes their rows from their trainings, each user in one transaction. The rows are
+ * read before the trainings, so an event applied meanwhile fails the rebuild by version or unique key instead
+ * of being overwritten, and the request is kept for the next run.
+ */
+@Component
+@Slf4j
+class StatisticsProjector {
+
+    static final int MAX_ATTEMPTS = 5;
+
+    private final StatisticsRepository statisticsRepository;
+
+    private final ActivityRollupBucketRepository bucketRepository;
+
+    private final StatisticsRebuildRepository rebuildRepository;
+
+    private final TrainingProvider trainingProvider;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    StatisticsProjector(StatisticsRepository statisticsRepository, ActivityRollupBucketRepository bucketRepository,
+                        StatisticsRebuildRepository rebuildRepository, TrainingProvider trainingProvider,
+                        PlatformTransactionManager transactionManager) {
+        this.statisticsRepository = statisticsRepository;
+        this.bucketRepository = bucketRepository;
+        this.rebuildRepository = rebuildRepository;
+        this.trainingProvider = trainingProvider;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Change of the totals of a statistics row or a bucket.
+     */
+    private record Delta(int trainings, double distance, long durationMillis, double averageSpeed,
+                         int caloriesBurned) {
+
+        static Delta of(TrainingMetrics metrics, int sign) {
+            return new Delta(sign, sign * metrics.distance(), sign * metrics.durationMillis(),
+                    sign * metrics.averageSpeed(), sign * metrics.caloriesBurned());
+        }
+
+        Delta plus(Delta other) {
+            return new Delta(trainings + other.trainings, distance + other.distance,
+                    durationMillis + other.durationMillis, averageSpeed + other.averageSpeed,
+                    caloriesBurned + other.caloriesBurned);
+        }
+
+        boolean isZero() {
+            return trainings == 0 && distance == 0 && durationMillis == 0 && averageSpeed == 0 && caloriesBurned == 0;
+        }
+    }
+
+    private record BucketKey(long userId, RollupGranularity granularity, LocalDate bucketStart,
+                             ActivityType activityType) {
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTrainingCreated(TrainingCreatedEvent event) {
+        project(event.trainingId(), null, event.metrics());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTrainingUpdated(TrainingUpdatedEvent event) {
+        if (!event.previous().equals(event.current())) {
+            project(event.trainingId(), event.previous(), event.current());
+        }
+    }
+
+    /**
+     * Moves the figures of a training from its previous state to the current one.
+     *
+     * @param trainingId ID of the training, for logging
+     * @param previous   previous figures of the training, or {@code null} for a new training
+     * @param current    current figures of the training
+     */
+    private void project(long trainingId, TrainingMetrics previous, TrainingMetrics current) {
+        Map<Long, Delta> statisticsDeltas = new LinkedHashMap<>();
+        Map<BucketKey, Delta> bucketDeltas = new LinkedHashMap<>();
+        if (previous != null) {
+            collect(previous, -1, statisticsDeltas, bucketDeltas);
+        }
+        collect(current, 1, statisticsDeltas, bucketDeltas);
+        statisticsDeltas.values().removeIf(Delta::isZero);
+        bucketDeltas.values().removeIf(Delta::isZero);
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    statisticsDeltas.forEach(this::applyToStatistics);
+                    bucketDeltas.forEach(this::applyToBucket);
+                });
+                return;
+            } catch (OptimisticLockingFailureException | DataIntegrityViolationException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    Set<Long> userIds = new LinkedHashSet<>(statisticsDeltas.keySet());
+                    bucketDeltas.keySet().forEach(key -> userIds.add(key.userId()));
+                    log.error("Failed to project training {} after {} attempts, rebuilding statistics of users {}: {}",
+                            trainingId, attempt, userIds, e.getMessage(), e);
+                    userIds.forEach(this::requestRebuild);
+                    return;
+                }
+                log.debug("Concurrent projection of training {}, retrying", trainingId);
+            }
+        }
+    }
+
+    /**
+     * Stores a request to rebuild the statistics of the user, or renews the pending one, so that a rebuild
+     * running concurrently does not complete it.
+     */
+    private void requestRebuild(long userId) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> rebuildRepository.findByUserId(userId)
+                        .ifPresentOrElse(StatisticsRebuild::renew,
+                                () -> rebuildRepository.save(new StatisticsRebuild(userId))));
+                return;
+            } catch (OptimisticLockingFailureException | DataIntegrityViolationException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    log.error("Failed to request rebuild of statistics of user {}: {}", userId, e.getMessage(), e);
+                    return;
+                }
+                log.debug("Concurrent rebuild request for user {}, retrying", userId);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the statistics of every user with a pending request, oldest first. A rebuild which fails is
+     * left for the next run.
+     */
+    @Scheduled(fixedDelay = 1_000)
+    public void rebuildRequested() {
+        for (StatisticsRebuild request : rebuildRepository.findAllByOrderByIdAsc()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> rebuild(request));
+                log.info("Rebuilt statistics of user {} from trainings", request.getUserId());
+            } catch (OptimisticLockingFailureException | DataIntegrityViolationException e) {
+                log.debug("Concurrent projection while rebuilding statistics of user {}, retrying later",
+                        request.getUserId());
+            } catch (RuntimeException e) {
+                log.error("Failed to rebuild statistics of user {}: {}", request.getUserId(), e.getMessage(), e);
+            }
+        }
+    }
+
+    private void rebuild(StatisticsRebuild request) {
+        long userId = request.getUserId();
+        Optional<Statistics> statistics = statisticsRepository.findByUserId(userId);
+        Map<BucketKey, ActivityRollupBucket> buckets = new HashMap<>();
+        for (ActivityRollupBucket bucket : bucketRepository.findBucketsOfUser(userId)) {
+            buckets.put(new BucketKey(userId, bucket.getGranularity(), bucket.getBucketStart(),
+                    bucket.getActivityType()), bucket);
+        }
+
+        Map<Long, Delta> statisticsTotals = new LinkedHashMap<>();
+        Map<BucketKey, Delta> bucketTotals = new LinkedHashMap<>();
+        for (Training training : trainingProvider.findTrainingsByUserId(userId)) {
+            collect(TrainingMetrics.of(training), 1, statisticsTotals, bucketTotals);
+        }
+
+        Delta totals = statisticsTotals.getOrDefault(userId, new Delta(0, 0, 0, 0, 0));
+        if (statistics.isPresent() || !totals.isZero()) {
+            Statistics row = statistics
+                    .orElseGet(() -> new Statistics(entityManager.getReference(User.class, userId), 0, 0, 0));
+            row.setTotalTrainings(totals.trainings());
+            row.setTotalDistance(totals.distance());
+            row.setTotalCaloriesBurned(totals.caloriesBurned());
+            statisticsRepository.save(row);
+        }
+        buckets.forEach((key, bucket) -> {
+            if (!bucketTotals.containsKey(key)) {
+                bucketRepository.delete(bucket);
+            }
+        });
+        bucketTotals.forEach((key, bucketTotal) -> {
+            ActivityRollupBucket bucket = buckets.computeIfAbsent(key, k -> new ActivityRollupBucket(
+                    entityManager.getReference(User.class, userId), k.granularity(), k.bucketStart(),
+                    k.activityType()));
+            bucket.replace(bucketTotal.trainings(), bucketTotal.distance(), bucketTotal.durationMillis(),
+                    bucketTotal.averageSpeed());
+            bucketRepository.save(bucket);
+        });
+        // fails if the request was renewed meanwhile, so the trainings are scanned again
+        rebuildRepository.delete(request);
+    }
+
+    private static void collect(TrainingMetrics metrics, int sign, Map<Long, Delta> statisticsDeltas,
+                                Map<BucketKey, Delta> bucketDeltas) {
+        Delta delta = Delta.of(metrics, sign);
+        statisticsDeltas.merge(metrics.userId(), delta, Delta::plus);
+        LocalDate day = Instant.ofEpochMilli(metrics.startTime()).atZone(ZoneOffset.UTC).toLocalDate();
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            bucketDeltas.merge(new BucketKey(metrics.userId(), granularity, granularity.bucketStart(day),
+                    metrics.activityType()), delta, Delta::plus);
+        }
+    }
+
+    private void applyToStatistics(long userId, Delta delta) {
+        Statistics statistics = statisticsRepository.findByUserId(userId)
+                .orElseGet(() -> new Statistics(entityManager.getReference(User.class, userId), 0, 0, 0));
+        statistics.setTotalTrainings(statistics.getTotalTrainings() + delta.trainings());
+        statistics.setTotalDistance(statistics.getTotalDistance() + delta.distance());
+        statistics.setTotalCaloriesBurned(statistics.getTotalCaloriesBurned() + delta.caloriesBurned());
+        statisticsRepository.save(statistics);
+    }
+
+    private void applyToBucket(BucketKey key, Delta delta) {
+        ActivityRollupBucket bucket = bucketRepository
+                .findBucket(key.userId(), key.granularity(), key.bucketStart(), key.activityType())
+                .orElseGet(() -> new ActivityRollupBucket(entityManager.getReference(User.class, key.userId()),
+                        key.granularity(), key.bucketStart(), key.activityType()));
+        bucket.add(delta.trainings(), delta.distance(), delta.durationMillis(), delta.averageSpeed());
+        if (bucket.getTrainingCount() != 0) {
+            bucketRepository.save(bucket);
+        } else if (bucket.getId() != null) {
+            bucketRepository.delete(bucket);
+        }
+    }
+}
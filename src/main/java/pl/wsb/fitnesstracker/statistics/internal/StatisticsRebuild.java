@@ -0,0 +1,53 @@
+package pl.wsb.fitnesstracker.statistics.internal;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.Version;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.Instant;
+
+/**
+ * Request to recompute the statistics and the activity rollups of a user from their trainings, stored when
+ * a training could not be projected. The unique key keeps a single request per user, and the version tells
+ * whether the request was renewed while a rebuild was running.
+ */
+@Entity
+@Table(name = "statistics_rebuilds",
+        uniqueConstraints = @UniqueConstraint(name = "ux_statistics_rebuilds_user_id", columnNames = "user_id"))
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+class StatisticsRebuild {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "requested_at", nullable = false)
+    private Instant requestedAt;
+
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
+
+    StatisticsRebuild(Long userId) {
+        this.userId = userId;
+        this.requestedAt = Instant.now();
+    }
+
+    void renew() {
+        requestedAt = Instant.now();
+    }
+}
@@ -0,0 +1,39 @@
+package pl.wsb.fitnesstracker.statistics.internal;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository interface for {@link StatisticsRebuild} entities.
+ */
+interface StatisticsRebuildRepository extends JpaRepository<StatisticsRebuild, Long> {
+
+    /**
+     * Finds all rebuild requests, oldest first.
+     *
+     * @return A list of all rebuild requests
+     */
+    List<StatisticsRebuild> findAllByOrderByIdAsc();
+
+    /**
+     * Finds the rebuild request of a user.
+     *
+     * @param userId The ID of the user
+     * @return An optional containing the request, or empty if no rebuild was requested
+     */
+    Optional<StatisticsRebuild> findByUserId(Long userId);
+
+    /**
+     * Finds IDs of rebuild requests of a specific user, ordered by ID.
+     *
+     * @param userId The ID of the user
+     * @param limit The maximum number of IDs to return
+     * @return A list of request IDs of the specified user
+     */
+    @Query("select r.id from StatisticsRebuild r where r.userId = :userId order by r.id")
+    List<Long> findIdsByUserId(Long userId, Limit limit);
+}
@@ -1,6 +1,9 @@
 package pl.wsb.fitnesstracker.statistics.internal;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import pl.wsb.fitnesstracker.statistics.api.Statistics;
 
 import java.util.List;
@@ -10,24 +13,65 @@ import java.util.Optional;
  * Repository interface for {@link Statistics} entities.
  */
 public interface StatisticsRepository extends JpaRepository<Statistics, Long> {
+
+    /**
+     * Finds all statistics together with their users.
+     *
+     * @return A list of all statistics
+     */
+    @Override
+    @EntityGraph(attributePaths = "user")
+    List<Statistics> findAll();
+
+    /**
+     * Finds statistics by ID together with the user.
+     *
+     * @param id The ID of the statistics
+     * @return An optional containing the statistics, or empty if not found
+     */
+    @Override
+    @EntityGraph(attributePaths = "user")
+    Optional<Statistics> findById(Long id);
     
     /**
-     * Finds statistics for a specific user.
+     * Finds statistics for a specific user, together with the user.
      *
      * @param userId The ID of the user
      * @return An optional containing the statistics for the user, or empty if not found
      */
+    @EntityGraph(attributePaths = "user")
     Optional<Statistics> findByUserId(Long userId);
+
+    /**
+     * Finds IDs of statistics of a specific user, ordered by ID.
+     *
+     * @param userId The ID of the user
+     * @param limit The maximum number of IDs to return
+     * @return A list of statistics IDs of the specified user
+     */
+    @Query("select s.id from Statistics s where s.user.id = :userId order by s.id")
+    List<Long> findIdsByUserId(Long userId, Limit limit);
     
     /**
-     * Finds all statistics where total calories burned is greater than the specified value.
+     * Finds all statistics where total calories burned is greater than the specified value, together with
+     * their users, in ascending order of calories.
      *
      * @param calories The minimum number of calories
      * @return A list of statistics where total calories burned is greater than the specified value
      */
-    default List<Statistics> findByTotalCaloriesBurnedGreaterThan(int calories) {
-        return findAll().stream()
-                .filter(statistics -> statistics.getTotalCaloriesBurned() > calories)
-                .toList();
-    }
+    @EntityGraph(attributePaths = "user")
+    @Query("select s from Statistics s where s.totalCaloriesBurned > :calories order by s.totalCaloriesBurned, s.id")
+    List<Statistics> findByTotalCaloriesBurnedGreaterThan(int calories);
+
+    /**
+     * Finds statistics where total calories burned is greater than the specified value, together with their
+     * users, in ascending order of calories. Served by a range scan of the calories index.
+     *
+     * @param calories The minimum number of calories
+     * @param limit The maximum number of statistics to return
+     * @return A list of at most limit statistics closest above the specified value
+     */
+    @EntityGraph(attributePaths = "user")
+    @Query("select s from Statistics s where s.totalCaloriesBurned > :calories order by s.totalCaloriesBurned, s.id")
+    List<Statistics> findByTotalCaloriesBurnedGreaterThan(int calories, Limit limit);
 }
\ No newline at end of file
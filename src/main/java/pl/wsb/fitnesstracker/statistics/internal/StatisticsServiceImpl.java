@@ -3,9 +3,11 @@ package pl.wsb.fitnesstracker.statistics.internal;
 // Standard Java imports
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 // Spring framework imports
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
 // Jakarta EE imports
@@ -16,7 +18,11 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 // Application imports
+import pl.wsb.fitnesstracker.exception.api.BusinessException;
+import pl.wsb.fitnesstracker.statistics.api.LeaderboardEntry;
+import pl.wsb.fitnesstracker.statistics.api.LeaderboardMetric;
 import pl.wsb.fitnesstracker.statistics.api.Statistics;
+import pl.wsb.fitnesstracker.statistics.api.StatisticsAlreadyExistException;
 import pl.wsb.fitnesstracker.statistics.api.StatisticsService;
 import pl.wsb.fitnesstracker.user.api.User;
 import pl.wsb.fitnesstracker.user.api.UserProvider;
@@ -52,21 +58,18 @@ public class StatisticsServiceImpl implements StatisticsService {
     /** Error message for statistics with existing ID during creation */
     private static final String MSG_EXISTING_ID = "Statistics has already DB ID, update is not permitted!";
 
-    /** Error message for negative total trainings */
-    private static final String MSG_NEGATIVE_TRAININGS = "Total trainings cannot be negative";
-
-    /** Error message for negative total distance */
-    private static final String MSG_NEGATIVE_DISTANCE = "Total distance cannot be negative";
-
-    /** Error message for negative total calories burned */
-    private static final String MSG_NEGATIVE_CALORIES = "Total calories burned cannot be negative";
-
     /** Error message format for user not found */
     private static final String MSG_USER_NOT_FOUND = "User with ID %d not found";
 
     /** Error message format for statistics not found */
     private static final String MSG_STATISTICS_NOT_FOUND = "Statistics with ID %d not found";
 
+    /** Error message for null leaderboard metric */
+    private static final String MSG_NULL_METRIC = "Leaderboard metric cannot be null";
+
+    /** Maximum number of statistics returned by a single query */
+    static final int MAX_PAGE_SIZE = 1_000;
+
     // ========== Dependencies ==========
 
     /** Repository for statistics data access */
@@ -75,6 +78,9 @@ public class StatisticsServiceImpl implements StatisticsService {
     /** Provider for user data access */
     private final UserProvider userProvider;
 
+    /** In-memory rankings of users by statistics metrics */
+    private final StatisticsLeaderboard leaderboard;
+
     // ========== Query Methods ==========
 
     /**
@@ -126,6 +132,39 @@ public class StatisticsServiceImpl implements StatisticsService {
         return statisticsRepository.findByTotalCaloriesBurnedGreaterThan(calories);
     }
 
+    /**
+     * Retrieves statistics with total calories burned greater than the specified value, in ascending order
+     * of calories.
+     * 
+     * @param calories The minimum number of calories
+     * @param limit The maximum number of statistics to return
+     * @return A list of at most limit statistics closest above the specified value
+     * @throws BusinessException if limit is not between 1 and MAX_PAGE_SIZE
+     */
+    @Override
+    public List<Statistics> findStatisticsWithCaloriesGreaterThan(int calories, int limit) {
+        log.debug("Fetching {} statistics with calories greater than: {}", limit, calories);
+        validatePageLimit(limit);
+        return statisticsRepository.findByTotalCaloriesBurnedGreaterThan(calories, Limit.of(limit));
+    }
+
+    /**
+     * Retrieves the users with the highest values of a metric, served from the in-memory leaderboard.
+     * 
+     * @param metric The metric to rank users by
+     * @param k The maximum number of users to return
+     * @return A list of at most k leaderboard entries, from rank 1 down
+     * @throws IllegalArgumentException if metric is null
+     * @throws BusinessException if k is not between 1 and MAX_PAGE_SIZE
+     */
+    @Override
+    public List<LeaderboardEntry> getLeaderboard(LeaderboardMetric metric, int k) {
+        log.debug("Fetching top {} users by {}", k, metric);
+        validateNotNull(metric, MSG_NULL_METRIC);
+        validatePageLimit(k);
+        return leaderboard.top(metric, k);
+    }
+
     // ========== Command Methods ==========
 
     /**
@@ -133,12 +172,14 @@ public class StatisticsServiceImpl implements StatisticsService {
      * 
      * This method performs comprehensive validation of the input data,
      * retrieves the associated user, prepares the statistics entity,
-     * and persists it to the database.
+     * and persists it to the database. The totals are projected from the
+     * trainings of the user, so the given ones are ignored.
      * 
      * @param statisticsData The statistics data to create
      * @param userId The ID of the user associated with the statistics
      * @return The created statistics with assigned ID
      * @throws IllegalArgumentException if validation fails
+     * @throws StatisticsAlreadyExistException if the user already has statistics
      * @throws RuntimeException if persistence fails
      */
     @Override
@@ -153,11 +194,15 @@ public class StatisticsServiceImpl implements StatisticsService {
             throw new IllegalArgumentException(errorSummary);
         }
 
-        // Step 2: Find associated user
+        // Step 2: Find associated user, who can have only one statistics entry
         User user = fetchUserById(userId);
+        if (statisticsRepository.findByUserId(userId).isPresent()) {
+            log.error("Cannot create statistics: user with ID {} already has statistics", userId);
+            throw new StatisticsAlreadyExistException(userId);
+        }
 
         // Step 3: Create statistics entity
-        Statistics newStatistics = buildStatisticsEntity(statisticsData, user);
+        Statistics newStatistics = buildStatisticsEntity(user);
 
         // Step 4: Save to database
         return saveStatisticsToDatabase(newStatistics);
@@ -169,7 +214,8 @@ public class StatisticsServiceImpl implements StatisticsService {
      * This method performs comprehensive validation of the input data,
      * retrieves the existing statistics and associated user,
      * tracks changes for logging purposes, updates the entity,
-     * and persists it to the database.
+     * and persists it to the database. The totals are projected from the
+     * trainings of the user, so the given ones are ignored.
      * 
      * @param updatedData The updated statistics data
      * @param statisticsId The ID of the statistics to update
@@ -197,10 +243,10 @@ public class StatisticsServiceImpl implements StatisticsService {
         Statistics existingStatistics = fetchStatisticsById(statisticsId);
 
         // Step 4: Track changes for logging
-        String changeLog = createChangeLog(updatedData, existingStatistics);
+        String changeLog = createChangeLog(user, existingStatistics);
 
         // Step 5: Update statistics entity
-        modifyStatisticsEntity(existingStatistics, updatedData, user);
+        modifyStatisticsEntity(existingStatistics, user);
 
         // Step 6: Save to database
         Statistics result = saveStatisticsToDatabase(existingStatistics);
@@ -243,6 +289,18 @@ public class StatisticsServiceImpl implements StatisticsService {
 
     // ========== Helper Methods for Validation ==========
 
+    /**
+     * Validates the size of a requested page.
+     * 
+     * @param limit The maximum number of statistics to return
+     * @throws BusinessException if limit is not between 1 and MAX_PAGE_SIZE
+     */
+    private void validatePageLimit(int limit) {
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new BusinessException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+    }
+
     /**
      * Validates that a value is not null.
      * 
@@ -281,9 +339,6 @@ public class StatisticsServiceImpl implements StatisticsService {
             errors.add(MSG_EXISTING_ID);
         }
 
-        // Validate statistics data
-        errors.addAll(validateCommonStatisticsFields(statistics));
-
         return errors;
     }
 
@@ -312,34 +367,6 @@ public class StatisticsServiceImpl implements StatisticsService {
             errors.add(MSG_NULL_USER_ID);
         }
 
-        // Validate statistics data
-        errors.addAll(validateCommonStatisticsFields(statistics));
-
-        return errors;
-    }
-
-    /**
-     * Validates common statistics data fields.
-     * 
-     * @param statistics The statistics data
-     * @return A list of validation error messages, empty if validation passed
-     */
-    private List<String> validateCommonStatisticsFields(Statistics statistics) {
-        List<String> errors = new ArrayList<>();
-
-        // Check for negative values
-        if (statistics.getTotalTrainings() < 0) {
-            errors.add(MSG_NEGATIVE_TRAININGS);
-        }
-
-        if (statistics.getTotalDistance() < 0) {
-            errors.add(MSG_NEGATIVE_DISTANCE);
-        }
-
-        if (statistics.getTotalCaloriesBurned() < 0) {
-            errors.add(MSG_NEGATIVE_CALORIES);
-        }
-
         return errors;
     }
 
@@ -392,46 +419,27 @@ public class StatisticsServiceImpl implements StatisticsService {
     }
 
     /**
-     * Creates a new statistics entity from the provided data.
+     * Creates a new statistics entity for the user. The totals start from zero, as a user who has any
+     * trainings already has statistics projected from them.
      * 
-     * @param statisticsData The statistics data
      * @param user The user
      * @return The prepared statistics entity
      */
-    private Statistics buildStatisticsEntity(Statistics statisticsData, User user) {
+    private Statistics buildStatisticsEntity(User user) {
         log.debug("Building new statistics entity for user ID: {}", user.getId());
 
-        // Create new statistics entity
-        Statistics newStatistics = new Statistics(
-            user,
-            statisticsData.getTotalTrainings(),
-            statisticsData.getTotalDistance(),
-            statisticsData.getTotalCaloriesBurned()
-        );
-
-        // Log detailed information
-        log.info("New statistics entity prepared for user {}: trainings: {}, distance: {}, calories: {}",
-            user.getId(),
-            statisticsData.getTotalTrainings(),
-            statisticsData.getTotalDistance(),
-            statisticsData.getTotalCaloriesBurned()
-        );
-
-        return newStatistics;
+        return new Statistics(user, 0, 0, 0);
     }
 
     /**
-     * Updates an existing statistics entity with new data.
+     * Updates an existing statistics entity with new data. The totals are kept, as they are projected from
+     * the trainings of the user.
      * 
      * @param existingStatistics The existing statistics entity
-     * @param updatedData The updated data
      * @param user The user
      */
-    private void modifyStatisticsEntity(Statistics existingStatistics, Statistics updatedData, User user) {
+    private void modifyStatisticsEntity(Statistics existingStatistics, User user) {
         existingStatistics.setUser(user);
-        existingStatistics.setTotalTrainings(updatedData.getTotalTrainings());
-        existingStatistics.setTotalDistance(updatedData.getTotalDistance());
-        existingStatistics.setTotalCaloriesBurned(updatedData.getTotalCaloriesBurned());
     }
 
     /**
@@ -456,27 +464,17 @@ public class StatisticsServiceImpl implements StatisticsService {
     /**
      * Generates a change log for statistics updates.
      * 
-     * @param newData The new statistics data
+     * @param newUser The user to associate with the statistics
      * @param existingData The existing statistics data
      * @return A string containing the changes
      */
-    private String createChangeLog(Statistics newData, Statistics existingData) {
+    private String createChangeLog(User newUser, Statistics existingData) {
         StringBuilder changeLog = new StringBuilder();
 
-        // Check each field for changes
-        if (existingData.getTotalTrainings() != newData.getTotalTrainings()) {
-            changeLog.append(String.format("Total trainings: %d → %d; ", 
-                existingData.getTotalTrainings(), newData.getTotalTrainings()));
-        }
-
-        if (existingData.getTotalDistance() != newData.getTotalDistance()) {
-            changeLog.append(String.format("Total distance: %.2f → %.2f; ", 
-                existingData.getTotalDistance(), newData.getTotalDistance()));
-        }
-
-        if (existingData.getTotalCaloriesBurned() != newData.getTotalCaloriesBurned()) {
-            changeLog.append(String.format("Total calories burned: %d → %d; ", 
-                existingData.getTotalCaloriesBurned(), newData.getTotalCaloriesBurned()));
+        // Totals are projected from trainings, so only the user can change
+        Long existingUserId = existingData.getUser() != null ? existingData.getUser().getId() : null;
+        if (!Objects.equals(existingUserId, newUser.getId())) {
+            changeLog.append(String.format("User: %d → %d; ", existingUserId, newUser.getId()));
         }
 
         return changeLog.toString();
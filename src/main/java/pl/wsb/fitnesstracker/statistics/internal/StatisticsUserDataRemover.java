@@ -0,0 +1,33 @@
+package pl.wsb.fitnesstracker.statistics.internal;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import pl.wsb.fitnesstracker.user.api.UserDataRemover;
+
+import java.util.List;
+
+import static pl.wsb.fitnesstracker.transaction.api.TransactionCallbacks.afterCommit;
+
+/**
+ * Removes statistics of a user being removed.
+ */
+@Component
+@RequiredArgsConstructor
+class StatisticsUserDataRemover implements UserDataRemover {
+
+    private final StatisticsRepository statisticsRepository;
+
+    private final StatisticsLeaderboard leaderboard;
+
+    @Override
+    public int removeChunk(Long userId, int limit) {
+        List<Long> statisticsIds = statisticsRepository.findIdsByUserId(userId, Limit.of(limit));
+        if (!statisticsIds.isEmpty()) {
+            // bulk deletes bypass the entity listener, so the leaderboard is updated here
+            statisticsRepository.deleteAllByIdInBatch(statisticsIds);
+            afterCommit(() -> statisticsIds.forEach(leaderboard::remove));
+        }
+        return statisticsIds.size();
+    }
+}
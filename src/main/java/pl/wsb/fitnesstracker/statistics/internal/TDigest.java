@@ -0,0 +1,299 @@
+package pl.wsb.fitnesstracker.statistics.internal;
+
+import java.util.Arrays;
+
+/**
+ * Mergeable sketch of a distribution of values answering quantile and rank queries approximately, as described
+ * by Dunning and Ertl in "Computing Extremely Accurate Quantiles Using t-Digests".
+ * <p>
+ * Values are collected in a small buffer and periodically merged into a sorted list of centroids, each
+ * summarizing consecutive values by their mean and count. The arcsine scale function limits centroids near
+ * the tails to few values and lets those in the middle grow, so the sketch stays within about
+ * 2 &times; {@code compression} centroids whatever the number of values, while quantiles near 0 and 1 remain
+ * accurate. Queries interpolate linearly between the centroids and cost a single pass over them.
+ * <p>
+ * Instances are not thread-safe.
+ */
+final class TDigest {
+
+    static final double DEFAULT_COMPRESSION = 100;
+
+    private final double compression;
+
+    private double[] means;
+
+    private double[] weights;
+
+    private int centroids;
+
+    private final double[] bufferMeans;
+
+    private final double[] bufferWeights;
+
+    private int buffered;
+
+    private boolean unitWeights = true;
+
+    private double totalWeight;
+
+    private double min = Double.POSITIVE_INFINITY;
+
+    private double max = Double.NEGATIVE_INFINITY;
+
+    TDigest() {
+        this(DEFAULT_COMPRESSION);
+    }
+
+    TDigest(double compression) {
+        if (compression < 10) {
+            throw new IllegalArgumentException("Compression must be at least 10");
+        }
+        this.compression = compression;
+        int capacity = (int) Math.ceil(2 * compression) + 10;
+        this.means = new double[capacity];
+        this.weights = new double[capacity];
+        this.bufferMeans = new double[5 * capacity];
+        this.bufferWeights = new double[5 * capacity];
+    }
+
+    /**
+     * Adds a value to the sketch.
+     *
+     * @param value finite value
+     */
+    void add(double value) {
+        if (!Double.isFinite(value)) {
+            throw new IllegalArgumentException("Value must be finite");
+        }
+        add(value, 1);
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Adds all values summarized by the other sketch to this one.
+     */
+    void merge(TDigest other) {
+        other.compress();
+        for (int i = 0; i < other.centroids; i++) {
+            add(other.means[i], other.weights[i]);
+        }
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    long size() {
+        return (long) (totalWeight + bufferedWeight());
+    }
+
+    /**
+     * Estimates the value below which the given fraction of values falls.
+     *
+     * @param q fraction between 0 and 1
+     * @return estimated quantile, or {@link Double#NaN} if the sketch is empty
+     */
+    double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1");
+        }
+        compress();
+        if (centroids == 0) {
+            return Double.NaN;
+        }
+        if (centroids == 1) {
+            return means[0];
+        }
+        double index = q * totalWeight;
+        if (index <= weights[0] / 2) {
+            return interpolate(min, means[0], index / (weights[0] / 2));
+        }
+        double cumulative = weights[0] / 2;
+        for (int i = 0; i < centroids - 1; i++) {
+            double step = (weights[i] + weights[i + 1]) / 2;
+            if (index <= cumulative + step) {
+                return interpolate(means[i], means[i + 1], (index - cumulative) / step);
+            }
+            cumulative += step;
+        }
+        double lastHalf = weights[centroids - 1] / 2;
+        return interpolate(means[centroids - 1], max, Math.min(1, (index - cumulative) / lastHalf));
+    }
+
+    /**
+     * Estimates the fraction of values lower than the given one.
+     *
+     * @param value value to rank
+     * @return estimated fraction between 0 and 1, or {@link Double#NaN} if the sketch is empty
+     */
+    double cdf(double value) {
+        compress();
+        if (centroids == 0) {
+            return Double.NaN;
+        }
+        if (value < min) {
+            return 0;
+        }
+        if (value > max) {
+            return 1;
+        }
+        if (min == max) {
+            return 0.5;
+        }
+        if (value < means[0]) {
+            return fraction(value, min, means[0]) * weights[0] / 2 / totalWeight;
+        }
+        double cumulative = weights[0] / 2;
+        for (int i = 0; i < centroids - 1; i++) {
+            double step = (weights[i] + weights[i + 1]) / 2;
+            if (value < means[i + 1]) {
+                return (cumulative + fraction(value, means[i], means[i + 1]) * step) / totalWeight;
+            }
+            cumulative += step;
+        }
+        double lastHalf = weights[centroids - 1] / 2;
+        return (cumulative + fraction(value, means[centroids - 1], max) * lastHalf) / totalWeight;
+    }
+
+    /**
+     * Returns a copy of the sketch, so it can be merged or queried without holding a lock on this one.
+     */
+    TDigest copy() {
+        compress();
+        TDigest copy = new TDigest(compression);
+        copy.means = Arrays.copyOf(means, means.length);
+        copy.weights = Arrays.copyOf(weights, weights.length);
+        copy.centroids = centroids;
+        copy.totalWeight = totalWeight;
+        copy.min = min;
+        copy.max = max;
+        return copy;
+    }
+
+    int centroidCount() {
+        compress();
+        return centroids;
+    }
+
+    private void add(double mean, double weight) {
+        if (buffered == bufferMeans.length) {
+            compress();
+        }
+        bufferMeans[buffered] = mean;
+        bufferWeights[buffered] = weight;
+        buffered++;
+        unitWeights &= weight == 1;
+    }
+
+    private double bufferedWeight() {
+        double weight = 0;
+        for (int i = 0; i < buffered; i++) {
+            weight += bufferWeights[i];
+        }
+        return weight;
+    }
+
+    /**
+     * Merges the buffer into the centroids, combining neighbouring centroids as long as each one spans at most
+     * a unit of the scale function.
+     */
+    private void compress() {
+        if (buffered == 0) {
+            return;
+        }
+        sortBuffer();
+        double[] oldMeans = means;
+        double[] oldWeights = weights;
+        int oldCentroids = centroids;
+        means = new double[oldMeans.length];
+        weights = new double[oldWeights.length];
+
+        double total = totalWeight + bufferedWeight();
+        int merged = 0;
+        double mergedWeight = 0;
+        double currentMean = 0;
+        double currentWeight = 0;
+        double limit = total * inverseScale(scale(0) + 1);
+        int i = 0;
+        int j = 0;
+        while (i < oldCentroids || j < buffered) {
+            double nextMean;
+            double nextWeight;
+            if (j == buffered || (i < oldCentroids && oldMeans[i] <= bufferMeans[j])) {
+                nextMean = oldMeans[i];
+                nextWeight = oldWeights[i++];
+            } else {
+                nextMean = bufferMeans[j];
+                nextWeight = bufferWeights[j++];
+            }
+            if (currentWeight == 0) {
+                currentMean = nextMean;
+                currentWeight = nextWeight;
+            } else if (mergedWeight + currentWeight + nextWeight <= limit) {
+                currentWeight += nextWeight;
+                currentMean += (nextMean - currentMean) * nextWeight / currentWeight;
+            } else {
+                merged = emit(merged, currentMean, currentWeight);
+                mergedWeight += currentWeight;
+                limit = total * inverseScale(scale(mergedWeight / total) + 1);
+                currentMean = nextMean;
+                currentWeight = nextWeight;
+            }
+        }
+        centroids = emit(merged, currentMean, currentWeight);
+        totalWeight = total;
+        buffered = 0;
+        unitWeights = true;
+    }
+
+    /**
+     * Sorts the buffer by mean. Buffers of single values, by far the most common ones, are sorted in place.
+     */
+    private void sortBuffer() {
+        if (unitWeights) {
+            Arrays.sort(bufferMeans, 0, buffered);
+            return;
+        }
+        Integer[] order = new Integer[buffered];
+        for (int i = 0; i < buffered; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (left, right) -> Double.compare(bufferMeans[left], bufferMeans[right]));
+        double[] sortedMeans = new double[buffered];
+        double[] sortedWeights = new double[buffered];
+        for (int i = 0; i < buffered; i++) {
+            sortedMeans[i] = bufferMeans[order[i]];
+            sortedWeights[i] = bufferWeights[order[i]];
+        }
+        System.arraycopy(sortedMeans, 0, bufferMeans, 0, buffered);
+        System.arraycopy(sortedWeights, 0, bufferWeights, 0, buffered);
+    }
+
+    private int emit(int index, double mean, double weight) {
+        if (index == means.length) {
+            means = Arrays.copyOf(means, index * 2);
+            weights = Arrays.copyOf(weights, index * 2);
+        }
+        means[index] = mean;
+        weights[index] = weight;
+        return index + 1;
+    }
+
+    private double scale(double q) {
+        return compression / (2 * Math.PI) * Math.asin(2 * q - 1);
+    }
+
+    private double inverseScale(double k) {
+        if (k >= compression / 4) {
+            return 1;
+        }
+        return (Math.sin(k * 2 * Math.PI / compression) + 1) / 2;
+    }
+
+    private static double interpolate(double from, double to, double fraction) {
+        return from + (to - from) * fraction;
+    }
+
+    private static double fraction(double value, double from, double to) {
+        return to == from ? 1 : (value - from) / (to - from);
+    }
+}
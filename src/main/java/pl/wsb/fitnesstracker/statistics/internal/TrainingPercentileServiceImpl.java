@@ -0,0 +1,185 @@
+package pl.wsb.fitnesstracker.statistics.internal;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.wsb.fitnesstracker.exception.api.BusinessException;
+import pl.wsb.fitnesstracker.statistics.api.PercentileEstimate;
+import pl.wsb.fitnesstracker.statistics.api.PercentileMetric;
+import pl.wsb.fitnesstracker.statistics.api.TrainingPercentileProvider;
+import pl.wsb.fitnesstracker.training.api.TrainingCreatedEvent;
+import pl.wsb.fitnesstracker.training.api.TrainingMetrics;
+import pl.wsb.fitnesstracker.training.api.TrainingUpdatedEvent;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+import pl.wsb.fitnesstracker.user.api.UserRemovedEvent;
+
+import java.time.YearMonth;
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+
+/**
+ * Implementation of the {@link TrainingPercentileProvider} answering from {@link TrainingPercentileSketches}.
+ * <p>
+ * The sketches are built from the stored trainings on startup and then fed with every created training once it
+ * is committed. Sketches cannot forget values, so a removed user or an update changing the sketched figures of a
+ * training only marks them stale. Stale sketches are rebuilt from the stored trainings by a periodic task, once for
+ * all changes committed since the previous rebuild, so bursts of removals and updates cost a single scan.
+ */
+@Service
+@Slf4j
+class TrainingPercentileServiceImpl implements TrainingPercentileProvider {
+
+    static final long REBUILD_DELAY_MILLIS = 2_000;
+
+    private final TrainingPercentileSketches sketches;
+
+    private final TransactionTemplate transactionTemplate;
+
+    /** Whether trainings changed in a way the sketches cannot follow since the last rebuild */
+    private final AtomicBoolean stale = new AtomicBoolean();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    TrainingPercentileServiceImpl(TrainingPercentileSketches sketches, PlatformTransactionManager transactionManager) {
+        this.sketches = sketches;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    @Override
+    public Optional<PercentileEstimate> getQuantile(ActivityType activityType, PercentileMetric metric,
+                                                    YearMonth from, YearMonth to, double quantile) {
+        validate(activityType, metric, from, to);
+        if (!(quantile >= 0 && quantile <= 1)) {
+            throw new BusinessException("Quantile must be between 0 and 1");
+        }
+        TDigest digest = sketches.snapshot(activityType, metric, from, to);
+        if (digest.size() == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(new PercentileEstimate(activityType, metric, from, to, digest.size(), quantile,
+                digest.quantile(quantile)));
+    }
+
+    @Override
+    public Optional<PercentileEstimate> getRank(ActivityType activityType, PercentileMetric metric,
+                                                YearMonth from, YearMonth to, double value) {
+        validate(activityType, metric, from, to);
+        if (!Double.isFinite(value)) {
+            throw new BusinessException("Value must be finite");
+        }
+        TDigest digest = sketches.snapshot(activityType, metric, from, to);
+        if (digest.size() == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(new PercentileEstimate(activityType, metric, from, to, digest.size(), digest.cdf(value),
+                value));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTrainingCreated(TrainingCreatedEvent event) {
+        TrainingMetrics metrics = event.metrics();
+        sketches.add(event.trainingId(), metrics.activityType(), metrics.startTime(), metrics.distance(),
+                metrics.averageSpeed());
+    }
+
+    /**
+     * Marks the sketches stale when the update changed figures they hold, as the previous figures cannot be taken
+     * out of them.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTrainingUpdated(TrainingUpdatedEvent event) {
+        TrainingMetrics previous = event.previous();
+        TrainingMetrics current = event.current();
+        if (previous.activityType() != current.activityType()
+                || previous.startTime() != current.startTime()
+                || Double.compare(previous.distance(), current.distance()) != 0
+                || Double.compare(previous.averageSpeed(), current.averageSpeed()) != 0) {
+            log.debug("Percentile sketches stale after update of training with ID {}", event.trainingId());
+            stale.set(true);
+        }
+    }
+
+    /**
+     * Marks the sketches stale once a removed user is gone, as their trainings cannot be taken out of them.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserRemoved(UserRemovedEvent event) {
+        log.debug("Percentile sketches stale after removal of user with ID {}", event.userId());
+        stale.set(true);
+    }
+
+    /**
+     * Rebuilds the sketches if they went stale since the last rebuild. Changes committed while the rebuild runs
+     * leave them stale for the next run, as does a rebuild which fails.
+     */
+    @Scheduled(fixedDelay = REBUILD_DELAY_MILLIS)
+    public void rebuildStaleSketches() {
+        if (!stale.getAndSet(false)) {
+            return;
+        }
+        try {
+            buildSketches();
+        } catch (RuntimeException e) {
+            stale.set(true);
+            log.error("Failed to rebuild percentile sketches: {}", e.getMessage(), e);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildSketches() {
+        AtomicInteger count = new AtomicInteger();
+        AtomicInteger skipped = new AtomicInteger();
+        sketches.rebuild(figures -> transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<Object[]> rows = entityManager
+                    .createQuery("""
+                            select t.id, t.activityType, t.startTime, t.distance, t.averageSpeed from Training t
+                            """, Object[].class)
+                    .setHint(HINT_FETCH_SIZE, 500)
+                    .getResultStream()) {
+                rows.forEach(row -> {
+                    if (row[1] == null || row[2] == null || !isFinite(row[3]) || !isFinite(row[4])) {
+                        log.warn("Skipping training with ID {} with missing or infinite figures", row[0]);
+                        skipped.incrementAndGet();
+                        return;
+                    }
+                    figures.add((Long) row[0], (ActivityType) row[1], ((Date) row[2]).getTime(), (Double) row[3],
+                            (Double) row[4]);
+                    count.incrementAndGet();
+                });
+            }
+        }));
+        log.info("Sketched percentiles of {} trainings, skipped {}", count.get(), skipped.get());
+    }
+
+    private static boolean isFinite(Object value) {
+        return value instanceof Double number && Double.isFinite(number);
+    }
+
+    private static void validate(ActivityType activityType, PercentileMetric metric, YearMonth from, YearMonth to) {
+        if (activityType == null) {
+            throw new IllegalArgumentException("Activity type cannot be null");
+        }
+        if (metric == null) {
+            throw new IllegalArgumentException("Percentile metric cannot be null");
+        }
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new BusinessException("Range start cannot be after its end");
+        }
+    }
+}
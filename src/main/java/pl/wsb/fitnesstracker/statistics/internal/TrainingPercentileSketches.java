@@ -0,0 +1,195 @@
+package pl.wsb.fitnesstracker.statistics.internal;
+
+import org.springframework.stereotype.Component;
+import pl.wsb.fitnesstracker.statistics.api.PercentileMetric;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+/**
+ * In-memory {@link TDigest} sketches of training figures per activity type, both per month (UTC) and over all
+ * time.
+ * <p>
+ * Adding a training updates two sketches per figure in constant time. A query over all time reads a single
+ * sketch, a query over a range of months merges the monthly sketches, each holding a few hundred centroids at
+ * most. Every sketch is guarded by its own monitor, so writers and readers of different sketches never wait for
+ * each other.
+ * <p>
+ * Sketches cannot forget values, so they are rebuilt from scratch instead: a rebuild fills a fresh set of
+ * sketches from a scan of the stored trainings and then replaces the current one. Trainings added while the
+ * scan runs go to both sets. Every set remembers the IDs of the trainings it counted, one bit each, so a
+ * training both scanned and added is counted once.
+ */
+@Component
+public class TrainingPercentileSketches {
+
+    private final Object rebuildLock = new Object();
+
+    private volatile Generation current = new Generation();
+
+    private volatile Generation rebuilt;
+
+    /**
+     * Receiver of the figures of trainings.
+     */
+    @FunctionalInterface
+    interface Figures {
+
+        /**
+         * Adds the figures of a training, unless a training with the same ID was already added.
+         *
+         * @param trainingId   ID of the training
+         * @param activityType activity type of the training
+         * @param startTime    start time of the training in epoch milliseconds
+         * @param distance     finite distance of the training
+         * @param averageSpeed finite average speed of the training
+         */
+        void add(long trainingId, ActivityType activityType, long startTime, double distance, double averageSpeed);
+    }
+
+    /**
+     * Adds the figures of a training to the sketches, unless a training with the same ID was already added.
+     *
+     * @param trainingId   ID of the training
+     * @param activityType activity type of the training
+     * @param startTime    start time of the training in epoch milliseconds
+     * @param distance     finite distance of the training
+     * @param averageSpeed finite average speed of the training
+     */
+    void add(long trainingId, ActivityType activityType, long startTime, double distance, double averageSpeed) {
+        Generation next = rebuilt;
+        current.add(trainingId, activityType, startTime, distance, averageSpeed);
+        if (next != null) {
+            next.add(trainingId, activityType, startTime, distance, averageSpeed);
+        }
+    }
+
+    /**
+     * Replaces the sketches with ones built by the scan. Queries are answered from the previous sketches until
+     * the scan completes. If the scan fails, the previous sketches are kept.
+     *
+     * @param scan passes the figures of all stored trainings to the given receiver
+     */
+    void rebuild(Consumer<Figures> scan) {
+        synchronized (rebuildLock) {
+            Generation next = new Generation();
+            rebuilt = next;
+            try {
+                scan.accept(next::add);
+                current = next;
+            } finally {
+                rebuilt = null;
+            }
+        }
+    }
+
+    /**
+     * Drops all sketches, as if no trainings were stored.
+     */
+    public void reset() {
+        synchronized (rebuildLock) {
+            current = new Generation();
+        }
+    }
+
+    /**
+     * Returns a private sketch of the figure of trainings started within the range of months.
+     *
+     * @param activityType activity type of the trainings
+     * @param metric       figure of the trainings
+     * @param from         first month, or {@code null} to not limit it
+     * @param to           last month, or {@code null} to not limit it
+     * @return sketch the caller may query and modify, empty if there are no such trainings
+     */
+    TDigest snapshot(ActivityType activityType, PercentileMetric metric, YearMonth from, YearMonth to) {
+        return current.snapshot(new Key(activityType, metric), from, to);
+    }
+
+    private record Key(ActivityType activityType, PercentileMetric metric) {
+    }
+
+    /**
+     * One set of sketches, together with the IDs of the trainings counted by it.
+     */
+    private static final class Generation {
+
+        private final Map<Key, NavigableMap<YearMonth, TDigest>> monthly = new ConcurrentHashMap<>();
+
+        private final Map<Key, TDigest> allTime = new ConcurrentHashMap<>();
+
+        private final BitSet counted = new BitSet();
+
+        void add(long trainingId, ActivityType activityType, long startTime, double distance, double averageSpeed) {
+            if (!markCounted(trainingId)) {
+                return;
+            }
+            YearMonth month = YearMonth.from(Instant.ofEpochMilli(startTime).atZone(ZoneOffset.UTC));
+            add(new Key(activityType, PercentileMetric.DISTANCE), month, distance);
+            add(new Key(activityType, PercentileMetric.AVERAGE_SPEED), month, averageSpeed);
+        }
+
+        /**
+         * Records the training as counted.
+         *
+         * @return {@code false} if the training was already counted
+         */
+        private boolean markCounted(long trainingId) {
+            if (trainingId < 0 || trainingId > Integer.MAX_VALUE) {
+                return true;
+            }
+            synchronized (counted) {
+                if (counted.get((int) trainingId)) {
+                    return false;
+                }
+                counted.set((int) trainingId);
+                return true;
+            }
+        }
+
+        private void add(Key key, YearMonth month, double value) {
+            TDigest monthDigest = monthly.computeIfAbsent(key, k -> new ConcurrentSkipListMap<>())
+                    .computeIfAbsent(month, m -> new TDigest());
+            synchronized (monthDigest) {
+                monthDigest.add(value);
+            }
+            TDigest allTimeDigest = allTime.computeIfAbsent(key, k -> new TDigest());
+            synchronized (allTimeDigest) {
+                allTimeDigest.add(value);
+            }
+        }
+
+        TDigest snapshot(Key key, YearMonth from, YearMonth to) {
+            TDigest result = new TDigest();
+            if (from == null && to == null) {
+                TDigest digest = allTime.get(key);
+                if (digest != null) {
+                    synchronized (digest) {
+                        result.merge(digest);
+                    }
+                }
+                return result;
+            }
+            NavigableMap<YearMonth, TDigest> months = monthly.get(key);
+            if (months == null) {
+                return result;
+            }
+            NavigableMap<YearMonth, TDigest> range = from == null
+                    ? months.headMap(to, true)
+                    : to == null ? months.tailMap(from, true) : months.subMap(from, true, to, true);
+            for (TDigest digest : range.values()) {
+                synchronized (digest) {
+                    result.merge(digest);
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package pl.wsb.fitnesstracker.training.api;
+
+import java.time.Instant;
+
+/**
+ * Single sample of the GPS track of a training.
+ * <p>
+ * Tracks are stored with a precision of a millisecond for the time, 10<sup>-7</sup> degrees (about a centimeter)
+ * for coordinates and a centimeter for the elevation.
+ *
+ * @param time      when the sample was recorded
+ * @param latitude  latitude in degrees
+ * @param longitude longitude in degrees
+ * @param elevation elevation in meters
+ * @param heartRate heart rate in beats per minute, or {@code 0} if not recorded
+ */
+public record TrackPoint(Instant time,
+                         double latitude,
+                         double longitude,
+                         double elevation,
+                         int heartRate) {
+
+}
@@ -10,20 +10,28 @@ import pl.wsb.fitnesstracker.user.api.User;
 import lombok.*;
 
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 @Entity
-@Table(name = "trainings")
+@Table(name = "trainings", indexes = {
+        @Index(name = "ix_trainings_end_time", columnList = "end_time"),
+        @Index(name = "ix_trainings_start_time_id", columnList = "start_time, id")
+}, uniqueConstraints = @UniqueConstraint(name = "ux_trainings_idempotency_key", columnNames = "idempotency_key"))
 @Getter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString
 @Setter
 public class Training {
 
+    /** Weight in kilograms calories burned are estimated for, as users have no recorded weight */
+    public static final double REFERENCE_WEIGHT_KG = 70.0;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "trainings_seq")
+    @SequenceGenerator(name = "trainings_seq", sequenceName = "trainings_seq", allocationSize = 50)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User user;
 
@@ -43,6 +51,9 @@ public class Training {
     @Column(name = "average_speed")
     private double averageSpeed;
 
+    @Column(name = "idempotency_key", length = 255, updatable = false)
+    private String idempotencyKey;
+
     public Training(
             final User user,
             final Date startTime,
@@ -57,4 +68,15 @@ public class Training {
         this.distance = distance;
         this.averageSpeed = averageSpeed;
     }
-}
\ No newline at end of file
+
+    /**
+     * Estimates the calories burned during the training by a person weighing {@value #REFERENCE_WEIGHT_KG} kg,
+     * from the metabolic equivalent of its activity type and its duration.
+     *
+     * @return estimated calories burned
+     */
+    public int estimateCaloriesBurned() {
+        double durationHours = TimeUnit.MILLISECONDS.toMinutes(endTime.getTime() - startTime.getTime()) / 60.0;
+        return (int) (activityType.getMetValue() * REFERENCE_WEIGHT_KG * durationHours);
+    }
+}
@@ -0,0 +1,13 @@
+package pl.wsb.fitnesstracker.training.api;
+
+/**
+ * Published when a training is created. Delivered to transactional listeners once the creating transaction
+ * commits.
+ *
+ * @param trainingId ID of the created training
+ * @param metrics    figures of the created training
+ */
+public record TrainingCreatedEvent(long trainingId,
+                                   TrainingMetrics metrics) {
+
+}
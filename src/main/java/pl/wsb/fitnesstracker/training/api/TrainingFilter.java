@@ -0,0 +1,30 @@
+package pl.wsb.fitnesstracker.training.api;
+
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+
+import java.util.Date;
+import java.util.Set;
+
+/**
+ * Combination of conditions trainings are filtered by. Every condition is optional, {@code null} values are not
+ * filtered on, and all given conditions have to be met. Bounds are inclusive.
+ *
+ * @param activityTypes activity types, any of which the training must have
+ * @param userIds       IDs of users, any of whom the training must belong to
+ * @param startedFrom   earliest start time
+ * @param startedTo     latest start time
+ * @param minDistance   minimum distance
+ * @param maxDistance   maximum distance
+ * @param minSpeed      minimum average speed
+ * @param maxSpeed      maximum average speed
+ */
+public record TrainingFilter(Set<ActivityType> activityTypes,
+                             Set<Long> userIds,
+                             Date startedFrom,
+                             Date startedTo,
+                             Double minDistance,
+                             Double maxDistance,
+                             Double minSpeed,
+                             Double maxSpeed) {
+
+}
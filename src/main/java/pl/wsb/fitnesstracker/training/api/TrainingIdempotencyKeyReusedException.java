@@ -0,0 +1,20 @@
+package pl.wsb.fitnesstracker.training.api;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import pl.wsb.fitnesstracker.exception.api.BusinessException;
+
+/**
+ * Exception thrown when a training is created with an idempotency key already used by another user.
+ * Will resolve to the {@link HttpStatus#UNPROCESSABLE_ENTITY} if handled by the Spring's exception handler.
+ */
+@ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+public class TrainingIdempotencyKeyReusedException extends BusinessException {
+
+    /**
+     * Creates a new TrainingIdempotencyKeyReusedException with a message indicating that the key is taken.
+     */
+    public TrainingIdempotencyKeyReusedException() {
+        super("Idempotency key was already used by another user");
+    }
+}
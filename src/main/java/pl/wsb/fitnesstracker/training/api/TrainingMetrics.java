@@ -0,0 +1,36 @@
+package pl.wsb.fitnesstracker.training.api;
+
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+
+/**
+ * Figures a training contributes to the statistics of its user.
+ *
+ * @param userId         ID of the user who performed the training
+ * @param activityType   activity type of the training
+ * @param startTime      start time of the training in epoch milliseconds
+ * @param durationMillis duration of the training in milliseconds
+ * @param distance       distance of the training
+ * @param averageSpeed   average speed of the training
+ * @param caloriesBurned estimated calories burned during the training
+ */
+public record TrainingMetrics(long userId,
+                              ActivityType activityType,
+                              long startTime,
+                              long durationMillis,
+                              double distance,
+                              double averageSpeed,
+                              int caloriesBurned) {
+
+    /**
+     * Captures the current figures of the training.
+     *
+     * @param training training with a user
+     * @return figures of the training
+     */
+    public static TrainingMetrics of(Training training) {
+        long startTime = training.getStartTime().getTime();
+        return new TrainingMetrics(training.getUser().getId(), training.getActivityType(), startTime,
+                training.getEndTime().getTime() - startTime, training.getDistance(), training.getAverageSpeed(),
+                training.estimateCaloriesBurned());
+    }
+}
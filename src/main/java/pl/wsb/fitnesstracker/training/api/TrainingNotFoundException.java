@@ -0,0 +1,18 @@
+package pl.wsb.fitnesstracker.training.api;
+
+import pl.wsb.fitnesstracker.exception.api.NotFoundException;
+
+/**
+ * Exception thrown when a training with a given ID cannot be found.
+ */
+public class TrainingNotFoundException extends NotFoundException {
+
+    /**
+     * Creates a new TrainingNotFoundException with a message indicating that the training was not found.
+     *
+     * @param trainingId The ID of the training that could not be found
+     */
+    public TrainingNotFoundException(Long trainingId) {
+        super("Training with ID " + trainingId + " not found");
+    }
+}
@@ -1,10 +1,12 @@
 package pl.wsb.fitnesstracker.training.api;
 
+import pl.wsb.fitnesstracker.exception.api.BusinessException;
 import pl.wsb.fitnesstracker.training.internal.ActivityType;
 
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface TrainingProvider {
 
@@ -25,6 +27,50 @@ public interface TrainingProvider {
      */
     List<Training> findTrainingsByUserId(Long userId);
 
+    /**
+     * Finds a page of trainings ordered by ID, using the last ID of the previous page as the cursor.
+     *
+     * @param afterId ID of the last training of the previous page, or {@code null} to start from the first one
+     * @param limit   The maximum number of trainings to return
+     * @return A list of at most {@code limit} trainings with IDs greater than {@code afterId}
+     * @throws BusinessException if the limit is out of range
+     */
+    List<Training> findTrainingsAfter(Long afterId, int limit);
+
+    /**
+     * Finds a page of trainings ordered by start time and ID, using the start time and ID of the last training
+     * of the previous page as the cursor.
+     *
+     * @param afterStartTime start time of the last training of the previous page, or {@code null} to start
+     *                       from the earliest one
+     * @param afterId        ID of the last training of the previous page, required with {@code afterStartTime}
+     * @param limit          The maximum number of trainings to return
+     * @return A list of at most {@code limit} trainings following the given one
+     * @throws BusinessException if the limit is out of range or {@code afterStartTime} is given without
+     *                           {@code afterId}
+     */
+    List<Training> findTrainingsStartingAfter(Date afterStartTime, Long afterId, int limit);
+
+    /**
+     * Finds a page of trainings matching the filter, ordered by ID, using the last ID of the previous page as
+     * the cursor.
+     *
+     * @param filter  conditions the trainings have to meet
+     * @param afterId ID of the last training of the previous page, or {@code null} to start from the first one
+     * @param limit   The maximum number of trainings to return
+     * @return A list of at most {@code limit} matching trainings with IDs greater than {@code afterId}
+     * @throws BusinessException if the limit is out of range or any range of the filter is reversed
+     */
+    List<Training> findTrainings(TrainingFilter filter, Long afterId, int limit);
+
+    /**
+     * Passes all trainings, ordered by ID, to the consumer one by one as they are streamed from the database.
+     * The trainings are detached once consumed, so the memory used does not grow with the number of trainings.
+     *
+     * @param consumer The consumer of the trainings
+     */
+    void forEachTraining(Consumer<Training> consumer);
+
     /**
      * Finds all trainings with a specific activity type.
      *
@@ -41,6 +87,15 @@ public interface TrainingProvider {
      */
     List<Training> findTrainingsWithEndDateAfter(Date date);
 
+    /**
+     * Summarizes trainings that ended after a specific date, separately for every user.
+     * Only committed trainings are summarized.
+     *
+     * @param date The date to compare against
+     * @return Summaries of users with at least one such training, ordered by user ID
+     */
+    List<TrainingSummary> summarizeTrainingsWithEndDateAfter(Date date);
+
     /**
      * Finds all trainings in the system.
      *
@@ -57,6 +112,34 @@ public interface TrainingProvider {
      * @return A list of trainings that occurred within the specified date range
      */
     List<Training> findTrainingsByDateRange(Date startDate, Date endDate);
+
+    /**
+     * Finds trainings overlapping the range, that is starting no later than its end and ending no earlier than
+     * its start.
+     *
+     * @param startDate The start of the range (inclusive)
+     * @param endDate   The end of the range (inclusive)
+     * @return A list of trainings overlapping the range, ordered by start time
+     */
+    List<Training> findTrainingsOverlapping(Date startDate, Date endDate);
+
+    /**
+     * Finds trainings lasting through the whole range, that is starting no later than its start and ending
+     * no earlier than its end.
+     *
+     * @param startDate The start of the range (inclusive)
+     * @param endDate   The end of the range (inclusive)
+     * @return A list of trainings containing the range, ordered by start time
+     */
+    List<Training> findTrainingsContaining(Date startDate, Date endDate);
+
+    /**
+     * Finds trainings in progress at the instant, that is starting no later and ending no earlier than it.
+     *
+     * @param instant The instant to check
+     * @return A list of trainings active at the instant, ordered by start time
+     */
+    List<Training> findTrainingsActiveAt(Date instant);
 }
 
 /*
@@ -1,8 +1,23 @@
 package pl.wsb.fitnesstracker.training.api;
 
+import pl.wsb.fitnesstracker.exception.api.BusinessException;
+
 public interface TrainingService extends TrainingProvider{
     Training createTraining(Training training, Long userId);
 
+    /**
+     * Creates a training unless one was already created with the same idempotency key, in which case
+     * that training is returned instead.
+     *
+     * @param training       training to create
+     * @param userId         ID of the user who performed the training
+     * @param idempotencyKey key chosen by the client for the training, or {@code null} to always create it
+     * @return created or previously created training
+     * @throws BusinessException if the key is blank or too long
+     * @throws TrainingIdempotencyKeyReusedException if the key was already used by another user
+     */
+    Training createTraining(Training training, Long userId, String idempotencyKey);
+
     Training updateTraining(Training training, Long trainingId, Long userId);
 }
 
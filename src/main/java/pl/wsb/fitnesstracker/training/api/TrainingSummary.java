@@ -0,0 +1,16 @@
+package pl.wsb.fitnesstracker.training.api;
+
+/**
+ * Aggregate of a set of trainings of a single user.
+ *
+ * @param userId        ID of the user
+ * @param trainingCount number of trainings
+ * @param totalDistance sum of the distances of the trainings
+ * @param averageSpeed  mean of the average speeds of the trainings
+ */
+public record TrainingSummary(long userId,
+                              int trainingCount,
+                              double totalDistance,
+                              double averageSpeed) {
+
+}
@@ -0,0 +1,18 @@
+package pl.wsb.fitnesstracker.training.api;
+
+import pl.wsb.fitnesstracker.exception.api.NotFoundException;
+
+/**
+ * Exception thrown when a training has no recorded track.
+ */
+public class TrainingTrackNotFoundException extends NotFoundException {
+
+    /**
+     * Creates a new TrainingTrackNotFoundException with a message indicating that the training has no track.
+     *
+     * @param trainingId The ID of the training whose track could not be found
+     */
+    public TrainingTrackNotFoundException(Long trainingId) {
+        super("Track of training with ID " + trainingId + " not found");
+    }
+}
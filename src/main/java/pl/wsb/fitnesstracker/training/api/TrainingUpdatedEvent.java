@@ -0,0 +1,15 @@
+package pl.wsb.fitnesstracker.training.api;
+
+/**
+ * Published when a training is updated. Delivered to transactional listeners once the updating transaction
+ * commits.
+ *
+ * @param trainingId ID of the updated training
+ * @param previous   figures of the training before the update
+ * @param current    figures of the training after the update
+ */
+public record TrainingUpdatedEvent(long trainingId,
+                                   TrainingMetrics previous,
+                                   TrainingMetrics current) {
+
+}
@@ -8,15 +8,21 @@ import lombok.Getter;
 @Getter
 public enum ActivityType {
 
-    RUNNING("Running"),
-    CYCLING("Cycling"),
-    WALKING("Walking"),
-    SWIMMING("Swimming"),
-    TENNIS("Tenis");
+    RUNNING("Running", 10.0),
+    CYCLING("Cycling", 8.0),
+    WALKING("Walking", 3.5),
+    SWIMMING("Swimming", 7.0),
+    TENNIS("Tenis", 5.0);
 
     private final String displayName;
 
-    ActivityType(String displayName) {
+    /**
+     * Metabolic equivalent of the activity, i.e. calories burned per kilogram of weight and hour.
+     */
+    private final double metValue;
+
+    ActivityType(String displayName, double metValue) {
         this.displayName = displayName;
+        this.metValue = metValue;
     }
 }
@@ -0,0 +1,409 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compressed set of non-negative IDs, laid out like a Roaring bitmap.
+ * <p>
+ * IDs are split into chunks of 2<sup>16</sup> consecutive values. A chunk with few IDs stores them as a sorted
+ * array of their low 16 bits, a chunk with more than {@value #MAX_ARRAY_SIZE} IDs as a plain bitmap of 8 KB,
+ * so no chunk takes more than 2 bytes per ID or 1 bit per possible ID, whichever is less. Intersections and
+ * unions work chunk by chunk, merging arrays or combining bitmap words, and skip chunks missing on either side.
+ * <p>
+ * Instances are not thread-safe.
+ */
+final class CompressedIdBitmap {
+
+    static final int MAX_ARRAY_SIZE = 4_096;
+
+    private static final int BITMAP_WORDS = 1 << 10;
+
+    private final TreeMap<Long, Container> containers = new TreeMap<>();
+
+    /**
+     * Adds the ID to the set.
+     *
+     * @param id non-negative ID
+     */
+    void add(long id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("ID cannot be negative");
+        }
+        Container container = containers.get(id >>> 16);
+        containers.put(id >>> 16, container == null
+                ? new ArrayContainer().add((char) id)
+                : container.add((char) id));
+    }
+
+    /**
+     * Removes the ID from the set.
+     *
+     * @param id ID to remove
+     */
+    void remove(long id) {
+        Container container = containers.get(id >>> 16);
+        if (container == null) {
+            return;
+        }
+        Container updated = container.remove((char) id);
+        if (updated.cardinality() == 0) {
+            containers.remove(id >>> 16);
+        } else {
+            containers.put(id >>> 16, updated);
+        }
+    }
+
+    boolean contains(long id) {
+        Container container = containers.get(id >>> 16);
+        return container != null && container.contains((char) id);
+    }
+
+    long cardinality() {
+        long cardinality = 0;
+        for (Container container : containers.values()) {
+            cardinality += container.cardinality();
+        }
+        return cardinality;
+    }
+
+    boolean isEmpty() {
+        return containers.isEmpty();
+    }
+
+    /**
+     * Returns a copy of the set sharing no chunks with it.
+     */
+    CompressedIdBitmap copy() {
+        CompressedIdBitmap result = new CompressedIdBitmap();
+        containers.forEach((key, container) -> result.containers.put(key, container.copy()));
+        return result;
+    }
+
+    /**
+     * Returns the IDs contained in both sets.
+     */
+    CompressedIdBitmap and(CompressedIdBitmap other) {
+        CompressedIdBitmap result = new CompressedIdBitmap();
+        CompressedIdBitmap smaller = containers.size() <= other.containers.size() ? this : other;
+        CompressedIdBitmap larger = smaller == this ? other : this;
+        for (Map.Entry<Long, Container> entry : smaller.containers.entrySet()) {
+            Container container = larger.containers.get(entry.getKey());
+            if (container != null) {
+                Container intersection = entry.getValue().and(container);
+                if (intersection.cardinality() > 0) {
+                    result.containers.put(entry.getKey(), intersection);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the IDs contained in any of the sets. The result may share chunks with the given sets, so it must
+     * not be modified, and is valid only as long as they are not modified either.
+     */
+    static CompressedIdBitmap or(Collection<CompressedIdBitmap> bitmaps) {
+        CompressedIdBitmap result = new CompressedIdBitmap();
+        for (CompressedIdBitmap bitmap : bitmaps) {
+            bitmap.containers.forEach((key, container) -> result.containers.merge(key, container, Container::or));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the IDs greater than the given one, in ascending order.
+     *
+     * @param afterId lower bound (exclusive), or a negative number for all IDs
+     * @param limit   maximum number of IDs to return
+     */
+    long[] toArray(long afterId, int limit) {
+        long[] ids = new long[(int) Math.min(limit, cardinality())];
+        int size = 0;
+        Iterator<Map.Entry<Long, Container>> iterator = afterId < 0
+                ? containers.entrySet().iterator()
+                : containers.tailMap(afterId >>> 16, true).entrySet().iterator();
+        while (iterator.hasNext() && size < ids.length) {
+            Map.Entry<Long, Container> entry = iterator.next();
+            size = entry.getValue().copyTo(entry.getKey() << 16, afterId, ids, size);
+        }
+        return size == ids.length ? ids : Arrays.copyOf(ids, size);
+    }
+
+    /**
+     * Chunk of 2<sup>16</sup> possible IDs. Writes may return a container of the other kind, while
+     * {@link #and(Container)} and {@link #or(Container)} never modify their operands.
+     */
+    private interface Container {
+
+        Container add(char value);
+
+        Container remove(char value);
+
+        boolean contains(char value);
+
+        int cardinality();
+
+        Container and(Container other);
+
+        Container or(Container other);
+
+        Container copy();
+
+        /**
+         * Copies the IDs greater than {@code afterId} into the array, stopping when it is full.
+         *
+         * @return number of IDs in the array
+         */
+        int copyTo(long base, long afterId, long[] ids, int size);
+    }
+
+    private static final class ArrayContainer implements Container {
+
+        private char[] values;
+
+        private int size;
+
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(char[] values, int size) {
+            this.values = values;
+            this.size = size;
+        }
+
+        @Override
+        public Container add(char value) {
+            int index = Arrays.binarySearch(values, 0, size, value);
+            if (index >= 0) {
+                return this;
+            }
+            if (size == MAX_ARRAY_SIZE) {
+                return toBitmap().add(value);
+            }
+            index = -index - 1;
+            if (size == values.length) {
+                values = Arrays.copyOf(values, Math.min(size * 2, MAX_ARRAY_SIZE));
+            }
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = value;
+            size++;
+            return this;
+        }
+
+        @Override
+        public Container remove(char value) {
+            int index = Arrays.binarySearch(values, 0, size, value);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, size - index - 1);
+                size--;
+            }
+            return this;
+        }
+
+        @Override
+        public boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, size, value) >= 0;
+        }
+
+        @Override
+        public int cardinality() {
+            return size;
+        }
+
+        @Override
+        public Container and(Container other) {
+            char[] result = new char[size];
+            int count = 0;
+            if (other instanceof ArrayContainer array) {
+                int i = 0;
+                int j = 0;
+                while (i < size && j < array.size) {
+                    if (values[i] < array.values[j]) {
+                        i++;
+                    } else if (values[i] > array.values[j]) {
+                        j++;
+                    } else {
+                        result[count++] = values[i];
+                        i++;
+                        j++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < size; i++) {
+                    if (other.contains(values[i])) {
+                        result[count++] = values[i];
+                    }
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        public Container or(Container other) {
+            if (!(other instanceof ArrayContainer array)) {
+                return other.or(this);
+            }
+            if (size + array.size > MAX_ARRAY_SIZE) {
+                return toBitmap().or(array);
+            }
+            char[] result = new char[size + array.size];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < size || j < array.size) {
+                if (j == array.size || (i < size && values[i] < array.values[j])) {
+                    result[count++] = values[i++];
+                } else if (i == size || values[i] > array.values[j]) {
+                    result[count++] = array.values[j++];
+                } else {
+                    result[count++] = values[i];
+                    i++;
+                    j++;
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        public Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, size), size);
+        }
+
+        @Override
+        public int copyTo(long base, long afterId, long[] ids, int size) {
+            for (int i = 0; i < this.size && size < ids.length; i++) {
+                long id = base | values[i];
+                if (id > afterId) {
+                    ids[size++] = id;
+                }
+            }
+            return size;
+        }
+
+        private BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < size; i++) {
+                bitmap.add(values[i]);
+            }
+            return bitmap;
+        }
+    }
+
+    private static final class BitmapContainer implements Container {
+
+        private final long[] words;
+
+        private int cardinality;
+
+        BitmapContainer() {
+            this(new long[BITMAP_WORDS], 0);
+        }
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        public Container add(char value) {
+            long previous = words[value >>> 6];
+            words[value >>> 6] = previous | (1L << value);
+            if (words[value >>> 6] != previous) {
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        public Container remove(char value) {
+            long previous = words[value >>> 6];
+            words[value >>> 6] = previous & ~(1L << value);
+            if (words[value >>> 6] != previous && --cardinality <= MAX_ARRAY_SIZE) {
+                return toArray();
+            }
+            return this;
+        }
+
+        @Override
+        public boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        public Container and(Container other) {
+            if (!(other instanceof BitmapContainer bitmap)) {
+                return other.and(this);
+            }
+            long[] result = new long[BITMAP_WORDS];
+            int count = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                result[i] = words[i] & bitmap.words[i];
+                count += Long.bitCount(result[i]);
+            }
+            BitmapContainer intersection = new BitmapContainer(result, count);
+            return count > MAX_ARRAY_SIZE ? intersection : intersection.toArray();
+        }
+
+        @Override
+        public Container or(Container other) {
+            BitmapContainer result = new BitmapContainer(words.clone(), cardinality);
+            if (other instanceof BitmapContainer bitmap) {
+                int count = 0;
+                for (int i = 0; i < BITMAP_WORDS; i++) {
+                    result.words[i] |= bitmap.words[i];
+                    count += Long.bitCount(result.words[i]);
+                }
+                result.cardinality = count;
+            } else {
+                ArrayContainer array = (ArrayContainer) other;
+                for (int i = 0; i < array.size; i++) {
+                    result.add(array.values[i]);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public Container copy() {
+            return new BitmapContainer(words.clone(), cardinality);
+        }
+
+        @Override
+        public int copyTo(long base, long afterId, long[] ids, int size) {
+            for (int i = 0; i < BITMAP_WORDS && size < ids.length; i++) {
+                long word = words[i];
+                while (word != 0 && size < ids.length) {
+                    long id = base | ((long) i << 6) | Long.numberOfTrailingZeros(word);
+                    if (id > afterId) {
+                        ids[size++] = id;
+                    }
+                    word &= word - 1;
+                }
+            }
+            return size;
+        }
+
+        private ArrayContainer toArray() {
+            char[] values = new char[cardinality];
+            int count = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    values[count++] = (char) ((i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayContainer(values, count);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import pl.wsb.fitnesstracker.training.api.TrackPoint;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Compact binary encoding of training tracks.
+ * <p>
+ * Every field of a point is quantized to a whole number (epoch milliseconds, 10<sup>-7</sup> degrees,
+ * centimeters and beats per minute) and stored as the difference to the same field of the previous point,
+ * zig-zag mapped so small negative differences stay small, and written as a variable-length integer of 7 bits
+ * per byte. Consecutive samples of a track differ little, so a point recorded every second typically takes
+ * 6-8 bytes instead of the 36 bytes of its raw fields. The encoding starts with a version byte and has no
+ * point count, so tracks can be encoded and decoded as streams.
+ */
+final class TrackPointCodec {
+
+    static final int VERSION = 1;
+
+    private static final double DEGREE_SCALE = 1e7;
+
+    private static final double ELEVATION_SCALE = 100;
+
+    private TrackPointCodec() {
+    }
+
+    /**
+     * Writes points to a stream, one at a time.
+     */
+    static final class Encoder {
+
+        private final OutputStream output;
+
+        private long time;
+
+        private long latitude;
+
+        private long longitude;
+
+        private long elevation;
+
+        private long heartRate;
+
+        Encoder(OutputStream output) {
+            this.output = output;
+            write(VERSION);
+        }
+
+        /**
+         * Appends the point to the track.
+         *
+         * @param point next point of the track
+         * @throws IllegalArgumentException if the point is incomplete or its values are out of range
+         */
+        void write(TrackPoint point) {
+            validate(point);
+            long quantizedTime = point.time().toEpochMilli();
+            long quantizedLatitude = Math.round(point.latitude() * DEGREE_SCALE);
+            long quantizedLongitude = Math.round(point.longitude() * DEGREE_SCALE);
+            long quantizedElevation = Math.round(point.elevation() * ELEVATION_SCALE);
+            writeVarLong(zigZag(quantizedTime - time));
+            writeVarLong(zigZag(quantizedLatitude - latitude));
+            writeVarLong(zigZag(quantizedLongitude - longitude));
+            writeVarLong(zigZag(quantizedElevation - elevation));
+            writeVarLong(zigZag(point.heartRate() - heartRate));
+            time = quantizedTime;
+            latitude = quantizedLatitude;
+            longitude = quantizedLongitude;
+            elevation = quantizedElevation;
+            heartRate = point.heartRate();
+        }
+
+        private void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) (value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        private void write(int b) {
+            try {
+                output.write(b);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private static void validate(TrackPoint point) {
+            if (point == null || point.time() == null) {
+                throw new IllegalArgumentException("Track point must have a time");
+            }
+            if (!(Math.abs(point.latitude()) <= 90) || !(Math.abs(point.longitude()) <= 180)) {
+                throw new IllegalArgumentException("Track point coordinates are out of range");
+            }
+            if (!Double.isFinite(point.elevation()) || Math.abs(point.elevation()) > 100_000) {
+                throw new IllegalArgumentException("Track point elevation is out of range");
+            }
+            if (point.heartRate() < 0) {
+                throw new IllegalArgumentException("Track point heart rate cannot be negative");
+            }
+        }
+    }
+
+    /**
+     * Reads points from a stream, one at a time, as the iteration advances.
+     */
+    static final class Decoder implements Iterator<TrackPoint> {
+
+        private final InputStream input;
+
+        private int next;
+
+        private long time;
+
+        private long latitude;
+
+        private long longitude;
+
+        private long elevation;
+
+        private long heartRate;
+
+        Decoder(InputStream input) {
+            this.input = input;
+            int version = read();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported track encoding version " + version);
+            }
+            this.next = read();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != -1;
+        }
+
+        @Override
+        public TrackPoint next() {
+            if (next == -1) {
+                throw new NoSuchElementException();
+            }
+            time += unZigZag(readVarLong(next));
+            latitude += unZigZag(readVarLong(readRequired()));
+            longitude += unZigZag(readVarLong(readRequired()));
+            elevation += unZigZag(readVarLong(readRequired()));
+            heartRate += unZigZag(readVarLong(readRequired()));
+            next = read();
+            return new TrackPoint(Instant.ofEpochMilli(time), latitude / DEGREE_SCALE, longitude / DEGREE_SCALE,
+                    elevation / ELEVATION_SCALE, (int) heartRate);
+        }
+
+        private long readVarLong(int first) {
+            long value = first & 0x7F;
+            int b = first;
+            for (int shift = 7; (b & 0x80) != 0; shift += 7) {
+                if (shift >= Long.SIZE) {
+                    throw new IllegalStateException("Malformed track encoding");
+                }
+                b = readRequired();
+                value |= (long) (b & 0x7F) << shift;
+            }
+            return value;
+        }
+
+        private int readRequired() {
+            int b = read();
+            if (b == -1) {
+                throw new IllegalStateException("Truncated track encoding");
+            }
+            return b;
+        }
+
+        private int read() {
+            try {
+                return input.read();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,312 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.wsb.fitnesstracker.exception.api.BusinessException;
+import pl.wsb.fitnesstracker.training.api.Training;
+import pl.wsb.fitnesstracker.training.api.TrainingCreatedEvent;
+import pl.wsb.fitnesstracker.training.api.TrainingMetrics;
+import pl.wsb.fitnesstracker.user.api.User;
+import pl.wsb.fitnesstracker.user.api.UserProvider;
+
+import java.sql.SQLDataException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Creates many trainings at once, as sent by devices syncing several sessions together.
+ * <p>
+ * Every training is validated with the same rules as {@link TrainingServiceImpl#createTraining(Training, Long)},
+ * and the distinct users of the whole batch are resolved with a single lookup instead of one per training.
+ * Invalid trainings are rejected individually without affecting the rest of the batch. Accepted trainings are
+ * persisted in chunks of {@value #CHUNK_SIZE}, each in its own transaction flushed as a single JDBC batch, which
+ * the sequence-generated training IDs allow. If the database refuses a chunk, its trainings are retried one by
+ * one, so a single training it refuses does not take the rest of its chunk down. Trainings of a chunk that failed
+ * for any other reason, such as a lost connection, are reported as {@link TrainingBatchResult.Status#FAILED} and
+ * may be sent again. A {@link TrainingCreatedEvent} is published for every created training, delivered once its
+ * transaction commits.
+ * <p>
+ * Trainings may carry idempotency keys, in which case a training whose key was already used by the same user, earlier
+ * or within the batch, is reported as created by the first write instead of being created again. A key already used
+ * by another user is rejected.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+class TrainingBatchIngestor {
+
+    static final int MAX_BATCH_SIZE = 1_000;
+
+    static final int CHUNK_SIZE = 500;
+
+    private static final String MSG_PERSIST_FAILED = "Failed to persist training";
+
+    private static final String MSG_IDEMPOTENCY_KEY_REUSED = "Idempotency key was already used by another user";
+
+    private final TrainingServiceImpl trainingService;
+
+    private final TrainingMapper trainingMapper;
+
+    private final UserProvider userProvider;
+
+    private final TrainingRepository trainingRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Validates and creates the trainings of the batch.
+     *
+     * @param batch trainings to create
+     * @return results of all trainings, in batch order
+     * @throws BusinessException if the batch is empty or larger than {@value #MAX_BATCH_SIZE}
+     */
+    List<TrainingBatchResult> ingest(final List<CreateTrainingDTO> batch) {
+        return ingest(batch, null);
+    }
+
+    /**
+     * Validates and creates the trainings of the batch, at most once per idempotency key.
+     *
+     * @param batch           trainings to create
+     * @param idempotencyKeys keys of the trainings, in batch order, or {@code null} to always create them
+     * @return results of all trainings, in batch order
+     * @throws BusinessException if the batch is empty or larger than {@value #MAX_BATCH_SIZE}
+     */
+    List<TrainingBatchResult> ingest(final List<CreateTrainingDTO> batch, final List<String> idempotencyKeys) {
+        if (batch == null || batch.isEmpty() || batch.size() > MAX_BATCH_SIZE) {
+            throw new BusinessException("Batch must contain between 1 and " + MAX_BATCH_SIZE + " trainings");
+        }
+
+        List<PendingTraining> pending = new ArrayList<>(batch.size());
+        for (int index = 0; index < batch.size(); index++) {
+            PendingTraining training = validate(index, batch.get(index));
+            if (training.isValid() && idempotencyKeys != null) {
+                training.training().setIdempotencyKey(idempotencyKeys.get(index));
+            }
+            pending.add(training);
+        }
+        if (idempotencyKeys != null) {
+            findReplayed(pending);
+            findDuplicated(pending);
+        }
+
+        Map<Long, User> users = userProvider.getUsers(pending.stream()
+                .filter(PendingTraining::isValid)
+                .map(PendingTraining::userId)
+                .distinct()
+                .toList());
+        Set<Long> usersBeingRemoved = userProvider.findUsersBeingRemoved(users.keySet());
+        for (int index = 0; index < pending.size(); index++) {
+            PendingTraining training = pending.get(index);
+            if (training.isValid() && !users.containsKey(training.userId())) {
+                pending.set(index, training.reject(String.format(TrainingServiceImpl.MSG_USER_NOT_FOUND,
+                        training.userId())));
+            } else if (training.isValid() && usersBeingRemoved.contains(training.userId())) {
+                pending.set(index, training.reject(String.format(TrainingServiceImpl.MSG_USER_BEING_REMOVED,
+                        training.userId())));
+            }
+        }
+
+        List<TrainingBatchResult> results = new ArrayList<>(pending.size());
+        for (int from = 0; from < pending.size(); from += CHUNK_SIZE) {
+            results.addAll(persist(pending.subList(from, Math.min(from + CHUNK_SIZE, pending.size()))));
+        }
+        pending.stream()
+                .filter(training -> training.originalIndex() != null)
+                .forEach(training -> results.set(training.index(),
+                        results.get(training.originalIndex()).at(training.index())));
+        log.info("Training batch ingested: {} created, {} rejected, {} failed",
+                results.stream().filter(result -> result.status() == TrainingBatchResult.Status.CREATED).count(),
+                results.stream().filter(result -> result.status() == TrainingBatchResult.Status.REJECTED).count(),
+                results.stream().filter(result -> result.status() == TrainingBatchResult.Status.FAILED).count());
+        return results;
+    }
+
+    private PendingTraining validate(final int index, final CreateTrainingDTO dto) {
+        if (dto == null) {
+            return new PendingTraining(index, null, null, "Training object cannot be null", null, null);
+        }
+        Training training = trainingMapper.convertToEntity(dto);
+        List<String> issues = trainingService.checkTrainingCreationData(training, dto.getUserId());
+        return issues.isEmpty()
+                ? new PendingTraining(index, dto.getUserId(), training, null, null, null)
+                : new PendingTraining(index, dto.getUserId(), null, String.join("; ", issues), null, null);
+    }
+
+    /**
+     * Marks the trainings whose idempotency keys were already used as created by the earlier write, and rejects
+     * those whose keys were used by another user.
+     */
+    private void findReplayed(final List<PendingTraining> pending) {
+        List<String> keys = pending.stream()
+                .filter(PendingTraining::isValid)
+                .map(training -> training.training().getIdempotencyKey())
+                .filter(Objects::nonNull)
+                .toList();
+        if (keys.isEmpty()) {
+            return;
+        }
+        Map<String, Training> created = trainingRepository.findByIdempotencyKeyIn(keys).stream()
+                .collect(Collectors.toMap(Training::getIdempotencyKey, Function.identity()));
+        for (int index = 0; index < pending.size(); index++) {
+            PendingTraining training = pending.get(index);
+            Training original = training.isValid() ? created.get(training.training().getIdempotencyKey()) : null;
+            if (original == null) {
+                continue;
+            }
+            if (original.getUser() == null || !original.getUser().getId().equals(training.userId())) {
+                pending.set(index, training.reject(MSG_IDEMPOTENCY_KEY_REUSED));
+            } else {
+                log.info("Replayed creation of training with ID: {}", original.getId());
+                pending.set(index, training.replayed(original.getId()));
+            }
+        }
+    }
+
+    /**
+     * Marks the trainings repeating the idempotency key of an earlier training of the batch as duplicates of it,
+     * so that only the earlier one is written, and rejects those sent for another user.
+     */
+    private void findDuplicated(final List<PendingTraining> pending) {
+        Map<String, PendingTraining> originals = new HashMap<>();
+        for (int index = 0; index < pending.size(); index++) {
+            PendingTraining training = pending.get(index);
+            String key = training.isValid() ? training.training().getIdempotencyKey() : null;
+            if (key == null) {
+                continue;
+            }
+            PendingTraining original = originals.putIfAbsent(key, training);
+            if (original == null) {
+                continue;
+            }
+            pending.set(index, original.userId().equals(training.userId())
+                    ? training.duplicateOf(original.index())
+                    : training.reject(MSG_IDEMPOTENCY_KEY_REUSED));
+        }
+    }
+
+    private List<TrainingBatchResult> persist(final List<PendingTraining> chunk) {
+        List<PendingTraining> valid = chunk.stream().filter(PendingTraining::isValid).toList();
+        try {
+            insert(valid);
+        } catch (RuntimeException e) {
+            if (!isRefusedByDatabase(e)) {
+                log.error("Failed to persist chunk of {} trainings: {}", valid.size(), e.getMessage(), e);
+                return chunk.stream()
+                        .map(pending -> pending.isValid()
+                                ? TrainingBatchResult.failed(pending.index(), MSG_PERSIST_FAILED)
+                                : result(pending))
+                        .toList();
+            }
+            log.warn("Database refused chunk of {} trainings, retrying them one by one: {}",
+                    valid.size(), e.getMessage());
+            return chunk.stream().map(this::persistOne).toList();
+        }
+
+        return chunk.stream().map(TrainingBatchIngestor::result).toList();
+    }
+
+    private TrainingBatchResult persistOne(final PendingTraining pending) {
+        if (!pending.isValid()) {
+            return result(pending);
+        }
+        try {
+            insert(List.of(pending));
+            return result(pending);
+        } catch (RuntimeException e) {
+            log.error("Failed to persist training {} of batch: {}", pending.index(), e.getMessage(), e);
+            return isRefusedByDatabase(e)
+                    ? TrainingBatchResult.rejected(pending.index(), MSG_PERSIST_FAILED)
+                    : TrainingBatchResult.failed(pending.index(), MSG_PERSIST_FAILED);
+        }
+    }
+
+    private static TrainingBatchResult result(final PendingTraining pending) {
+        if (pending.originalIndex() != null) {
+            // replaced by the outcome of the original once the whole batch is written
+            return null;
+        }
+        if (pending.error() != null) {
+            return TrainingBatchResult.rejected(pending.index(), pending.error());
+        }
+        return TrainingBatchResult.created(pending.index(),
+                pending.createdId() != null ? pending.createdId() : pending.training().getId());
+    }
+
+    /**
+     * Tells whether the database refused the data itself, as opposed to failing for a reason that may pass,
+     * such as a lost connection or a lock timeout.
+     */
+    private static boolean isRefusedByDatabase(final Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DataIntegrityViolationException
+                    || cause instanceof SQLIntegrityConstraintViolationException
+                    || cause instanceof SQLDataException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void insert(final List<PendingTraining> trainings) {
+        // a rolled back attempt leaves the IDs it assigned behind
+        trainings.forEach(pending -> pending.training().setId(null));
+        transactionTemplate.executeWithoutResult(status -> {
+            trainings.forEach(pending -> {
+                pending.training().setUser(entityManager.getReference(User.class, pending.userId()));
+                entityManager.persist(pending.training());
+            });
+            entityManager.flush();
+            trainings.forEach(pending -> eventPublisher.publishEvent(
+                    new TrainingCreatedEvent(pending.training().getId(), TrainingMetrics.of(pending.training()))));
+            entityManager.clear();
+        });
+    }
+
+    /**
+     * Training of the batch on its way to the database.
+     *
+     * @param createdId     ID of the training created earlier with the same idempotency key
+     * @param originalIndex position of the training of the batch carrying the same idempotency key
+     */
+    private record PendingTraining(int index, Long userId, Training training, String error, Long createdId,
+                                   Integer originalIndex) {
+
+        /**
+         * Tells whether the training is still to be written.
+         */
+        boolean isValid() {
+            return error == null && createdId == null && originalIndex == null;
+        }
+
+        PendingTraining reject(final String reason) {
+            return new PendingTraining(index, userId, null, reason, null, null);
+        }
+
+        PendingTraining replayed(final Long id) {
+            return new PendingTraining(index, userId, null, null, id, null);
+        }
+
+        PendingTraining duplicateOf(final int original) {
+            return new PendingTraining(index, userId, null, null, null, original);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import jakarta.annotation.Nullable;
+
+/**
+ * Outcome of creating a single training of a batch.
+ *
+ * @param index  position of the training in the batch, starting at 0
+ * @param status whether the training was created, or why not
+ * @param id     ID of the created training
+ * @param error  reason why the training was rejected or failed
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+record TrainingBatchResult(int index, Status status, @Nullable Long id, @Nullable String error) {
+
+    enum Status {
+        /** The training was created */
+        CREATED,
+        /** The training is invalid or was refused by the database, sending it again will not help */
+        REJECTED,
+        /** The training could not be written for a reason that may pass, it can be sent again */
+        FAILED
+    }
+
+    static TrainingBatchResult created(int index, Long id) {
+        return new TrainingBatchResult(index, Status.CREATED, id, null);
+    }
+
+    static TrainingBatchResult rejected(int index, String error) {
+        return new TrainingBatchResult(index, Status.REJECTED, null, error);
+    }
+
+    static TrainingBatchResult failed(int index, String error) {
+        return new TrainingBatchResult(index, Status.FAILED, null, error);
+    }
+
+    /**
+     * Copies the outcome to another training of the batch.
+     *
+     * @param index position of the other training in the batch
+     * @return the same outcome at the given position
+     */
+    TrainingBatchResult at(int index) {
+        return new TrainingBatchResult(index, status, id, error);
+    }
+}
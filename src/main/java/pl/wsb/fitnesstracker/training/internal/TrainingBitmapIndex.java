@@ -0,0 +1,186 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import org.springframework.stereotype.Component;
+import pl.wsb.fitnesstracker.training.api.Training;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory bitmap indexes of training IDs by activity type, user and start day (UTC), used to combine
+ * filters on those dimensions without loading any training.
+ * <p>
+ * Every value of a dimension has a {@link CompressedIdBitmap} of the trainings having it. A filter ORs the
+ * bitmaps of the requested values of each dimension and intersects the results, starting from the smallest one.
+ * Time windows are resolved to whole days, so trainings starting on the boundary days still have to be checked
+ * against the exact bounds.
+ * <p>
+ * Like the interval index, the returned IDs are candidates that still have to be verified against the database.
+ */
+@Component
+class TrainingBitmapIndex {
+
+    private static final long MILLIS_PER_DAY = TimeUnit.DAYS.toMillis(1);
+
+    private final Map<Long, Entry> entries = new HashMap<>();
+
+    private final CompressedIdBitmap all = new CompressedIdBitmap();
+
+    private final Map<ActivityType, CompressedIdBitmap> byActivityType = new EnumMap<>(ActivityType.class);
+
+    private final Map<Long, CompressedIdBitmap> byUser = new HashMap<>();
+
+    private final NavigableMap<Long, CompressedIdBitmap> byDay = new TreeMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Indexed values of a single training.
+     *
+     * @param activityType activity type
+     * @param userId       ID of the owner, or {@code null} if the training has none
+     * @param day          UTC day of the start time, counted from the epoch
+     */
+    record Entry(ActivityType activityType, Long userId, long day) {
+
+        static Entry of(Training training) {
+            return of(training.getActivityType(), training.getUser() == null ? null : training.getUser().getId(),
+                    training.getStartTime().getTime());
+        }
+
+        static Entry of(ActivityType activityType, Long userId, long startTime) {
+            return new Entry(activityType, userId, dayOf(startTime));
+        }
+    }
+
+    /**
+     * Indexes the training, replacing the previously indexed values.
+     *
+     * @param trainingId ID of the training
+     * @param entry      current values of the training
+     * @return previously indexed values, or {@code null} if the training was not indexed
+     */
+    Entry put(long trainingId, Entry entry) {
+        lock.writeLock().lock();
+        try {
+            Entry previous = entries.put(trainingId, entry);
+            if (previous != null) {
+                unindex(trainingId, previous);
+            }
+            all.add(trainingId);
+            byActivityType.computeIfAbsent(entry.activityType(), type -> new CompressedIdBitmap()).add(trainingId);
+            if (entry.userId() != null) {
+                byUser.computeIfAbsent(entry.userId(), userId -> new CompressedIdBitmap()).add(trainingId);
+            }
+            byDay.computeIfAbsent(entry.day(), day -> new CompressedIdBitmap()).add(trainingId);
+            return previous;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the training from the index.
+     *
+     * @param trainingId ID of the training
+     */
+    void remove(long trainingId) {
+        lock.writeLock().lock();
+        try {
+            Entry previous = entries.remove(trainingId);
+            if (previous != null) {
+                all.remove(trainingId);
+                unindex(trainingId, previous);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds trainings matching all given dimensions. A {@code null} dimension is not filtered on.
+     * <p>
+     * The result is a private copy, unaffected by later writes, so a caller paging through it with
+     * {@link CompressedIdBitmap#toArray(long, int)} combines the bitmaps only once.
+     *
+     * @param activityTypes  activity types of the trainings
+     * @param userIds        IDs of the owners of the trainings
+     * @param startedFrom    lower bound of the start time in epoch milliseconds, rounded down to a whole day
+     * @param startedTo      upper bound of the start time in epoch milliseconds, rounded up to a whole day
+     * @return IDs of candidate trainings
+     */
+    CompressedIdBitmap find(Collection<ActivityType> activityTypes, Collection<Long> userIds, Long startedFrom,
+                            Long startedTo) {
+        lock.readLock().lock();
+        try {
+            List<CompressedIdBitmap> dimensions = new ArrayList<>(3);
+            if (activityTypes != null) {
+                dimensions.add(union(activityTypes.stream().map(byActivityType::get).toList()));
+            }
+            if (userIds != null) {
+                dimensions.add(union(userIds.stream().map(byUser::get).toList()));
+            }
+            if (startedFrom != null || startedTo != null) {
+                long fromDay = startedFrom == null ? Long.MIN_VALUE : dayOf(startedFrom);
+                long toDay = startedTo == null ? Long.MAX_VALUE : dayOf(startedTo);
+                dimensions.add(fromDay > toDay
+                        ? new CompressedIdBitmap()
+                        : union(byDay.subMap(fromDay, true, toDay, true).values()));
+            }
+            dimensions.sort(Comparator.comparingLong(CompressedIdBitmap::cardinality));
+
+            CompressedIdBitmap candidates = dimensions.isEmpty() ? all : dimensions.get(0);
+            for (int i = 1; i < dimensions.size() && !candidates.isEmpty(); i++) {
+                candidates = candidates.and(dimensions.get(i));
+            }
+            // unions share chunks with the index, intersections do not
+            return dimensions.size() > 1 ? candidates : candidates.copy();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void unindex(long trainingId, Entry entry) {
+        removeFrom(byActivityType, entry.activityType(), trainingId);
+        if (entry.userId() != null) {
+            removeFrom(byUser, entry.userId(), trainingId);
+        }
+        removeFrom(byDay, entry.day(), trainingId);
+    }
+
+    private static <K> void removeFrom(Map<K, CompressedIdBitmap> bitmaps, K key, long trainingId) {
+        CompressedIdBitmap bitmap = bitmaps.get(key);
+        bitmap.remove(trainingId);
+        if (bitmap.isEmpty()) {
+            bitmaps.remove(key);
+        }
+    }
+
+    private static CompressedIdBitmap union(Collection<CompressedIdBitmap> bitmaps) {
+        return CompressedIdBitmap.or(bitmaps.stream().filter(Objects::nonNull).toList());
+    }
+
+    private static long dayOf(long epochMillis) {
+        return Math.floorDiv(epochMillis, MILLIS_PER_DAY);
+    }
+}
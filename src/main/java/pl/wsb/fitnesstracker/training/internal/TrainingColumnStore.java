@@ -0,0 +1,241 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import org.springframework.stereotype.Component;
+import pl.wsb.fitnesstracker.training.api.Training;
+import pl.wsb.fitnesstracker.training.api.TrainingSummary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Read-optimized columnar copy of the numeric training data, partitioned by user.
+ * <p>
+ * Trainings of every user are stored in parallel primitive arrays of start and end times (epoch milliseconds),
+ * distances, average speeds and activity type ordinals. New trainings are appended, updated ones are overwritten
+ * in place and removed ones are replaced by the last row. The row of every training is tracked, so writes take
+ * constant time however many trainings a user has. Aggregations scan the arrays sequentially without
+ * materializing entities, dates or users, and allocate nothing but their results.
+ * <p>
+ * Unlike the interval index, the store answers aggregate queries on its own, so it must see every write to
+ * the {@code trainings} table.
+ */
+@Component
+class TrainingColumnStore {
+
+    private final Map<Long, Columns> columnsByUser = new TreeMap<>();
+
+    private final Map<Long, Long> userIdByTraining = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Time column the aggregated trainings are filtered by.
+     */
+    enum TimeColumn {
+        START, END
+    }
+
+    /**
+     * Stored values of a single training.
+     *
+     * @param userId       ID of the owner
+     * @param start        start time in epoch milliseconds
+     * @param end          end time in epoch milliseconds
+     * @param distance     distance
+     * @param averageSpeed average speed
+     * @param activity     ordinal of the activity type
+     */
+    record Row(long userId, long start, long end, double distance, double averageSpeed, int activity) {
+
+        static Row of(Training training) {
+            return new Row(training.getUser().getId(), training.getStartTime().getTime(),
+                    training.getEndTime().getTime(), training.getDistance(), training.getAverageSpeed(),
+                    training.getActivityType().ordinal());
+        }
+    }
+
+    /**
+     * Stores the values of the training, replacing the previously stored ones.
+     *
+     * @param trainingId ID of the training
+     * @param row        current values of the training
+     * @return previously stored values, or {@code null} if the training was not stored
+     */
+    Row put(long trainingId, Row row) {
+        lock.writeLock().lock();
+        try {
+            Long previousUserId = userIdByTraining.put(trainingId, row.userId());
+            Row previous = null;
+            if (previousUserId != null) {
+                Columns previousColumns = columnsByUser.get(previousUserId);
+                int index = previousColumns.indexOf(trainingId);
+                previous = previousColumns.row(index, previousUserId);
+                if (previousUserId == row.userId()) {
+                    previousColumns.set(index, trainingId, row);
+                    return previous;
+                }
+                removeRow(previousUserId, previousColumns, index);
+            }
+            columnsByUser.computeIfAbsent(row.userId(), userId -> new Columns()).append(trainingId, row);
+            return previous;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the training from the store.
+     *
+     * @param trainingId ID of the training
+     */
+    void remove(long trainingId) {
+        lock.writeLock().lock();
+        try {
+            Long userId = userIdByTraining.remove(trainingId);
+            if (userId != null) {
+                Columns columns = columnsByUser.get(userId);
+                removeRow(userId, columns, columns.indexOf(trainingId));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Aggregates trainings of every user whose given time column falls within the range.
+     *
+     * @param column        time column to filter by
+     * @param fromInclusive lower bound in epoch milliseconds
+     * @param toInclusive   upper bound in epoch milliseconds
+     * @return summaries of users with at least one matching training, ordered by user ID
+     */
+    List<TrainingSummary> summarizeByUser(TimeColumn column, long fromInclusive, long toInclusive) {
+        lock.readLock().lock();
+        try {
+            List<TrainingSummary> summaries = new ArrayList<>();
+            columnsByUser.forEach((userId, columns) -> {
+                TrainingSummary summary = columns.summarize(userId, column, fromInclusive, toInclusive);
+                if (summary != null) {
+                    summaries.add(summary);
+                }
+            });
+            return summaries;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return userIdByTraining.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeRow(long userId, Columns columns, int index) {
+        columns.swapRemove(index);
+        if (columns.size == 0) {
+            columnsByUser.remove(userId);
+        }
+    }
+
+    /**
+     * Trainings of a single user stored as parallel arrays, in no particular order, together with the row of
+     * every training.
+     */
+    private static final class Columns {
+
+        private static final int INITIAL_CAPACITY = 8;
+
+        private final Map<Long, Integer> rowByTraining = new HashMap<>();
+
+        long[] ids = new long[INITIAL_CAPACITY];
+
+        long[] starts = new long[INITIAL_CAPACITY];
+
+        long[] ends = new long[INITIAL_CAPACITY];
+
+        double[] distances = new double[INITIAL_CAPACITY];
+
+        double[] averageSpeeds = new double[INITIAL_CAPACITY];
+
+        byte[] activities = new byte[INITIAL_CAPACITY];
+
+        int size;
+
+        void append(long trainingId, Row row) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                starts = Arrays.copyOf(starts, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+                distances = Arrays.copyOf(distances, capacity);
+                averageSpeeds = Arrays.copyOf(averageSpeeds, capacity);
+                activities = Arrays.copyOf(activities, capacity);
+            }
+            set(size++, trainingId, row);
+        }
+
+        void set(int index, long trainingId, Row row) {
+            ids[index] = trainingId;
+            starts[index] = row.start();
+            ends[index] = row.end();
+            distances[index] = row.distance();
+            averageSpeeds[index] = row.averageSpeed();
+            activities[index] = (byte) row.activity();
+            rowByTraining.put(trainingId, index);
+        }
+
+        void swapRemove(int index) {
+            rowByTraining.remove(ids[index]);
+            int last = --size;
+            if (index == last) {
+                return;
+            }
+            ids[index] = ids[last];
+            starts[index] = starts[last];
+            ends[index] = ends[last];
+            distances[index] = distances[last];
+            averageSpeeds[index] = averageSpeeds[last];
+            activities[index] = activities[last];
+            rowByTraining.put(ids[index], index);
+        }
+
+        int indexOf(long trainingId) {
+            Integer index = rowByTraining.get(trainingId);
+            if (index == null) {
+                throw new IllegalStateException("Training " + trainingId + " is not stored");
+            }
+            return index;
+        }
+
+        Row row(int index, long userId) {
+            return new Row(userId, starts[index], ends[index], distances[index], averageSpeeds[index],
+                    activities[index]);
+        }
+
+        TrainingSummary summarize(long userId, TimeColumn column, long fromInclusive, long toInclusive) {
+            long[] times = column == TimeColumn.START ? starts : ends;
+            int count = 0;
+            double totalDistance = 0;
+            double totalSpeed = 0;
+            for (int i = 0; i < size; i++) {
+                long time = times[i];
+                if (time >= fromInclusive && time <= toInclusive) {
+                    count++;
+                    totalDistance += distances[i];
+                    totalSpeed += averageSpeeds[i];
+                }
+            }
+            return count == 0 ? null : new TrainingSummary(userId, count, totalDistance, totalSpeed / count);
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package pl.wsb.fitnesstracker.training.internal;
 
 // Spring Framework imports
+import org.springframework.http.MediaType;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -9,17 +11,40 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
 // Application imports
+import pl.wsb.fitnesstracker.exception.api.BusinessException;
+import pl.wsb.fitnesstracker.training.api.TrackPoint;
 import pl.wsb.fitnesstracker.training.api.Training;
+import pl.wsb.fitnesstracker.training.api.TrainingFilter;
 import pl.wsb.fitnesstracker.training.api.TrainingService;
 
 // Java standard imports
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+
+// Third-party imports
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
 // Lombok imports
 import lombok.RequiredArgsConstructor;
@@ -41,6 +66,36 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class TrainingController {
 
+    // ========== Constants ==========
+
+    /** Header carrying the ID cursor of the next page */
+    static final String NEXT_PAGE_HEADER = "X-Next-After";
+
+    /** Header carrying the start time cursor of the next page when sorting by start time */
+    static final String NEXT_PAGE_START_TIME_HEADER = "X-Next-After-Start-Time";
+
+    /** Header carrying the key that makes retried creation requests idempotent */
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    /** Header carrying the preferences of the client (RFC 7240) */
+    static final String PREFER_HEADER = "Prefer";
+
+    /** Preference opting in to asynchronous creation (RFC 7240) */
+    static final String RESPOND_ASYNC = "respond-async";
+
+    /** Default number of trainings returned by the filter endpoint */
+    static final String DEFAULT_FILTER_LIMIT = "100";
+
+    /** Sort order by training ID */
+    static final String SORT_BY_ID = "id";
+
+    /** Sort order by training start time (and ID) */
+    static final String SORT_BY_START_TIME = "startTime";
+
+    /** Formatter of start time cursors, matching the ISO date-time format accepted by the endpoints */
+    private static final DateTimeFormatter CURSOR_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSXXX").withZone(ZoneOffset.UTC);
+
     // ========== Dependencies ==========
 
     /** Service for training operations */
@@ -49,21 +104,47 @@ public class TrainingController {
     /** Mapper for converting between entity and DTO objects */
     private final TrainingMapper trainingMapper;
 
+    /** Ingestor creating whole batches of trainings */
+    private final TrainingBatchIngestor batchIngestor;
+
+    /** Service queueing trainings for asynchronous creation */
+    private final TrainingIngestionService ingestionService;
+
+    /** Service storing and reading GPS tracks of trainings */
+    private final TrainingTrackService trackService;
+
+    /** Object mapper used to serialize streamed trainings */
+    private final ObjectMapper objectMapper;
+
     // ========== Command Endpoints (POST, PUT) ==========
 
     /**
      * Creates a new training record in the system.
      * 
+     * A request carrying an {@code Idempotency-Key} header creates the training only once: retries with
+     * the same key get the originally created training in response. A request preferring
+     * {@code respond-async} among its {@code Prefer} header preferences is queued instead, see
+     * {@link #submitNewTraining}.
+     * 
      * @param trainingDto The training data transfer object containing all necessary information
+     * @param idempotencyKey The key chosen by the client for the training, optional
+     * @param preferences The preferences of the client, optional
      * @return ResponseEntity containing the created training with HTTP status 201 (Created)
      */
     @PostMapping
-    public ResponseEntity<TrainingDto> registerNewTraining(@RequestBody CreateTrainingDTO trainingDto) {
+    public ResponseEntity<?> registerNewTraining(
+            @RequestBody CreateTrainingDTO trainingDto,
+            @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @RequestHeader(name = PREFER_HEADER, required = false) List<String> preferences) {
+        if (prefersRespondAsync(preferences)) {
+            return submitNewTraining(trainingDto, idempotencyKey);
+        }
         log.info("Received request to create new training for user ID: {}", trainingDto.getUserId());
 
         // Convert DTO to entity and persist
         Training trainingEntity = trainingMapper.convertToEntity(trainingDto);
-        Training persistedTraining = trainingService.createTraining(trainingEntity, trainingDto.getUserId());
+        Training persistedTraining = trainingService.createTraining(trainingEntity, trainingDto.getUserId(),
+                idempotencyKey);
 
         // Convert persisted entity back to DTO
         TrainingDto responseDto = trainingMapper.convertToDto(persistedTraining);
@@ -72,6 +153,56 @@ public class TrainingController {
         return new ResponseEntity<>(responseDto, HttpStatus.CREATED);
     }
 
+    /**
+     * Queues a new training record for asynchronous creation, for clients sending the
+     * {@code Prefer: respond-async} header. The training is validated and created in the background, only once
+     * per {@code Idempotency-Key}: a retried submission completes with the originally created training.
+     * 
+     * @param trainingDto The training data transfer object containing all necessary information
+     * @param idempotencyKey The key chosen by the client for the training, optional
+     * @return ResponseEntity with HTTP status 202 (Accepted) carrying the ticket of the submission and its
+     * location, or HTTP status 429 (Too Many Requests) if the ingestion buffer is full
+     */
+    private ResponseEntity<TrainingIngestionTicket> submitNewTraining(CreateTrainingDTO trainingDto,
+                                                                      String idempotencyKey) {
+        log.debug("Received request to queue new training for user ID: {}", trainingDto.getUserId());
+
+        return ingestionService.submit(trainingDto, idempotencyKey)
+                .map(ticket -> ResponseEntity.accepted()
+                        .location(URI.create("/v1/trainings/ingestion/" + ticket.ticket()))
+                        .body(ticket))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .header(HttpHeaders.RETRY_AFTER, "1")
+                        .build());
+    }
+
+    /**
+     * Retrieves the state of a training queued for asynchronous creation.
+     * 
+     * @param ticket The ticket returned when the training was queued
+     * @return The state of the submission, or HTTP status 404 (Not Found) if the ticket is unknown
+     */
+    @GetMapping("/ingestion/{ticket}")
+    public ResponseEntity<TrainingIngestionTicket> retrieveIngestionTicket(@PathVariable String ticket) {
+        return ingestionService.getTicket(ticket)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Creates a batch of training records at once.
+     * Every training is validated and created or rejected individually. Trainings that could not be written for
+     * a reason that may pass are reported as failed and can be sent again.
+     * 
+     * @param trainingDtos The trainings to create
+     * @return The per-training results, in batch order
+     */
+    @PostMapping("/batch")
+    public List<TrainingBatchResult> registerTrainingBatch(@RequestBody List<CreateTrainingDTO> trainingDtos) {
+        log.info("Received request to create batch of {} trainings", trainingDtos.size());
+        return batchIngestor.ingest(trainingDtos);
+    }
+
     /**
      * Updates an existing training record in the system.
      * 
@@ -94,6 +225,34 @@ public class TrainingController {
         return responseDto;
     }
 
+    /**
+     * Stores the GPS track of a training, replacing the previously stored one.
+     * The points are read from the request body and encoded one by one.
+     * 
+     * @param trainingId The ID of the training the track was recorded during
+     * @param request The request carrying a JSON array of track points, in recording order
+     * @throws IOException if the request body cannot be read
+     * @throws BusinessException if the body is not a JSON array of valid track points
+     */
+    @PutMapping(path = "/{trainingId}/track", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void storeTrack(@PathVariable Long trainingId, HttpServletRequest request) throws IOException {
+        log.info("Received request to store track of training ID: {}", trainingId);
+
+        try (MappingIterator<TrackPoint> points = objectMapper.readerFor(TrackPoint.class)
+                .readValues(request.getInputStream())) {
+            trackService.storeTrack(trainingId, points);
+        } catch (JsonProcessingException e) {
+            throw new BusinessException("Malformed track: " + e.getOriginalMessage());
+        } catch (RuntimeException e) {
+            // the iterator reports parsing errors found while advancing as unchecked exceptions
+            if (e instanceof RuntimeJsonMappingException || e.getCause() instanceof JsonProcessingException) {
+                throw new BusinessException("Malformed track: " + e.getMessage());
+            }
+            throw e;
+        }
+    }
+
     // ========== Query Endpoints (GET) ==========
 
     /**
@@ -114,6 +273,132 @@ public class TrainingController {
         return trainings;
     }
 
+    /**
+     * Retrieves a page of training records using keyset pagination.
+     * If the page is full, the cursor of the next page is returned in the {@value #NEXT_PAGE_HEADER} header
+     * and, when sorting by start time, the {@value #NEXT_PAGE_START_TIME_HEADER} header.
+     * 
+     * @param sort The sort order, either {@value #SORT_BY_ID} (default) or {@value #SORT_BY_START_TIME}
+     * @param after The ID of the last training of the previous page
+     * @param afterStartTime The start time of the last training of the previous page (ISO date-time),
+     *                       used only when sorting by start time
+     * @param limit The maximum number of trainings to return
+     * @return A page of training records
+     */
+    @GetMapping(params = "limit")
+    public ResponseEntity<List<TrainingDto>> retrieveTrainingsPage(
+            @RequestParam(defaultValue = SORT_BY_ID) String sort,
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date afterStartTime,
+            @RequestParam int limit) {
+        log.info("Received request to retrieve {} trainings sorted by {} after: {} / {}", limit, sort, afterStartTime, after);
+
+        List<Training> trainings = switch (sort) {
+            case SORT_BY_ID -> trainingService.findTrainingsAfter(after, limit);
+            case SORT_BY_START_TIME -> trainingService.findTrainingsStartingAfter(afterStartTime, after, limit);
+            default -> throw new BusinessException("Unsupported sort order: " + sort);
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (trainings.size() == limit) {
+            Training last = trainings.get(trainings.size() - 1);
+            response.header(NEXT_PAGE_HEADER, String.valueOf(last.getId()));
+            if (SORT_BY_START_TIME.equals(sort)) {
+                response.header(NEXT_PAGE_START_TIME_HEADER, CURSOR_FORMATTER.format(last.getStartTime().toInstant()));
+            }
+        }
+        return response.body(trainings.stream().map(trainingMapper::convertToDto).toList());
+    }
+
+    /**
+     * Retrieves a page of training records matching all given conditions, ordered by ID.
+     * Repeated activity type and user ID parameters match any of their values. If the page is full,
+     * the cursor of the next page is returned in the {@value #NEXT_PAGE_HEADER} header.
+     * 
+     * @param activityType The activity types to match
+     * @param userId The IDs of the users to match
+     * @param startedFrom The earliest start time (ISO date-time)
+     * @param startedTo The latest start time (ISO date-time)
+     * @param minDistance The minimum distance
+     * @param maxDistance The maximum distance
+     * @param minSpeed The minimum average speed
+     * @param maxSpeed The maximum average speed
+     * @param after The ID of the last training of the previous page
+     * @param limit The maximum number of trainings to return
+     * @return A page of matching training records
+     */
+    @GetMapping("/filter")
+    public ResponseEntity<List<TrainingDto>> filterTrainings(
+            @RequestParam(required = false) Set<ActivityType> activityType,
+            @RequestParam(required = false) Set<Long> userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date startedFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date startedTo,
+            @RequestParam(required = false) Double minDistance,
+            @RequestParam(required = false) Double maxDistance,
+            @RequestParam(required = false) Double minSpeed,
+            @RequestParam(required = false) Double maxSpeed,
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = DEFAULT_FILTER_LIMIT) int limit) {
+        TrainingFilter filter = new TrainingFilter(activityType, userId, startedFrom, startedTo,
+                minDistance, maxDistance, minSpeed, maxSpeed);
+        log.info("Received request to retrieve {} trainings after: {} matching: {}", limit, after, filter);
+
+        List<Training> trainings = trainingService.findTrainings(filter, after, limit);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (trainings.size() == limit) {
+            response.header(NEXT_PAGE_HEADER, String.valueOf(trainings.get(trainings.size() - 1).getId()));
+        }
+        return response.body(trainings.stream().map(trainingMapper::convertToDto).toList());
+    }
+
+    /**
+     * Exports all training records as newline-delimited JSON, ordered by ID.
+     * Trainings are streamed from the database and written one by one, so the memory used
+     * does not depend on the number of trainings.
+     * 
+     * @param response The response the trainings are written to
+     * @throws IOException if writing the response fails
+     */
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void exportAllTrainings(HttpServletResponse response) throws IOException {
+        log.info("Received request to export all trainings");
+
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        OutputStream output = response.getOutputStream();
+        trainingService.forEachTraining(training -> {
+            try {
+                output.write(objectMapper.writeValueAsBytes(trainingMapper.convertToDto(training)));
+                output.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        output.flush();
+    }
+
+    /**
+     * Retrieves the GPS track of a training as a JSON array of points.
+     * The points are decoded one by one while the response is written.
+     * 
+     * @param trainingId The ID of the training
+     * @param response The response the points are written to
+     * @throws IOException if the response cannot be written
+     */
+    @GetMapping("/{trainingId}/track")
+    public void retrieveTrack(@PathVariable Long trainingId, HttpServletResponse response) throws IOException {
+        log.info("Received request to retrieve track of training ID: {}", trainingId);
+
+        Iterator<TrackPoint> points = trackService.readTrack(trainingId);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        try (SequenceWriter writer = objectMapper.writerFor(TrackPoint.class)
+                .writeValuesAsArray(response.getOutputStream())) {
+            while (points.hasNext()) {
+                writer.write(points.next());
+            }
+        }
+    }
+
     /**
      * Retrieves all training records for a specific user.
      * 
@@ -171,4 +456,76 @@ public class TrainingController {
         log.info("Returning {} trainings with activity type: {}", trainings.size(), activityType);
         return trainings;
     }
+
+    /**
+     * Retrieves all training records overlapping a time window.
+     * 
+     * @param from The start of the window (ISO date-time)
+     * @param to The end of the window (ISO date-time)
+     * @return A list of training records overlapping the window, ordered by start time
+     */
+    @GetMapping("/overlapping")
+    public List<TrainingDto> retrieveTrainingsOverlapping(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to) {
+        log.info("Received request to retrieve trainings overlapping: {} - {}", from, to);
+
+        return trainingService.findTrainingsOverlapping(from, to)
+                .stream()
+                .map(trainingMapper::convertToDto)
+                .toList();
+    }
+
+    /**
+     * Retrieves all training records lasting through a whole time window.
+     * 
+     * @param from The start of the window (ISO date-time)
+     * @param to The end of the window (ISO date-time)
+     * @return A list of training records containing the window, ordered by start time
+     */
+    @GetMapping("/containing")
+    public List<TrainingDto> retrieveTrainingsContaining(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to) {
+        log.info("Received request to retrieve trainings containing: {} - {}", from, to);
+
+        return trainingService.findTrainingsContaining(from, to)
+                .stream()
+                .map(trainingMapper::convertToDto)
+                .toList();
+    }
+
+    /**
+     * Retrieves all training records in progress at a specific instant.
+     * 
+     * @param at The instant (ISO date-time)
+     * @return A list of training records in progress at the instant, ordered by start time
+     */
+    @GetMapping("/active")
+    public List<TrainingDto> retrieveTrainingsActiveAt(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date at) {
+        log.info("Received request to retrieve trainings active at: {}", at);
+
+        return trainingService.findTrainingsActiveAt(at)
+                .stream()
+                .map(trainingMapper::convertToDto)
+                .toList();
+    }
+
+    /**
+     * Checks whether any of the {@code Prefer} header values lists the {@code respond-async} preference, ignoring
+     * the other preferences, their values and parameters.
+     * 
+     * @param preferences The values of the {@code Prefer} header, or null if there are none
+     * @return true if the client prefers an asynchronous response
+     */
+    static boolean prefersRespondAsync(List<String> preferences) {
+        if (preferences == null) {
+            return false;
+        }
+        return preferences.stream()
+                .flatMap(header -> Arrays.stream(header.split(",")))
+                .map(preference -> preference.split("[=;]", 2)[0].trim())
+                .anyMatch(RESPOND_ASYNC::equalsIgnoreCase);
+    }
 }
@@ -90,27 +90,8 @@ public class TrainingDto {
         // Default weight if not provided
         double weight = weightKg > 0 ? weightKg : 70.0;
 
-        // MET values (Metabolic Equivalent of Task) for different activities
-        double metValue;
-        switch (activityType) {
-            case RUNNING:
-                metValue = 10.0;
-                break;
-            case CYCLING:
-                metValue = 8.0;
-                break;
-            case SWIMMING:
-                metValue = 7.0;
-                break;
-            case WALKING:
-                metValue = 3.5;
-                break;
-            default:
-                metValue = 5.0;
-        }
-
         // Calories = MET * weight (kg) * duration (hours)
         double durationHours = getDurationMinutes() / 60.0;
-        return (int) (metValue * weight * durationHours);
+        return (int) (activityType.getMetValue() * weight * durationHours);
     }
 }
@@ -0,0 +1,104 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over the idempotency keys of all stored trainings, consulted before looking a key up in the
+ * database.
+ * <p>
+ * A key that was never stored is reported as absent with a probability of at least
+ * {@code 1 - }{@value #DEFAULT_FALSE_POSITIVE_PROBABILITY} as long as no more than {@value #DEFAULT_EXPECTED_KEYS}
+ * keys were added, so the first request carrying a fresh key usually skips the lookup. A stored key is never
+ * reported as absent. Keys cannot be removed, but keys of removed or rolled back trainings only cost an
+ * occasional needless lookup.
+ */
+@Component
+class TrainingIdempotencyKeyFilter {
+
+    static final int DEFAULT_EXPECTED_KEYS = 1_000_000;
+
+    static final double DEFAULT_FALSE_POSITIVE_PROBABILITY = 0.01;
+
+    private final AtomicLongArray bits;
+
+    private final long bitCount;
+
+    private final int hashCount;
+
+    TrainingIdempotencyKeyFilter() {
+        this(DEFAULT_EXPECTED_KEYS, DEFAULT_FALSE_POSITIVE_PROBABILITY);
+    }
+
+    TrainingIdempotencyKeyFilter(int expectedKeys, double falsePositiveProbability) {
+        if (expectedKeys <= 0) {
+            throw new IllegalArgumentException("Expected number of keys must be positive");
+        }
+        if (falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+            throw new IllegalArgumentException("False positive probability must be between 0 and 1");
+        }
+        long optimalBits = (long) Math.ceil(-expectedKeys * Math.log(falsePositiveProbability)
+                / (Math.log(2) * Math.log(2)));
+        this.bits = new AtomicLongArray(Math.toIntExact((optimalBits + Long.SIZE - 1) / Long.SIZE));
+        this.bitCount = (long) bits.length() * Long.SIZE;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedKeys * Math.log(2)));
+    }
+
+    /**
+     * Adds the key to the filter.
+     *
+     * @param key idempotency key of a stored training
+     */
+    void put(String key) {
+        long hash = hash(key);
+        int first = (int) hash;
+        int second = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = index(first + i * second);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = bits.get(word);
+            while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+                current = bits.get(word);
+            }
+        }
+    }
+
+    /**
+     * Tells whether a training with the key may have been stored.
+     *
+     * @param key idempotency key
+     * @return {@code false} if the key was certainly never added, {@code true} otherwise
+     */
+    boolean mightContain(String key) {
+        long hash = hash(key);
+        int first = (int) hash;
+        int second = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = index(first + i * second);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long index(int combinedHash) {
+        return (combinedHash & 0xFFFFFFFFL) % bitCount;
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the characters of the key, finished with the MurmurHash3 mixer so both halves can
+     * serve as independent hashes.
+     */
+    private static long hash(String key) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash = (hash ^ key.charAt(i)) * 0x100000001B3L;
+        }
+        hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+        hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
+    }
+}
@@ -0,0 +1,67 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+
+/**
+ * Builds the in-memory training indexes, the column store and the idempotency key filter from the trainings
+ * already stored in the database.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+class TrainingIndexInitializer {
+
+    private final TrainingIntervalIndex intervalIndex;
+
+    private final TrainingColumnStore columnStore;
+
+    private final TrainingBitmapIndex bitmapIndex;
+
+    private final TrainingIdempotencyKeyFilter idempotencyKeyFilter;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void buildIndexes() {
+        AtomicInteger count = new AtomicInteger();
+        try (Stream<Object[]> rows = entityManager
+                .createQuery("""
+                        select t.id, t.startTime, t.endTime, u.id, t.distance, t.averageSpeed, t.activityType,
+                               t.idempotencyKey
+                        from Training t left join t.user u
+                        """, Object[].class)
+                .setHint(HINT_FETCH_SIZE, 500)
+                .getResultStream()) {
+            rows.forEach(row -> {
+                long start = ((Date) row[1]).getTime();
+                long end = ((Date) row[2]).getTime();
+                intervalIndex.put((Long) row[0], start, end);
+                bitmapIndex.put((Long) row[0], TrainingBitmapIndex.Entry.of((ActivityType) row[6], (Long) row[3], start));
+                if (row[3] != null) {
+                    columnStore.put((Long) row[0], new TrainingColumnStore.Row((Long) row[3], start, end,
+                            (Double) row[4], (Double) row[5], ((ActivityType) row[6]).ordinal()));
+                }
+                if (row[7] != null) {
+                    idempotencyKeyFilter.put((String) row[7]);
+                }
+                count.incrementAndGet();
+            });
+        }
+        log.info("Indexed {} trainings", count.get());
+    }
+}
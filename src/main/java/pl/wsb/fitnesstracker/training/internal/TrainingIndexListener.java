@@ -0,0 +1,85 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.stereotype.Component;
+import pl.wsb.fitnesstracker.training.api.Training;
+import pl.wsb.fitnesstracker.transaction.api.EntityWriteListener;
+import pl.wsb.fitnesstracker.transaction.api.EntityWriteListeners;
+
+import static pl.wsb.fitnesstracker.transaction.api.TransactionCallbacks.afterCommit;
+import static pl.wsb.fitnesstracker.transaction.api.TransactionCallbacks.afterRollback;
+
+/**
+ * Entity write listener keeping the in-memory training indexes and the column store in sync with every write to
+ * the {@code trainings} table that goes through JPA.
+ * <p>
+ * New values are indexed as soon as they are flushed and restored if the transaction rolls back, as queries verify
+ * the indexed trainings against the database. The column store is read without such a check, so it only gets
+ * values once the transaction commits. Removals are deferred until the transaction commits. Idempotency keys are
+ * added to the filter for good.
+ */
+@Component
+class TrainingIndexListener implements EntityWriteListener<Training> {
+
+    private final TrainingIntervalIndex intervalIndex;
+
+    private final TrainingColumnStore columnStore;
+
+    private final TrainingBitmapIndex bitmapIndex;
+
+    private final TrainingIdempotencyKeyFilter idempotencyKeyFilter;
+
+    TrainingIndexListener(TrainingIntervalIndex intervalIndex, TrainingColumnStore columnStore,
+                          TrainingBitmapIndex bitmapIndex, TrainingIdempotencyKeyFilter idempotencyKeyFilter,
+                          EntityManagerFactory entityManagerFactory) {
+        this.intervalIndex = intervalIndex;
+        this.columnStore = columnStore;
+        this.bitmapIndex = bitmapIndex;
+        this.idempotencyKeyFilter = idempotencyKeyFilter;
+        EntityWriteListeners.register(entityManagerFactory, Training.class, this);
+    }
+
+    @Override
+    public void onSave(Training training) {
+        Long trainingId = training.getId();
+        if (training.getIdempotencyKey() != null) {
+            idempotencyKeyFilter.put(training.getIdempotencyKey());
+        }
+        long[] previous = intervalIndex.put(trainingId, training.getStartTime().getTime(),
+                training.getEndTime().getTime());
+        afterRollback(() -> {
+            if (previous == null) {
+                intervalIndex.remove(trainingId);
+            } else {
+                intervalIndex.put(trainingId, previous[0], previous[1]);
+            }
+        });
+        TrainingBitmapIndex.Entry previousEntry = bitmapIndex.put(trainingId, TrainingBitmapIndex.Entry.of(training));
+        afterRollback(() -> {
+            if (previousEntry == null) {
+                bitmapIndex.remove(trainingId);
+            } else {
+                bitmapIndex.put(trainingId, previousEntry);
+            }
+        });
+        // reports are aggregated from the column store without checking the database
+        TrainingColumnStore.Row row = training.getUser() == null ? null : TrainingColumnStore.Row.of(training);
+        afterCommit(() -> {
+            if (row == null) {
+                columnStore.remove(trainingId);
+            } else {
+                columnStore.put(trainingId, row);
+            }
+        });
+    }
+
+    @Override
+    public void onRemove(Training training) {
+        Long trainingId = training.getId();
+        afterCommit(() -> {
+            intervalIndex.remove(trainingId);
+            bitmapIndex.remove(trainingId);
+            columnStore.remove(trainingId);
+        });
+    }
+}
@@ -0,0 +1,10 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(TrainingIngestionProperties.class)
+class TrainingIngestionConfig {
+
+}
@@ -0,0 +1,150 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.Nullable;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Local append-only log of trainings submitted for asynchronous ingestion, so that trainings accepted but not yet
+ * written survive a restart.
+ * <p>
+ * Every submission is appended as an NDJSON line and every written submission is later marked by a completion
+ * line. Submissions without a completion line are replayed on startup. Once nothing is pending, the log is
+ * truncated, so it only grows while the writer is behind.
+ */
+@Component
+@Slf4j
+class TrainingIngestionLog {
+
+    private final Path file;
+
+    private final ObjectMapper objectMapper;
+
+    private final FileChannel channel;
+
+    /**
+     * Single line of the log: either a submitted training, with the idempotency key chosen by the client if any,
+     * or the completion of a submission.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    record Entry(String ticket, @Nullable CreateTrainingDTO training, @Nullable String idempotencyKey,
+                 boolean completed) {
+    }
+
+    TrainingIngestionLog(TrainingIngestionProperties properties, ObjectMapper objectMapper) throws IOException {
+        this.file = properties.getLogFile().toAbsolutePath();
+        this.objectMapper = objectMapper;
+        Files.createDirectories(file.getParent());
+        this.channel = FileChannel.open(file, CREATE, WRITE, APPEND);
+    }
+
+    /**
+     * Appends a submitted training. The entry is durable only after the next {@link #sync()}.
+     */
+    synchronized void append(String ticket, CreateTrainingDTO training, @Nullable String idempotencyKey) {
+        write(List.of(new Entry(ticket, training, idempotencyKey, false)));
+    }
+
+    /**
+     * Marks the submissions as written, with a single write for all of them.
+     */
+    synchronized void complete(Collection<String> tickets) {
+        write(tickets.stream().map(ticket -> new Entry(ticket, null, null, true)).toList());
+    }
+
+    /**
+     * Forces all appended entries to the storage device.
+     */
+    void sync() {
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Drops all entries. Must only be called when no submission is pending.
+     */
+    synchronized void truncate() {
+        try {
+            channel.truncate(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the submissions that were not marked as written, in submission order. A line that cannot be parsed,
+     * such as one cut short by a crash, is skipped.
+     *
+     * @return pending submissions by ticket
+     */
+    synchronized Map<String, Entry> readPending() {
+        Map<String, Entry> pending = new LinkedHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    Entry entry = objectMapper.readValue(line, Entry.class);
+                    if (entry.completed()) {
+                        pending.remove(entry.ticket());
+                    } else if (entry.training() != null) {
+                        pending.put(entry.ticket(), entry);
+                    }
+                } catch (JsonProcessingException e) {
+                    log.warn("Skipping unreadable training ingestion log entry: {}", e.getOriginalMessage());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return pending;
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        channel.close();
+    }
+
+    private void write(List<Entry> entries) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            for (Entry entry : entries) {
+                bytes.write(objectMapper.writeValueAsBytes(entry));
+                bytes.write('\n');
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import lombok.Getter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+
+/**
+ * Configuration of the asynchronous training ingestion.
+ */
+@ConfigurationProperties(prefix = "training.ingestion")
+@Getter
+class TrainingIngestionProperties {
+
+    /**
+     * Maximum number of trainings waiting to be written. Further submissions are rejected until the writer
+     * catches up.
+     */
+    private final int capacity;
+
+    /**
+     * File of the append-only log keeping submitted trainings until they are written.
+     */
+    private final Path logFile;
+
+    TrainingIngestionProperties(@DefaultValue("10000") int capacity,
+                                @DefaultValue("training-ingestion.log") Path logFile) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.logFile = logFile;
+    }
+}
@@ -0,0 +1,289 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import pl.wsb.fitnesstracker.exception.api.BusinessException;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous ingestion of trainings, decoupling request threads from database commits.
+ * <p>
+ * A submission is appended to the {@link TrainingIngestionLog} and put into a bounded in-memory ring buffer,
+ * and the caller gets a ticket right away. If the buffer is full, the submission is refused, so a slow database
+ * pushes back on clients instead of exhausting memory. A writer on its own thread, so that it never waits for other
+ * scheduled tasks, drains the buffer every {@value #WRITE_DELAY_MILLIS} ms in batches of up to
+ * {@value TrainingBatchIngestor#CHUNK_SIZE} trainings, each created by the {@link TrainingBatchIngestor} with
+ * a single commit, and records the outcome of every ticket. Submissions still in the log on startup are
+ * written right away under their original tickets.
+ * <p>
+ * Only created and rejected trainings are marked as completed in the log. Trainings that failed for a reason that
+ * may pass, such as the database being unavailable, stay queued and are retried after a delay doubling with every
+ * consecutive failure, up to {@value #MAX_RETRY_DELAY_MILLIS} ms, and the log is only truncated once nothing is
+ * left to retry. Every training is written with the idempotency key chosen by the client, or with one derived from
+ * the ticket, so neither a training written before its completion reached the log nor one submitted again by
+ * a retrying client is created twice.
+ */
+@Service
+@Slf4j
+class TrainingIngestionService {
+
+    static final int MAX_TRACKED_TICKETS = 100_000;
+
+    static final long WRITE_DELAY_MILLIS = 100;
+
+    static final int MAX_BATCHES_PER_RUN = 20;
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    static final long RETRY_DELAY_MILLIS = 100;
+
+    static final long MAX_RETRY_DELAY_MILLIS = 30_000;
+
+    private static final String IDEMPOTENCY_KEY_PREFIX = "ingestion-";
+
+    private final BlockingQueue<Submission> buffer;
+
+    private final Map<String, TrainingIngestionTicket> tickets =
+            Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, false) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, TrainingIngestionTicket> eldest) {
+                    return size() > MAX_TRACKED_TICKETS;
+                }
+            });
+
+    private final TrainingIngestionLog ingestionLog;
+
+    private final TrainingBatchIngestor batchIngestor;
+
+    private final Object submitLock = new Object();
+
+    private boolean recovered;
+
+    /** Submissions taken from the buffer or the log that still have to be written, guarded by this service */
+    private final Deque<Submission> retries = new ArrayDeque<>();
+
+    private int consecutiveFailures;
+
+    private long retryAt;
+
+    private ScheduledExecutorService writer;
+
+    private record Submission(String ticket, CreateTrainingDTO training, String idempotencyKey) {
+
+        String effectiveIdempotencyKey() {
+            return idempotencyKey != null ? idempotencyKey : IDEMPOTENCY_KEY_PREFIX + ticket;
+        }
+    }
+
+    TrainingIngestionService(TrainingIngestionProperties properties, TrainingIngestionLog ingestionLog,
+                             TrainingBatchIngestor batchIngestor) {
+        this.buffer = new ArrayBlockingQueue<>(properties.getCapacity());
+        this.ingestionLog = ingestionLog;
+        this.batchIngestor = batchIngestor;
+    }
+
+    /**
+     * Queues the training for ingestion. Returns once the submission is durably logged.
+     *
+     * @param training training to create
+     * @return ticket of the submission, or {@link Optional#empty()} if the buffer is full
+     */
+    Optional<TrainingIngestionTicket> submit(final CreateTrainingDTO training) {
+        return submit(training, null);
+    }
+
+    /**
+     * Queues the training for ingestion, to be created at most once per idempotency key. A submission repeating
+     * the key of a training created earlier by the same user completes with that training.
+     *
+     * @param training       training to create
+     * @param idempotencyKey key chosen by the client for the training, or {@code null} to always create it
+     * @return ticket of the submission, or {@link Optional#empty()} if the buffer is full
+     * @throws BusinessException if the key is blank or too long
+     */
+    Optional<TrainingIngestionTicket> submit(final CreateTrainingDTO training, final String idempotencyKey) {
+        if (idempotencyKey != null) {
+            TrainingServiceImpl.validateIdempotencyKey(idempotencyKey);
+        }
+        TrainingIngestionTicket ticket;
+        synchronized (submitLock) {
+            if (buffer.remainingCapacity() == 0) {
+                log.warn("Training ingestion buffer is full, refusing submission");
+                return Optional.empty();
+            }
+            ticket = TrainingIngestionTicket.queued(UUID.randomUUID().toString());
+            ingestionLog.append(ticket.ticket(), training, idempotencyKey);
+            tickets.put(ticket.ticket(), ticket);
+            buffer.add(new Submission(ticket.ticket(), training, idempotencyKey));
+        }
+        ingestionLog.sync();
+        return Optional.of(ticket);
+    }
+
+    /**
+     * Returns the state of a submission, as long as it is among the {@value #MAX_TRACKED_TICKETS} most recent ones.
+     *
+     * @param ticket ticket of the submission
+     * @return state of the submission, or {@link Optional#empty()} if the ticket is unknown
+     */
+    Optional<TrainingIngestionTicket> getTicket(final String ticket) {
+        return Optional.ofNullable(tickets.get(ticket));
+    }
+
+    int queued() {
+        return buffer.size();
+    }
+
+    /**
+     * Writes trainings to retry and queued ones, batch by batch, until a batch fails or
+     * {@value #MAX_BATCHES_PER_RUN} batches were written, so that a steady stream of submissions does not keep
+     * the writer in a single run. Does nothing until
+     * the log was recovered, as it could otherwise truncate submissions logged before the last shutdown, or
+     * while waiting to retry a failed batch.
+     */
+    public synchronized void writePending() {
+        if (!recovered || (buffer.isEmpty() && retries.isEmpty()) || System.currentTimeMillis() < retryAt) {
+            return;
+        }
+        List<Submission> batch = new ArrayList<>(TrainingBatchIngestor.CHUNK_SIZE);
+        for (int batches = 0; batches < MAX_BATCHES_PER_RUN; batches++) {
+            while (batch.size() < TrainingBatchIngestor.CHUNK_SIZE && !retries.isEmpty()) {
+                batch.add(retries.poll());
+            }
+            buffer.drainTo(batch, TrainingBatchIngestor.CHUNK_SIZE - batch.size());
+            if (batch.isEmpty() || !write(batch)) {
+                break;
+            }
+            batch.clear();
+        }
+        truncateLogIfIdle();
+    }
+
+    /**
+     * Writes the submissions that were logged but not written before the last shutdown, and then starts the
+     * writer.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        recover();
+        writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "training-ingestion-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.scheduleWithFixedDelay(this::writePendingLogged, WRITE_DELAY_MILLIS, WRITE_DELAY_MILLIS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the writer, letting it finish the batch being written.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writer != null) {
+            writer.shutdown();
+            if (!writer.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("Training ingestion writer did not stop in {} s", SHUTDOWN_TIMEOUT_SECONDS);
+            }
+        }
+    }
+
+    /**
+     * Writes the submissions that were logged but not written before the last shutdown.
+     */
+    synchronized void recover() {
+        ingestionLog.readPending().forEach((ticket, entry) -> {
+            tickets.put(ticket, TrainingIngestionTicket.queued(ticket));
+            retries.add(new Submission(ticket, entry.training(), entry.idempotencyKey()));
+        });
+        recovered = true;
+        if (!retries.isEmpty()) {
+            log.info("Recovering {} trainings submitted for ingestion before restart", retries.size());
+        }
+        writePending();
+    }
+
+    /**
+     * Writes the batch and completes the submissions that were created or rejected. Submissions that failed are
+     * put aside to be retried later.
+     *
+     * @return whether the whole batch was completed
+     */
+    private boolean write(List<Submission> batch) {
+        List<TrainingBatchResult> results;
+        try {
+            results = batchIngestor.ingest(batch.stream().map(Submission::training).toList(),
+                    batch.stream().map(Submission::effectiveIdempotencyKey).toList());
+        } catch (RuntimeException e) {
+            log.error("Failed to ingest batch of {} trainings: {}", batch.size(), e.getMessage(), e);
+            retryLater(batch);
+            return false;
+        }
+
+        List<String> completed = new ArrayList<>(batch.size());
+        List<Submission> failed = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            Submission submission = batch.get(i);
+            if (results.get(i).status() == TrainingBatchResult.Status.FAILED) {
+                failed.add(submission);
+            } else {
+                tickets.put(submission.ticket(), TrainingIngestionTicket.of(submission.ticket(), results.get(i)));
+                completed.add(submission.ticket());
+            }
+        }
+        if (!completed.isEmpty()) {
+            ingestionLog.complete(completed);
+        }
+        log.debug("Ingested batch of {} trainings, {} to retry", batch.size(), failed.size());
+        if (!failed.isEmpty()) {
+            retryLater(failed);
+            return false;
+        }
+        consecutiveFailures = 0;
+        return true;
+    }
+
+    /**
+     * Writes pending submissions, logging failures instead of throwing them, which would cancel the writer.
+     */
+    private void writePendingLogged() {
+        try {
+            writePending();
+        } catch (RuntimeException e) {
+            log.error("Failed to write pending trainings: {}", e.getMessage(), e);
+        }
+    }
+
+    private void retryLater(List<Submission> failed) {
+        retries.addAll(failed);
+        consecutiveFailures++;
+        long delay = Math.min(MAX_RETRY_DELAY_MILLIS, RETRY_DELAY_MILLIS << Math.min(consecutiveFailures - 1, 20));
+        retryAt = System.currentTimeMillis() + delay;
+        log.warn("Retrying {} trainings in {} ms", failed.size(), delay);
+    }
+
+    private void truncateLogIfIdle() {
+        synchronized (submitLock) {
+            if (buffer.isEmpty() && retries.isEmpty()) {
+                ingestionLog.truncate();
+            }
+        }
+    }
+}
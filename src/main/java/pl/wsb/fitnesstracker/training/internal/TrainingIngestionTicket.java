@@ -0,0 +1,32 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import jakarta.annotation.Nullable;
+
+/**
+ * State of a training submitted for asynchronous ingestion.
+ *
+ * @param ticket     identifier of the submission
+ * @param status     whether the training is still queued, was created or was rejected
+ * @param trainingId ID of the created training
+ * @param error      reason why the training was rejected
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+record TrainingIngestionTicket(String ticket, Status status, @Nullable Long trainingId, @Nullable String error) {
+
+    enum Status {
+        QUEUED,
+        CREATED,
+        REJECTED
+    }
+
+    static TrainingIngestionTicket queued(String ticket) {
+        return new TrainingIngestionTicket(ticket, Status.QUEUED, null, null);
+    }
+
+    static TrainingIngestionTicket of(String ticket, TrainingBatchResult result) {
+        return result.status() == TrainingBatchResult.Status.CREATED
+                ? new TrainingIngestionTicket(ticket, Status.CREATED, result.id(), null)
+                : new TrainingIngestionTicket(ticket, Status.REJECTED, null, result.error());
+    }
+}
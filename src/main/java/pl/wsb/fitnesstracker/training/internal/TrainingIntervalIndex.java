@@ -0,0 +1,269 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory interval tree over the time ranges of all trainings, used to answer overlap, containment and
+ * stabbing queries.
+ * <p>
+ * Intervals are kept in a treap ordered by start time (and training ID), where every node also tracks the
+ * greatest end time in its subtree. A query descends only into subtrees that can still hold an interval ending
+ * late enough and stops as soon as start times pass the bound, so lookups cost {@code O(log n)} expected time
+ * plus the size of the result. Writes cost {@code O(log n)} expected time as well.
+ * <p>
+ * Like the user indexes, the returned IDs are candidates that still have to be verified against the database.
+ */
+@Component
+class TrainingIntervalIndex {
+
+    private final Map<Long, long[]> intervalsById = new HashMap<>();
+
+    private final SplittableRandom random = new SplittableRandom();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Node root;
+
+    private static final class Node {
+
+        final long start;
+
+        final long end;
+
+        final long id;
+
+        final int priority;
+
+        Node left;
+
+        Node right;
+
+        long maxEnd;
+
+        Node(long start, long end, long id, int priority) {
+            this.start = start;
+            this.end = end;
+            this.id = id;
+            this.priority = priority;
+            this.maxEnd = end;
+        }
+    }
+
+    /**
+     * Indexes the time range of the training, replacing the previously indexed one.
+     *
+     * @param trainingId ID of the training
+     * @param start      start time in epoch milliseconds
+     * @param end        end time in epoch milliseconds
+     * @return previously indexed {@code [start, end]} pair, or {@code null} if the training was not indexed
+     */
+    long[] put(long trainingId, long start, long end) {
+        lock.writeLock().lock();
+        try {
+            long[] previous = intervalsById.put(trainingId, new long[]{start, end});
+            if (previous != null) {
+                root = delete(root, previous[0], trainingId);
+            }
+            root = insert(root, new Node(start, end, trainingId, random.nextInt()));
+            return previous;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the training from the index.
+     *
+     * @param trainingId ID of the training
+     */
+    void remove(long trainingId) {
+        lock.writeLock().lock();
+        try {
+            long[] previous = intervalsById.remove(trainingId);
+            if (previous != null) {
+                root = delete(root, previous[0], trainingId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds trainings overlapping the given range, that is starting no later than {@code to} and ending no earlier
+     * than {@code from}.
+     *
+     * @return IDs of matching trainings, ordered by start time
+     */
+    long[] findOverlapping(long from, long to) {
+        return collect(to, from);
+    }
+
+    /**
+     * Finds trainings containing the whole given range, that is starting no later than {@code from} and ending
+     * no earlier than {@code to}.
+     *
+     * @return IDs of matching trainings, ordered by start time
+     */
+    long[] findContaining(long from, long to) {
+        return collect(from, to);
+    }
+
+    /**
+     * Finds trainings in progress at the given instant.
+     *
+     * @return IDs of matching trainings, ordered by start time
+     */
+    long[] findActiveAt(long instant) {
+        return collect(instant, instant);
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return intervalsById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Collects IDs of all intervals starting at or before {@code maxStart} and ending at or after {@code minEnd}.
+     */
+    private long[] collect(long maxStart, long minEnd) {
+        lock.readLock().lock();
+        try {
+            IdCollector collector = new IdCollector();
+            collect(root, maxStart, minEnd, collector);
+            return collector.toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void collect(Node node, long maxStart, long minEnd, IdCollector collector) {
+        while (node != null && node.maxEnd >= minEnd) {
+            collect(node.left, maxStart, minEnd, collector);
+            if (node.start > maxStart) {
+                return;
+            }
+            if (node.end >= minEnd) {
+                collector.add(node.id);
+            }
+            node = node.right;
+        }
+    }
+
+    private static Node insert(Node node, Node inserted) {
+        if (node == null) {
+            return inserted;
+        }
+        if (compare(inserted.start, inserted.id, node) < 0) {
+            node.left = insert(node.left, inserted);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, inserted);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        update(node);
+        return node;
+    }
+
+    private static Node delete(Node node, long start, long id) {
+        if (node == null) {
+            return null;
+        }
+        int comparison = compare(start, id, node);
+        if (comparison < 0) {
+            node.left = delete(node.left, start, id);
+        } else if (comparison > 0) {
+            node.right = delete(node.right, start, id);
+        } else {
+            return merge(node.left, node.right);
+        }
+        update(node);
+        return node;
+    }
+
+    /**
+     * Merges two treaps where all keys of the first one precede all keys of the second one.
+     */
+    private static Node merge(Node first, Node second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        if (first.priority > second.priority) {
+            first.right = merge(first.right, second);
+            update(first);
+            return first;
+        }
+        second.left = merge(first, second.left);
+        update(second);
+        return second;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node left = node.left;
+        node.left = left.right;
+        left.right = node;
+        update(node);
+        update(left);
+        return left;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node right = node.right;
+        node.right = right.left;
+        right.left = node;
+        update(node);
+        update(right);
+        return right;
+    }
+
+    private static void update(Node node) {
+        long maxEnd = node.end;
+        if (node.left != null) {
+            maxEnd = Math.max(maxEnd, node.left.maxEnd);
+        }
+        if (node.right != null) {
+            maxEnd = Math.max(maxEnd, node.right.maxEnd);
+        }
+        node.maxEnd = maxEnd;
+    }
+
+    private static int compare(long start, long id, Node node) {
+        int comparison = Long.compare(start, node.start);
+        return comparison != 0 ? comparison : Long.compare(id, node.id);
+    }
+
+    private static final class IdCollector {
+
+        private long[] ids = new long[16];
+
+        private int size;
+
+        void add(long id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+}
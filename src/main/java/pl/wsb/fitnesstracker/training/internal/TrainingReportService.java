@@ -2,21 +2,24 @@ package pl.wsb.fitnesstracker.training.internal;
 
 import org.springframework.stereotype.Service;
 import pl.wsb.fitnesstracker.training.api.MonthlyTrainingReport;
-import pl.wsb.fitnesstracker.training.api.Training;
-import pl.wsb.fitnesstracker.user.internal.UserRepository;
+import pl.wsb.fitnesstracker.training.api.TrainingSummary;
+import pl.wsb.fitnesstracker.user.api.User;
+import pl.wsb.fitnesstracker.user.api.UserProvider;
 
 import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 @Service
 public class TrainingReportService {
-    private final TrainingRepository trainingRepository;
-    private final UserRepository userRepository;
+    private final TrainingColumnStore columnStore;
+    private final UserProvider userProvider;
 
-    public TrainingReportService(TrainingRepository trainingRepository, UserRepository userRepository) {
-        this.trainingRepository = trainingRepository;
-        this.userRepository = userRepository;
+    public TrainingReportService(TrainingColumnStore columnStore, UserProvider userProvider) {
+        this.columnStore = columnStore;
+        this.userProvider = userProvider;
     }
 
     public List<MonthlyTrainingReport> generateReports() {
@@ -24,22 +27,24 @@ public class TrainingReportService {
         LocalDate start = now.minusMonths(1).withDayOfMonth(1);
         LocalDate end = now.withDayOfMonth(1);
 
-        return userRepository.findAll().stream()
-                .map(user -> {
-                    List<Training> trainings = trainingRepository.findByUserAndStartTimeBetween(
-                            user, start.atStartOfDay(), end.atStartOfDay()
-                    );
-
-                    if (trainings.isEmpty()) return null;
+        List<TrainingSummary> summaries = columnStore.summarizeByUser(TrainingColumnStore.TimeColumn.START,
+                toEpochMilli(start), toEpochMilli(end));
+        Map<Long, User> users = userProvider.getUsers(summaries.stream().map(TrainingSummary::userId).toList());
 
-                    double totalDistance = trainings.stream().mapToDouble(Training::getDistance).sum();
-                    double avgSpeed = trainings.stream().mapToDouble(Training::getAverageSpeed).average().orElse(0);
+        return summaries.stream()
+                .map(summary -> {
+                    User user = users.get(summary.userId());
+                    if (user == null) return null;
 
                     return new MonthlyTrainingReport(
-                            user.getEmail(), trainings.size(), totalDistance, avgSpeed
+                            user.getEmail(), summary.trainingCount(), summary.totalDistance(), summary.averageSpeed()
                     );
                 })
                 .filter(Objects::nonNull)
                 .toList();
     }
+
+    private static long toEpochMilli(LocalDate date) {
+        return date.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
 }
@@ -1,41 +1,174 @@
 package pl.wsb.fitnesstracker.training.internal;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import pl.wsb.fitnesstracker.training.api.Training;
 import pl.wsb.fitnesstracker.user.api.User;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 public interface TrainingRepository extends JpaRepository<Training, Long> {
     /**
-     * Finds all trainings for a specific user.
+     * Finds all trainings together with their users.
+     *
+     * @return A list of all trainings
+     */
+    @Override
+    @EntityGraph(attributePaths = "user")
+    List<Training> findAll();
+
+    /**
+     * Finds a training by ID together with its user.
+     *
+     * @param id The ID of the training
+     * @return An optional containing the training, or empty if not found
+     */
+    @Override
+    @EntityGraph(attributePaths = "user")
+    Optional<Training> findById(Long id);
+
+    /**
+     * Finds a training by ID together with its user, locking its row until the end of the transaction, so that
+     * concurrent updates of the training are applied one after another.
+     *
+     * @param id The ID of the training
+     * @return An optional containing the training, or empty if not found
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @EntityGraph(attributePaths = "user")
+    @Query("select t from Training t where t.id = :id")
+    Optional<Training> findByIdForUpdate(Long id);
+
+    /**
+     * Finds trainings with the given IDs together with their users.
+     *
+     * @param ids The IDs of the trainings
+     * @return A list of the existing trainings with the given IDs
+     */
+    @Override
+    @EntityGraph(attributePaths = "user")
+    List<Training> findAllById(Iterable<Long> ids);
+
+    /**
+     * Finds the training created with the given idempotency key, together with its user.
+     * The query is answered by a lookup in the unique index on the key.
+     *
+     * @param idempotencyKey The idempotency key sent by the client
+     * @return An optional containing the training, or empty if not found
+     */
+    @EntityGraph(attributePaths = "user")
+    Optional<Training> findByIdempotencyKey(String idempotencyKey);
+
+    /**
+     * Finds the trainings created with any of the given idempotency keys, together with their users.
+     *
+     * @param idempotencyKeys The idempotency keys
+     * @return A list of trainings carrying one of the keys, in no particular order
+     */
+    @EntityGraph(attributePaths = "user")
+    List<Training> findByIdempotencyKeyIn(Collection<String> idempotencyKeys);
+
+    /**
+     * Finds trainings with the given IDs that started and have a distance and average speed within the given
+     * ranges, together with their users. Null bounds are not checked.
+     *
+     * @param ids The IDs of the trainings
+     * @param startedFrom The earliest start time
+     * @param startedTo The latest start time
+     * @param minDistance The minimum distance
+     * @param maxDistance The maximum distance
+     * @param minSpeed The minimum average speed
+     * @param maxSpeed The maximum average speed
+     * @return A list of matching trainings, ordered by ID
+     */
+    @Query("""
+            select t from Training t left join fetch t.user
+            where t.id in :ids
+              and (:startedFrom is null or t.startTime >= :startedFrom)
+              and (:startedTo is null or t.startTime <= :startedTo)
+              and (:minDistance is null or t.distance >= :minDistance)
+              and (:maxDistance is null or t.distance <= :maxDistance)
+              and (:minSpeed is null or t.averageSpeed >= :minSpeed)
+              and (:maxSpeed is null or t.averageSpeed <= :maxSpeed)
+            order by t.id
+            """)
+    List<Training> findAllByIdWithinRanges(Collection<Long> ids, Date startedFrom, Date startedTo,
+                                           Double minDistance, Double maxDistance, Double minSpeed, Double maxSpeed);
+
+    /**
+     * Keyset page of trainings ordered by ID, with a distance and average speed within the given ranges.
+     * Null bounds are not checked.
+     *
+     * @param id          ID after which trainings are returned
+     * @param minDistance The minimum distance
+     * @param maxDistance The maximum distance
+     * @param minSpeed    The minimum average speed
+     * @param maxSpeed    The maximum average speed
+     * @param limit       maximum number of trainings to return
+     * @return A list of at most {@code limit} matching trainings with IDs greater than {@code id}
+     */
+    @Query("""
+            select t from Training t left join fetch t.user
+            where t.id > :id
+              and (:minDistance is null or t.distance >= :minDistance)
+              and (:maxDistance is null or t.distance <= :maxDistance)
+              and (:minSpeed is null or t.averageSpeed >= :minSpeed)
+              and (:maxSpeed is null or t.averageSpeed <= :maxSpeed)
+            order by t.id
+            """)
+    List<Training> findPageAfterIdWithinRanges(Long id, Double minDistance, Double maxDistance, Double minSpeed,
+                                               Double maxSpeed, Limit limit);
+
+    /**
+     * Finds all trainings for a specific user, together with the user.
      *
      * @param userId The ID of the user
      * @return A list of trainings for the specified user
      */
+    @EntityGraph(attributePaths = "user")
     List<Training> findByUserId(Long userId);
 
     /**
-     * Finds all trainings with a specific activity type.
+     * Finds IDs of trainings of a specific user, ordered by ID.
+     *
+     * @param userId The ID of the user
+     * @param limit The maximum number of IDs to return
+     * @return A list of training IDs of the specified user
+     */
+    @Query("select t.id from Training t where t.user.id = :userId order by t.id")
+    List<Long> findIdsByUserId(Long userId, Limit limit);
+
+    /**
+     * Finds all trainings with a specific activity type, together with their users.
      *
      * @param activityType The activity type to search for
      * @return A list of trainings with the specified activity type
      */
+    @EntityGraph(attributePaths = "user")
     List<Training> findByActivityType(ActivityType activityType);
 
     /**
      * Finds all trainings that ended after a specific date.
+     * The query is answered by a range scan of the index on the end time.
      *
      * @param date The date to compare against
      * @return A list of trainings that ended after the specified date
      */
-    default List<Training> findByEndDateAfter(Date date) {
-        return findAll().stream()
-                .filter(training -> training.getEndTime().after(date))
-                .toList();
-    }
+    @Query("select t from Training t left join fetch t.user where t.endTime > :date")
+    List<Training> findByEndDateAfter(Date date);
 
     /**
      * Finds all trainings for a specific user that started between two dates.
@@ -50,14 +183,66 @@ public interface TrainingRepository extends JpaRepository<Training, Long> {
     /**
      * Finds all trainings that occurred within a specific date range.
      * This is useful for generating reports or analyzing training patterns over time.
+     * <p>
+     * A training cannot end before it starts, so every matching training also ends within the range.
+     * The redundant lower bound on the end time lets the query use a bounded range scan of the index
+     * on the end time.
      *
      * @param startDate The start date of the range (inclusive)
      * @param endDate The end date of the range (inclusive)
      * @return A list of trainings that occurred within the specified date range
      */
-    default List<Training> findByDateRange(Date startDate, Date endDate) {
-        return findAll().stream()
-                .filter(training -> !training.getStartTime().before(startDate) && !training.getEndTime().after(endDate))
-                .toList();
-    }
+    @Query("""
+            select t from Training t left join fetch t.user
+            where t.endTime between :startDate and :endDate
+              and t.startTime >= :startDate
+            """)
+    List<Training> findByDateRange(Date startDate, Date endDate);
+
+    /**
+     * Keyset page of trainings ordered by ID.
+     *
+     * @param id    ID after which trainings are returned
+     * @param limit maximum number of trainings to return
+     * @return A list of at most {@code limit} trainings with IDs greater than {@code id}
+     */
+    @Query("select t from Training t left join fetch t.user where t.id > :id order by t.id")
+    List<Training> findPageAfterId(Long id, Limit limit);
+
+    /**
+     * First keyset page of trainings ordered by start time and ID.
+     *
+     * @param limit maximum number of trainings to return
+     * @return A list of at most {@code limit} earliest trainings
+     */
+    @Query("select t from Training t left join fetch t.user order by t.startTime, t.id")
+    List<Training> findFirstPageByStartTime(Limit limit);
+
+    /**
+     * Keyset page of trainings ordered by start time and ID, following the training with the given start time
+     * and ID. The redundant lower bound on the start time lets the query use a range scan of the index
+     * on the start time and ID.
+     *
+     * @param startTime start time of the last training of the previous page
+     * @param id        ID of the last training of the previous page
+     * @param limit     maximum number of trainings to return
+     * @return A list of at most {@code limit} trainings following the given one
+     */
+    @Query("""
+            select t from Training t left join fetch t.user
+            where t.startTime >= :startTime
+              and (t.startTime > :startTime or t.id > :id)
+            order by t.startTime, t.id
+            """)
+    List<Training> findPageAfterStartTime(Date startTime, Long id, Limit limit);
+
+    /**
+     * Query streaming all trainings with their users, ordered by ID. The stream has to be consumed and closed
+     * within a transaction.
+     *
+     * @return {@link Stream} of all trainings
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("select t from Training t left join fetch t.user order by t.id")
+    Stream<Training> streamAllWithUser();
 }
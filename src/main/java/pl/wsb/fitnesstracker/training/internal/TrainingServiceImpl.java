@@ -2,26 +2,48 @@ package pl.wsb.fitnesstracker.training.internal;
 
 // Standard Java imports
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 // Spring framework imports
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 // Jakarta EE imports
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.PersistenceContext;
 
 // Lombok imports
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 // Application imports
+import pl.wsb.fitnesstracker.exception.api.BusinessException;
 import pl.wsb.fitnesstracker.training.api.Training;
+import pl.wsb.fitnesstracker.training.api.TrainingCreatedEvent;
+import pl.wsb.fitnesstracker.training.api.TrainingFilter;
+import pl.wsb.fitnesstracker.training.api.TrainingIdempotencyKeyReusedException;
+import pl.wsb.fitnesstracker.training.api.TrainingMetrics;
 import pl.wsb.fitnesstracker.training.api.TrainingProvider;
 import pl.wsb.fitnesstracker.training.api.TrainingService;
+import pl.wsb.fitnesstracker.training.api.TrainingSummary;
+import pl.wsb.fitnesstracker.training.api.TrainingUpdatedEvent;
 import pl.wsb.fitnesstracker.user.api.User;
+import pl.wsb.fitnesstracker.user.api.UserBeingRemovedException;
 import pl.wsb.fitnesstracker.user.api.UserProvider;
 
 /**
@@ -73,12 +95,34 @@ public class TrainingServiceImpl implements TrainingProvider, TrainingService {
     /** Error message for negative speed */
     private static final String MSG_NEGATIVE_SPEED = "Average speed cannot be negative";
 
+    /** Error message for infinite or NaN distance */
+    private static final String MSG_NON_FINITE_DISTANCE = "Distance must be a finite number";
+
+    /** Error message for infinite or NaN speed */
+    private static final String MSG_NON_FINITE_SPEED = "Average speed must be a finite number";
+
     /** Error message format for user not found */
-    private static final String MSG_USER_NOT_FOUND = "User with ID %d not found";
+    static final String MSG_USER_NOT_FOUND = "User with ID %d not found";
+    static final String MSG_USER_BEING_REMOVED = "User with ID %d is being removed";
+
+    /** Error message for an idempotency key that is blank or too long */
+    private static final String MSG_INVALID_IDEMPOTENCY_KEY =
+            "Idempotency key must not be blank and must have at most %d characters";
 
     /** Error message format for training not found */
     private static final String MSG_TRAINING_NOT_FOUND = "Training with ID %d not found";
 
+    // ========== Query Constants ==========
+
+    /** Number of IDs loaded with a single query */
+    private static final int ID_CHUNK_SIZE = 1_000;
+
+    /** Maximum number of trainings returned in a single page */
+    static final int MAX_PAGE_SIZE = 1_000;
+
+    /** Maximum length of an idempotency key, matching its column */
+    static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+
     // ========== Dependencies ==========
 
     /** Repository for training data access */
@@ -87,6 +131,25 @@ public class TrainingServiceImpl implements TrainingProvider, TrainingService {
     /** Provider for user data access */
     private final UserProvider userProvider;
 
+    /** In-memory index of training time ranges */
+    private final TrainingIntervalIndex intervalIndex;
+
+    /** In-memory bitmap indexes of trainings by activity type, user and start day */
+    private final TrainingBitmapIndex bitmapIndex;
+
+    /** In-memory columnar store of training data used for aggregations */
+    private final TrainingColumnStore columnStore;
+
+    /** Bloom filter of the idempotency keys of stored trainings */
+    private final TrainingIdempotencyKeyFilter idempotencyKeyFilter;
+
+    /** Publisher of training events consumed by other modules */
+    private final ApplicationEventPublisher eventPublisher;
+
+    /** Entity manager used to flush pending writes before consulting the in-memory indexes */
+    @PersistenceContext
+    private EntityManager entityManager;
+
     // ========== Command Methods ==========
 
     /**
@@ -100,10 +163,61 @@ public class TrainingServiceImpl implements TrainingProvider, TrainingService {
      * @param userId The ID of the user associated with the training
      * @return The created training with assigned ID
      * @throws IllegalArgumentException if validation fails
+     * @throws UserBeingRemovedException if the user is being removed
      * @throws RuntimeException if persistence fails
      */
     @Override
     public Training createTraining(Training trainingData, Long userId) {
+        return createTraining(trainingData, userId, null);
+    }
+
+    /**
+     * Creates a new training record in the system, at most once per idempotency key.
+     * 
+     * A request retried by the client carries the key of the original one and gets the training created by it,
+     * without a second write. The key is looked up in the database only if the Bloom filter of stored keys
+     * reports it as possibly present, so requests with fresh keys normally cost no extra query. Two concurrent
+     * requests with the same fresh key are resolved by the unique index on the key: the losing insert fails
+     * and the winning training is returned instead.
+     *
+     * @param trainingData The training data to create
+     * @param userId The ID of the user associated with the training
+     * @param idempotencyKey The key chosen by the client for the training, or null to always create it
+     * @return The created or previously created training
+     * @throws IllegalArgumentException if validation fails
+     * @throws BusinessException if the key is blank or too long
+     * @throws TrainingIdempotencyKeyReusedException if the key was used by another user
+     * @throws UserBeingRemovedException if the user is being removed
+     * @throws RuntimeException if persistence fails
+     */
+    @Override
+    public Training createTraining(Training trainingData, Long userId, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return insertTraining(trainingData, userId, null);
+        }
+        validateIdempotencyKey(idempotencyKey);
+
+        if (entityManager.isJoinedToTransaction()) {
+            entityManager.flush();
+        }
+        if (idempotencyKeyFilter.mightContain(idempotencyKey)) {
+            Optional<Training> original = findReplayedTraining(idempotencyKey, userId);
+            if (original.isPresent()) {
+                return original.get();
+            }
+        }
+
+        try {
+            return insertTraining(trainingData, userId, idempotencyKey);
+        } catch (DataIntegrityViolationException e) {
+            return findReplayedTraining(idempotencyKey, userId).orElseThrow(() -> e);
+        }
+    }
+
+    /**
+     * Validates and persists a new training carrying the given idempotency key.
+     */
+    private Training insertTraining(Training trainingData, Long userId, String idempotencyKey) {
         log.info("Beginning training creation workflow for user ID: {}", userId);
 
         // Step 1: Validate input data
@@ -116,12 +230,18 @@ public class TrainingServiceImpl implements TrainingProvider, TrainingService {
 
         // Step 2: Find associated user
         User user = fetchUserById(userId);
+        ensureUserNotBeingRemoved(userId);
 
         // Step 3: Create training entity
         Training newTraining = buildTrainingEntity(trainingData, user);
+        newTraining.setIdempotencyKey(idempotencyKey);
 
         // Step 4: Save to database
-        return saveTrainingToDatabase(newTraining);
+        Training savedTraining = saveTrainingToDatabase(newTraining);
+
+        // Step 5: Notify listeners, such as the statistics projection
+        eventPublisher.publishEvent(new TrainingCreatedEvent(savedTraining.getId(), TrainingMetrics.of(savedTraining)));
+        return savedTraining;
     }
 
     /**
@@ -130,16 +250,20 @@ public class TrainingServiceImpl implements TrainingProvider, TrainingService {
      * This method performs comprehensive validation of the input data,
      * retrieves the existing training and associated user,
      * tracks changes for logging purposes, updates the entity,
-     * and persists it to the database.
+     * and persists it to the database. The training is locked while it is
+     * updated, so concurrent updates of it are applied one after another and
+     * every update event carries the figures the previous one left behind.
      *
      * @param updatedData The updated training data
      * @param trainingId The ID of the training to update
      * @param userId The ID of the user associated with the training
      * @return The updated training
      * @throws IllegalArgumentException if validation fails or entities not found
+     * @throws UserBeingRemovedException if the user is being removed
      * @throws RuntimeException if persistence fails
      */
     @Override
+    @Transactional
     public Training updateTraining(Training updatedData, Long trainingId, Long userId) {
         log.info("Beginning training update workflow for training ID: {} and user ID: {}", trainingId, userId);
 
@@ -151,20 +275,24 @@ public class TrainingServiceImpl implements TrainingProvider, TrainingService {
             throw new IllegalArgumentException(errorSummary);
         }
 
-        // Step 2: Find existing training
-        Training existingTraining = fetchTrainingById(trainingId);
+        // Step 2: Find existing training, locked until the update commits
+        Training existingTraining = fetchTrainingForUpdate(trainingId);
 
         // Step 3: Find associated user
         User user = fetchUserById(userId);
+        ensureUserNotBeingRemoved(userId);
 
         // Step 4: Track changes for logging
         String changesSummary = createChangeLog(updatedData, existingTraining);
 
         // Step 5: Update training entity
+        TrainingMetrics previousMetrics = TrainingMetrics.of(existingTraining);
         modifyTrainingEntity(existingTraining, updatedData, user);
 
         // Step 6: Save to database
         Training result = saveTrainingToDatabase(existingTraining);
+        eventPublisher.publishEvent(new TrainingUpdatedEvent(result.getId(), previousMetrics,
+                TrainingMetrics.of(result)));
 
         // Log the changes
         if (!changesSummary.isEmpty()) {
@@ -201,6 +329,120 @@ public class TrainingServiceImpl implements TrainingProvider, TrainingService {
         return trainingRepository.findAll();
     }
 
+    /**
+     * Retrieves a keyset page of trainings ordered by ID.
+     * 
+     * @param afterId ID of the last training of the previous page, or null to start from the first one
+     * @param limit The maximum number of trainings to return
+     * @return A list of at most limit trainings with IDs greater than afterId
+     * @throws BusinessException if limit is out of range
+     */
+    @Override
+    public List<Training> findTrainingsAfter(Long afterId, int limit) {
+        log.debug("Fetching {} trainings after ID: {}", limit, afterId);
+        validatePageLimit(limit);
+        return trainingRepository.findPageAfterId(afterId == null ? 0L : afterId, Limit.of(limit));
+    }
+
+    /**
+     * Retrieves a keyset page of trainings ordered by start time and ID.
+     * 
+     * @param afterStartTime Start time of the last training of the previous page, or null to start from the earliest one
+     * @param afterId ID of the last training of the previous page
+     * @param limit The maximum number of trainings to return
+     * @return A list of at most limit trainings following the given one
+     * @throws BusinessException if limit is out of range or afterStartTime is given without afterId
+     */
+    @Override
+    public List<Training> findTrainingsStartingAfter(Date afterStartTime, Long afterId, int limit) {
+        log.debug("Fetching {} trainings after start time: {} and ID: {}", limit, afterStartTime, afterId);
+        validatePageLimit(limit);
+        if (afterStartTime == null) {
+            return trainingRepository.findFirstPageByStartTime(Limit.of(limit));
+        }
+        if (afterId == null) {
+            throw new BusinessException("Cursor start time must be given together with the training ID");
+        }
+        return trainingRepository.findPageAfterStartTime(afterStartTime, afterId, Limit.of(limit));
+    }
+
+    /**
+     * Retrieves a keyset page of trainings matching the filter, ordered by ID.
+     * 
+     * Candidates are picked by intersecting the in-memory bitmap indexes of activity types, users and start days,
+     * once per call, so no training outside of them is loaded. Candidates are then loaded chunk by chunk with the
+     * exact time, distance and speed bounds checked by the database, until the page is full. A filter on none of
+     * the indexed dimensions is answered by a single keyset query instead.
+     * 
+     * @param filter The conditions the trainings have to meet
+     * @param afterId ID of the last training of the previous page, or null to start from the first one
+     * @param limit The maximum number of trainings to return
+     * @return A list of at most limit matching trainings following the given one
+     * @throws IllegalArgumentException if the filter is null
+     * @throws BusinessException if limit is out of range or any range is reversed
+     */
+    @Override
+    public List<Training> findTrainings(TrainingFilter filter, Long afterId, int limit) {
+        log.debug("Fetching {} trainings after ID: {} matching: {}", limit, afterId, filter);
+        ensureNotNull(filter, "Filter cannot be null");
+        validatePageLimit(limit);
+        validateFilterRanges(filter);
+        flushPendingWrites();
+
+        if (filter.activityTypes() == null && filter.userIds() == null
+                && filter.startedFrom() == null && filter.startedTo() == null) {
+            return trainingRepository.findPageAfterIdWithinRanges(afterId == null ? 0L : afterId,
+                    filter.minDistance(), filter.maxDistance(), filter.minSpeed(), filter.maxSpeed(), Limit.of(limit));
+        }
+
+        Long startedFrom = filter.startedFrom() == null ? null : filter.startedFrom().getTime();
+        Long startedTo = filter.startedTo() == null ? null : filter.startedTo().getTime();
+        CompressedIdBitmap matching = bitmapIndex.find(filter.activityTypes(), filter.userIds(), startedFrom,
+                startedTo);
+        Predicate<Training> indexedConditions = training ->
+                (filter.activityTypes() == null || filter.activityTypes().contains(training.getActivityType()))
+                        && (filter.userIds() == null || (training.getUser() != null
+                        && filter.userIds().contains(training.getUser().getId())));
+
+        List<Training> trainings = new ArrayList<>(limit);
+        long cursor = afterId == null ? -1 : afterId;
+        while (trainings.size() < limit) {
+            long[] candidates = matching.toArray(cursor, ID_CHUNK_SIZE);
+            if (candidates.length == 0) {
+                break;
+            }
+            trainingRepository.findAllByIdWithinRanges(Arrays.stream(candidates).boxed().toList(),
+                            filter.startedFrom(), filter.startedTo(), filter.minDistance(), filter.maxDistance(),
+                            filter.minSpeed(), filter.maxSpeed())
+                    .stream()
+                    .filter(indexedConditions)
+                    .limit(limit - trainings.size())
+                    .forEach(trainings::add);
+            cursor = candidates[candidates.length - 1];
+        }
+        return trainings;
+    }
+
+    /**
+     * Streams all trainings ordered by ID, detaching every training and its user once consumed.
+     * 
+     * @param consumer The consumer of the trainings
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachTraining(Consumer<Training> consumer) {
+        log.debug("Streaming all trainings from database");
+        try (Stream<Training> trainings = trainingRepository.streamAllWithUser()) {
+            trainings.forEach(training -> {
+                consumer.accept(training);
+                entityManager.detach(training);
+                if (training.getUser() != null) {
+                    entityManager.detach(training.getUser());
+                }
+            });
+        }
+    }
+
     /**
      * Retrieves all trainings for a specific user.
      * 
@@ -243,13 +485,30 @@ public class TrainingServiceImpl implements TrainingProvider, TrainingService {
         return trainingRepository.findByEndDateAfter(date);
     }
 
+    /**
+     * Summarizes trainings that ended after a specific date, per user.
+     * The summaries are computed from the in-memory column store without loading any entity, so they only
+     * cover committed trainings.
+     *
+     * @param date The date to compare against
+     * @return Summaries of users with at least one such training, ordered by user ID
+     * @throws IllegalArgumentException if date is null
+     */
+    @Override
+    public List<TrainingSummary> summarizeTrainingsWithEndDateAfter(Date date) {
+        log.debug("Summarizing trainings ending after date: {}", date);
+        ensureNotNull(date, "Date cannot be null");
+        return columnStore.summarizeByUser(TrainingColumnStore.TimeColumn.END, date.getTime() + 1, Long.MAX_VALUE);
+    }
+
     /**
      * Retrieves all trainings that occurred within a specific date range.
      * 
      * @param startDate The start date of the range (inclusive)
      * @param endDate The end date of the range (inclusive)
      * @return A list of trainings that occurred within the specified date range
-     * @throws IllegalArgumentException if either date is null or if startDate is after endDate
+     * @throws IllegalArgumentException if either date is null
+     * @throws BusinessException if startDate is after endDate
      */
     @Override
     public List<Training> findTrainingsByDateRange(Date startDate, Date endDate) {
@@ -258,6 +517,64 @@ public class TrainingServiceImpl implements TrainingProvider, TrainingService {
         return trainingRepository.findByDateRange(startDate, endDate);
     }
 
+    /**
+     * Retrieves all trainings overlapping a specific date range, that is starting no later than its end
+     * and ending no earlier than its start. Candidates are looked up in the in-memory interval index.
+     *
+     * @param startDate The start date of the range (inclusive)
+     * @param endDate The end date of the range (inclusive)
+     * @return A list of overlapping trainings, ordered by start time
+     * @throws IllegalArgumentException if either date is null
+     * @throws BusinessException if startDate is after endDate
+     */
+    @Override
+    public List<Training> findTrainingsOverlapping(Date startDate, Date endDate) {
+        log.debug("Fetching trainings overlapping dates: {} and {}", startDate, endDate);
+        validateDateRangeParameters(startDate, endDate);
+        flushPendingWrites();
+        long[] trainingIds = intervalIndex.findOverlapping(startDate.getTime(), endDate.getTime());
+        return loadVerifiedTrainings(trainingIds, training ->
+                !training.getStartTime().after(endDate) && !training.getEndTime().before(startDate));
+    }
+
+    /**
+     * Retrieves all trainings lasting through a whole date range, that is starting no later than its start
+     * and ending no earlier than its end. Candidates are looked up in the in-memory interval index.
+     *
+     * @param startDate The start date of the range (inclusive)
+     * @param endDate The end date of the range (inclusive)
+     * @return A list of trainings containing the range, ordered by start time
+     * @throws IllegalArgumentException if either date is null
+     * @throws BusinessException if startDate is after endDate
+     */
+    @Override
+    public List<Training> findTrainingsContaining(Date startDate, Date endDate) {
+        log.debug("Fetching trainings containing dates: {} and {}", startDate, endDate);
+        validateDateRangeParameters(startDate, endDate);
+        flushPendingWrites();
+        long[] trainingIds = intervalIndex.findContaining(startDate.getTime(), endDate.getTime());
+        return loadVerifiedTrainings(trainingIds, training ->
+                !training.getStartTime().after(startDate) && !training.getEndTime().before(endDate));
+    }
+
+    /**
+     * Retrieves all trainings in progress at a specific instant.
+     * Candidates are looked up in the in-memory interval index.
+     *
+     * @param instant The instant to check
+     * @return A list of trainings in progress at the instant, ordered by start time
+     * @throws IllegalArgumentException if instant is null
+     */
+    @Override
+    public List<Training> findTrainingsActiveAt(Date instant) {
+        log.debug("Fetching trainings active at: {}", instant);
+        ensureNotNull(instant, "Instant cannot be null");
+        flushPendingWrites();
+        long[] trainingIds = intervalIndex.findActiveAt(instant.getTime());
+        return loadVerifiedTrainings(trainingIds, training ->
+                !training.getStartTime().after(instant) && !training.getEndTime().before(instant));
+    }
+
     // ========== Validation Helper Methods ==========
 
     /**
@@ -273,30 +590,64 @@ public class TrainingServiceImpl implements TrainingProvider, TrainingService {
         }
     }
 
+    /**
+     * Validates the size of a requested page.
+     * 
+     * @param limit The maximum number of trainings to return
+     * @throws BusinessException if limit is not between 1 and MAX_PAGE_SIZE
+     */
+    private void validatePageLimit(int limit) {
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new BusinessException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+    }
+
+    /**
+     * Validates that no range of the filter has its lower bound above its upper bound.
+     * 
+     * @param filter The filter to validate
+     * @throws BusinessException if any range is reversed
+     */
+    private void validateFilterRanges(TrainingFilter filter) {
+        if (filter.startedFrom() != null && filter.startedTo() != null
+                && filter.startedFrom().after(filter.startedTo())) {
+            throw new BusinessException("Start date must be before or equal to end date");
+        }
+        if (filter.minDistance() != null && filter.maxDistance() != null
+                && filter.minDistance() > filter.maxDistance()) {
+            throw new BusinessException("Minimum distance cannot exceed maximum distance");
+        }
+        if (filter.minSpeed() != null && filter.maxSpeed() != null && filter.minSpeed() > filter.maxSpeed()) {
+            throw new BusinessException("Minimum speed cannot exceed maximum speed");
+        }
+    }
+
     /**
      * Validates date range parameters.
      * 
      * @param startDate The start date
      * @param endDate The end date
-     * @throws IllegalArgumentException if either date is null or if startDate is after endDate
+     * @throws IllegalArgumentException if either date is null
+     * @throws BusinessException if startDate is after endDate
      */
     private void validateDateRangeParameters(Date startDate, Date endDate) {
         ensureNotNull(startDate, "Start date cannot be null");
         ensureNotNull(endDate, "End date cannot be null");
 
         if (startDate.after(endDate)) {
-            throw new IllegalArgumentException("Start date must be before or equal to end date");
+            throw new BusinessException("Start date must be before or equal to end date");
         }
     }
 
     /**
      * Validates training data for creation.
+     * Also used by the batch ingestion, so both paths accept exactly the same trainings.
      * 
      * @param training The training data
      * @param userId The user ID
      * @return A list of validation error messages, empty if validation passed
      */
-    private List<String> checkTrainingCreationData(Training training, Long userId) {
+    List<String> checkTrainingCreationData(Training training, Long userId) {
         List<String> issues = new ArrayList<>();
 
         // Check for null values
@@ -381,13 +732,17 @@ public class TrainingServiceImpl implements TrainingProvider, TrainingService {
             }
         }
 
-        // Check if distance is valid
-        if (training.getDistance() < 0) {
+        // Check if distance is valid; JSON numbers out of the double range are parsed as infinity
+        if (!Double.isFinite(training.getDistance())) {
+            issues.add(MSG_NON_FINITE_DISTANCE);
+        } else if (training.getDistance() < 0) {
             issues.add(MSG_NEGATIVE_DISTANCE);
         }
 
         // Check if average speed is valid
-        if (training.getAverageSpeed() < 0) {
+        if (!Double.isFinite(training.getAverageSpeed())) {
+            issues.add(MSG_NON_FINITE_SPEED);
+        } else if (training.getAverageSpeed() < 0) {
             issues.add(MSG_NEGATIVE_SPEED);
         }
 
@@ -396,6 +751,86 @@ public class TrainingServiceImpl implements TrainingProvider, TrainingService {
 
     // ========== Entity Operation Helper Methods ==========
 
+    /**
+     * Loads trainings with the given IDs in chunks, keeping the order of the IDs and dropping trainings
+     * that no longer exist or no longer match the indexed condition.
+     * 
+     * @param trainingIds The IDs of the candidate trainings
+     * @param condition The condition the trainings have to match
+     * @return A list of matching trainings
+     */
+    private List<Training> loadVerifiedTrainings(long[] trainingIds, Predicate<Training> condition) {
+        List<Training> trainings = new ArrayList<>();
+        for (int from = 0; from < trainingIds.length; from += ID_CHUNK_SIZE) {
+            List<Long> chunk = Arrays.stream(trainingIds, from, Math.min(from + ID_CHUNK_SIZE, trainingIds.length))
+                    .boxed()
+                    .toList();
+            Map<Long, Training> loaded = trainingRepository.findAllById(chunk).stream()
+                    .collect(Collectors.toMap(Training::getId, Function.identity()));
+            chunk.stream()
+                    .map(loaded::get)
+                    .filter(Objects::nonNull)
+                    .filter(condition)
+                    .forEach(trainings::add);
+        }
+        return trainings;
+    }
+
+    /**
+     * Flushes trainings changed in the current transaction. Their updates reach the in-memory indexes
+     * only when flushed, the same way they reach the database.
+     */
+    private void flushPendingWrites() {
+        if (entityManager.isJoinedToTransaction()) {
+            entityManager.flush();
+        }
+    }
+
+    /**
+     * Validates an idempotency key chosen by a client.
+     * 
+     * @param idempotencyKey The idempotency key
+     * @throws BusinessException if the key is blank or too long
+     */
+    static void validateIdempotencyKey(String idempotencyKey) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            throw new BusinessException(String.format(MSG_INVALID_IDEMPOTENCY_KEY, MAX_IDEMPOTENCY_KEY_LENGTH));
+        }
+    }
+
+    /**
+     * Retrieves the training created with the given idempotency key by the same user.
+     * 
+     * @param idempotencyKey The idempotency key
+     * @param userId The ID of the user replaying the request
+     * @return The previously created training, or empty if the key was not used yet
+     * @throws TrainingIdempotencyKeyReusedException if the key was used by another user
+     */
+    private Optional<Training> findReplayedTraining(String idempotencyKey, Long userId) {
+        Optional<Training> original = trainingRepository.findByIdempotencyKey(idempotencyKey);
+        original.ifPresent(training -> {
+            if (training.getUser() == null || !training.getUser().getId().equals(userId)) {
+                throw new TrainingIdempotencyKeyReusedException();
+            }
+            log.info("Replayed creation of training with ID: {}", training.getId());
+        });
+        return original;
+    }
+
+    /**
+     * Refuses to write trainings of a user whose removal is in progress, as its job would have to remove them
+     * again.
+     *
+     * @param userId The user ID
+     * @throws UserBeingRemovedException if the user is being removed
+     */
+    private void ensureUserNotBeingRemoved(Long userId) {
+        if (!userProvider.findUsersBeingRemoved(List.of(userId)).isEmpty()) {
+            log.warn("Refusing to write training of user with ID {} being removed", userId);
+            throw new UserBeingRemovedException(userId);
+        }
+    }
+
     /**
      * Retrieves a user by ID.
      * 
@@ -420,14 +855,14 @@ public class TrainingServiceImpl implements TrainingProvider, TrainingService {
     }
 
     /**
-     * Retrieves a training by ID.
+     * Retrieves a training by ID and locks it until the end of the transaction.
      * 
      * @param trainingId The training ID
      * @return The training
      * @throws IllegalArgumentException if the training is not found
      */
-    private Training fetchTrainingById(Long trainingId) {
-        return trainingRepository.findById(trainingId)
+    private Training fetchTrainingForUpdate(Long trainingId) {
+        return trainingRepository.findByIdForUpdate(trainingId)
             .orElseThrow(() -> {
                 log.error("Training with ID {} not found in the system", trainingId);
                 return new IllegalArgumentException(String.format(MSG_TRAINING_NOT_FOUND, trainingId));
@@ -499,6 +934,9 @@ public class TrainingServiceImpl implements TrainingProvider, TrainingService {
             String operationType = savedTraining.getId() != null ? "updated with ID " + savedTraining.getId() : "created";
             log.info("Training successfully {} in the database", operationType);
             return savedTraining;
+        } catch (DataIntegrityViolationException e) {
+            log.warn("Training violates a database constraint: {}", e.getMessage());
+            throw e;
         } catch (Exception e) {
             log.error("Database error occurred while saving training: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to save training to database: " + e.getMessage(), e);
@@ -0,0 +1,58 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.Lob;
+import jakarta.persistence.MapsId;
+import jakarta.persistence.OneToOne;
+import jakarta.persistence.Table;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+import pl.wsb.fitnesstracker.training.api.Training;
+
+/**
+ * GPS track of a training, stored as a single blob encoded by {@link TrackPointCodec}.
+ * <p>
+ * Tracks live in their own table so loading trainings never loads their tracks, and are removed by the database
+ * together with their trainings, including bulk deletes.
+ */
+@Entity
+@Table(name = "training_tracks")
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+class TrainingTrack {
+
+    @Id
+    @Column(name = "training_id")
+    private Long trainingId;
+
+    @MapsId
+    @OneToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "training_id")
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Training training;
+
+    @Column(name = "point_count", nullable = false)
+    private int pointCount;
+
+    @Lob
+    @Column(name = "data", nullable = false)
+    private byte[] data;
+
+    TrainingTrack(Training training, int pointCount, byte[] data) {
+        this.training = training;
+        this.pointCount = pointCount;
+        this.data = data;
+    }
+
+    void replace(int pointCount, byte[] data) {
+        this.pointCount = pointCount;
+        this.data = data;
+    }
+}
@@ -0,0 +1,7 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+interface TrainingTrackRepository extends JpaRepository<TrainingTrack, Long> {
+
+}
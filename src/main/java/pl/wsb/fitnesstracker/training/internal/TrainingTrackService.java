@@ -0,0 +1,85 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import pl.wsb.fitnesstracker.exception.api.BusinessException;
+import pl.wsb.fitnesstracker.training.api.TrackPoint;
+import pl.wsb.fitnesstracker.training.api.TrainingNotFoundException;
+import pl.wsb.fitnesstracker.training.api.TrainingTrackNotFoundException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Iterator;
+
+/**
+ * Stores and reads GPS tracks of trainings.
+ * <p>
+ * Points are encoded as they arrive and decoded as they are consumed, so neither direction holds the track as
+ * a list of points.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+class TrainingTrackService {
+
+    static final int MAX_POINTS = 200_000;
+
+    private final TrainingRepository trainingRepository;
+
+    private final TrainingTrackRepository trackRepository;
+
+    /**
+     * Stores the track of the training, replacing the previously stored one.
+     *
+     * @param trainingId ID of the training
+     * @param points     points of the track, in recording order
+     * @return number of stored points
+     * @throws TrainingNotFoundException if the training does not exist
+     * @throws BusinessException         if the track has more than {@value #MAX_POINTS} points or any point
+     *                                   is invalid
+     */
+    @Transactional
+    public int storeTrack(Long trainingId, Iterator<TrackPoint> points) {
+        if (!trainingRepository.existsById(trainingId)) {
+            throw new TrainingNotFoundException(trainingId);
+        }
+
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        TrackPointCodec.Encoder encoder = new TrackPointCodec.Encoder(data);
+        int pointCount = 0;
+        while (points.hasNext()) {
+            if (++pointCount > MAX_POINTS) {
+                throw new BusinessException("Track cannot have more than " + MAX_POINTS + " points");
+            }
+            try {
+                encoder.write(points.next());
+            } catch (IllegalArgumentException e) {
+                throw new BusinessException("Invalid track point " + pointCount + ": " + e.getMessage());
+            }
+        }
+
+        int storedPoints = pointCount;
+        trackRepository.findById(trainingId).ifPresentOrElse(
+                track -> track.replace(storedPoints, data.toByteArray()),
+                () -> trackRepository.save(new TrainingTrack(trainingRepository.getReferenceById(trainingId),
+                        storedPoints, data.toByteArray())));
+        log.info("Stored track of training {}: {} points in {} bytes", trainingId, storedPoints, data.size());
+        return storedPoints;
+    }
+
+    /**
+     * Reads the track of the training. Points are decoded lazily, as the returned iterator advances.
+     *
+     * @param trainingId ID of the training
+     * @return points of the track, in recording order
+     * @throws TrainingTrackNotFoundException if the training has no track
+     */
+    @Transactional(readOnly = true)
+    public Iterator<TrackPoint> readTrack(Long trainingId) {
+        TrainingTrack track = trackRepository.findById(trainingId)
+                .orElseThrow(() -> new TrainingTrackNotFoundException(trainingId));
+        return new TrackPointCodec.Decoder(new ByteArrayInputStream(track.getData()));
+    }
+}
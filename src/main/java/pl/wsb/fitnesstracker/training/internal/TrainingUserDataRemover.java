@@ -0,0 +1,41 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import pl.wsb.fitnesstracker.user.api.UserDataRemover;
+
+import java.util.List;
+
+import static pl.wsb.fitnesstracker.transaction.api.TransactionCallbacks.afterCommit;
+
+/**
+ * Removes trainings of a user being removed.
+ */
+@Component
+@RequiredArgsConstructor
+class TrainingUserDataRemover implements UserDataRemover {
+
+    private final TrainingRepository trainingRepository;
+
+    private final TrainingIntervalIndex intervalIndex;
+
+    private final TrainingColumnStore columnStore;
+
+    private final TrainingBitmapIndex bitmapIndex;
+
+    @Override
+    public int removeChunk(Long userId, int limit) {
+        List<Long> trainingIds = trainingRepository.findIdsByUserId(userId, Limit.of(limit));
+        if (!trainingIds.isEmpty()) {
+            // bulk deletes bypass the entity listener, so the indexes and the column store are updated here
+            trainingRepository.deleteAllByIdInBatch(trainingIds);
+            afterCommit(() -> trainingIds.forEach(trainingId -> {
+                intervalIndex.remove(trainingId);
+                bitmapIndex.remove(trainingId);
+                columnStore.remove(trainingId);
+            }));
+        }
+        return trainingIds.size();
+    }
+}
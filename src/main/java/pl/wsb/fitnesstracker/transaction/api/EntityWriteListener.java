@@ -0,0 +1,21 @@
+package pl.wsb.fitnesstracker.transaction.api;
+
+/**
+ * Receives the writes of one entity type that go through JPA, as they are flushed to the database. Lets a module
+ * mirror its entities in memory without the entity referring to the module's internals.
+ *
+ * @param <T> type of the entity
+ * @see EntityWriteListeners#register
+ */
+public interface EntityWriteListener<T> {
+
+    /**
+     * Called after the entity was inserted or updated.
+     */
+    void onSave(T entity);
+
+    /**
+     * Called after the entity was deleted.
+     */
+    void onRemove(T entity);
+}
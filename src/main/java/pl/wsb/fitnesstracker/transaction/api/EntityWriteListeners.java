@@ -0,0 +1,97 @@
+package pl.wsb.fitnesstracker.transaction.api;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Registers {@link EntityWriteListener}s with Hibernate, so they get the same post-insert, post-update and
+ * post-delete notifications as JPA entity listeners without being declared on the entity.
+ */
+public final class EntityWriteListeners {
+
+    /** Dispatcher appended to each registry, held weakly so closed session factories are not retained */
+    private static final Map<EventListenerRegistry, Dispatcher> DISPATCHERS =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private EntityWriteListeners() {
+    }
+
+    /**
+     * Registers the listener for every write of the given entity type (or its subtypes).
+     *
+     * @param entityManagerFactory factory whose sessions notify the listener
+     * @param entityType           type of the entities to listen to
+     * @param listener             listener to register
+     */
+    public static <T> void register(EntityManagerFactory entityManagerFactory, Class<T> entityType,
+                                    EntityWriteListener<T> listener) {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        // Hibernate rejects a second listener of the same class, so all registrations share one dispatcher
+        Dispatcher dispatcher = DISPATCHERS.computeIfAbsent(registry, newRegistry -> {
+            Dispatcher appended = new Dispatcher();
+            newRegistry.appendListeners(EventType.POST_INSERT, appended);
+            newRegistry.appendListeners(EventType.POST_UPDATE, appended);
+            newRegistry.appendListeners(EventType.POST_DELETE, appended);
+            return appended;
+        });
+        dispatcher.registrations.add(new Registration<>(entityType, listener));
+    }
+
+    private record Registration<T>(Class<T> entityType, EntityWriteListener<T> listener) {
+
+        void onSave(Object entity) {
+            if (entityType.isInstance(entity)) {
+                listener.onSave(entityType.cast(entity));
+            }
+        }
+
+        void onRemove(Object entity) {
+            if (entityType.isInstance(entity)) {
+                listener.onRemove(entityType.cast(entity));
+            }
+        }
+    }
+
+    private static final class Dispatcher
+            implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+        private final List<Registration<?>> registrations = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            registrations.forEach(registration -> registration.onSave(event.getEntity()));
+        }
+
+        @Override
+        public void onPostUpdate(PostUpdateEvent event) {
+            registrations.forEach(registration -> registration.onSave(event.getEntity()));
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            registrations.forEach(registration -> registration.onRemove(event.getEntity()));
+        }
+
+        @Override
+        public boolean requiresPostCommitHandling(EntityPersister persister) {
+            return false;
+        }
+    }
+}
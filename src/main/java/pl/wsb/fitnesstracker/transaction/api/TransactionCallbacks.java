@@ -0,0 +1,63 @@
+package pl.wsb.fitnesstracker.transaction.api;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Defers updates of in-memory structures mirroring the database until the outcome of the current transaction
+ * is known.
+ */
+public final class TransactionCallbacks {
+
+    private static final Object UNDO_LOG_KEY = new Object();
+
+    private TransactionCallbacks() {
+    }
+
+    /**
+     * Runs the action once the current transaction commits, or right away if there is no transaction.
+     */
+    public static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Runs the action if the current transaction rolls back. Does nothing if there is no transaction.
+     * Actions registered within one transaction run in reverse order, like an undo log, so that each of them
+     * sees the state left by the ones registered after it.
+     */
+    public static void afterRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Deque<Runnable> undoLog = (Deque<Runnable>) TransactionSynchronizationManager.getResource(UNDO_LOG_KEY);
+        if (undoLog == null) {
+            Deque<Runnable> newUndoLog = new ArrayDeque<>();
+            TransactionSynchronizationManager.bindResource(UNDO_LOG_KEY, newUndoLog);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(UNDO_LOG_KEY);
+                    if (status == STATUS_ROLLED_BACK) {
+                        newUndoLog.forEach(Runnable::run);
+                    }
+                }
+            });
+            undoLog = newUndoLog;
+        }
+        undoLog.push(action);
+    }
+}
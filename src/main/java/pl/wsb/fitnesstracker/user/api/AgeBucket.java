@@ -0,0 +1,12 @@
+package pl.wsb.fitnesstracker.user.api;
+
+/**
+ * Number of users whose age falls within a range of years.
+ *
+ * @param fromAge lower bound of the age, inclusive
+ * @param toAge   upper bound of the age, exclusive
+ * @param count   number of users in the range
+ */
+public record AgeBucket(int fromAge, int toAge, long count) {
+
+}
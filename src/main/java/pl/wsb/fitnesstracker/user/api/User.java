@@ -7,18 +7,28 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
 import lombok.*;
+
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.Locale;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {
+        @Index(name = "ux_users_email_normalized", columnList = "email_normalized", unique = true)
+})
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString
 @Setter
 @Getter
 public class User {
 
+    /**
+     * Allocated from a pooled sequence rather than an identity column, so that inserts of many users
+     * can be sent to the database as a single JDBC batch.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     @Nullable
     private Long id;
 
@@ -34,6 +44,20 @@ public class User {
     @Column(nullable = false, unique = true)
     private String email;
 
+    /**
+     * Lower-cased, trimmed copy of {@link #email}, kept in sync by {@link #setEmail(String)}.
+     * Backs the case-insensitive unique index used for exact email lookups.
+     */
+    @Setter(AccessLevel.NONE)
+    @Column(name = "email_normalized", nullable = false)
+    private String normalizedEmail;
+
+    /**
+     * Moment the user signed up, set when the user is first persisted unless given explicitly.
+     */
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
     public User(
             final String firstName,
             final String lastName,
@@ -43,8 +67,29 @@ public class User {
         this.firstName = firstName;
         this.lastName = lastName;
         this.birthdate = birthdate;
+        setEmail(email);
+    }
+
+    public void setEmail(final String email) {
         this.email = email;
+        this.normalizedEmail = normalizeEmail(email);
     }
 
-}
+    @PrePersist
+    void onCreate() {
+        if (createdAt == null) {
+            createdAt = Instant.now();
+        }
+    }
 
+    /**
+     * Normalizes an email address to the form stored in the {@code email_normalized} column.
+     *
+     * @param email email address to normalize, may be {@code null}
+     * @return trimmed, lower-cased email or {@code null} if none was given
+     */
+    public static String normalizeEmail(@Nullable final String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+}
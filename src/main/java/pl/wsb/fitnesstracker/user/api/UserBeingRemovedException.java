@@ -0,0 +1,22 @@
+package pl.wsb.fitnesstracker.user.api;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import pl.wsb.fitnesstracker.exception.api.BusinessException;
+
+/**
+ * Exception thrown when data is written for a user whose removal was requested but has not completed yet.
+ * Will resolve to the {@link HttpStatus#CONFLICT} if handled by the Spring's exception handler.
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class UserBeingRemovedException extends BusinessException {
+
+    /**
+     * Creates a new UserBeingRemovedException with a message indicating that the user is being removed.
+     *
+     * @param userId The ID of the user being removed
+     */
+    public UserBeingRemovedException(Long userId) {
+        super("User with ID " + userId + " is being removed");
+    }
+}
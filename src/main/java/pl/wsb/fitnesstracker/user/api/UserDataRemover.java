@@ -0,0 +1,19 @@
+package pl.wsb.fitnesstracker.user.api;
+
+/**
+ * Removes data of other modules that references a user, so that the user can be removed.
+ * <p>
+ * Removing a user is a background job: every implementation is called repeatedly, each time in a new short
+ * transaction, until it reports that nothing is left, and only then the user itself is removed.
+ */
+public interface UserDataRemover {
+
+    /**
+     * Removes at most {@code limit} rows referencing the user.
+     *
+     * @param userId ID of the user being removed
+     * @param limit  maximum number of rows to remove
+     * @return number of removed rows, {@code 0} once no rows referencing the user are left
+     */
+    int removeChunk(Long userId, int limit);
+}
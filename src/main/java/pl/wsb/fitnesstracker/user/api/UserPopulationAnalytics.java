@@ -0,0 +1,22 @@
+package pl.wsb.fitnesstracker.user.api;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Analytics describing the whole user population.
+ *
+ * @param userCount          number of users
+ * @param averageAge         average age of the users in years, or 0 if there are none
+ * @param usersByEmailDomain number of users per lower-cased email domain
+ * @param ageDistribution    number of users per ten-year age bucket, ordered by age
+ * @param signupsByMonth     number of users who signed up in each month (UTC), ordered by month
+ */
+public record UserPopulationAnalytics(long userCount,
+                                      double averageAge,
+                                      Map<String, Long> usersByEmailDomain,
+                                      List<AgeBucket> ageDistribution,
+                                      Map<YearMonth, Long> signupsByMonth) {
+
+}
@@ -1,8 +1,14 @@
 package pl.wsb.fitnesstracker.user.api;
 
+import pl.wsb.fitnesstracker.exception.api.BusinessException;
+
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface UserProvider {
 
@@ -15,6 +21,24 @@ public interface UserProvider {
      */
     Optional<User> getUser(Long userId);
 
+    /**
+     * Retrieves the users with the given IDs, using one query per chunk of IDs instead of one query per user.
+     *
+     * @param userIds IDs of the users to search for
+     * @return A {@link Map} from ID to user, in the iteration order of the given IDs, without the IDs of users
+     * that do not exist
+     */
+    Map<Long, User> getUsers(Collection<Long> userIds);
+
+    /**
+     * Finds which of the given users are being removed, that is have a removal requested but not completed yet.
+     * No data should be written for such users.
+     *
+     * @param userIds IDs of the users to check
+     * @return A {@link Set} containing the IDs of the users being removed
+     */
+    Set<Long> findUsersBeingRemoved(Collection<Long> userIds);
+
     /**
      * Retrieves a user based on their email.
      * If the user with given email is not found, then {@link Optional#empty()} will be returned.
@@ -31,6 +55,43 @@ public interface UserProvider {
      */
     List<User> findAllUsers();
 
+    /**
+     * Retrieves a page of users ordered by ID, using keyset pagination.
+     *
+     * @param afterId ID of the last user of the previous page, or {@code null} to start from the first user
+     * @param limit   The maximum number of users to return
+     * @return A {@link List} containing at most {@code limit} users with IDs greater than {@code afterId}
+     * @throws BusinessException if the limit is out of range
+     */
+    List<User> findUsersAfter(Long afterId, int limit);
+
+    /**
+     * Passes all users, ordered by ID, to the given consumer one at a time.
+     * Users are streamed from the database and detached once consumed, so memory use does not grow with the number of users.
+     *
+     * @param consumer The consumer receiving the users
+     */
+    void forEachUser(Consumer<User> consumer);
+
+    /**
+     * Retrieves a page of users ordered by ID as {@link UserSimpleDto} projections, using keyset pagination.
+     * Only ID, first name and last name are queried and no entities are loaded.
+     *
+     * @param afterId ID of the last user of the previous page, or {@code null} to start from the first user
+     * @param limit   The maximum number of users to return
+     * @return A {@link List} containing at most {@code limit} users with IDs greater than {@code afterId}
+     * @throws BusinessException if the limit is out of range
+     */
+    List<UserSimpleDto> findSimpleUsersAfter(Long afterId, int limit);
+
+    /**
+     * Passes all users, ordered by ID, to the given consumer one at a time as {@link UserSimpleDto} projections.
+     * Only ID, first name and last name are queried and no entities are loaded.
+     *
+     * @param consumer The consumer receiving the users
+     */
+    void forEachSimpleUser(Consumer<UserSimpleDto> consumer);
+
     /**
      * Retrieves all users whose email contains the given part.
      *
@@ -46,4 +107,32 @@ public interface UserProvider {
      * @return A {@link List} containing all users born before the specified date
      */
     List<User> findUsersOlderThan(LocalDate time);
+
+    /**
+     * Retrieves all users whose birth date falls within the given range.
+     *
+     * @param from The earliest birth date (inclusive)
+     * @param to   The latest birth date (inclusive)
+     * @return A {@link List} containing all users born within the specified range, ordered by birth date
+     * @throws BusinessException if a date is missing or {@code from} is after {@code to}
+     */
+    List<User> findUsersBornBetween(LocalDate from, LocalDate to);
+
+    /**
+     * Counts users in consecutive age buckets of the given width, starting at age 0 and ending with
+     * the bucket holding the oldest user. Counts are served from memory, without querying the database.
+     *
+     * @param bucketSize The width of each bucket in years
+     * @return A {@link List} of {@link AgeBucket}s ordered by age
+     * @throws BusinessException if the bucket size is not positive or wider than a human lifespan
+     */
+    List<AgeBucket> countUsersByAgeBucket(int bucketSize);
+
+    /**
+     * Retrieves analytics of the whole user population. The analytics are maintained incrementally as users are
+     * created, updated and removed, so retrieving them does not depend on the number of users.
+     *
+     * @return current {@link UserPopulationAnalytics}
+     */
+    UserPopulationAnalytics getPopulationAnalytics();
 }
@@ -0,0 +1,11 @@
+package pl.wsb.fitnesstracker.user.api;
+
+/**
+ * Published when a user was removed together with all data referencing them. Delivered to transactional
+ * listeners once the removing transaction commits.
+ *
+ * @param userId ID of the removed user
+ */
+public record UserRemovedEvent(long userId) {
+
+}
@@ -19,6 +19,7 @@ public interface UserService {
     /**
      * Removes a user from the repository based on the provided user ID.
      * If the user is successfully deleted, the operation returns without any content.
+     * The user must not be referenced by any other data anymore, see {@link UserDataRemover}.
      *
      * @param id The unique identifier of the user to be removed
      */
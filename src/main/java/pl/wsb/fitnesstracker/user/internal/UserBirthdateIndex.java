@@ -0,0 +1,180 @@
+package pl.wsb.fitnesstracker.user.internal;
+
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory sorted index of user birthdates.
+ * <p>
+ * Birthdates are kept as epoch-day {@code int}s in ascending order, with the owning user IDs in a parallel
+ * {@code long} array. Range queries binary-search both ends and return the contiguous slice in between,
+ * so they cost {@code O(log n + k)} and counts cost {@code O(log n)}. Writes shift the arrays and cost {@code O(n)}.
+ */
+@Component
+class UserBirthdateIndex {
+
+    private static final int INITIAL_CAPACITY = 1_024;
+
+    private int[] epochDays = new int[INITIAL_CAPACITY];
+
+    private long[] userIds = new long[INITIAL_CAPACITY];
+
+    private int size;
+
+    private final Map<Long, Integer> epochDayByUser = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Indexes the birthdate of the user, replacing the previously indexed one.
+     *
+     * @param userId    ID of the user
+     * @param birthdate current birthdate of the user
+     * @return previously indexed birthdate, or {@code null} if the user was not indexed
+     */
+    LocalDate put(long userId, LocalDate birthdate) {
+        int epochDay = Math.toIntExact(birthdate.toEpochDay());
+        lock.writeLock().lock();
+        try {
+            Integer previous = epochDayByUser.put(userId, epochDay);
+            if (previous != null) {
+                if (previous == epochDay) {
+                    return birthdate;
+                }
+                delete(previous, userId);
+            }
+            insert(epochDay, userId);
+            return previous == null ? null : LocalDate.ofEpochDay(previous);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the user from the index.
+     *
+     * @param userId ID of the user
+     */
+    void remove(long userId) {
+        lock.writeLock().lock();
+        try {
+            Integer previous = epochDayByUser.remove(userId);
+            if (previous != null) {
+                delete(previous, userId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns IDs of users born in the given range, ordered by birthdate.
+     *
+     * @param fromInclusive lower bound of the birthdate, inclusive
+     * @param toExclusive   upper bound of the birthdate, exclusive
+     * @return IDs of matching users
+     */
+    long[] findBornBetween(LocalDate fromInclusive, LocalDate toExclusive) {
+        lock.readLock().lock();
+        try {
+            int from = lowerBound(clamp(fromInclusive));
+            int to = lowerBound(clamp(toExclusive));
+            return from < to ? Arrays.copyOfRange(userIds, from, to) : new long[0];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts users born before the given date.
+     *
+     * @param toExclusive upper bound of the birthdate, exclusive
+     * @return number of users born before the date
+     */
+    int countBornBefore(LocalDate toExclusive) {
+        lock.readLock().lock();
+        try {
+            return lowerBound(clamp(toExclusive));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void insert(int epochDay, long userId) {
+        if (size == epochDays.length) {
+            epochDays = Arrays.copyOf(epochDays, size * 2);
+            userIds = Arrays.copyOf(userIds, size * 2);
+        }
+        int position = upperBound(epochDay);
+        System.arraycopy(epochDays, position, epochDays, position + 1, size - position);
+        System.arraycopy(userIds, position, userIds, position + 1, size - position);
+        epochDays[position] = epochDay;
+        userIds[position] = userId;
+        size++;
+    }
+
+    private void delete(int epochDay, long userId) {
+        for (int position = lowerBound(epochDay); position < size && epochDays[position] == epochDay; position++) {
+            if (userIds[position] == userId) {
+                System.arraycopy(epochDays, position + 1, epochDays, position, size - position - 1);
+                System.arraycopy(userIds, position + 1, userIds, position, size - position - 1);
+                size--;
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return index of the first element not less than the given epoch day
+     */
+    private int lowerBound(int epochDay) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (epochDays[mid] < epochDay) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return index of the first element greater than the given epoch day
+     */
+    private int upperBound(int epochDay) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (epochDays[mid] <= epochDay) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int clamp(LocalDate date) {
+        long epochDay = date.toEpochDay();
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, epochDay));
+    }
+}
@@ -0,0 +1,261 @@
+package pl.wsb.fitnesstracker.user.internal;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+import pl.wsb.fitnesstracker.user.api.User;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+import static pl.wsb.fitnesstracker.transaction.api.TransactionCallbacks.afterCommit;
+
+/**
+ * Bounded in-process cache of users read by ID.
+ * <p>
+ * Entries are kept in least-recently-used order, but a new entry only replaces the least recently used one if
+ * it was requested more often, according to a small frequency sketch of all recent lookups (TinyLFU admission).
+ * A burst of one-off lookups therefore cannot flush out users who are read all the time.
+ * <p>
+ * The cache keeps immutable snapshots and hands out a new detached {@link User} on every hit, so callers never
+ * share an instance. Entries are only added after the loading transaction commits, and not at all if the user
+ * was invalidated in the meantime, so a rolled back or concurrently updated user is never cached. Invalidations
+ * are tracked by a version per user, kept in a fixed number of slots shared by users whose IDs hash alike, so
+ * updating one user does not stop the loads of all others from being cached.
+ * Hits, misses and evictions are published as the {@code cache.gets}, {@code cache.evictions} and
+ * {@code cache.size} meters tagged with {@code cache=users}.
+ */
+@Component
+class UserCache implements MeterBinder {
+
+    static final int DEFAULT_CAPACITY = 10_000;
+
+    private final int capacity;
+
+    private final Map<Long, CachedUser> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final FrequencySketch sketch;
+
+    private final long[] versions;
+
+    private final int versionMask;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    UserCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    UserCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.sketch = new FrequencySketch(capacity);
+        int slots = Integer.highestOneBit(Math.max(capacity, 8) - 1) << 1;
+        this.versions = new long[slots];
+        this.versionMask = slots - 1;
+    }
+
+    /**
+     * Looks the user up in the cache.
+     *
+     * @param userId ID of the user
+     * @return detached copy of the cached user, or {@link Optional#empty()} on a miss
+     */
+    Optional<User> get(Long userId) {
+        CachedUser cached;
+        synchronized (this) {
+            sketch.increment(userId);
+            cached = entries.get(userId);
+        }
+        if (cached == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(cached.toUser());
+    }
+
+    /**
+     * Returns the current version of the user, to be passed to {@link #putAfterCommit(User, long)} for the user
+     * loaded after this call.
+     *
+     * @param userId ID of the user
+     */
+    synchronized long version(Long userId) {
+        return versions[versionSlot(userId)];
+    }
+
+    /**
+     * Caches a snapshot of the user once the current transaction commits, unless the user was invalidated since
+     * the given version.
+     *
+     * @param user    user loaded from the database
+     * @param version version of the user read before it was loaded
+     */
+    void putAfterCommit(User user, long version) {
+        if (user.getId() == null) {
+            return;
+        }
+        CachedUser snapshot = CachedUser.of(user);
+        afterCommit(() -> put(snapshot, version));
+    }
+
+    /**
+     * Removes the user from the cache and prevents pending loads from caching it.
+     *
+     * @param userId ID of the changed or removed user
+     */
+    synchronized void invalidate(Long userId) {
+        versions[versionSlot(userId)]++;
+        entries.remove(userId);
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", hits, LongAdder::sum)
+                .tags("cache", "users", "result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", misses, LongAdder::sum)
+                .tags("cache", "users", "result", "miss")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", evictions, LongAdder::sum)
+                .tags("cache", "users")
+                .register(registry);
+        Gauge.builder("cache.size", this, UserCache::size)
+                .tags("cache", "users")
+                .register(registry);
+    }
+
+    long hitCount() {
+        return hits.sum();
+    }
+
+    long missCount() {
+        return misses.sum();
+    }
+
+    long evictionCount() {
+        return evictions.sum();
+    }
+
+    private synchronized void put(CachedUser snapshot, long loadedVersion) {
+        if (loadedVersion != versions[versionSlot(snapshot.id())]) {
+            return;
+        }
+        if (entries.containsKey(snapshot.id()) || entries.size() < capacity) {
+            entries.put(snapshot.id(), snapshot);
+            return;
+        }
+
+        Iterator<Long> leastRecentlyUsed = entries.keySet().iterator();
+        Long victim = leastRecentlyUsed.next();
+        if (sketch.frequency(snapshot.id()) > sketch.frequency(victim)) {
+            leastRecentlyUsed.remove();
+            evictions.increment();
+            entries.put(snapshot.id(), snapshot);
+        }
+    }
+
+    private int versionSlot(long userId) {
+        return Long.hashCode(userId * 0x9E3779B97F4A7C15L) & versionMask;
+    }
+
+    private record CachedUser(Long id, String firstName, String lastName, LocalDate birthdate, String email,
+                              Instant createdAt) {
+
+        static CachedUser of(User user) {
+            return new CachedUser(user.getId(), user.getFirstName(), user.getLastName(), user.getBirthdate(),
+                    user.getEmail(), user.getCreatedAt());
+        }
+
+        User toUser() {
+            User user = new User(firstName, lastName, birthdate, email);
+            user.setId(id);
+            user.setCreatedAt(createdAt);
+            return user;
+        }
+    }
+
+    /**
+     * Count-min sketch of 4-bit counters estimating how often each user was looked up recently. All counters
+     * are halved once the number of recorded lookups reaches ten times the cache capacity, so old popularity
+     * fades away.
+     */
+    private static final class FrequencySketch {
+
+        private static final int DEPTH = 4;
+
+        private static final int MAX_COUNT = 15;
+
+        private static final long[] SEEDS = {
+                0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L};
+
+        private final byte[][] counters;
+
+        private final int mask;
+
+        private final int sampleSize;
+
+        private int additions;
+
+        FrequencySketch(int capacity) {
+            int width = Integer.highestOneBit(Math.max(capacity, 8) - 1) << 1;
+            this.counters = new byte[DEPTH][width];
+            this.mask = width - 1;
+            this.sampleSize = capacity * 10;
+        }
+
+        void increment(long key) {
+            boolean incremented = false;
+            for (int row = 0; row < DEPTH; row++) {
+                int slot = slot(key, row);
+                if (counters[row][slot] < MAX_COUNT) {
+                    counters[row][slot]++;
+                    incremented = true;
+                }
+            }
+            if (incremented && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        int frequency(long key) {
+            int frequency = MAX_COUNT;
+            for (int row = 0; row < DEPTH; row++) {
+                frequency = Math.min(frequency, counters[row][slot(key, row)]);
+            }
+            return frequency;
+        }
+
+        private void reset() {
+            for (byte[] row : counters) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] >>= 1;
+                }
+            }
+            additions /= 2;
+        }
+
+        private int slot(long key, int row) {
+            long hash = (key + SEEDS[row]) * SEEDS[row];
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+    }
+}
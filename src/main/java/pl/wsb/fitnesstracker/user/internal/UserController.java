@@ -1,42 +1,85 @@
 package pl.wsb.fitnesstracker.user.internal;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import pl.wsb.fitnesstracker.exception.api.BusinessException;
+import pl.wsb.fitnesstracker.user.api.AgeBucket;
 import pl.wsb.fitnesstracker.user.api.User;
 import pl.wsb.fitnesstracker.user.api.UserDto;
 import pl.wsb.fitnesstracker.user.api.UserEmailDto;
 import pl.wsb.fitnesstracker.user.api.UserMapper;
+import pl.wsb.fitnesstracker.user.api.UserPopulationAnalytics;
+import pl.wsb.fitnesstracker.user.api.UserSimpleDto;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 @RestController
 @RequestMapping("/v1/users")
 @RequiredArgsConstructor
 class UserController {
 
+    static final String NEXT_PAGE_HEADER = "X-Next-After";
+
+    static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    static final String TEXT_CSV_VALUE = "text/csv";
+
     private final UserServiceImpl userService;
 
     private final UserMapper userMapper;
 
+    private final UserImporter userImporter;
+
+    private final UserRemovalService userRemovalService;
+
+    private final ObjectMapper objectMapper;
+
     @GetMapping
-    public List<UserDto> getAllUsers() {
+    public void getAllUsers(HttpServletResponse response) throws IOException {
         // test: shouldReturnAllUsers_whenGettingAllUsers
-        return userService.findAllUsers()
-                .stream()
-                .map(userMapper::toDto)
-                .toList();
+        writeJsonArray(response, consumer -> userService.forEachUser(user -> consumer.accept(userMapper.toDto(user))));
+    }
+
+    @GetMapping(params = {"limit", "!ids"})
+    public ResponseEntity<List<UserDto>> getUsersPage(@RequestParam(required = false) Long after,
+                                                      @RequestParam int limit) {
+        List<UserDto> users = userService.findUsersAfter(after, limit).stream().map(userMapper::toDto).toList();
+        return toPage(users, limit, UserDto::id);
+    }
+
+    @GetMapping(params = "ids")
+    public List<UserDto> getUsersByIds(@RequestParam List<Long> ids, @RequestParam(required = false) Integer limit) {
+        if (limit != null) {
+            // looked up users are returned all at once, so paging them would silently drop some
+            throw new BusinessException("Users looked up by IDs cannot be paged");
+        }
+        return userService.getUsers(ids).values().stream().map(userMapper::toDto).toList();
     }
 
     @GetMapping("/simple")
-    public List<UserDto> getAllUsersSimple() {
+    public void getAllUsersSimple(HttpServletResponse response) throws IOException {
         // test shouldReturnAllSimpleUsers_whenGettingAllUsers
-        return userService.findAllUsers()
-                .stream()
-                .map(userMapper::toDto)
-                .toList();
+        writeJsonArray(response, userService::forEachSimpleUser);
+    }
+
+    @GetMapping(value = "/simple", params = "limit")
+    public ResponseEntity<List<UserSimpleDto>> getUsersSimplePage(@RequestParam(required = false) Long after,
+                                                                  @RequestParam int limit) {
+        return toPage(userService.findSimpleUsersAfter(after, limit), limit, UserSimpleDto::id);
     }
 
     @GetMapping("/{id}")
@@ -63,6 +106,24 @@ class UserController {
                 .toList();
     }
 
+    @GetMapping("/born")
+    public List<UserDto> findUsersBornBetween(@RequestParam LocalDate from, @RequestParam LocalDate to) {
+        return userService.findUsersBornBetween(from, to)
+                .stream()
+                .map(userMapper::toDto)
+                .toList();
+    }
+
+    @GetMapping("/age-buckets")
+    public List<AgeBucket> countUsersByAgeBucket(@RequestParam(defaultValue = "10") int size) {
+        return userService.countUsersByAgeBucket(size);
+    }
+
+    @GetMapping("/analytics")
+    public UserPopulationAnalytics getPopulationAnalytics() {
+        return userService.getPopulationAnalytics();
+    }
+
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public UserDto addUser(@RequestBody UserDto userDto) {
@@ -70,11 +131,44 @@ class UserController {
         return userMapper.toDto(userService.createUser(userMapper.toEntity(userDto)));
     }
 
+    @PostMapping(value = "/import", consumes = {APPLICATION_NDJSON_VALUE, TEXT_CSV_VALUE})
+    public void importUsers(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        UserImporter.Format format = MediaType.parseMediaType(request.getContentType())
+                .isCompatibleWith(MediaType.parseMediaType(TEXT_CSV_VALUE))
+                ? UserImporter.Format.CSV
+                : UserImporter.Format.NDJSON;
+
+        response.setContentType(APPLICATION_NDJSON_VALUE);
+        OutputStream output = response.getOutputStream();
+        userImporter.importUsers(request.getReader(), format, results -> {
+            try {
+                for (UserImportResult result : results) {
+                    output.write(objectMapper.writeValueAsBytes(result));
+                    output.write('\n');
+                }
+                output.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteUserById(@PathVariable Long id) {
+    public ResponseEntity<UserRemovalJobDto> deleteUserById(@PathVariable Long id) {
         // shouldRemoveUserFromRepository_whenDeletingClient
-        userService.removeUser(id);
-        return ResponseEntity.noContent().build();
+        return userRemovalService.requestRemoval(id)
+                .map(job -> ResponseEntity.accepted()
+                        .location(URI.create("/v1/users/removals/" + job.getId()))
+                        .body(UserRemovalJobDto.of(job)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/removals/{jobId}")
+    public ResponseEntity<UserRemovalJobDto> getRemovalJob(@PathVariable Long jobId) {
+        return userRemovalService.getJob(jobId)
+                .map(UserRemovalJobDto::of)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
     }
 
     @PutMapping("/{id}")
@@ -84,4 +178,35 @@ class UserController {
         return ResponseEntity.ok(userMapper.toDto(updatedUser));
     }
 
-}
\ No newline at end of file
+    /**
+     * Writes the elements passed by the source as a JSON array, serializing them one by one as they are
+     * streamed from the database.
+     */
+    private <T> void writeJsonArray(HttpServletResponse response, Consumer<Consumer<T>> source) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.writeStartArray();
+            source.accept(element -> {
+                try {
+                    generator.writeObject(element);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.writeEndArray();
+        }
+    }
+
+    /**
+     * Wraps a keyset page, adding the cursor of the next page in the {@value #NEXT_PAGE_HEADER} header
+     * if the page is full.
+     */
+    private <T> ResponseEntity<List<T>> toPage(List<T> users, int limit, Function<T, Long> idExtractor) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (users.size() == limit) {
+            response.header(NEXT_PAGE_HEADER, String.valueOf(idExtractor.apply(users.get(users.size() - 1))));
+        }
+        return response.body(users);
+    }
+
+}
@@ -0,0 +1,151 @@
+package pl.wsb.fitnesstracker.user.internal;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory trigram inverted index over user emails, used to answer case-insensitive substring searches.
+ * <p>
+ * Every lower-cased email is split into its overlapping three-character grams and each gram keeps a posting
+ * list of user IDs. A substring query is answered by intersecting the posting lists of the query's grams,
+ * starting from the shortest one. The index is allowed to over-approximate: the returned IDs are candidates
+ * that still have to be verified against the actual emails, but a user whose email contains the query is never
+ * missed.
+ */
+@Component
+class UserEmailTrigramIndex {
+
+    static final int GRAM_LENGTH = 3;
+
+    private final Map<String, Set<Long>> postings = new HashMap<>();
+
+    private final Map<Long, Set<String>> gramsByUser = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Adds the grams of the given email to the postings of the user. Grams of previously indexed emails are kept
+     * until {@link #retain(Long, String)} is called.
+     *
+     * @param userId ID of the user
+     * @param email  current email of the user
+     */
+    void add(Long userId, String email) {
+        Set<String> grams = grams(email);
+        lock.writeLock().lock();
+        try {
+            gramsByUser.computeIfAbsent(userId, id -> new HashSet<>()).addAll(grams);
+            grams.forEach(gram -> postings.computeIfAbsent(gram, g -> new HashSet<>()).add(userId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drops all grams of the user that do not occur in the given email.
+     *
+     * @param userId ID of the user
+     * @param email  committed email of the user
+     */
+    void retain(Long userId, String email) {
+        Set<String> grams = grams(email);
+        lock.writeLock().lock();
+        try {
+            Set<String> indexed = gramsByUser.get(userId);
+            if (indexed == null) {
+                return;
+            }
+            indexed.removeIf(gram -> {
+                if (grams.contains(gram)) {
+                    return false;
+                }
+                removePosting(gram, userId);
+                return true;
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the user from all posting lists.
+     *
+     * @param userId ID of the removed user
+     */
+    void remove(Long userId) {
+        lock.writeLock().lock();
+        try {
+            Set<String> indexed = gramsByUser.remove(userId);
+            if (indexed != null) {
+                indexed.forEach(gram -> removePosting(gram, userId));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds IDs of users whose email may contain the given part.
+     *
+     * @param emailPart searched part of the email, matched case-insensitively
+     * @return candidate user IDs, or {@link Optional#empty()} if the part is shorter than {@value #GRAM_LENGTH}
+     * characters and cannot be answered from the index
+     */
+    Optional<Set<Long>> candidates(String emailPart) {
+        if (emailPart == null || emailPart.length() < GRAM_LENGTH) {
+            return Optional.empty();
+        }
+
+        lock.readLock().lock();
+        try {
+            List<Set<Long>> lists = new ArrayList<>();
+            for (String gram : grams(emailPart)) {
+                Set<Long> posting = postings.get(gram);
+                if (posting == null) {
+                    return Optional.of(Set.of());
+                }
+                lists.add(posting);
+            }
+            lists.sort(Comparator.comparingInt(Set::size));
+
+            Set<Long> result = new HashSet<>(lists.get(0));
+            for (int i = 1; i < lists.size() && !result.isEmpty(); i++) {
+                result.retainAll(lists.get(i));
+            }
+            return Optional.of(result);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removePosting(String gram, Long userId) {
+        Set<Long> posting = postings.get(gram);
+        if (posting != null && posting.remove(userId) && posting.isEmpty()) {
+            postings.remove(gram);
+        }
+    }
+
+    private static Set<String> grams(String text) {
+        if (text == null) {
+            return Set.of();
+        }
+        String normalized = text.toLowerCase(Locale.ROOT);
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= normalized.length(); i++) {
+            grams.add(normalized.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+}
@@ -0,0 +1,29 @@
+package pl.wsb.fitnesstracker.user.internal;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import jakarta.annotation.Nullable;
+
+/**
+ * Outcome of importing a single record of a bulk user import.
+ *
+ * @param line   number of the line of the input the record was read from, starting at 1
+ * @param status whether the user was created
+ * @param id     ID of the created user
+ * @param error  reason why the record was rejected
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+record UserImportResult(long line, Status status, @Nullable Long id, @Nullable String error) {
+
+    enum Status {
+        CREATED,
+        REJECTED
+    }
+
+    static UserImportResult created(long line, Long id) {
+        return new UserImportResult(line, Status.CREATED, id, null);
+    }
+
+    static UserImportResult rejected(long line, String error) {
+        return new UserImportResult(line, Status.REJECTED, null, error);
+    }
+}
@@ -0,0 +1,273 @@
+package pl.wsb.fitnesstracker.user.internal;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.wsb.fitnesstracker.exception.api.BusinessException;
+import pl.wsb.fitnesstracker.user.api.User;
+import pl.wsb.fitnesstracker.user.api.UserDto;
+import pl.wsb.fitnesstracker.user.api.UserMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Imports users in bulk from a stream of NDJSON or CSV records.
+ * <p>
+ * Every record is validated with the same rules as {@link UserServiceImpl#createUser(User)}. Email uniqueness is
+ * checked against a set of all normalized emails loaded once at the start of the import, which also catches
+ * duplicates within the imported data. Accepted records are persisted in chunks of {@value #CHUNK_SIZE}, each in
+ * its own short transaction flushed as a single JDBC batch, and the results of a chunk are reported as soon as it
+ * is committed. If a chunk fails, its records are retried one by one, so a single record the database refuses does
+ * not take the rest of its chunk down. The email of a record that could not be persisted is forgotten again, so a
+ * later record with the same email is not rejected as a duplicate.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+class UserImporter {
+
+    static final int CHUNK_SIZE = 500;
+
+    private static final List<String> CSV_COLUMNS = List.of("firstName", "lastName", "birthdate", "email");
+
+    private final UserServiceImpl userService;
+
+    private final UserRepository userRepository;
+
+    private final UserMapper userMapper;
+
+    private final ObjectMapper objectMapper;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    enum Format {
+        NDJSON,
+        CSV
+    }
+
+    /**
+     * Imports all records read from the reader.
+     *
+     * @param reader  source of the records, one per line; a CSV source starts with a header line
+     * @param format  format of the records
+     * @param results receives the results of every chunk of records, in input order, once it is committed
+     * @throws IOException       if reading the source fails
+     * @throws BusinessException if the CSV header is missing, malformed or does not name all required columns
+     */
+    void importUsers(final BufferedReader reader, final Format format,
+                     final Consumer<List<UserImportResult>> results) throws IOException {
+        RecordParser parser = format == Format.CSV ? csvParser(reader.readLine()) : this::parseJson;
+        long lineNumber = format == Format.CSV ? 1 : 0;
+
+        Set<String> knownEmails = loadNormalizedEmails();
+        log.info("Starting user import, {} emails already in use", knownEmails.size());
+
+        List<PendingRecord> chunk = new ArrayList<>(CHUNK_SIZE);
+        int created = 0;
+        int rejected = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+
+            PendingRecord record;
+            try {
+                User user = parser.parse(line);
+                userService.validateNewUser(user);
+                if (!knownEmails.add(user.getNormalizedEmail())) {
+                    throw new IllegalArgumentException("Email is already in use");
+                }
+                record = new PendingRecord(lineNumber, user, null);
+            } catch (IllegalArgumentException e) {
+                record = new PendingRecord(lineNumber, null, e.getMessage());
+            }
+            chunk.add(record);
+
+            if (chunk.size() == CHUNK_SIZE) {
+                List<UserImportResult> chunkResults = persist(chunk, knownEmails);
+                created += count(chunkResults, UserImportResult.Status.CREATED);
+                rejected += count(chunkResults, UserImportResult.Status.REJECTED);
+                results.accept(chunkResults);
+                chunk.clear();
+            }
+        }
+
+        if (!chunk.isEmpty()) {
+            List<UserImportResult> chunkResults = persist(chunk, knownEmails);
+            created += count(chunkResults, UserImportResult.Status.CREATED);
+            rejected += count(chunkResults, UserImportResult.Status.REJECTED);
+            results.accept(chunkResults);
+        }
+        log.info("User import finished: {} created, {} rejected", created, rejected);
+    }
+
+    private Set<String> loadNormalizedEmails() {
+        return transactionTemplate.execute(status -> {
+            try (Stream<String> emails = userRepository.streamAllNormalizedEmails()) {
+                Set<String> result = new HashSet<>();
+                emails.forEach(result::add);
+                return result;
+            }
+        });
+    }
+
+    private List<UserImportResult> persist(final List<PendingRecord> chunk, final Set<String> knownEmails) {
+        List<PendingRecord> valid = chunk.stream().filter(PendingRecord::isValid).toList();
+        try {
+            insert(valid);
+        } catch (RuntimeException e) {
+            log.warn("Failed to persist chunk of {} imported users, retrying them one by one: {}",
+                    valid.size(), e.getMessage());
+            return chunk.stream().map(record -> persistOne(record, knownEmails)).toList();
+        }
+
+        return chunk.stream()
+                .map(record -> record.isValid()
+                        ? UserImportResult.created(record.line(), record.user().getId())
+                        : UserImportResult.rejected(record.line(), record.error()))
+                .toList();
+    }
+
+    private UserImportResult persistOne(final PendingRecord record, final Set<String> knownEmails) {
+        if (!record.isValid()) {
+            return UserImportResult.rejected(record.line(), record.error());
+        }
+        try {
+            insert(List.of(record));
+            return UserImportResult.created(record.line(), record.user().getId());
+        } catch (RuntimeException e) {
+            log.error("Failed to persist imported user from line {}: {}", record.line(), e.getMessage(), e);
+            knownEmails.remove(record.user().getNormalizedEmail());
+            return UserImportResult.rejected(record.line(), "Failed to persist user");
+        }
+    }
+
+    private void insert(final List<PendingRecord> records) {
+        // a rolled back attempt leaves the IDs it assigned behind
+        records.forEach(record -> record.user().setId(null));
+        transactionTemplate.executeWithoutResult(status -> {
+            records.forEach(record -> entityManager.persist(record.user()));
+            entityManager.flush();
+            entityManager.clear();
+        });
+    }
+
+    private User parseJson(final String line) {
+        try {
+            return userMapper.toEntity(objectMapper.readValue(line, UserDto.class));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed JSON record");
+        }
+    }
+
+    private static RecordParser csvParser(final String header) {
+        if (header == null) {
+            throw new BusinessException("CSV header is missing");
+        }
+
+        List<String> columns;
+        try {
+            columns = splitCsv(header);
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException("Malformed CSV header: " + e.getMessage());
+        }
+        Map<String, Integer> positions = new HashMap<>();
+        for (String column : CSV_COLUMNS) {
+            int position = columns.indexOf(column);
+            if (position < 0) {
+                throw new BusinessException("CSV header is missing column " + column);
+            }
+            positions.put(column, position);
+        }
+
+        return line -> {
+            List<String> values = splitCsv(line);
+            if (values.size() != columns.size()) {
+                throw new IllegalArgumentException(
+                        "Expected " + columns.size() + " CSV values but got " + values.size());
+            }
+            String birthdate = values.get(positions.get("birthdate"));
+            try {
+                return new User(
+                        values.get(positions.get("firstName")),
+                        values.get(positions.get("lastName")),
+                        birthdate.isEmpty() ? null : LocalDate.parse(birthdate),
+                        values.get(positions.get("email")));
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid birthdate " + birthdate);
+            }
+        };
+    }
+
+    /**
+     * Splits a CSV line into its trimmed values. Values may be enclosed in double quotes, in which case they can
+     * contain commas and doubled quotes.
+     */
+    static List<String> splitCsv(final String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    value.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString().trim());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted CSV value");
+        }
+        values.add(value.toString().trim());
+        return values;
+    }
+
+    private static int count(final List<UserImportResult> results, final UserImportResult.Status status) {
+        return (int) results.stream().filter(result -> result.status() == status).count();
+    }
+
+    @FunctionalInterface
+    private interface RecordParser {
+        User parse(String line);
+    }
+
+    private record PendingRecord(long line, User user, String error) {
+
+        boolean isValid() {
+            return user != null;
+        }
+    }
+}
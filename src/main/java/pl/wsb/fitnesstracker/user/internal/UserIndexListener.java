@@ -0,0 +1,89 @@
+package pl.wsb.fitnesstracker.user.internal;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.stereotype.Component;
+import pl.wsb.fitnesstracker.transaction.api.EntityWriteListener;
+import pl.wsb.fitnesstracker.transaction.api.EntityWriteListeners;
+import pl.wsb.fitnesstracker.user.api.User;
+
+import java.time.LocalDate;
+
+import static pl.wsb.fitnesstracker.transaction.api.TransactionCallbacks.afterCommit;
+import static pl.wsb.fitnesstracker.transaction.api.TransactionCallbacks.afterRollback;
+
+/**
+ * Entity write listener keeping the in-memory user indexes, the {@link UserPopulationStats} and the {@link UserCache}
+ * in sync with every write to the {@code users} table, regardless of whether it went through
+ * {@link UserServiceImpl} or directly through a repository.
+ * <p>
+ * New values are indexed as soon as they are flushed, so they are visible to the writing transaction.
+ * Removal of old values is deferred until the transaction commits. The email trigram index tolerates the extra
+ * entries a rollback leaves behind, the birthdate index and the population stats restore their previous state
+ * instead. Cached users are invalidated both right away and after commit, so no transaction can cache the old
+ * state in between.
+ */
+@Component
+class UserIndexListener implements EntityWriteListener<User> {
+
+    private final UserEmailTrigramIndex emailTrigramIndex;
+
+    private final UserBirthdateIndex birthdateIndex;
+
+    private final UserCache userCache;
+
+    private final UserPopulationStats populationStats;
+
+    UserIndexListener(UserEmailTrigramIndex emailTrigramIndex, UserBirthdateIndex birthdateIndex, UserCache userCache,
+                      UserPopulationStats populationStats, EntityManagerFactory entityManagerFactory) {
+        this.emailTrigramIndex = emailTrigramIndex;
+        this.birthdateIndex = birthdateIndex;
+        this.userCache = userCache;
+        this.populationStats = populationStats;
+        EntityWriteListeners.register(entityManagerFactory, User.class, this);
+    }
+
+    @Override
+    public void onSave(User user) {
+        Long userId = user.getId();
+        invalidate(userId);
+
+        String email = user.getEmail();
+        emailTrigramIndex.add(userId, email);
+        afterCommit(() -> emailTrigramIndex.retain(userId, email));
+
+        LocalDate previousBirthdate = birthdateIndex.put(userId, user.getBirthdate());
+        afterRollback(() -> {
+            if (previousBirthdate == null) {
+                birthdateIndex.remove(userId);
+            } else {
+                birthdateIndex.put(userId, previousBirthdate);
+            }
+        });
+
+        UserPopulationStats.Contribution previousContribution = populationStats.put(userId,
+                UserPopulationStats.Contribution.of(user.getNormalizedEmail(), user.getCreatedAt(), user.getBirthdate()));
+        afterRollback(() -> {
+            if (previousContribution == null) {
+                populationStats.remove(userId);
+            } else {
+                populationStats.put(userId, previousContribution);
+            }
+        });
+    }
+
+    @Override
+    public void onRemove(User user) {
+        Long userId = user.getId();
+        invalidate(userId);
+        afterCommit(() -> {
+            emailTrigramIndex.remove(userId);
+            birthdateIndex.remove(userId);
+            populationStats.remove(userId);
+        });
+    }
+
+    private void invalidate(Long userId) {
+        userCache.invalidate(userId);
+        afterCommit(() -> userCache.invalidate(userId));
+    }
+}
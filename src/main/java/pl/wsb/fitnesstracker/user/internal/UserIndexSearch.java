@@ -0,0 +1,30 @@
+package pl.wsb.fitnesstracker.user.internal;
+
+import pl.wsb.fitnesstracker.user.api.User;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Repository fragment answering user searches from the in-memory {@link UserEmailTrigramIndex}
+ * and {@link UserBirthdateIndex}. Candidates found in the indexes are verified against the database.
+ */
+interface UserIndexSearch {
+
+    /**
+     * Finds users whose email contains the given part, ignoring case.
+     *
+     * @param emailPart part of the email to search, at least {@value UserEmailTrigramIndex#GRAM_LENGTH} characters long
+     * @return {@link List} containing found users ordered by ID
+     */
+    List<User> findByEmailTrigrams(String emailPart);
+
+    /**
+     * Finds users born in the given range.
+     *
+     * @param fromInclusive lower bound of the birthdate, inclusive
+     * @param toExclusive   upper bound of the birthdate, exclusive
+     * @return {@link List} containing found users ordered by birthdate
+     */
+    List<User> findByBirthdateIndex(LocalDate fromInclusive, LocalDate toExclusive);
+}
@@ -0,0 +1,113 @@
+package pl.wsb.fitnesstracker.user.internal;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import pl.wsb.fitnesstracker.user.api.User;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+@Slf4j
+class UserIndexSearchImpl implements UserIndexSearch {
+
+    private static final int ID_CHUNK_SIZE = 1_000;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final UserEmailTrigramIndex emailTrigramIndex;
+
+    private final UserBirthdateIndex birthdateIndex;
+
+    private final UserPopulationStats populationStats;
+
+    UserIndexSearchImpl(UserEmailTrigramIndex emailTrigramIndex, UserBirthdateIndex birthdateIndex,
+                        UserPopulationStats populationStats) {
+        this.emailTrigramIndex = emailTrigramIndex;
+        this.birthdateIndex = birthdateIndex;
+        this.populationStats = populationStats;
+    }
+
+    @Override
+    public List<User> findByEmailTrigrams(String emailPart) {
+        flushPendingWrites();
+        Set<Long> candidates = emailTrigramIndex.candidates(emailPart)
+                .orElseThrow(() -> new IllegalArgumentException(
+                        "Email part must have at least " + UserEmailTrigramIndex.GRAM_LENGTH + " characters"));
+
+        String lowerCaseEmailPart = emailPart.toLowerCase(Locale.ROOT);
+        long[] ids = candidates.stream().mapToLong(Long::longValue).sorted().toArray();
+        return loadVerified(ids, user -> user.getEmail() != null
+                && user.getEmail().toLowerCase(Locale.ROOT).contains(lowerCaseEmailPart));
+    }
+
+    @Override
+    public List<User> findByBirthdateIndex(LocalDate fromInclusive, LocalDate toExclusive) {
+        flushPendingWrites();
+        long[] ids = birthdateIndex.findBornBetween(fromInclusive, toExclusive);
+        return loadVerified(ids, user -> !user.getBirthdate().isBefore(fromInclusive)
+                && user.getBirthdate().isBefore(toExclusive));
+    }
+
+    /**
+     * Builds the in-memory indexes and population stats from the users already stored in the database.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    void buildIndexes() {
+        List<Object[]> rows = entityManager.createQuery(
+                        "select u.id, u.email, u.birthdate, u.normalizedEmail, u.createdAt from User u", Object[].class)
+                .getResultList();
+        rows.forEach(row -> {
+            emailTrigramIndex.add((Long) row[0], (String) row[1]);
+            birthdateIndex.put((Long) row[0], (LocalDate) row[2]);
+            populationStats.put((Long) row[0],
+                    UserPopulationStats.Contribution.of((String) row[3], (Instant) row[4], (LocalDate) row[2]));
+        });
+        log.info("Indexed {} users", rows.size());
+    }
+
+    /**
+     * Flushes users persisted in the current transaction. Their inserts are deferred until flush, and so is their
+     * indexing, so the indexes are flushed the same way Hibernate flushes before running a query.
+     */
+    private void flushPendingWrites() {
+        if (entityManager.isJoinedToTransaction()) {
+            entityManager.flush();
+        }
+    }
+
+    /**
+     * Loads users with the given IDs in chunks, keeping the order of the IDs and dropping users that
+     * no longer exist or no longer match the indexed condition.
+     */
+    private List<User> loadVerified(long[] ids, Predicate<User> condition) {
+        List<User> users = new ArrayList<>();
+        for (int from = 0; from < ids.length; from += ID_CHUNK_SIZE) {
+            long[] chunk = Arrays.copyOfRange(ids, from, Math.min(from + ID_CHUNK_SIZE, ids.length));
+            Map<Long, User> loaded = entityManager.createQuery("select u from User u where u.id in :ids", User.class)
+                    .setParameter("ids", Arrays.stream(chunk).boxed().toList())
+                    .getResultList()
+                    .stream()
+                    .collect(Collectors.toMap(User::getId, Function.identity()));
+            Arrays.stream(chunk)
+                    .mapToObj(loaded::get)
+                    .filter(Objects::nonNull)
+                    .filter(condition)
+                    .forEach(users::add);
+        }
+        return users;
+    }
+}
@@ -0,0 +1,112 @@
+package pl.wsb.fitnesstracker.user.internal;
+
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Incrementally maintained counters describing the whole user population: number of users, sum of their
+ * birthdates (for the average age), number of users per email domain and number of signups per month.
+ * <p>
+ * Every user contributes one {@link Contribution}. Writes replace the previous contribution of the user and
+ * cost {@code O(1)}. Reads return an immutable {@link Snapshot} which is built once after every change and
+ * shared by all readers until the next one.
+ */
+@Component
+class UserPopulationStats {
+
+    private final Map<Long, Contribution> contributions = new HashMap<>();
+
+    private final Map<String, Long> usersByEmailDomain = new HashMap<>();
+
+    private final Map<YearMonth, Long> signupsByMonth = new TreeMap<>();
+
+    private long birthdateEpochDaySum;
+
+    private Snapshot snapshot;
+
+    /**
+     * Contribution of a single user to the counters.
+     *
+     * @param emailDomain       lower-cased domain of the email, or {@code null} if the email has none
+     * @param signupMonth       month the user signed up in (UTC)
+     * @param birthdateEpochDay birthdate of the user as epoch day
+     */
+    record Contribution(String emailDomain, YearMonth signupMonth, long birthdateEpochDay) {
+
+        static Contribution of(String normalizedEmail, Instant createdAt, LocalDate birthdate) {
+            int at = normalizedEmail == null ? -1 : normalizedEmail.lastIndexOf('@');
+            String domain = at < 0 || at == normalizedEmail.length() - 1 ? null : normalizedEmail.substring(at + 1);
+            return new Contribution(domain, YearMonth.from(createdAt.atOffset(ZoneOffset.UTC)), birthdate.toEpochDay());
+        }
+    }
+
+    /**
+     * Immutable view of the counters.
+     */
+    record Snapshot(long userCount, long birthdateEpochDaySum, Map<String, Long> usersByEmailDomain,
+                    Map<YearMonth, Long> signupsByMonth) {
+    }
+
+    /**
+     * Replaces the contribution of the user.
+     *
+     * @param userId       ID of the user
+     * @param contribution current contribution of the user
+     * @return previous contribution of the user, or {@code null} if the user was not counted
+     */
+    synchronized Contribution put(long userId, Contribution contribution) {
+        Contribution previous = contributions.put(userId, contribution);
+        if (contribution.equals(previous)) {
+            return previous;
+        }
+        if (previous != null) {
+            apply(previous, -1);
+        }
+        apply(contribution, 1);
+        return previous;
+    }
+
+    /**
+     * Stops counting the user.
+     *
+     * @param userId ID of the user
+     */
+    synchronized void remove(long userId) {
+        Contribution previous = contributions.remove(userId);
+        if (previous != null) {
+            apply(previous, -1);
+        }
+    }
+
+    synchronized Snapshot snapshot() {
+        if (snapshot == null) {
+            snapshot = new Snapshot(contributions.size(), birthdateEpochDaySum,
+                    Collections.unmodifiableMap(new LinkedHashMap<>(usersByEmailDomain)),
+                    Collections.unmodifiableMap(new LinkedHashMap<>(signupsByMonth)));
+        }
+        return snapshot;
+    }
+
+    private void apply(Contribution contribution, int sign) {
+        snapshot = null;
+        birthdateEpochDaySum += sign * contribution.birthdateEpochDay();
+        if (contribution.emailDomain() != null) {
+            usersByEmailDomain.merge(contribution.emailDomain(), (long) sign, UserPopulationStats::sumOrNull);
+        }
+        signupsByMonth.merge(contribution.signupMonth(), (long) sign, UserPopulationStats::sumOrNull);
+    }
+
+    private static Long sumOrNull(Long current, Long delta) {
+        long sum = current + delta;
+        return sum == 0 ? null : sum;
+    }
+}
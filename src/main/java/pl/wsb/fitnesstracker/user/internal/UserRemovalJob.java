@@ -0,0 +1,94 @@
+package pl.wsb.fitnesstracker.user.internal;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Background job removing a user together with all data referencing it. Progress is updated in the same
+ * transaction as every removed chunk, so it always matches what was actually removed.
+ */
+@Entity
+@Table(name = "user_removal_jobs", indexes = {
+        @Index(name = "ix_user_removal_jobs_status", columnList = "status"),
+        @Index(name = "ix_user_removal_jobs_user_id", columnList = "user_id")
+})
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+@Getter
+public class UserRemovalJob {
+
+    private static final int MAX_FAILURE_LENGTH = 1_000;
+
+    enum Status {
+        PENDING,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    /** Statuses of jobs that have not finished yet */
+    static final List<Status> ACTIVE_STATUSES = List.of(Status.PENDING, Status.RUNNING);
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private Status status;
+
+    @Column(name = "removed_rows", nullable = false)
+    private long removedRows;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    @Column(name = "failure", length = MAX_FAILURE_LENGTH)
+    private String failure;
+
+    UserRemovalJob(final Long userId) {
+        this.userId = userId;
+        this.status = Status.PENDING;
+        this.createdAt = Instant.now();
+        this.updatedAt = createdAt;
+    }
+
+    boolean isActive() {
+        return ACTIVE_STATUSES.contains(status);
+    }
+
+    void start() {
+        status = Status.RUNNING;
+        updatedAt = Instant.now();
+    }
+
+    void recordRemoved(final int rows) {
+        removedRows += rows;
+        updatedAt = Instant.now();
+    }
+
+    void complete() {
+        status = Status.COMPLETED;
+        updatedAt = Instant.now();
+    }
+
+    void fail(final String reason) {
+        status = Status.FAILED;
+        failure = reason != null && reason.length() > MAX_FAILURE_LENGTH
+                ? reason.substring(0, MAX_FAILURE_LENGTH)
+                : reason;
+        updatedAt = Instant.now();
+    }
+}
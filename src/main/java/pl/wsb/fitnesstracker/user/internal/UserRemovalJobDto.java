@@ -0,0 +1,16 @@
+package pl.wsb.fitnesstracker.user.internal;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import jakarta.annotation.Nullable;
+
+import java.time.Instant;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+record UserRemovalJobDto(Long id, Long userId, UserRemovalJob.Status status, long removedRows,
+                         Instant createdAt, Instant updatedAt, @Nullable String failure) {
+
+    static UserRemovalJobDto of(UserRemovalJob job) {
+        return new UserRemovalJobDto(job.getId(), job.getUserId(), job.getStatus(), job.getRemovedRows(),
+                job.getCreatedAt(), job.getUpdatedAt(), job.getFailure());
+    }
+}
@@ -0,0 +1,37 @@
+package pl.wsb.fitnesstracker.user.internal;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.Set;
+
+interface UserRemovalJobRepository extends JpaRepository<UserRemovalJob, Long> {
+
+    /**
+     * Query returning the oldest job in any of the given statuses.
+     *
+     * @param statuses statuses of the job to return
+     * @return {@link Optional} containing found job or {@link Optional#empty()} if none exists
+     */
+    Optional<UserRemovalJob> findFirstByStatusInOrderByIdAsc(Collection<UserRemovalJob.Status> statuses);
+
+    /**
+     * Query returning the newest job removing the given user.
+     *
+     * @param userId ID of the user
+     * @return {@link Optional} containing found job or {@link Optional#empty()} if none exists
+     */
+    Optional<UserRemovalJob> findFirstByUserIdOrderByIdDesc(Long userId);
+
+    /**
+     * Query returning which of the given users are removed by a job in any of the given statuses.
+     *
+     * @param userIds  IDs of the users
+     * @param statuses statuses of the jobs
+     * @return {@link Set} containing IDs of the users having such a job
+     */
+    @Query("select distinct j.userId from UserRemovalJob j where j.userId in :userIds and j.status in :statuses")
+    Set<Long> findUserIdsByUserIdInAndStatusIn(Collection<Long> userIds, Collection<UserRemovalJob.Status> statuses);
+}
@@ -0,0 +1,150 @@
+package pl.wsb.fitnesstracker.user.internal;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.wsb.fitnesstracker.user.api.UserDataRemover;
+import pl.wsb.fitnesstracker.user.api.UserRemovedEvent;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Removes users in the background.
+ * <p>
+ * A removal request only stores a {@link UserRemovalJob}. Pending jobs are picked up by a scheduled runner,
+ * which asks every {@link UserDataRemover} to remove chunks of at most {@value #CHUNK_SIZE} rows, each chunk in
+ * its own transaction together with the job progress, and finally removes the user and publishes
+ * a {@link UserRemovedEvent}. Every run advances only the oldest job by at most {@value #MAX_CHUNKS_PER_RUN}
+ * chunks, so a burst of removals does not hold a scheduler thread for long, and the job is resumed by the
+ * next run. Jobs interrupted by a restart are resumed as well, as every step can safely be repeated.
+ * <p>
+ * Other modules refuse to write data of a user with an active job, see
+ * {@link pl.wsb.fitnesstracker.user.api.UserProvider#findUsersBeingRemoved}. Writes that checked before the job
+ * was requested may still commit while it runs, so the final transaction removes any rows left over before
+ * removing the user.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+class UserRemovalService {
+
+    static final int CHUNK_SIZE = 500;
+
+    static final int MAX_CHUNKS_PER_RUN = 20;
+
+    private final UserRemovalJobRepository jobRepository;
+
+    private final UserRepository userRepository;
+
+    private final UserServiceImpl userService;
+
+    private final List<UserDataRemover> dataRemovers;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Requests removal of the user. If the user is already being removed, the existing job is returned.
+     *
+     * @param userId ID of the user to remove
+     * @return {@link Optional} containing the removal job, or {@link Optional#empty()} if the user does not exist
+     */
+    @Transactional
+    public Optional<UserRemovalJob> requestRemoval(final Long userId) {
+        Optional<UserRemovalJob> existingJob = jobRepository.findFirstByUserIdOrderByIdDesc(userId)
+                .filter(UserRemovalJob::isActive);
+        if (existingJob.isPresent()) {
+            log.info("User with ID {} is already being removed by job {}", userId, existingJob.get().getId());
+            return existingJob;
+        }
+        if (!userRepository.existsById(userId)) {
+            return Optional.empty();
+        }
+
+        UserRemovalJob job = jobRepository.save(new UserRemovalJob(userId));
+        log.info("Scheduled removal of user with ID {} as job {}", userId, job.getId());
+        return Optional.of(job);
+    }
+
+    public Optional<UserRemovalJob> getJob(final Long jobId) {
+        return jobRepository.findById(jobId);
+    }
+
+    /**
+     * Advances the oldest pending job by at most {@value #MAX_CHUNKS_PER_RUN} chunks, completing it if nothing
+     * is left to remove.
+     */
+    @Scheduled(fixedDelay = 1_000)
+    public void runPendingJobs() {
+        jobRepository.findFirstByStatusInOrderByIdAsc(UserRemovalJob.ACTIVE_STATUSES).ifPresent(job -> run(job.getId()));
+    }
+
+    private void run(final Long jobId) {
+        Long userId = updateJob(jobId, UserRemovalJob::start).getUserId();
+        log.info("Running removal job {} for user with ID {}", jobId, userId);
+
+        try {
+            int chunks = 0;
+            for (UserDataRemover dataRemover : dataRemovers) {
+                int removed;
+                do {
+                    if (chunks++ == MAX_CHUNKS_PER_RUN) {
+                        log.info("Removal job {} paused after {} chunks, resuming on the next run", jobId,
+                                MAX_CHUNKS_PER_RUN);
+                        return;
+                    }
+                    removed = transactionTemplate.execute(status -> {
+                        int rows = dataRemover.removeChunk(userId, CHUNK_SIZE);
+                        updateJob(jobId, job -> job.recordRemoved(rows));
+                        return rows;
+                    });
+                } while (removed > 0);
+            }
+
+            transactionTemplate.executeWithoutResult(status -> {
+                int leftOver = removeAll(userId);
+                if (leftOver > 0) {
+                    log.warn("Removal job {} removed {} rows written while it was running", jobId, leftOver);
+                    updateJob(jobId, job -> job.recordRemoved(leftOver));
+                }
+                if (userRepository.existsById(userId)) {
+                    userService.removeUser(userId);
+                }
+                updateJob(jobId, UserRemovalJob::complete);
+                eventPublisher.publishEvent(new UserRemovedEvent(userId));
+            });
+            log.info("Removal job {} for user with ID {} completed", jobId, userId);
+        } catch (RuntimeException e) {
+            log.error("Removal job {} for user with ID {} failed: {}", jobId, userId, e.getMessage(), e);
+            updateJob(jobId, job -> job.fail(e.getMessage()));
+        }
+    }
+
+    private int removeAll(final Long userId) {
+        int removed = 0;
+        for (UserDataRemover dataRemover : dataRemovers) {
+            int rows;
+            do {
+                rows = dataRemover.removeChunk(userId, CHUNK_SIZE);
+                removed += rows;
+            } while (rows > 0);
+        }
+        return removed;
+    }
+
+    private UserRemovalJob updateJob(final Long jobId, final Consumer<UserRemovalJob> update) {
+        return transactionTemplate.execute(status -> {
+            UserRemovalJob job = jobRepository.findById(jobId)
+                    .orElseThrow(() -> new IllegalStateException("Removal job " + jobId + " not found"));
+            update.accept(job);
+            return job;
+        });
+    }
+}
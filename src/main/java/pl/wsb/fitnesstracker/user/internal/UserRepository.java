@@ -1,29 +1,104 @@
 package pl.wsb.fitnesstracker.user.internal;
 
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import pl.wsb.fitnesstracker.user.api.User;
+import pl.wsb.fitnesstracker.user.api.UserSimpleDto;
 
 import java.time.LocalDate;
-import java.util.Objects;
-import java.util.Optional;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
-import static java.util.stream.Collectors.toList;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserIndexSearch {
 
     /**
-     * Query searching users by email address. It matches by exact match.
+     * Query searching users by email address. It matches by exact, case-insensitive match
+     * and is served by the unique index on the normalized email column.
      *
      * @param email email of the user to search
      * @return {@link Optional} containing found user or {@link Optional#empty()} if none matched
      */
     default Optional<User> findByEmail(String email) {
-        return findAll().stream()
-                .filter(user -> Objects.equals(user.getEmail(), email))
-                .findFirst();
+        if (email == null) {
+            return Optional.empty();
+        }
+        return findByNormalizedEmail(User.normalizeEmail(email));
     }
 
+    /**
+     * Query searching users by their normalized email address (see {@link User#normalizeEmail(String)}).
+     *
+     * @param normalizedEmail normalized email of the user to search
+     * @return {@link Optional} containing found user or {@link Optional#empty()} if none matched
+     */
+    Optional<User> findByNormalizedEmail(String normalizedEmail);
+
+    /**
+     * Query returning users with the given IDs, in no particular order.
+     *
+     * @param ids IDs of the users to return
+     * @return {@link List} containing found users
+     */
+    List<User> findByIdIn(Collection<Long> ids);
+
+    /**
+     * Query returning users with IDs greater than the given one, ordered by ID. Backs keyset pagination
+     * and is answered by a range scan of the primary key index.
+     *
+     * @param id    ID after which users are returned
+     * @param limit maximum number of users to return
+     * @return {@link List} containing found users
+     */
+    List<User> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    /**
+     * Query streaming all users ordered by ID. The stream has to be consumed and closed within a transaction.
+     *
+     * @return {@link Stream} of all users
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    Stream<User> streamAllByOrderByIdAsc();
+
+    /**
+     * Projection query returning ID, first name and last name of users with IDs greater than the given one,
+     * ordered by ID.
+     *
+     * @param id    ID after which users are returned
+     * @param limit maximum number of users to return
+     * @return {@link List} containing found users
+     */
+    @Query("select new pl.wsb.fitnesstracker.user.api.UserSimpleDto(u.id, u.firstName, u.lastName) "
+            + "from User u where u.id > :id order by u.id")
+    List<UserSimpleDto> findSimpleByIdGreaterThan(Long id, Limit limit);
+
+    /**
+     * Projection query streaming ID, first name and last name of all users ordered by ID.
+     * The stream has to be consumed and closed within a transaction.
+     *
+     * @return {@link Stream} of all users
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("select new pl.wsb.fitnesstracker.user.api.UserSimpleDto(u.id, u.firstName, u.lastName) "
+            + "from User u order by u.id")
+    Stream<UserSimpleDto> streamSimpleAll();
+
+    /**
+     * Query streaming the normalized emails of all users. The stream has to be consumed and closed
+     * within a transaction.
+     *
+     * @return {@link Stream} of normalized emails
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("select u.normalizedEmail from User u")
+    Stream<String> streamAllNormalizedEmails();
+
     /**
      * Query searching users by email address. It matches by partial match.
      * This implementation uses a case-insensitive search for any part of the email.
@@ -34,9 +109,9 @@ public interface UserRepository extends JpaRepository<User, Long> {
     List<User> findByEmailContainingIgnoreCase(String emailPart);
 
     /**
-     * Alternative implementation for finding users by email part.
-     * This is a custom implementation that provides the same functionality
-     * as findByEmailContainingIgnoreCase but with a different approach.
+     * Finds users by email part using a case-insensitive match on any part of the email.
+     * Parts of at least {@value UserEmailTrigramIndex#GRAM_LENGTH} characters are answered from the in-memory
+     * trigram index; shorter parts fall back to {@link #findByEmailContainingIgnoreCase(String)}.
      *
      * @param emailPart part of the email to search
      * @return {@link List} containing found users
@@ -46,26 +121,21 @@ public interface UserRepository extends JpaRepository<User, Long> {
             return List.of();
         }
 
-        String lowerCaseEmailPart = emailPart.toLowerCase();
+        if (emailPart.length() < UserEmailTrigramIndex.GRAM_LENGTH) {
+            return findByEmailContainingIgnoreCase(emailPart);
+        }
 
-        return findAll()
-                .stream()
-                .filter(user -> {
-                    String userEmail = user.getEmail();
-                    return userEmail != null && userEmail.toLowerCase().indexOf(lowerCaseEmailPart) >= 0;
-                })
-                .collect(toList());
+        return findByEmailTrigrams(emailPart);
     }
 
     /**
      * Query searching users who were born before specified date.
+     * It is answered from the in-memory birthdate index.
      *
      * @param time reference date to compare user's birth date against
-     * @return {@link List} containing users born before the specified date
+     * @return {@link List} containing users born before the specified date, ordered by birth date
      */
     default List<User> findByBirthdateOlderThan(LocalDate time) {
-        return findAll().stream()
-                .filter(user -> user.getBirthdate().isBefore(time))
-                .collect(toList());
+        return findByBirthdateIndex(LocalDate.MIN, time);
     }
 }
@@ -1,68 +1,73 @@
 package pl.wsb.fitnesstracker.user.internal;
 
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import pl.wsb.fitnesstracker.exception.api.BusinessException;
+import pl.wsb.fitnesstracker.user.api.AgeBucket;
 import pl.wsb.fitnesstracker.user.api.User;
+import pl.wsb.fitnesstracker.user.api.UserPopulationAnalytics;
 import pl.wsb.fitnesstracker.user.api.UserProvider;
 import pl.wsb.fitnesstracker.user.api.UserService;
+import pl.wsb.fitnesstracker.user.api.UserSimpleDto;
 
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 class UserServiceImpl implements UserService, UserProvider {
 
+    static final int MAX_PAGE_SIZE = 1_000;
+
+    static final int ID_CHUNK_SIZE = 1_000;
+
+    static final int MAX_AGE_BUCKET_SIZE = 150;
+
+    private static final int AGE_DISTRIBUTION_BUCKET_SIZE = 10;
+
+    private static final double DAYS_PER_YEAR = 365.2425;
+
     private final UserRepository userRepository;
 
-    @Override
-    public User createUser(final User user) {
-        log.info("Starting user creation process");
+    private final UserBirthdateIndex userBirthdateIndex;
 
-        // Validate user object
-        if (user == null) {
-            log.error("Cannot create user: user object is null");
-            throw new IllegalArgumentException("User object cannot be null");
-        }
+    private final UserCache userCache;
 
-        // Check if user already has an ID
-        if (user.getId() != null) {
-            log.error("Cannot create user: user already has ID {}", user.getId());
-            throw new IllegalArgumentException("User has already DB ID, update is not permitted!");
-        }
+    private final UserPopulationStats populationStats;
 
-        // Validate required fields
-        if (user.getFirstName() == null || user.getFirstName().trim().isEmpty()) {
-            log.error("Cannot create user: first name is missing");
-            throw new IllegalArgumentException("First name is required");
-        }
+    private final UserRemovalJobRepository removalJobRepository;
 
-        if (user.getLastName() == null || user.getLastName().trim().isEmpty()) {
-            log.error("Cannot create user: last name is missing");
-            throw new IllegalArgumentException("Last name is required");
-        }
+    @PersistenceContext
+    private EntityManager entityManager;
 
-        if (user.getEmail() == null || user.getEmail().trim().isEmpty()) {
-            log.error("Cannot create user: email is missing");
-            throw new IllegalArgumentException("Email is required");
-        }
+    @Override
+    public User createUser(final User user) {
+        log.info("Starting user creation process");
 
-        if (user.getBirthdate() == null) {
-            log.error("Cannot create user: birthdate is missing");
-            throw new IllegalArgumentException("Birthdate is required");
-        }
+        validateNewUser(user);
 
         // Check if email is already in use
-        Optional<User> existingUser = userRepository.findByEmail(user.getEmail());
+        Optional<User> existingUser = lookupByEmail(user.getEmail());
         if (existingUser.isPresent()) {
             log.error("Cannot create user: email {} is already in use", user.getEmail());
             throw new IllegalArgumentException("Email is already in use");
@@ -127,7 +132,7 @@ class UserServiceImpl implements UserService, UserProvider {
 
         // Check if email is already in use by another user
         if (!userInfo.getEmail().equals(userToUpdate.getEmail())) {
-            Optional<User> existingUserWithEmail = userRepository.findByEmail(userInfo.getEmail());
+            Optional<User> existingUserWithEmail = lookupByEmail(userInfo.getEmail());
             if (existingUserWithEmail.isPresent() && !existingUserWithEmail.get().getId().equals(userId)) {
                 log.error("Cannot update user: email {} is already in use by another user", userInfo.getEmail());
                 throw new IllegalArgumentException("Email is already in use by another user");
@@ -166,19 +171,126 @@ class UserServiceImpl implements UserService, UserProvider {
         }
     }
 
+    /**
+     * Checks that the user can be created, without checking the uniqueness of the email.
+     *
+     * @param user user to be created
+     * @throws IllegalArgumentException if the user already has an ID or a required field is missing
+     */
+    void validateNewUser(final User user) {
+        // Validate user object
+        if (user == null) {
+            log.error("Cannot create user: user object is null");
+            throw new IllegalArgumentException("User object cannot be null");
+        }
+
+        // Check if user already has an ID
+        if (user.getId() != null) {
+            log.error("Cannot create user: user already has ID {}", user.getId());
+            throw new IllegalArgumentException("User has already DB ID, update is not permitted!");
+        }
+
+        // Validate required fields
+        if (user.getFirstName() == null || user.getFirstName().trim().isEmpty()) {
+            log.error("Cannot create user: first name is missing");
+            throw new IllegalArgumentException("First name is required");
+        }
+
+        if (user.getLastName() == null || user.getLastName().trim().isEmpty()) {
+            log.error("Cannot create user: last name is missing");
+            throw new IllegalArgumentException("Last name is required");
+        }
+
+        if (user.getEmail() == null || user.getEmail().trim().isEmpty()) {
+            log.error("Cannot create user: email is missing");
+            throw new IllegalArgumentException("Email is required");
+        }
+
+        if (user.getBirthdate() == null) {
+            log.error("Cannot create user: birthdate is missing");
+            throw new IllegalArgumentException("Birthdate is required");
+        }
+    }
+
     @Override
     public void removeUser(Long id) {
         userRepository.deleteById(id);
     }
 
+    /**
+     * Gets a user by ID, reading through the {@link UserCache}. Users loaded from the database are cached once
+     * the current transaction commits.
+     */
     @Override
     public Optional<User> getUser(final Long userId) {
-        return userRepository.findById(userId);
+        Optional<User> cached = userCache.get(userId);
+        if (cached.isPresent()) {
+            return cached;
+        }
+
+        long version = userCache.version(userId);
+        Optional<User> user = userRepository.findById(userId);
+        user.ifPresent(found -> userCache.putAfterCommit(found, version));
+        return user;
+    }
+
+    /**
+     * Gets users by ID, reading through the {@link UserCache}. Missing users are loaded with one query per
+     * {@value #ID_CHUNK_SIZE} IDs.
+     */
+    @Override
+    public Map<Long, User> getUsers(final Collection<Long> userIds) {
+        if (userIds == null) {
+            throw new IllegalArgumentException("User IDs cannot be null");
+        }
+
+        Map<Long, User> users = new LinkedHashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long userId : new LinkedHashSet<>(userIds)) {
+            if (userId == null) {
+                continue;
+            }
+            Optional<User> cached = userCache.get(userId);
+            users.put(userId, cached.orElse(null));
+            if (cached.isEmpty()) {
+                missing.add(userId);
+            }
+        }
+
+        for (int from = 0; from < missing.size(); from += ID_CHUNK_SIZE) {
+            List<Long> chunk = missing.subList(from, Math.min(from + ID_CHUNK_SIZE, missing.size()));
+            Map<Long, Long> versions = new HashMap<>();
+            chunk.forEach(userId -> versions.put(userId, userCache.version(userId)));
+            userRepository.findByIdIn(chunk).forEach(user -> {
+                users.put(user.getId(), user);
+                userCache.putAfterCommit(user, versions.get(user.getId()));
+            });
+        }
+
+        users.values().removeIf(Objects::isNull);
+        log.debug("Retrieved {} of {} requested users, {} loaded from the database",
+                users.size(), userIds.size(), missing.size());
+        return users;
+    }
+
+    /**
+     * Finds users being removed with one query per {@value #ID_CHUNK_SIZE} IDs. Jobs are read in the current
+     * transaction, so a job committed before it is always seen.
+     */
+    @Override
+    public Set<Long> findUsersBeingRemoved(final Collection<Long> userIds) {
+        List<Long> ids = userIds.stream().filter(Objects::nonNull).distinct().toList();
+        Set<Long> beingRemoved = new HashSet<>();
+        for (int from = 0; from < ids.size(); from += ID_CHUNK_SIZE) {
+            beingRemoved.addAll(removalJobRepository.findUserIdsByUserIdInAndStatusIn(
+                    ids.subList(from, Math.min(from + ID_CHUNK_SIZE, ids.size())), UserRemovalJob.ACTIVE_STATUSES));
+        }
+        return beingRemoved;
     }
 
     @Override
     public Optional<User> getUserByEmail(final String email) {
-        return userRepository.findByEmail(email);
+        return lookupByEmail(email);
     }
 
     @Override
@@ -191,51 +303,121 @@ class UserServiceImpl implements UserService, UserProvider {
         log.info("Retrieving all users from the database");
 
         try {
-            List<User> users = userRepository.findAll();
-
-            // Sort users by ID for consistent ordering
-            List<User> sortedUsers = users.stream()
-                .sorted((u1, u2) -> {
-                    if (u1.getId() == null && u2.getId() == null) return 0;
-                    if (u1.getId() == null) return -1;
-                    if (u2.getId() == null) return 1;
-                    return u1.getId().compareTo(u2.getId());
-                })
-                .toList();
-
-            int userCount = sortedUsers.size();
-            log.info("Retrieved {} users from the database", userCount);
-
-            // Log some statistics about the users
-            if (userCount > 0) {
-                Map<String, Long> emailDomainStats = sortedUsers.stream()
-                    .map(user -> user.getEmail())
-                    .filter(email -> email != null && email.contains("@"))
-                    .map(email -> email.substring(email.indexOf('@') + 1))
-                    .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
-
-                log.debug("Email domain statistics: {}", emailDomainStats);
-
-                // Calculate average age
-                double averageAge = sortedUsers.stream()
-                    .map(User::getBirthdate)
-                    .filter(Objects::nonNull)
-                    .mapToLong(birthdate -> ChronoUnit.YEARS.between(birthdate, LocalDate.now()))
-                    .average()
-                    .orElse(0);
-
-                log.debug("Average user age: {}", averageAge);
-            }
-
-            return sortedUsers;
+            List<User> users = userRepository.findAll(Sort.by("id"));
+            log.info("Retrieved {} users from the database", users.size());
+            return users;
         } catch (Exception e) {
             log.error("Error occurred while retrieving all users: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to retrieve all users", e);
         }
     }
 
+    @Override
+    public List<User> findUsersAfter(final Long afterId, final int limit) {
+        validatePageLimit(limit);
+        return userRepository.findByIdGreaterThanOrderByIdAsc(afterId == null ? 0L : afterId, Limit.of(limit));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachUser(final Consumer<User> consumer) {
+        try (Stream<User> users = userRepository.streamAllByOrderByIdAsc()) {
+            users.forEach(user -> {
+                consumer.accept(user);
+                entityManager.detach(user);
+            });
+        }
+    }
+
+    @Override
+    public List<UserSimpleDto> findSimpleUsersAfter(final Long afterId, final int limit) {
+        validatePageLimit(limit);
+        return userRepository.findSimpleByIdGreaterThan(afterId == null ? 0L : afterId, Limit.of(limit));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachSimpleUser(final Consumer<UserSimpleDto> consumer) {
+        try (Stream<UserSimpleDto> users = userRepository.streamSimpleAll()) {
+            users.forEach(consumer);
+        }
+    }
+
     @Override
     public List<User> findUsersOlderThan(LocalDate time) {
         return userRepository.findByBirthdateOlderThan(time);
     }
+
+    @Override
+    public List<User> findUsersBornBetween(LocalDate from, LocalDate to) {
+        if (from == null || to == null) {
+            throw new BusinessException("Both from and to dates are required");
+        }
+        if (from.isAfter(to)) {
+            throw new BusinessException("From date must be before or equal to to date");
+        }
+        return userRepository.findByBirthdateIndex(from, to.plusDays(1));
+    }
+
+    @Override
+    public List<AgeBucket> countUsersByAgeBucket(int bucketSize) {
+        if (bucketSize <= 0 || bucketSize > MAX_AGE_BUCKET_SIZE) {
+            throw new BusinessException("Bucket size must be between 1 and " + MAX_AGE_BUCKET_SIZE);
+        }
+
+        if (entityManager.isJoinedToTransaction()) {
+            // users persisted in this transaction are indexed once flushed
+            entityManager.flush();
+        }
+
+        LocalDate today = LocalDate.now();
+        List<AgeBucket> buckets = new ArrayList<>();
+        int atLeastFromAge = countUsersAtLeast(0, today);
+        for (int fromAge = 0; atLeastFromAge > 0; fromAge += bucketSize) {
+            int atLeastToAge = countUsersAtLeast(fromAge + bucketSize, today);
+            buckets.add(new AgeBucket(fromAge, fromAge + bucketSize, atLeastFromAge - atLeastToAge));
+            atLeastFromAge = atLeastToAge;
+        }
+        return buckets;
+    }
+
+    @Override
+    public UserPopulationAnalytics getPopulationAnalytics() {
+        if (entityManager.isJoinedToTransaction()) {
+            // users persisted in this transaction are counted once flushed
+            entityManager.flush();
+        }
+
+        UserPopulationStats.Snapshot stats = populationStats.snapshot();
+        LocalDate today = LocalDate.now();
+        double averageAge = stats.userCount() == 0 ? 0
+                : (today.toEpochDay() - (double) stats.birthdateEpochDaySum() / stats.userCount()) / DAYS_PER_YEAR;
+        return new UserPopulationAnalytics(
+                stats.userCount(),
+                averageAge,
+                stats.usersByEmailDomain(),
+                countUsersByAgeBucket(AGE_DISTRIBUTION_BUCKET_SIZE),
+                stats.signupsByMonth());
+    }
+
+    private void validatePageLimit(final int limit) {
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new BusinessException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+    }
+
+    private int countUsersAtLeast(int age, LocalDate today) {
+        return userBirthdateIndex.countBornBefore(today.minusYears(age).plusDays(1));
+    }
+
+    /**
+     * Finds a user by exact (case-insensitive) email with a single query served by the unique index on the
+     * normalized email, which answers hits and misses alike.
+     *
+     * @param email email address to look up
+     * @return {@link Optional} containing the matching user, or {@link Optional#empty()} if none exists
+     */
+    private Optional<User> lookupByEmail(final String email) {
+        return userRepository.findByEmail(email);
+    }
 }
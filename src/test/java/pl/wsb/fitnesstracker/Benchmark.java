@@ -0,0 +1,19 @@
+package pl.wsb.fitnesstracker;
+
+import org.junit.jupiter.api.Tag;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a long-running performance test. Benchmarks are excluded from the default build
+ * and run with {@code mvn test -Pbenchmark}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+@Tag("Benchmark")
+public @interface Benchmark {
+
+}
@@ -1,5 +1,7 @@
 package pl.wsb.fitnesstracker;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -7,6 +9,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.jpa.repository.JpaRepository;
 import pl.wsb.fitnesstracker.statistics.api.Statistics;
+import pl.wsb.fitnesstracker.statistics.internal.TrainingPercentileSketches;
 import pl.wsb.fitnesstracker.training.api.Training;
 import pl.wsb.fitnesstracker.user.api.User;
 
@@ -22,6 +25,20 @@ public abstract class IntegrationTestBase {
     @Autowired
     private JpaRepository<Training, Long> trainingRepository;
 
+    @Autowired
+    private JpaRepository<Statistics, Long> statisticsRepository;
+
+    @Autowired
+    private TrainingPercentileSketches percentileSketches;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @FunctionalInterface
+    protected interface Action {
+        void run() throws Exception;
+    }
+
     @AfterEach
     void cleanUp() {
         cleanDatabase();
@@ -29,8 +46,10 @@ public abstract class IntegrationTestBase {
     }
 
     private void cleanDatabase() {
+        statisticsRepository.deleteAll();
         trainingRepository.deleteAll();
         userRepository.deleteAll();
+        percentileSketches.reset();
     }
 
     @BeforeEach
@@ -63,5 +82,20 @@ public abstract class IntegrationTestBase {
         return trainingRepository.findAll();
     }
 
-
+    /**
+     * Counts the SQL statements prepared by the test thread while running the action. Pending writes are flushed and the persistence
+     * context is cleared first, so entities created by the test have to be loaded from the database again.
+     */
+    protected long countStatements(Action action) throws Exception {
+        entityManager.flush();
+        entityManager.clear();
+        StatementCounter.start();
+        long count;
+        try {
+            action.run();
+        } finally {
+            count = StatementCounter.stop();
+        }
+        return count;
+    }
 }
@@ -0,0 +1,31 @@
+package pl.wsb.fitnesstracker;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements prepared by the current thread, ignoring statements of scheduled jobs running
+ * concurrently. Registered with Hibernate in the test configuration.
+ */
+public class StatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<long[]> COUNT = new ThreadLocal<>();
+
+    static void start() {
+        COUNT.set(new long[1]);
+    }
+
+    static long stop() {
+        long count = COUNT.get()[0];
+        COUNT.remove();
+        return count;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        long[] count = COUNT.get();
+        if (count != null) {
+            count[0]++;
+        }
+        return sql;
+    }
+}
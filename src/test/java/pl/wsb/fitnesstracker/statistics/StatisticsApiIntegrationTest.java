@@ -4,6 +4,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.http.MediaType;
+import org.springframework.test.context.transaction.TestTransaction;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
 import pl.wsb.fitnesstracker.IntegrationTest;
@@ -18,6 +19,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import static java.time.LocalDate.now;
+import static org.assertj.core.api.Assertions.assertThat;
 import static java.util.UUID.randomUUID;
 
 @IntegrationTest
@@ -44,6 +46,22 @@ class StatisticsApiIntegrationTest extends IntegrationTestBase {
         return statisticsRepository.save(statistics);
     }
 
+    @Test
+    void shouldLoadStatisticsWithUsersInSingleQuery_whenListingStatistics() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            persistStatistics(generateStatistics(existingUser(generateUser())));
+        }
+
+        assertThat(countStatements(() -> mockMvc.perform(get("/v1/statistics"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[2].user.email").exists())))
+                .isEqualTo(1);
+        assertThat(countStatements(() -> mockMvc.perform(get("/v1/statistics/calories").param("calories", "100"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[2].user.email").exists())))
+                .isEqualTo(1);
+    }
+
     @Test
     void shouldReturnAllStatistics_whenGettingAllStatistics() throws Exception {
         User user = existingUser(generateUser());
@@ -99,6 +117,88 @@ class StatisticsApiIntegrationTest extends IntegrationTestBase {
                 .andExpect(jsonPath("$[1]").doesNotExist());
     }
 
+    @Test
+    void shouldReturnStatisticsInCalorieOrderUpToLimit_whenGettingStatisticsWithCaloriesGreaterThan() throws Exception {
+        int[] calories = {9000, 3000, 6000, 7000, 5000};
+        for (int value : calories) {
+            persistStatistics(new Statistics(existingUser(generateUser()), 1, 10.0, value));
+        }
+
+        mockMvc.perform(get("/v1/statistics/calories").param("calories", "5000").param("limit", "2"))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].totalCaloriesBurned").value(6000))
+                .andExpect(jsonPath("$[1].totalCaloriesBurned").value(7000))
+                .andExpect(jsonPath("$[2]").doesNotExist());
+    }
+
+    @Test
+    void shouldReturnBadRequest_whenLimitIsOutOfRange() throws Exception {
+        mockMvc.perform(get("/v1/statistics/calories").param("calories", "5000").param("limit", "0"))
+                .andDo(log())
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/v1/statistics/leaderboard").param("metric", "DISTANCE").param("k", "0"))
+                .andDo(log())
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldReturnBadRequest_whenActivityRangeIsInvalid() throws Exception {
+        mockMvc.perform(get("/v1/statistics/user/{userId}/activity", 1L)
+                        .param("from", "2024-02-02").param("to", "2024-02-01"))
+                .andDo(log())
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/v1/statistics/user/{userId}/rollups", 1L)
+                        .param("granularity", "DAY").param("from", "2020-01-01").param("to", "2024-01-01"))
+                .andDo(log())
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldReturnBadRequest_whenPercentileQueryIsInvalid() throws Exception {
+        mockMvc.perform(get("/v1/statistics/percentiles")
+                        .param("activityType", "RUNNING").param("metric", "DISTANCE").param("quantile", "1.5"))
+                .andDo(log())
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/v1/statistics/percentiles/rank")
+                        .param("activityType", "RUNNING").param("metric", "DISTANCE").param("value", "1")
+                        .param("from", "2024-04").param("to", "2024-03"))
+                .andDo(log())
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldReturnTopUsers_whenGettingLeaderboard() throws Exception {
+        User user1 = existingUser(generateUser());
+        User user2 = existingUser(generateUser());
+        User user3 = existingUser(generateUser());
+        persistStatistics(new Statistics(user1, 10, 100.0, 8000));
+        persistStatistics(new Statistics(user2, 5, 150.0, 4000));
+        persistStatistics(new Statistics(user3, 20, 50.0, 9000));
+
+        // uncommitted values are not ranked
+        mockMvc.perform(get("/v1/statistics/leaderboard").param("metric", "DISTANCE"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0]").doesNotExist());
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+        // committed as well, so the clean-up removes the rows committed above
+        TestTransaction.start();
+        TestTransaction.flagForCommit();
+
+        assertThat(countStatements(() -> mockMvc.perform(get("/v1/statistics/leaderboard")
+                        .param("metric", "DISTANCE").param("k", "2"))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].rank").value(1))
+                .andExpect(jsonPath("$[0].userId").value(user2.getId()))
+                .andExpect(jsonPath("$[0].totalDistance").value(150.0))
+                .andExpect(jsonPath("$[1].rank").value(2))
+                .andExpect(jsonPath("$[1].userId").value(user1.getId()))
+                .andExpect(jsonPath("$[2]").doesNotExist())))
+                .isZero();
+    }
+
     @Test
     void shouldCreateStatistics_whenCreatingStatistics() throws Exception {
         User user = existingUser(generateUser());
@@ -119,9 +219,13 @@ class StatisticsApiIntegrationTest extends IntegrationTestBase {
                 .andExpect(jsonPath("$.user.firstName").value(user.getFirstName()))
                 .andExpect(jsonPath("$.user.lastName").value(user.getLastName()))
                 .andExpect(jsonPath("$.user.email").value(user.getEmail()))
-                .andExpect(jsonPath("$.totalTrainings").value(10))
-                .andExpect(jsonPath("$.totalDistance").value(100.0))
-                .andExpect(jsonPath("$.totalCaloriesBurned").value(8000));
+                .andExpect(jsonPath("$.totalTrainings").value(0))
+                .andExpect(jsonPath("$.totalDistance").value(0.0))
+                .andExpect(jsonPath("$.totalCaloriesBurned").value(0));
+
+        mockMvc.perform(post("/v1/statistics").contentType(MediaType.APPLICATION_JSON).content(requestBody))
+                .andDo(log())
+                .andExpect(status().isConflict());
     }
 
     @Test
@@ -147,9 +251,9 @@ class StatisticsApiIntegrationTest extends IntegrationTestBase {
                 .andExpect(jsonPath("$.user.firstName").value(user.getFirstName()))
                 .andExpect(jsonPath("$.user.lastName").value(user.getLastName()))
                 .andExpect(jsonPath("$.user.email").value(user.getEmail()))
-                .andExpect(jsonPath("$.totalTrainings").value(15))
-                .andExpect(jsonPath("$.totalDistance").value(150.0))
-                .andExpect(jsonPath("$.totalCaloriesBurned").value(12000));
+                .andExpect(jsonPath("$.totalTrainings").value(statistics.getTotalTrainings()))
+                .andExpect(jsonPath("$.totalDistance").value(statistics.getTotalDistance()))
+                .andExpect(jsonPath("$.totalCaloriesBurned").value(statistics.getTotalCaloriesBurned()));
     }
 
     @Test
@@ -0,0 +1,109 @@
+package pl.wsb.fitnesstracker.statistics.internal;
+
+import org.junit.jupiter.api.Test;
+import pl.wsb.fitnesstracker.exception.api.BusinessException;
+import pl.wsb.fitnesstracker.statistics.api.RollupGranularity;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static pl.wsb.fitnesstracker.statistics.api.RollupGranularity.DAY;
+import static pl.wsb.fitnesstracker.statistics.api.RollupGranularity.MONTH;
+import static pl.wsb.fitnesstracker.statistics.api.RollupGranularity.WEEK;
+
+class ActivityRollupServiceImplTest {
+
+    private final ActivityRollupServiceImpl rollupService =
+            new ActivityRollupServiceImpl(mock(ActivityRollupBucketRepository.class));
+
+    @Test
+    void cover_shouldUseWholeMonthsThenWeeksThenDays() {
+        // 2024-01-04 is a Thursday, 2024-02-05 a Monday
+        Map<RollupGranularity, List<LocalDate>> buckets =
+                bucketStarts(ActivityRollupServiceImpl.cover(LocalDate.parse("2024-01-04"), LocalDate.parse("2024-03-13")));
+
+        assertThat(buckets.get(MONTH)).containsExactly(LocalDate.parse("2024-02-01"));
+        assertThat(buckets.get(WEEK)).containsExactly(
+                LocalDate.parse("2024-01-08"), LocalDate.parse("2024-01-15"), LocalDate.parse("2024-01-22"),
+                LocalDate.parse("2024-03-04"));
+        assertThat(buckets.get(DAY)).containsExactly(
+                LocalDate.parse("2024-01-04"), LocalDate.parse("2024-01-05"), LocalDate.parse("2024-01-06"),
+                LocalDate.parse("2024-01-07"), LocalDate.parse("2024-01-29"), LocalDate.parse("2024-01-30"),
+                LocalDate.parse("2024-01-31"), LocalDate.parse("2024-03-01"), LocalDate.parse("2024-03-02"),
+                LocalDate.parse("2024-03-03"), LocalDate.parse("2024-03-11"), LocalDate.parse("2024-03-12"),
+                LocalDate.parse("2024-03-13"));
+    }
+
+    @Test
+    void cover_shouldCoverEveryDayExactlyOnce() {
+        LocalDate from = LocalDate.parse("2023-11-17");
+        LocalDate to = LocalDate.parse("2025-02-09");
+
+        Map<RollupGranularity, List<LocalDate>> buckets = bucketStarts(ActivityRollupServiceImpl.cover(from, to));
+        List<LocalDate> coveredDays = buckets.entrySet().stream()
+                .flatMap(entry -> entry.getValue().stream()
+                        .flatMap(start -> start.datesUntil(entry.getKey().nextBucketStart(start))))
+                .sorted()
+                .toList();
+
+        assertThat(coveredDays).containsExactlyElementsOf(from.datesUntil(to.plusDays(1)).toList());
+        assertThat(buckets.get(MONTH)).hasSize(14);
+    }
+
+    @Test
+    void cover_shouldUseSingleDay_whenRangeIsOneDay() {
+        Map<RollupGranularity, List<LocalDate>> buckets =
+                bucketStarts(ActivityRollupServiceImpl.cover(LocalDate.parse("2024-02-01"), LocalDate.parse("2024-02-01")));
+
+        assertThat(buckets.get(DAY)).containsExactly(LocalDate.parse("2024-02-01"));
+        assertThat(buckets.get(WEEK)).isEmpty();
+        assertThat(buckets.get(MONTH)).isEmpty();
+    }
+
+    @Test
+    void cover_shouldReturnFewRuns_whenRangeIsLong() {
+        List<ActivityRollupServiceImpl.BucketRange> ranges =
+                ActivityRollupServiceImpl.cover(LocalDate.parse("0001-01-03"), LocalDate.parse("9999-12-28"));
+
+        assertThat(ranges).hasSizeLessThanOrEqualTo(7);
+        assertThat(ranges).filteredOn(range -> range.granularity() == MONTH).containsExactly(
+                new ActivityRollupServiceImpl.BucketRange(MONTH, LocalDate.parse("0001-02-01"),
+                        LocalDate.parse("9999-11-01")));
+    }
+
+    @Test
+    void summarize_shouldThrowWhenRangeIsReversed() {
+        assertThatThrownBy(() -> rollupService.summarize(1L, LocalDate.parse("2024-02-02"),
+                LocalDate.parse("2024-02-01")))
+                .isInstanceOf(BusinessException.class);
+    }
+
+    @Test
+    void getRollups_shouldThrowWhenRangeSpansTooManyBuckets() {
+        assertThatThrownBy(() -> rollupService.getRollups(1L, DAY, LocalDate.parse("2020-01-01"),
+                LocalDate.parse("2024-01-01")))
+                .isInstanceOf(BusinessException.class);
+    }
+
+    private static Map<RollupGranularity, List<LocalDate>> bucketStarts(
+            List<ActivityRollupServiceImpl.BucketRange> ranges) {
+        Map<RollupGranularity, List<LocalDate>> buckets = new EnumMap<>(RollupGranularity.class);
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            buckets.put(granularity, new ArrayList<>());
+        }
+        for (ActivityRollupServiceImpl.BucketRange range : ranges) {
+            for (LocalDate start = range.firstStart(); !start.isAfter(range.lastStart());
+                 start = range.granularity().nextBucketStart(start)) {
+                buckets.get(range.granularity()).add(start);
+            }
+        }
+        buckets.values().forEach(starts -> starts.sort(null));
+        return buckets;
+    }
+}
@@ -0,0 +1,90 @@
+package pl.wsb.fitnesstracker.statistics.internal;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pl.wsb.fitnesstracker.statistics.api.LeaderboardEntry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static pl.wsb.fitnesstracker.statistics.api.LeaderboardMetric.CALORIES;
+import static pl.wsb.fitnesstracker.statistics.api.LeaderboardMetric.DISTANCE;
+import static pl.wsb.fitnesstracker.statistics.api.LeaderboardMetric.TRAININGS;
+
+class StatisticsLeaderboardTest {
+
+    private StatisticsLeaderboard leaderboard;
+
+    @BeforeEach
+    void setUp() {
+        leaderboard = new StatisticsLeaderboard();
+        leaderboard.put(entry(1L, 10L, 3, 30.0, 2_000));
+        leaderboard.put(entry(2L, 20L, 5, 10.0, 3_000));
+        leaderboard.put(entry(3L, 30L, 1, 50.0, 1_000));
+    }
+
+    @Test
+    void shouldRankUsersByEveryMetric_fromHighestValueDown() {
+        assertThat(leaderboard.top(CALORIES, 3)).extracting(LeaderboardEntry::userId).containsExactly(20L, 10L, 30L);
+        assertThat(leaderboard.top(DISTANCE, 3)).extracting(LeaderboardEntry::userId).containsExactly(30L, 10L, 20L);
+        assertThat(leaderboard.top(TRAININGS, 3)).extracting(LeaderboardEntry::userId).containsExactly(20L, 10L, 30L);
+    }
+
+    @Test
+    void shouldReturnOnlyTopK_withRanks() {
+        assertThat(leaderboard.top(CALORIES, 2)).containsExactly(
+                new LeaderboardEntry(1, 20L, 5, 10.0, 3_000),
+                new LeaderboardEntry(2, 10L, 3, 30.0, 2_000));
+        assertThat(leaderboard.top(CALORIES, 10)).hasSize(3);
+    }
+
+    @Test
+    void shouldMoveUser_whenStatisticsAreUpdated() {
+        StatisticsLeaderboard.Entry previous = leaderboard.put(entry(3L, 30L, 2, 60.0, 4_000, 1));
+
+        assertThat(previous).isEqualTo(entry(3L, 30L, 1, 50.0, 1_000));
+        assertThat(leaderboard.top(CALORIES, 3)).extracting(LeaderboardEntry::userId).containsExactly(30L, 20L, 10L);
+        assertThat(leaderboard.size()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldKeepNewerValues_whenOlderVersionIsReportedLate() {
+        leaderboard.put(entry(3L, 30L, 3, 70.0, 5_000, 2));
+        StatisticsLeaderboard.Entry previous = leaderboard.put(entry(3L, 30L, 2, 60.0, 4_000, 1));
+
+        assertThat(previous).isEqualTo(entry(3L, 30L, 3, 70.0, 5_000, 2));
+        assertThat(leaderboard.top(CALORIES, 1)).containsExactly(new LeaderboardEntry(1, 30L, 3, 70.0, 5_000));
+        assertThat(leaderboard.size()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldKeepUser_whenStatisticsAreSavedUnchanged() {
+        leaderboard.put(entry(1L, 10L, 3, 30.0, 2_000));
+
+        assertThat(leaderboard.top(CALORIES, 3)).extracting(LeaderboardEntry::userId).containsExactly(20L, 10L, 30L);
+    }
+
+    @Test
+    void shouldBreakTiesByUserId() {
+        leaderboard.put(entry(4L, 5L, 5, 10.0, 3_000));
+
+        assertThat(leaderboard.top(CALORIES, 2)).extracting(LeaderboardEntry::userId).containsExactly(5L, 20L);
+    }
+
+    @Test
+    void shouldDropUser_whenStatisticsAreRemoved() {
+        leaderboard.remove(2L);
+        leaderboard.remove(99L);
+
+        assertThat(leaderboard.top(CALORIES, 3)).extracting(LeaderboardEntry::userId).containsExactly(10L, 30L);
+        assertThat(leaderboard.size()).isEqualTo(2);
+    }
+
+    private static StatisticsLeaderboard.Entry entry(long statisticsId, long userId, int trainings, double distance,
+                                                     int calories) {
+        return entry(statisticsId, userId, trainings, distance, calories, 0);
+    }
+
+    private static StatisticsLeaderboard.Entry entry(long statisticsId, long userId, int trainings, double distance,
+                                                     int calories, long version) {
+        return new StatisticsLeaderboard.Entry(statisticsId, userId, trainings, distance, calories, version);
+    }
+}
@@ -0,0 +1,350 @@
+package pl.wsb.fitnesstracker.statistics.internal;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.wsb.fitnesstracker.IntegrationTest;
+import pl.wsb.fitnesstracker.IntegrationTestBase;
+import pl.wsb.fitnesstracker.statistics.api.ActivityRollup;
+import pl.wsb.fitnesstracker.statistics.api.ActivityRollupProvider;
+import pl.wsb.fitnesstracker.statistics.api.PercentileEstimate;
+import pl.wsb.fitnesstracker.statistics.api.PercentileMetric;
+import pl.wsb.fitnesstracker.statistics.api.RollupGranularity;
+import pl.wsb.fitnesstracker.statistics.api.Statistics;
+import pl.wsb.fitnesstracker.statistics.api.StatisticsProvider;
+import pl.wsb.fitnesstracker.statistics.api.TrainingPercentileProvider;
+import pl.wsb.fitnesstracker.training.api.Training;
+import pl.wsb.fitnesstracker.training.api.TrainingMetrics;
+import pl.wsb.fitnesstracker.training.api.TrainingService;
+import pl.wsb.fitnesstracker.training.api.TrainingUpdatedEvent;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+import pl.wsb.fitnesstracker.user.api.User;
+import pl.wsb.fitnesstracker.user.api.UserDataRemover;
+import pl.wsb.fitnesstracker.user.api.UserRemovedEvent;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static java.time.LocalDate.now;
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.awaitility.Awaitility.await;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.log;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Not transactional, as the statistics are updated only after the trainings are committed.
+ */
+@IntegrationTest
+@AutoConfigureMockMvc(addFilters = false)
+class StatisticsProjectorIntegrationTest extends IntegrationTestBase {
+
+    private static final Instant START = Instant.parse("2024-04-01T10:00:00Z");
+
+    @Autowired
+    private TrainingService trainingService;
+
+    @Autowired
+    private StatisticsProvider statisticsProvider;
+
+    @Autowired
+    private ActivityRollupProvider activityRollupProvider;
+
+    @Autowired
+    private TrainingPercentileProvider trainingPercentileProvider;
+
+    @Autowired
+    private List<UserDataRemover> dataRemovers;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private StatisticsProjector projector;
+
+    @Autowired
+    private StatisticsRepository statisticsRepository;
+
+    @Autowired
+    private ActivityRollupBucketRepository bucketRepository;
+
+    @Autowired
+    private StatisticsRebuildRepository rebuildRepository;
+
+    @Test
+    void shouldAccumulateStatistics_whenTrainingsAreCreated() {
+        User user = existingUser(generateUser());
+
+        trainingService.createTraining(generateTraining(ActivityType.RUNNING, 1, 10.0), user.getId());
+        trainingService.createTraining(generateTraining(ActivityType.CYCLING, 2, 30.0), user.getId());
+
+        Statistics statistics = statisticsProvider.getStatisticsByUserId(user.getId()).orElseThrow();
+        assertThat(statistics.getTotalTrainings()).isEqualTo(2);
+        assertThat(statistics.getTotalDistance()).isCloseTo(40.0, within(1e-9));
+        assertThat(statistics.getTotalCaloriesBurned()).isEqualTo(700 + 1120);
+    }
+
+    @Test
+    void shouldApplyDifference_whenTrainingIsUpdated() {
+        User user = existingUser(generateUser());
+        Training training = trainingService.createTraining(generateTraining(ActivityType.RUNNING, 1, 10.0),
+                user.getId());
+
+        trainingService.updateTraining(generateTraining(ActivityType.WALKING, 2, 8.0), training.getId(), user.getId());
+
+        Statistics statistics = statisticsProvider.getStatisticsByUserId(user.getId()).orElseThrow();
+        assertThat(statistics.getTotalTrainings()).isEqualTo(1);
+        assertThat(statistics.getTotalDistance()).isCloseTo(8.0, within(1e-9));
+        assertThat(statistics.getTotalCaloriesBurned()).isEqualTo(490);
+    }
+
+    @Test
+    void shouldMoveTotals_whenTrainingIsReassignedToAnotherUser() {
+        User firstUser = existingUser(generateUser());
+        User secondUser = existingUser(generateUser());
+        Training training = trainingService.createTraining(generateTraining(ActivityType.RUNNING, 1, 10.0),
+                firstUser.getId());
+
+        trainingService.updateTraining(generateTraining(ActivityType.RUNNING, 1, 10.0), training.getId(),
+                secondUser.getId());
+
+        Statistics first = statisticsProvider.getStatisticsByUserId(firstUser.getId()).orElseThrow();
+        assertThat(first.getTotalTrainings()).isZero();
+        assertThat(first.getTotalDistance()).isCloseTo(0.0, within(1e-9));
+        assertThat(first.getTotalCaloriesBurned()).isZero();
+        Statistics second = statisticsProvider.getStatisticsByUserId(secondUser.getId()).orElseThrow();
+        assertThat(second.getTotalTrainings()).isEqualTo(1);
+        assertThat(second.getTotalDistance()).isCloseTo(10.0, within(1e-9));
+        assertThat(second.getTotalCaloriesBurned()).isEqualTo(700);
+    }
+
+    @Test
+    void shouldNotLoseUpdates_whenTrainingsOfSameUserAreCreatedConcurrently() {
+        User user = existingUser(generateUser());
+        int trainings = StatisticsProjector.MAX_ATTEMPTS - 1;
+
+        ExecutorService executor = Executors.newFixedThreadPool(trainings);
+        try {
+            List<CompletableFuture<Training>> futures = IntStream.range(0, trainings)
+                    .mapToObj(i -> CompletableFuture.supplyAsync(() -> trainingService.createTraining(
+                            generateTraining(ActivityType.RUNNING, 1, 5.0), user.getId()), executor))
+                    .toList();
+            futures.forEach(CompletableFuture::join);
+        } finally {
+            executor.shutdown();
+        }
+
+        Statistics statistics = statisticsProvider.getStatisticsByUserId(user.getId()).orElseThrow();
+        assertThat(statistics.getTotalTrainings()).isEqualTo(trainings);
+        assertThat(statistics.getTotalDistance()).isCloseTo(5.0 * trainings, within(1e-9));
+        assertThat(statistics.getTotalCaloriesBurned()).isEqualTo(700 * trainings);
+    }
+
+    @Test
+    void shouldKeepTotalsInLine_whenSameTrainingIsUpdatedConcurrently() {
+        User user = existingUser(generateUser());
+        Training training = trainingService.createTraining(generateTraining(ActivityType.RUNNING, 1, 10.0),
+                user.getId());
+        int updates = StatisticsProjector.MAX_ATTEMPTS - 1;
+
+        ExecutorService executor = Executors.newFixedThreadPool(updates);
+        try {
+            List<CompletableFuture<Training>> futures = IntStream.range(0, updates)
+                    .mapToObj(i -> CompletableFuture.supplyAsync(() -> trainingService.updateTraining(
+                            generateTraining(ActivityType.RUNNING, 1, 20.0 + i), training.getId(), user.getId()),
+                            executor))
+                    .toList();
+            futures.forEach(CompletableFuture::join);
+        } finally {
+            executor.shutdown();
+        }
+
+        Training updated = trainingService.getTraining(training.getId()).orElseThrow();
+        Statistics statistics = statisticsProvider.getStatisticsByUserId(user.getId()).orElseThrow();
+        assertThat(statistics.getTotalTrainings()).isEqualTo(1);
+        assertThat(statistics.getTotalDistance()).isCloseTo(updated.getDistance(), within(1e-9));
+        assertThat(statistics.getTotalCaloriesBurned()).isEqualTo(700);
+        assertThat(activityRollupProvider.summarize(user.getId(), LocalDate.parse("2024-04-01"),
+                LocalDate.parse("2024-04-30"))).singleElement()
+                .satisfies(rollup -> {
+                    assertThat(rollup.trainingCount()).isEqualTo(1);
+                    assertThat(rollup.totalDistance()).isCloseTo(updated.getDistance(), within(1e-9));
+                });
+    }
+
+    @Test
+    void shouldRebuildStatisticsFromTrainings_whenTrainingCannotBeProjected() {
+        User user = existingUser(generateUser());
+        long missingUserId = user.getId() + 1_000;
+        Training training = trainingService.createTraining(generateTraining(START, ActivityType.RUNNING, 1, 10.0),
+                user.getId());
+        transactionTemplate.executeWithoutResult(status -> {
+            Statistics statistics = statisticsRepository.findByUserId(user.getId()).orElseThrow();
+            statistics.setTotalTrainings(0);
+            statistics.setTotalDistance(0);
+            statistics.setTotalCaloriesBurned(0);
+            bucketRepository.deleteAllByIdInBatch(bucketRepository.findIdsByUserId(user.getId(), Limit.of(100)));
+        });
+
+        // the user the training is moved from does not exist, so every attempt fails
+        TrainingMetrics current = TrainingMetrics.of(training);
+        TrainingMetrics previous = new TrainingMetrics(missingUserId, current.activityType(), current.startTime(),
+                current.durationMillis(), current.distance(), current.averageSpeed(), current.caloriesBurned());
+        eventPublisher.publishEvent(new TrainingUpdatedEvent(training.getId(), previous, current));
+        projector.rebuildRequested();
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> {
+            assertThat(rebuildRepository.findAll()).isEmpty();
+            Statistics statistics = statisticsProvider.getStatisticsByUserId(user.getId()).orElseThrow();
+            assertThat(statistics.getTotalTrainings()).isEqualTo(1);
+            assertThat(statistics.getTotalDistance()).isCloseTo(10.0, within(1e-9));
+            assertThat(statistics.getTotalCaloriesBurned()).isEqualTo(700);
+        });
+        assertThat(statisticsProvider.getStatisticsByUserId(missingUserId)).isEmpty();
+        assertThat(activityRollupProvider.getRollups(user.getId(), RollupGranularity.MONTH,
+                LocalDate.parse("2024-04-01"), LocalDate.parse("2024-04-30"))).containsExactly(
+                new ActivityRollup(LocalDate.parse("2024-04-01"), LocalDate.parse("2024-04-30"), ActivityType.RUNNING,
+                        1, 10.0, Duration.ofHours(1).toMillis(), 10.0));
+    }
+
+    @Test
+    void shouldRollUpTrainingsByActivityTypeAndBucket_whenTrainingsAreCreatedAndUpdated() throws Exception {
+        User user = existingUser(generateUser());
+        Training moved = trainingService.createTraining(generateTraining(START, ActivityType.RUNNING, 1, 10.0),
+                user.getId());
+        trainingService.createTraining(generateTraining(START.plus(Duration.ofDays(1)), ActivityType.RUNNING, 2, 20.0),
+                user.getId());
+        trainingService.createTraining(generateTraining(START.plus(Duration.ofDays(14)), ActivityType.CYCLING, 1, 30.0),
+                user.getId());
+
+        assertThat(activityRollupProvider.getRollups(user.getId(), RollupGranularity.WEEK,
+                LocalDate.parse("2024-04-01"), LocalDate.parse("2024-04-30"))).containsExactly(
+                new ActivityRollup(LocalDate.parse("2024-04-01"), LocalDate.parse("2024-04-07"), ActivityType.RUNNING,
+                        2, 30.0, Duration.ofHours(3).toMillis(), 10.0),
+                new ActivityRollup(LocalDate.parse("2024-04-15"), LocalDate.parse("2024-04-21"), ActivityType.CYCLING,
+                        1, 30.0, Duration.ofHours(1).toMillis(), 30.0));
+        assertThat(activityRollupProvider.summarize(user.getId(), LocalDate.parse("2024-04-02"),
+                LocalDate.parse("2024-05-31"))).containsExactly(
+                new ActivityRollup(LocalDate.parse("2024-04-02"), LocalDate.parse("2024-05-31"), ActivityType.RUNNING,
+                        1, 20.0, Duration.ofHours(2).toMillis(), 10.0),
+                new ActivityRollup(LocalDate.parse("2024-04-02"), LocalDate.parse("2024-05-31"), ActivityType.CYCLING,
+                        1, 30.0, Duration.ofHours(1).toMillis(), 30.0));
+
+        trainingService.updateTraining(generateTraining(Instant.parse("2024-05-03T10:00:00Z"), ActivityType.RUNNING, 1,
+                10.0), moved.getId(), user.getId());
+
+        assertThat(activityRollupProvider.getRollups(user.getId(), RollupGranularity.DAY,
+                LocalDate.parse("2024-04-01"), LocalDate.parse("2024-04-01"))).isEmpty();
+        mockMvc.perform(get("/v1/statistics/user/{userId}/activity", user.getId())
+                        .param("from", "2024-04-01").param("to", "2024-04-30"))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].activityType").value("RUNNING"))
+                .andExpect(jsonPath("$[0].trainingCount").value(1))
+                .andExpect(jsonPath("$[0].totalDistance").value(20.0))
+                .andExpect(jsonPath("$[1].activityType").value("CYCLING"))
+                .andExpect(jsonPath("$[2]").doesNotExist());
+        mockMvc.perform(get("/v1/statistics/user/{userId}/rollups", user.getId())
+                        .param("granularity", "MONTH").param("from", "2024-05-01").param("to", "2024-05-31"))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].from").value("2024-05-01"))
+                .andExpect(jsonPath("$[0].to").value("2024-05-31"))
+                .andExpect(jsonPath("$[0].trainingCount").value(1))
+                .andExpect(jsonPath("$[1]").doesNotExist());
+    }
+
+    @Test
+    void shouldRankTraining_whenTrainingsOfActivityTypeAreCreated() throws Exception {
+        User user = existingUser(generateUser());
+        Instant start = Instant.parse("2024-01-10T10:00:00Z");
+        for (int distance = 1; distance <= 4; distance++) {
+            trainingService.createTraining(generateTraining(start, ActivityType.TENNIS, 1, distance), user.getId());
+        }
+
+        mockMvc.perform(get("/v1/statistics/percentiles/rank")
+                        .param("activityType", "TENNIS").param("metric", "AVERAGE_SPEED").param("value", "3.5")
+                        .param("from", "2024-01").param("to", "2024-01"))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.trainingCount").value(4))
+                .andExpect(jsonPath("$.rank").value(0.75))
+                .andExpect(jsonPath("$.from").value("2024-01"));
+        mockMvc.perform(get("/v1/statistics/percentiles")
+                        .param("activityType", "TENNIS").param("metric", "DISTANCE").param("quantile", "0.5")
+                        .param("from", "2024-02"))
+                .andDo(log())
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldRebuildPercentilesWithoutRemovedTrainings_whenUserIsRemoved() {
+        User removedUser = existingUser(generateUser());
+        User user = existingUser(generateUser());
+        trainingService.createTraining(generateTraining(ActivityType.TENNIS, 1, 2.0), removedUser.getId());
+        trainingService.createTraining(generateTraining(ActivityType.TENNIS, 1, 4.0), user.getId());
+
+        transactionTemplate.executeWithoutResult(status ->
+                dataRemovers.forEach(dataRemover -> dataRemover.removeChunk(removedUser.getId(), 100)));
+        eventPublisher.publishEvent(new UserRemovedEvent(removedUser.getId()));
+
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() -> {
+            PercentileEstimate estimate = trainingPercentileProvider
+                    .getQuantile(ActivityType.TENNIS, PercentileMetric.DISTANCE, null, null, 0.5)
+                    .orElseThrow();
+            assertThat(estimate.trainingCount()).isEqualTo(1);
+            assertThat(estimate.value()).isEqualTo(4.0);
+        });
+    }
+
+    @Test
+    void shouldRebuildPercentilesWithUpdatedFigures_whenTrainingIsUpdated() {
+        User user = existingUser(generateUser());
+        Training training = trainingService.createTraining(generateTraining(ActivityType.TENNIS, 1, 2.0),
+                user.getId());
+        trainingService.createTraining(generateTraining(ActivityType.TENNIS, 1, 4.0), user.getId());
+
+        trainingService.updateTraining(generateTraining(ActivityType.TENNIS, 1, 8.0), training.getId(), user.getId());
+
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() -> {
+            PercentileEstimate estimate = trainingPercentileProvider
+                    .getQuantile(ActivityType.TENNIS, PercentileMetric.DISTANCE, null, null, 1)
+                    .orElseThrow();
+            assertThat(estimate.trainingCount()).isEqualTo(2);
+            assertThat(estimate.value()).isEqualTo(8.0);
+        });
+    }
+
+    private static User generateUser() {
+        return new User(randomUUID().toString(), randomUUID().toString(), now(), randomUUID().toString());
+    }
+
+    private static Training generateTraining(ActivityType activityType, int hours, double distance) {
+        return generateTraining(START, activityType, hours, distance);
+    }
+
+    private static Training generateTraining(Instant start, ActivityType activityType, int hours, double distance) {
+        return new Training(null, Date.from(start), Date.from(start.plus(Duration.ofHours(hours))), activityType,
+                distance, distance / hours);
+    }
+}
@@ -3,7 +3,10 @@ package pl.wsb.fitnesstracker.statistics.internal;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import pl.wsb.fitnesstracker.exception.api.BusinessException;
 import pl.wsb.fitnesstracker.statistics.api.Statistics;
+import pl.wsb.fitnesstracker.statistics.api.StatisticsAlreadyExistException;
 import pl.wsb.fitnesstracker.statistics.api.StatisticsNotFoundException;
 import pl.wsb.fitnesstracker.user.api.User;
 import pl.wsb.fitnesstracker.user.api.UserProvider;
@@ -27,7 +30,7 @@ class StatisticsServiceImplTest {
     void setUp() {
         statisticsRepository = mock(StatisticsRepository.class);
         userProvider = mock(UserProvider.class);
-        statisticsService = new StatisticsServiceImpl(statisticsRepository, userProvider);
+        statisticsService = new StatisticsServiceImpl(statisticsRepository, userProvider, new StatisticsLeaderboard());
     }
 
     @Test
@@ -87,6 +90,30 @@ class StatisticsServiceImplTest {
         assertThat(result).containsExactlyElementsOf(filteredStatistics);
     }
 
+    @Test
+    void findStatisticsWithCaloriesGreaterThan_shouldQueryRepositoryWithLimit() {
+        // Given
+        List<Statistics> filteredStatistics = List.of(createStatistics(1L));
+        when(statisticsRepository.findByTotalCaloriesBurnedGreaterThan(5000, Limit.of(10)))
+                .thenReturn(filteredStatistics);
+
+        // When
+        List<Statistics> result = statisticsService.findStatisticsWithCaloriesGreaterThan(5000, 10);
+
+        // Then
+        assertThat(result).containsExactlyElementsOf(filteredStatistics);
+    }
+
+    @Test
+    void findStatisticsWithCaloriesGreaterThan_shouldThrowWhenLimitIsOutOfRange() {
+        // When/Then
+        assertThatThrownBy(() -> statisticsService.findStatisticsWithCaloriesGreaterThan(5000, 0))
+                .isInstanceOf(BusinessException.class);
+        assertThatThrownBy(() -> statisticsService.findStatisticsWithCaloriesGreaterThan(5000,
+                StatisticsServiceImpl.MAX_PAGE_SIZE + 1))
+                .isInstanceOf(BusinessException.class);
+    }
+
     @Test
     void createStatistics_shouldThrowWhenIdIsSet() {
         // Given
@@ -98,6 +125,20 @@ class StatisticsServiceImplTest {
                 .hasMessageContaining("already DB ID");
     }
 
+    @Test
+    void createStatistics_shouldThrowConflictWhenUserHasStatistics() {
+        // Given
+        Statistics statistics = new Statistics(null, 10, 100.0, 8000);
+        when(userProvider.getUser(1L)).thenReturn(Optional.of(createUser(1L)));
+        when(statisticsRepository.findByUserId(1L)).thenReturn(Optional.of(createStatistics(1L)));
+
+        // When/Then
+        assertThatThrownBy(() -> statisticsService.createStatistics(statistics, 1L))
+                .isInstanceOf(StatisticsAlreadyExistException.class)
+                .hasMessage("Statistics of user with ID 1 already exist");
+        verify(statisticsRepository, never()).save(any());
+    }
+
     @Test
     void createStatistics_shouldSaveWhenUserExists() {
         // Given
@@ -111,9 +152,9 @@ class StatisticsServiceImplTest {
 
         // Then
         assertThat(result.getUser()).isEqualTo(user);
-        assertThat(result.getTotalTrainings()).isEqualTo(10);
-        assertThat(result.getTotalDistance()).isEqualTo(100.0);
-        assertThat(result.getTotalCaloriesBurned()).isEqualTo(8000);
+        assertThat(result.getTotalTrainings()).isZero();
+        assertThat(result.getTotalDistance()).isZero();
+        assertThat(result.getTotalCaloriesBurned()).isZero();
     }
 
     @Test
@@ -143,9 +184,9 @@ class StatisticsServiceImplTest {
         Statistics result = statisticsService.updateStatistics(update, 1L, 2L);
 
         // Then
-        assertThat(result.getTotalTrainings()).isEqualTo(15);
-        assertThat(result.getTotalDistance()).isEqualTo(150.0);
-        assertThat(result.getTotalCaloriesBurned()).isEqualTo(12000);
+        assertThat(result.getTotalTrainings()).isEqualTo(10);
+        assertThat(result.getTotalDistance()).isEqualTo(100.0);
+        assertThat(result.getTotalCaloriesBurned()).isEqualTo(8000);
         assertThat(result.getUser()).isEqualTo(user);
     }
 
@@ -0,0 +1,93 @@
+package pl.wsb.fitnesstracker.statistics.internal;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class TDigestTest {
+
+    private static final int VALUES = 100_000;
+
+    @Test
+    void shouldEstimateQuantilesAndRanks_closeToExactOnes() {
+        Random random = new Random(42);
+        double[] values = new double[VALUES];
+        TDigest digest = new TDigest();
+        for (int i = 0; i < VALUES; i++) {
+            values[i] = Math.exp(random.nextGaussian());
+            digest.add(values[i]);
+        }
+        Arrays.sort(values);
+
+        assertThat(digest.size()).isEqualTo(VALUES);
+        assertThat(digest.centroidCount()).isLessThanOrEqualTo((int) (2 * TDigest.DEFAULT_COMPRESSION));
+        for (double q : new double[]{0.001, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 0.999}) {
+            double estimate = digest.quantile(q);
+            // the arcsine scale keeps the error proportional to q(1 - q), so the tails are the most accurate
+            assertThat(rankOf(values, estimate)).as("rank of quantile %s", q)
+                    .isCloseTo(q, within(0.0005 + 0.02 * q * (1 - q)));
+            assertThat(digest.cdf(values[(int) (q * VALUES)])).as("cdf at quantile %s", q).isCloseTo(q, within(0.01));
+        }
+        assertThat(digest.quantile(0)).isEqualTo(values[0]);
+        assertThat(digest.quantile(1)).isEqualTo(values[VALUES - 1]);
+        assertThat(digest.cdf(values[0] - 1)).isZero();
+        assertThat(digest.cdf(values[VALUES - 1] + 1)).isEqualTo(1);
+    }
+
+    @Test
+    void shouldMatchSingleSketch_whenMergingPartialSketches() {
+        Random random = new Random(7);
+        TDigest whole = new TDigest();
+        TDigest[] parts = {new TDigest(), new TDigest(), new TDigest()};
+        for (int i = 0; i < VALUES; i++) {
+            double value = random.nextDouble() * 100;
+            whole.add(value);
+            parts[i % parts.length].add(value);
+        }
+        TDigest merged = new TDigest();
+        for (TDigest part : parts) {
+            merged.merge(part.copy());
+        }
+
+        assertThat(merged.size()).isEqualTo(VALUES);
+        for (double q = 0.05; q < 1; q += 0.05) {
+            assertThat(merged.quantile(q)).isCloseTo(whole.quantile(q), within(1.0));
+            assertThat(merged.quantile(q)).isCloseTo(q * 100, within(1.0));
+        }
+    }
+
+    @Test
+    void shouldHandleEmptyAndSingleValueSketches() {
+        TDigest digest = new TDigest();
+
+        assertThat(digest.size()).isZero();
+        assertThat(digest.quantile(0.5)).isNaN();
+        assertThat(digest.cdf(1)).isNaN();
+
+        digest.add(3.5);
+
+        assertThat(digest.quantile(0.1)).isEqualTo(3.5);
+        assertThat(digest.quantile(0.9)).isEqualTo(3.5);
+        assertThat(digest.cdf(3)).isZero();
+        assertThat(digest.cdf(4)).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRejectInvalidArguments() {
+        TDigest digest = new TDigest();
+
+        assertThatThrownBy(() -> digest.add(Double.NaN)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> digest.quantile(1.5)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TDigest(1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static double rankOf(double[] sorted, double value) {
+        int index = Arrays.binarySearch(sorted, value);
+        return (index >= 0 ? index : -index - 1) / (double) sorted.length;
+    }
+}
@@ -0,0 +1,63 @@
+package pl.wsb.fitnesstracker.statistics.internal;
+
+import org.junit.jupiter.api.Test;
+import pl.wsb.fitnesstracker.Benchmark;
+import pl.wsb.fitnesstracker.statistics.api.PercentileMetric;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Benchmark
+class TrainingPercentileBenchmark {
+
+    private static final int TRAININGS = 1_000_000;
+
+    private static final int QUERIES = 10_000;
+
+    private static final long START = Instant.parse("2023-01-01T00:00:00Z").toEpochMilli();
+
+    private static final long TWO_YEARS = 2 * 365 * 86_400_000L;
+
+    @Test
+    void shouldAnswerQuantileAndRankQueriesInMicroseconds() {
+        SplittableRandom random = new SplittableRandom(42);
+        TrainingPercentileSketches sketches = new TrainingPercentileSketches();
+        long ingestStart = System.nanoTime();
+        for (int i = 0; i < TRAININGS; i++) {
+            double speed = Math.max(1, 10 + 2 * random.nextDouble(-1, 1) + 2 * random.nextDouble(-1, 1));
+            sketches.add(i, ActivityType.RUNNING, START + random.nextLong(TWO_YEARS), speed * 0.75, speed);
+        }
+        double trainingsPerSecond = TRAININGS / ((System.nanoTime() - ingestStart) / 1e9);
+
+        for (int i = 0; i < QUERIES / 10; i++) { // warm-up
+            query(sketches, null, null);
+            query(sketches, YearMonth.of(2023, 1), YearMonth.of(2024, 12));
+        }
+        long allTimeStart = System.nanoTime();
+        double checksum = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            checksum += query(sketches, null, null);
+        }
+        double allTimeMicros = (System.nanoTime() - allTimeStart) / 1e3 / QUERIES;
+        long rangeStart = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            checksum += query(sketches, YearMonth.of(2023, 1), YearMonth.of(2024, 12));
+        }
+        double rangeMicros = (System.nanoTime() - rangeStart) / 1e3 / QUERIES;
+
+        System.out.printf("ingest=%.0f trainings/s all-time query=%.1f us 24-month query=%.1f us%n",
+                trainingsPerSecond, allTimeMicros, rangeMicros);
+        assertThat(checksum).isPositive();
+        assertThat(allTimeMicros).isLessThan(1_000);
+        assertThat(rangeMicros).isLessThan(1_000);
+    }
+
+    private static double query(TrainingPercentileSketches sketches, YearMonth from, YearMonth to) {
+        TDigest digest = sketches.snapshot(ActivityType.RUNNING, PercentileMetric.AVERAGE_SPEED, from, to);
+        return digest.quantile(0.9) + digest.cdf(12);
+    }
+}
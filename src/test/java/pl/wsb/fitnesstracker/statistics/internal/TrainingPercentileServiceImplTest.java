@@ -0,0 +1,97 @@
+package pl.wsb.fitnesstracker.statistics.internal;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import pl.wsb.fitnesstracker.exception.api.BusinessException;
+import pl.wsb.fitnesstracker.statistics.api.PercentileEstimate;
+import pl.wsb.fitnesstracker.statistics.api.PercentileMetric;
+import pl.wsb.fitnesstracker.training.api.TrainingCreatedEvent;
+import pl.wsb.fitnesstracker.training.api.TrainingMetrics;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+
+import java.time.Instant;
+import java.time.YearMonth;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.Mockito.mock;
+
+class TrainingPercentileServiceImplTest {
+
+    private static final YearMonth MARCH = YearMonth.of(2024, 3);
+
+    private static final YearMonth APRIL = YearMonth.of(2024, 4);
+
+    private TrainingPercentileServiceImpl percentileService;
+
+    private long trainingId;
+
+    @BeforeEach
+    void setUp() {
+        percentileService = new TrainingPercentileServiceImpl(new TrainingPercentileSketches(),
+                mock(PlatformTransactionManager.class));
+        // March runs at speeds 1..100, April runs at speeds 101..200
+        for (int i = 1; i <= 100; i++) {
+            created(ActivityType.RUNNING, "2024-03-15T10:00:00Z", i / 10.0, i);
+            created(ActivityType.RUNNING, "2024-04-15T10:00:00Z", i / 10.0, 100 + i);
+        }
+        created(ActivityType.CYCLING, "2024-03-15T10:00:00Z", 40.0, 25.0);
+    }
+
+    @Test
+    void getQuantile_shouldCoverAllMonths_whenRangeIsNotGiven() {
+        PercentileEstimate estimate = percentileService
+                .getQuantile(ActivityType.RUNNING, PercentileMetric.AVERAGE_SPEED, null, null, 0.5)
+                .orElseThrow();
+
+        assertThat(estimate.trainingCount()).isEqualTo(200);
+        assertThat(estimate.value()).isCloseTo(100.5, within(2.0));
+    }
+
+    @Test
+    void getQuantile_shouldMergeMonthsOfRange() {
+        assertThat(percentileService.getQuantile(ActivityType.RUNNING, PercentileMetric.AVERAGE_SPEED, APRIL, APRIL,
+                0.5).orElseThrow().value()).isCloseTo(150.5, within(2.0));
+        assertThat(percentileService.getQuantile(ActivityType.RUNNING, PercentileMetric.AVERAGE_SPEED, null, MARCH,
+                0.9).orElseThrow().value()).isCloseTo(90.5, within(2.0));
+        assertThat(percentileService.getQuantile(ActivityType.RUNNING, PercentileMetric.DISTANCE, MARCH, APRIL,
+                0.5).orElseThrow().trainingCount()).isEqualTo(200);
+    }
+
+    @Test
+    void getRank_shouldReturnFractionOfSlowerTrainings() {
+        PercentileEstimate estimate = percentileService
+                .getRank(ActivityType.RUNNING, PercentileMetric.AVERAGE_SPEED, null, null, 150)
+                .orElseThrow();
+
+        assertThat(estimate.rank()).isCloseTo(0.75, within(0.02));
+        assertThat(estimate.value()).isEqualTo(150);
+    }
+
+    @Test
+    void shouldReturnEmpty_whenThereAreNoSuchTrainings() {
+        assertThat(percentileService.getRank(ActivityType.TENNIS, PercentileMetric.DISTANCE, null, null, 1))
+                .isEmpty();
+        assertThat(percentileService.getQuantile(ActivityType.CYCLING, PercentileMetric.DISTANCE, APRIL, null, 0.5))
+                .isEmpty();
+    }
+
+    @Test
+    void shouldRejectInvalidArguments() {
+        assertThatThrownBy(() -> percentileService.getQuantile(ActivityType.RUNNING, PercentileMetric.DISTANCE, null,
+                null, 1.5)).isInstanceOf(BusinessException.class);
+        assertThatThrownBy(() -> percentileService.getRank(ActivityType.RUNNING, PercentileMetric.DISTANCE, APRIL,
+                MARCH, 1)).isInstanceOf(BusinessException.class);
+        assertThatThrownBy(() -> percentileService.getRank(ActivityType.RUNNING, PercentileMetric.DISTANCE, null,
+                null, Double.NaN)).isInstanceOf(BusinessException.class);
+        assertThatThrownBy(() -> percentileService.getRank(null, PercentileMetric.DISTANCE, null, null, 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void created(ActivityType activityType, String startTime, double distance, double averageSpeed) {
+        percentileService.onTrainingCreated(new TrainingCreatedEvent(++trainingId, new TrainingMetrics(1L, activityType,
+                Instant.parse(startTime).toEpochMilli(), 3_600_000, distance, averageSpeed, 0)));
+    }
+}
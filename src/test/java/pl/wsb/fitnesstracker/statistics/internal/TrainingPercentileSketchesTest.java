@@ -0,0 +1,67 @@
+package pl.wsb.fitnesstracker.statistics.internal;
+
+import org.junit.jupiter.api.Test;
+import pl.wsb.fitnesstracker.statistics.api.PercentileMetric;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TrainingPercentileSketchesTest {
+
+    private static final long START = Instant.parse("2024-03-15T10:00:00Z").toEpochMilli();
+
+    private final TrainingPercentileSketches sketches = new TrainingPercentileSketches();
+
+    @Test
+    void shouldCountTrainingOnce_whenAddedWhileRebuildScansIt() {
+        sketches.rebuild(figures -> {
+            figures.add(1, ActivityType.RUNNING, START, 5.0, 10.0);
+            // created trainings committed during the scan are reported both before and after it reads them
+            sketches.add(1, ActivityType.RUNNING, START, 5.0, 10.0);
+            sketches.add(2, ActivityType.RUNNING, START, 6.0, 11.0);
+            figures.add(2, ActivityType.RUNNING, START, 6.0, 11.0);
+            sketches.add(3, ActivityType.RUNNING, START, 7.0, 12.0);
+        });
+        sketches.add(2, ActivityType.RUNNING, START, 6.0, 11.0);
+
+        assertThat(count()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldForgetTrainings_whenRebuiltWithoutThem() {
+        sketches.add(1, ActivityType.RUNNING, START, 5.0, 10.0);
+        sketches.add(2, ActivityType.RUNNING, START, 6.0, 11.0);
+
+        sketches.rebuild(figures -> figures.add(2, ActivityType.RUNNING, START, 6.0, 11.0));
+
+        assertThat(count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldKeepPreviousSketches_whenRebuildFails() {
+        sketches.add(1, ActivityType.RUNNING, START, 5.0, 10.0);
+
+        assertThatThrownBy(() -> sketches.rebuild(figures -> {
+            throw new IllegalStateException("Scan failed");
+        })).isInstanceOf(IllegalStateException.class);
+        sketches.add(2, ActivityType.RUNNING, START, 6.0, 11.0);
+
+        assertThat(count()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldDropAllTrainings_whenReset() {
+        sketches.add(1, ActivityType.RUNNING, START, 5.0, 10.0);
+
+        sketches.reset();
+
+        assertThat(count()).isZero();
+    }
+
+    private long count() {
+        return sketches.snapshot(ActivityType.RUNNING, PercentileMetric.DISTANCE, null, null).size();
+    }
+}
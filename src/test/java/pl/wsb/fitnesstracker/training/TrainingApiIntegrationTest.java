@@ -4,21 +4,38 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.transaction.TestTransaction;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
 import pl.wsb.fitnesstracker.IntegrationTest;
 import pl.wsb.fitnesstracker.IntegrationTestBase;
 import pl.wsb.fitnesstracker.training.api.Training;
+import pl.wsb.fitnesstracker.training.api.TrainingProvider;
+import pl.wsb.fitnesstracker.training.api.TrainingSummary;
 import pl.wsb.fitnesstracker.training.internal.ActivityType;
 import pl.wsb.fitnesstracker.user.api.User;
+import pl.wsb.fitnesstracker.user.api.UserProvider;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static java.time.LocalDate.now;
 import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.log;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -30,6 +47,15 @@ class TrainingApiIntegrationTest extends IntegrationTestBase {
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private TrainingProvider trainingProvider;
+
+    @Autowired
+    private UserProvider userProvider;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     private static User generateClient() {
         return new User(randomUUID().toString(), randomUUID().toString(), now(), randomUUID().toString());
     }
@@ -141,6 +167,255 @@ class TrainingApiIntegrationTest extends IntegrationTestBase {
                 .andExpect(jsonPath("$[1]").doesNotExist());
     }
 
+    @Test
+    void shouldReturnTrainingsByTimeRangeRelation_whenQueryingIntervalEndpoints() throws Exception {
+        User user1 = existingUser(generateClient());
+        Training morning = persistTraining(generateTrainingWithDetails(user1, "2024-01-19 08:00:00", "2024-01-19 09:30:00", ActivityType.RUNNING, 10, 8));
+        Training midday = persistTraining(generateTrainingWithDetails(user1, "2024-01-19 09:00:00", "2024-01-19 11:00:00", ActivityType.CYCLING, 40, 20));
+        Training afternoon = persistTraining(generateTrainingWithDetails(user1, "2024-01-19 12:00:00", "2024-01-19 13:00:00", ActivityType.SWIMMING, 2, 2));
+
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        SimpleDateFormat iso = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSXXX");
+
+        mockMvc.perform(get("/v1/trainings/active").param("at", iso.format(sdf.parse("2024-01-19 09:15:00"))))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(morning.getId()))
+                .andExpect(jsonPath("$[1].id").value(midday.getId()))
+                .andExpect(jsonPath("$[2]").doesNotExist());
+
+        mockMvc.perform(get("/v1/trainings/overlapping")
+                        .param("from", iso.format(sdf.parse("2024-01-19 09:45:00")))
+                        .param("to", iso.format(sdf.parse("2024-01-19 12:30:00"))))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(midday.getId()))
+                .andExpect(jsonPath("$[1].id").value(afternoon.getId()))
+                .andExpect(jsonPath("$[2]").doesNotExist());
+
+        mockMvc.perform(get("/v1/trainings/containing")
+                        .param("from", iso.format(sdf.parse("2024-01-19 09:00:00")))
+                        .param("to", iso.format(sdf.parse("2024-01-19 10:00:00"))))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(midday.getId()))
+                .andExpect(jsonPath("$[1]").doesNotExist());
+    }
+
+    @Test
+    void shouldReturnBadRequest_whenIntervalEndpointRangeIsReversed() throws Exception {
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        SimpleDateFormat iso = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSXXX");
+
+        mockMvc.perform(get("/v1/trainings/overlapping")
+                        .param("from", iso.format(sdf.parse("2024-01-19 12:30:00")))
+                        .param("to", iso.format(sdf.parse("2024-01-19 09:45:00"))))
+                .andDo(log())
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/v1/trainings/containing")
+                        .param("from", iso.format(sdf.parse("2024-01-19 10:00:00")))
+                        .param("to", iso.format(sdf.parse("2024-01-19 09:00:00"))))
+                .andDo(log())
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldReturnTrainingsMatchingAllConditions_whenFilteringTrainings() throws Exception {
+        User user1 = existingUser(generateClient());
+        User user2 = existingUser(generateClient());
+        Training early = persistTraining(generateTrainingWithDetails(user1, "2024-01-19 08:00:00", "2024-01-19 09:00:00", ActivityType.RUNNING, 10, 8));
+        Training late = persistTraining(generateTrainingWithDetails(user1, "2024-01-19 18:00:00", "2024-01-19 19:00:00", ActivityType.RUNNING, 12, 9));
+        Training cycling = persistTraining(generateTrainingWithDetails(user1, "2024-01-19 12:00:00", "2024-01-19 13:00:00", ActivityType.CYCLING, 40, 20));
+        Training otherUser = persistTraining(generateTrainingWithDetails(user2, "2024-01-19 10:00:00", "2024-01-19 11:00:00", ActivityType.RUNNING, 5, 6));
+        Training nextDay = persistTraining(generateTrainingWithDetails(user2, "2024-01-20 10:00:00", "2024-01-20 11:00:00", ActivityType.SWIMMING, 1, 2));
+
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        SimpleDateFormat iso = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSXXX");
+
+        mockMvc.perform(get("/v1/trainings/filter")
+                        .param("activityType", "RUNNING", "SWIMMING")
+                        .param("startedFrom", iso.format(sdf.parse("2024-01-19 09:00:00")))
+                        .param("startedTo", iso.format(sdf.parse("2024-01-20 12:00:00"))))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(late.getId()))
+                .andExpect(jsonPath("$[1].id").value(otherUser.getId()))
+                .andExpect(jsonPath("$[2].id").value(nextDay.getId()))
+                .andExpect(jsonPath("$[3]").doesNotExist());
+
+        mockMvc.perform(get("/v1/trainings/filter")
+                        .param("userId", String.valueOf(user1.getId()))
+                        .param("minDistance", "10")
+                        .param("maxSpeed", "10"))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(early.getId()))
+                .andExpect(jsonPath("$[1].id").value(late.getId()))
+                .andExpect(jsonPath("$[2]").doesNotExist());
+
+        mockMvc.perform(get("/v1/trainings/filter").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-After", String.valueOf(late.getId())))
+                .andExpect(jsonPath("$[0].id").value(early.getId()))
+                .andExpect(jsonPath("$[1].id").value(late.getId()));
+
+        mockMvc.perform(get("/v1/trainings/filter").param("limit", "2").param("after", String.valueOf(late.getId())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(cycling.getId()))
+                .andExpect(jsonPath("$[1].id").value(otherUser.getId()));
+
+        mockMvc.perform(get("/v1/trainings/filter").param("minDistance", "11").param("after", String.valueOf(early.getId())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(late.getId()))
+                .andExpect(jsonPath("$[1].id").value(cycling.getId()))
+                .andExpect(jsonPath("$[2]").doesNotExist());
+    }
+
+    @Test
+    void shouldReturnBadRequest_whenFilterRangeIsReversed() throws Exception {
+        mockMvc.perform(get("/v1/trainings/filter").param("minDistance", "10").param("maxDistance", "5"))
+                .andDo(log())
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/v1/trainings/filter").param("minSpeed", "10").param("maxSpeed", "5"))
+                .andDo(log())
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldSummarizeTrainingsPerUser_includingUpdatesAndSkippingEarlierTrainings() throws Exception {
+        User user1 = existingUser(generateClient());
+        User user2 = existingUser(generateClient());
+        persistTraining(generateTrainingWithDetails(user1, "2024-01-19 08:00:00", "2024-01-19 09:30:00", ActivityType.RUNNING, 10, 8));
+        persistTraining(generateTrainingWithDetails(user1, "2024-02-01 08:00:00", "2024-02-01 09:00:00", ActivityType.RUNNING, 12, 10));
+        Training updated = persistTraining(generateTrainingWithDetails(user1, "2024-02-02 08:00:00", "2024-02-02 09:00:00", ActivityType.CYCLING, 30, 20));
+        persistTraining(generateTrainingWithDetails(user2, "2023-12-01 08:00:00", "2023-12-01 09:00:00", ActivityType.WALKING, 5, 5));
+        updated.setDistance(40);
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+
+        // uncommitted trainings are not summarized
+        assertThat(summarize(sdf.parse("2024-01-31 00:00:00"), user1, user2)).isEmpty();
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+        // committed as well, so the clean-up removes the rows committed above
+        TestTransaction.start();
+        TestTransaction.flagForCommit();
+
+        assertThat(summarize(sdf.parse("2024-01-31 00:00:00"), user1, user2))
+                .containsExactly(new TrainingSummary(user1.getId(), 2, 52, 15));
+    }
+
+    private List<TrainingSummary> summarize(Date endDateAfter, User user1, User user2) {
+        return trainingProvider.summarizeTrainingsWithEndDateAfter(endDateAfter)
+                .stream()
+                .filter(summary -> summary.userId() == user1.getId() || summary.userId() == user2.getId())
+                .toList();
+    }
+
+    @Test
+    void shouldReturnTrainingsPageByPage_whenGettingTrainingsWithLimit() throws Exception {
+        User user1 = existingUser(generateClient());
+        Training late = persistTraining(generateTrainingWithDetails(user1, "2024-01-19 12:00:00", "2024-01-19 13:00:00", ActivityType.RUNNING, 10, 8));
+        Training early = persistTraining(generateTrainingWithDetails(user1, "2024-01-19 08:00:00", "2024-01-19 09:00:00", ActivityType.RUNNING, 10, 8));
+        Training sameStart = persistTraining(generateTrainingWithDetails(user1, "2024-01-19 08:00:00", "2024-01-19 10:00:00", ActivityType.CYCLING, 20, 15));
+
+        mockMvc.perform(get("/v1/trainings").param("limit", "2").contentType(MediaType.APPLICATION_JSON))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-After", early.getId().toString()))
+                .andExpect(jsonPath("$[0].id").value(late.getId()))
+                .andExpect(jsonPath("$[1].id").value(early.getId()))
+                .andExpect(jsonPath("$[2]").doesNotExist());
+
+        String nextStartTime = mockMvc.perform(get("/v1/trainings")
+                        .param("sort", "startTime")
+                        .param("limit", "2")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-After", sameStart.getId().toString()))
+                .andExpect(jsonPath("$[0].id").value(early.getId()))
+                .andExpect(jsonPath("$[1].id").value(sameStart.getId()))
+                .andReturn().getResponse().getHeader("X-Next-After-Start-Time");
+
+        mockMvc.perform(get("/v1/trainings")
+                        .param("sort", "startTime")
+                        .param("afterStartTime", nextStartTime)
+                        .param("after", sameStart.getId().toString())
+                        .param("limit", "2")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Next-After"))
+                .andExpect(jsonPath("$[0].id").value(late.getId()))
+                .andExpect(jsonPath("$[1]").doesNotExist());
+    }
+
+    @Test
+    void shouldReturnBadRequest_whenPageParametersAreInvalid() throws Exception {
+        mockMvc.perform(get("/v1/trainings").param("limit", "0"))
+                .andDo(log())
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/v1/trainings").param("sort", "distance").param("limit", "2"))
+                .andDo(log())
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/v1/trainings")
+                        .param("sort", "startTime")
+                        .param("afterStartTime", "2024-01-19T08:00:00Z")
+                        .param("limit", "2"))
+                .andDo(log())
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldStreamAllTrainingsAsNdjson_whenAcceptingNdjson() throws Exception {
+        User user1 = existingUser(generateClient());
+        Training training1 = persistTraining(generateTraining(user1));
+        Training training2 = persistTraining(generateTrainingWithActivityType(user1, ActivityType.SWIMMING));
+
+        String body = mockMvc.perform(get("/v1/trainings").accept(MediaType.APPLICATION_NDJSON))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        List<String> lines = body.lines().toList();
+        assertThat(lines).hasSize(2);
+        assertThat(lines.get(0)).contains("\"id\":" + training1.getId(), "\"email\":\"" + user1.getEmail() + "\"");
+        assertThat(lines.get(1)).contains("\"id\":" + training2.getId(), "\"activityType\":\"SWIMMING\"");
+    }
+
+    @Test
+    void shouldLoadTrainingsWithUsersInSingleQuery_whenListingTrainings() throws Exception {
+        User user1 = existingUser(generateClient());
+        for (int i = 0; i < 3; i++) {
+            User user = existingUser(generateClient());
+            persistTraining(generateTraining(user));
+            persistTraining(generateTraining(user1));
+        }
+
+        assertThat(countStatements(() -> mockMvc.perform(get("/v1/trainings"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[5].user.email").exists())))
+                .isEqualTo(1);
+        assertThat(countStatements(() -> mockMvc.perform(get("/v1/trainings/{userId}", user1.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[2].user.email").value(user1.getEmail()))))
+                .isEqualTo(1);
+        assertThat(countStatements(() -> mockMvc.perform(get("/v1/trainings/activityType").param("activityType", "RUNNING"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[5].user.email").exists())))
+                .isEqualTo(1);
+        assertThat(countStatements(() -> mockMvc.perform(get("/v1/trainings/finished/{afterTime}", "2024-01-18"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[5].user.email").exists())))
+                .isEqualTo(1);
+        assertThat(countStatements(() -> mockMvc.perform(get("/v1/trainings").param("limit", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[5].user.email").exists())))
+                .isEqualTo(1);
+    }
+
     @Test
     void getAllTrainingByActivityType_whenGettingAllTrainingByActivityType() throws Exception {
 
@@ -167,6 +442,130 @@ class TrainingApiIntegrationTest extends IntegrationTestBase {
                 .andExpect(jsonPath("$[2]").doesNotExist());
     }
 
+    @Test
+    void shouldPersistValidTrainingsAndRejectInvalidOnes_whenCreatingBatch() throws Exception {
+        User user1 = existingUser(generateClient());
+        User user2 = existingUser(generateClient());
+
+        String requestBody = """
+                [
+                    {"userId": %d, "startTime": "2024-04-01T11:00:00", "endTime": "2024-04-01T12:00:00", "activityType": "RUNNING", "distance": 10.0, "averageSpeed": 10.0},
+                    {"userId": %d, "startTime": "2024-04-01T11:00:00", "endTime": "2024-04-01T10:00:00", "activityType": "RUNNING", "distance": 10.0, "averageSpeed": 10.0},
+                    {"userId": %d, "startTime": "2024-04-02T11:00:00", "endTime": "2024-04-02T12:00:00", "activityType": "CYCLING", "distance": 30.0, "averageSpeed": 30.0},
+                    {"userId": %d, "startTime": "2024-04-03T11:00:00", "endTime": "2024-04-03T12:00:00", "activityType": "WALKING", "distance": 5.0, "averageSpeed": 5.0},
+                    {"userId": %d, "startTime": "2024-04-03T11:00:00", "endTime": "2024-04-03T12:00:00", "activityType": "WALKING", "distance": 5.0, "averageSpeed": 5.0}
+                ]
+                """.formatted(user1.getId(), user1.getId(), user2.getId(), user1.getId(), user2.getId() + 1_000);
+
+        mockMvc.perform(post("/v1/trainings/batch").contentType(MediaType.APPLICATION_JSON).content(requestBody))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("CREATED"))
+                .andExpect(jsonPath("$[0].id").isNumber())
+                .andExpect(jsonPath("$[1].index").value(1))
+                .andExpect(jsonPath("$[1].status").value("REJECTED"))
+                .andExpect(jsonPath("$[1].error").value("End time must be after start time"))
+                .andExpect(jsonPath("$[2].status").value("CREATED"))
+                .andExpect(jsonPath("$[3].status").value("CREATED"))
+                .andExpect(jsonPath("$[4].status").value("REJECTED"))
+                .andExpect(jsonPath("$[4].error").value("User with ID " + (user2.getId() + 1_000) + " not found"));
+
+        assertThat(getAllTrainings())
+                .extracting(training -> training.getUser().getId())
+                .containsExactlyInAnyOrder(user1.getId(), user2.getId(), user1.getId());
+    }
+
+    @Test
+    void shouldRejectTrainingsWithNonFiniteFigures_whenCreatingBatch() throws Exception {
+        User user1 = existingUser(generateClient());
+
+        String requestBody = """
+                [
+                    {"userId": %d, "startTime": "2024-04-01T11:00:00", "endTime": "2024-04-01T12:00:00", "activityType": "RUNNING", "distance": 1e400, "averageSpeed": 10.0},
+                    {"userId": %d, "startTime": "2024-04-01T11:00:00", "endTime": "2024-04-01T12:00:00", "activityType": "RUNNING", "distance": 10.0, "averageSpeed": -1e400}
+                ]
+                """.formatted(user1.getId(), user1.getId());
+
+        mockMvc.perform(post("/v1/trainings/batch").contentType(MediaType.APPLICATION_JSON).content(requestBody))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("REJECTED"))
+                .andExpect(jsonPath("$[0].error").value("Distance must be a finite number"))
+                .andExpect(jsonPath("$[1].status").value("REJECTED"))
+                .andExpect(jsonPath("$[1].error").value("Average speed must be a finite number"));
+
+        assertThat(getAllTrainings()).isEmpty();
+    }
+
+    @Test
+    void shouldRetryTrainingsOneByOne_whenBatchChunkFails() throws Exception {
+        User user1 = existingUser(generateClient());
+        User user2 = existingUser(generateClient());
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+        // the cached user is still resolved by the batch, but its trainings violate the foreign key
+        userProvider.getUser(user2.getId());
+        jdbcTemplate.update("delete from users where id = ?", user2.getId());
+
+        String training = """
+                {"userId": %d, "startTime": "2024-04-01T11:00:00", "endTime": "2024-04-01T12:00:00", "activityType": "RUNNING", "distance": 10.0, "averageSpeed": 10.0}""";
+        mockMvc.perform(post("/v1/trainings/batch").contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + training.formatted(user1.getId()) + ", " + training.formatted(user2.getId())
+                                + ", " + training.formatted(user1.getId()) + "]"))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("CREATED"))
+                .andExpect(jsonPath("$[1].status").value("REJECTED"))
+                .andExpect(jsonPath("$[1].error").value("Failed to persist training"))
+                .andExpect(jsonPath("$[2].status").value("CREATED"));
+        TestTransaction.start();
+        // committed as well, so the clean-up removes the rows committed above
+        TestTransaction.flagForCommit();
+
+        assertThat(getAllTrainings())
+                .extracting(created -> created.getUser().getId())
+                .containsExactly(user1.getId(), user1.getId());
+    }
+
+    @Test
+    void shouldRejectTrainingWrites_whenUserIsBeingRemoved() throws Exception {
+        User user1 = existingUser(generateClient());
+        User user2 = existingUser(generateClient());
+        Training training1 = persistTraining(generateTraining(user1));
+        mockMvc.perform(delete("/v1/users/{userId}", user1.getId()))
+                .andExpect(status().isAccepted());
+
+        String training = """
+                {"userId": %d, "startTime": "2024-04-01T11:00:00", "endTime": "2024-04-01T12:00:00", "activityType": "RUNNING", "distance": 10.0, "averageSpeed": 10.0}""";
+
+        mockMvc.perform(post("/v1/trainings").contentType(MediaType.APPLICATION_JSON)
+                        .content(training.formatted(user1.getId())))
+                .andDo(log())
+                .andExpect(status().isConflict());
+        mockMvc.perform(put("/v1/trainings/{trainingId}", training1.getId()).contentType(MediaType.APPLICATION_JSON)
+                        .content(training.formatted(user1.getId())))
+                .andDo(log())
+                .andExpect(status().isConflict());
+        mockMvc.perform(post("/v1/trainings/batch").contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + training.formatted(user1.getId()) + ", " + training.formatted(user2.getId()) + "]"))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("REJECTED"))
+                .andExpect(jsonPath("$[0].error").value("User with ID " + user1.getId() + " is being removed"))
+                .andExpect(jsonPath("$[1].status").value("CREATED"));
+
+        assertThat(getAllTrainings())
+                .extracting(created -> created.getUser().getId())
+                .containsExactlyInAnyOrder(user1.getId(), user2.getId());
+    }
+
+    @Test
+    void shouldReturnBadRequest_whenBatchIsEmpty() throws Exception {
+        mockMvc.perform(post("/v1/trainings/batch").contentType(MediaType.APPLICATION_JSON).content("[]"))
+                .andDo(log())
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void shouldPersistTraining_whenCreatingNewTraining() throws Exception {
 
@@ -194,6 +593,174 @@ class TrainingApiIntegrationTest extends IntegrationTestBase {
 
     }
 
+    @Test
+    void shouldCreateTrainingOnce_whenReplayingRequestWithSameIdempotencyKey() throws Exception {
+
+        User user1 = existingUser(generateClient());
+        String idempotencyKey = randomUUID().toString();
+
+        String requestBody = """
+                {
+                    "userId": "%s",
+                    "startTime": "2024-04-01T11:00:00",
+                    "endTime": "2024-04-01T12:00:00",
+                    "activityType": "RUNNING",
+                    "distance": 10.52,
+                    "averageSpeed": 8.2
+                }
+                """.formatted(user1.getId());
+        String created = mockMvc.perform(post("/v1/trainings").header("Idempotency-Key", idempotencyKey)
+                        .contentType(MediaType.APPLICATION_JSON).content(requestBody))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+
+        mockMvc.perform(post("/v1/trainings").header("Idempotency-Key", idempotencyKey)
+                        .contentType(MediaType.APPLICATION_JSON).content(requestBody))
+                .andDo(log())
+                .andExpect(status().isCreated())
+                .andExpect(content().json(created, true));
+
+        mockMvc.perform(post("/v1/trainings").header("Idempotency-Key", randomUUID().toString())
+                        .contentType(MediaType.APPLICATION_JSON).content(requestBody))
+                .andExpect(status().isCreated());
+
+        assertThat(getAllTrainings()).hasSize(2);
+    }
+
+    @Test
+    void shouldCreateTrainingOnce_whenRequestsWithSameIdempotencyKeyRace() throws Exception {
+        User user1 = existingUser(generateClient());
+        // the requests run on other threads, so the user has to be committed first
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+        // committed as well, so the clean-up removes the rows committed by the requests
+        TestTransaction.start();
+        TestTransaction.flagForCommit();
+
+        String idempotencyKey = randomUUID().toString();
+        String requestBody = """
+                {
+                    "userId": "%s",
+                    "startTime": "2024-04-01T11:00:00",
+                    "endTime": "2024-04-01T12:00:00",
+                    "activityType": "RUNNING",
+                    "distance": 10.52,
+                    "averageSpeed": 8.2
+                }
+                """.formatted(user1.getId());
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<MockHttpServletResponse>> responses = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                responses.add(executor.submit(() -> {
+                    start.await();
+                    return mockMvc.perform(post("/v1/trainings").header("Idempotency-Key", idempotencyKey)
+                                    .contentType(MediaType.APPLICATION_JSON).content(requestBody))
+                            .andReturn().getResponse();
+                }));
+            }
+            start.countDown();
+
+            MockHttpServletResponse first = responses.get(0).get(10, TimeUnit.SECONDS);
+            MockHttpServletResponse second = responses.get(1).get(10, TimeUnit.SECONDS);
+            assertThat(first.getStatus()).isEqualTo(201);
+            assertThat(second.getStatus()).isEqualTo(201);
+            assertThat(second.getContentAsString()).isEqualTo(first.getContentAsString());
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(getAllTrainings()).hasSize(1);
+    }
+
+    @Test
+    void shouldRejectIdempotencyKey_whenBlankOrUsedByAnotherUser() throws Exception {
+        User user1 = existingUser(generateClient());
+        User user2 = existingUser(generateClient());
+        String idempotencyKey = randomUUID().toString();
+        String requestBody = """
+                {
+                    "userId": "%s",
+                    "startTime": "2024-04-01T11:00:00",
+                    "endTime": "2024-04-01T12:00:00",
+                    "activityType": "RUNNING",
+                    "distance": 10.52,
+                    "averageSpeed": 8.2
+                }
+                """;
+
+        mockMvc.perform(post("/v1/trainings").header("Idempotency-Key", " ")
+                        .contentType(MediaType.APPLICATION_JSON).content(requestBody.formatted(user1.getId())))
+                .andDo(log())
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/v1/trainings").header("Idempotency-Key", idempotencyKey)
+                        .contentType(MediaType.APPLICATION_JSON).content(requestBody.formatted(user1.getId())))
+                .andExpect(status().isCreated());
+        mockMvc.perform(post("/v1/trainings").header("Idempotency-Key", idempotencyKey)
+                        .contentType(MediaType.APPLICATION_JSON).content(requestBody.formatted(user2.getId())))
+                .andDo(log())
+                .andExpect(status().isUnprocessableEntity());
+
+        assertThat(getAllTrainings()).hasSize(1);
+    }
+
+    @Test
+    void shouldReturnStoredTrack_whenRetrievingTrackOfTraining() throws Exception {
+
+        User user1 = existingUser(generateClient());
+        Training training1 = persistTraining(generateTraining(user1));
+        String track = """
+                [
+                    {"time": "2024-01-19T08:00:00Z", "latitude": 52.2296756, "longitude": 21.0122287, "elevation": 112.35, "heartRate": 95},
+                    {"time": "2024-01-19T08:00:01Z", "latitude": 52.2296901, "longitude": 21.0121954, "elevation": 112.1, "heartRate": 97},
+                    {"time": "2024-01-19T08:00:02Z", "latitude": 52.2297123, "longitude": 21.0121501, "elevation": 111.9, "heartRate": 0}
+                ]
+                """;
+
+        mockMvc.perform(get("/v1/trainings/{trainingId}/track", training1.getId()))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(put("/v1/trainings/{trainingId}/track", training1.getId())
+                        .contentType(MediaType.APPLICATION_JSON).content(track))
+                .andDo(log())
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/v1/trainings/{trainingId}/track", training1.getId()))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(content().json(track, true));
+    }
+
+    @Test
+    void shouldRejectTrack_whenTrainingIsMissingOrTrackIsInvalid() throws Exception {
+        User user1 = existingUser(generateClient());
+        Training training1 = persistTraining(generateTraining(user1));
+        String point = """
+                {"time": "2024-01-19T08:00:00Z", "latitude": 52.2296756, "longitude": 21.0122287, "elevation": 112.35, "heartRate": 95}""";
+
+        mockMvc.perform(put("/v1/trainings/{trainingId}/track", training1.getId() + 1_000)
+                        .contentType(MediaType.APPLICATION_JSON).content("[" + point + "]"))
+                .andDo(log())
+                .andExpect(status().isNotFound());
+        mockMvc.perform(put("/v1/trainings/{trainingId}/track", training1.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + point + ", " + point.replace("52.2296756", "152.2296756") + "]"))
+                .andDo(log())
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(put("/v1/trainings/{trainingId}/track", training1.getId())
+                        .contentType(MediaType.APPLICATION_JSON).content("[" + point + ", {\"time\": "))
+                .andDo(log())
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(put("/v1/trainings/{trainingId}/track", training1.getId())
+                        .contentType(MediaType.APPLICATION_JSON).content("[" + point + ", {\"time\": 12, \"latitude\": \"north\"}]"))
+                .andDo(log())
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/v1/trainings/{trainingId}/track", training1.getId()))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void shouldUpdateTraining_whenUpdatingTraining() throws Exception {
 
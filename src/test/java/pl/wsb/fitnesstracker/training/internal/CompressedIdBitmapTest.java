@@ -0,0 +1,83 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CompressedIdBitmapTest {
+
+    @Test
+    void shouldMatchSortedSet_whenAddingRemovingAndCombiningRandomIds() {
+        SplittableRandom random = new SplittableRandom(7);
+        for (int round = 0; round < 20; round++) {
+            // small ranges produce dense chunks stored as bitmaps, large ones sparse chunks stored as arrays
+            long range = round % 2 == 0 ? 20_000 : 1_000_000;
+            TreeSet<Long> firstExpected = new TreeSet<>();
+            TreeSet<Long> secondExpected = new TreeSet<>();
+            CompressedIdBitmap first = new CompressedIdBitmap();
+            CompressedIdBitmap second = new CompressedIdBitmap();
+            for (int i = 0; i < 15_000; i++) {
+                long id = random.nextLong(range);
+                if (random.nextInt(4) == 0) {
+                    first.remove(id);
+                    firstExpected.remove(id);
+                } else {
+                    first.add(id);
+                    firstExpected.add(id);
+                }
+                long otherId = random.nextLong(range);
+                second.add(otherId);
+                secondExpected.add(otherId);
+            }
+
+            assertThat(first.cardinality()).isEqualTo(firstExpected.size());
+            assertThat(first.toArray(-1, Integer.MAX_VALUE))
+                    .containsExactly(firstExpected.stream().mapToLong(Long::longValue).toArray());
+
+            TreeSet<Long> intersection = new TreeSet<>(firstExpected);
+            intersection.retainAll(secondExpected);
+            assertThat(first.and(second).toArray(-1, Integer.MAX_VALUE))
+                    .containsExactly(intersection.stream().mapToLong(Long::longValue).toArray());
+
+            TreeSet<Long> union = new TreeSet<>(firstExpected);
+            union.addAll(secondExpected);
+            assertThat(CompressedIdBitmap.or(List.of(first, second)).toArray(-1, Integer.MAX_VALUE))
+                    .containsExactly(union.stream().mapToLong(Long::longValue).toArray());
+        }
+    }
+
+    @Test
+    void shouldReturnIdsAfterCursor_upToLimit() {
+        CompressedIdBitmap bitmap = new CompressedIdBitmap();
+        LongStream.of(3, 70_000, 70_001, 200_000, 5).forEach(bitmap::add);
+
+        assertThat(bitmap.toArray(-1, 2)).containsExactly(3, 5);
+        assertThat(bitmap.toArray(5, 2)).containsExactly(70_000, 70_001);
+        assertThat(bitmap.toArray(70_001, 10)).containsExactly(200_000);
+        assertThat(bitmap.toArray(200_000, 10)).isEmpty();
+    }
+
+    @Test
+    void shouldNotModifyOperands_whenCombining() {
+        CompressedIdBitmap first = new CompressedIdBitmap();
+        CompressedIdBitmap second = new CompressedIdBitmap();
+        LongStream.range(0, 5_000).forEach(first::add);
+        LongStream.range(2_500, 7_500).forEach(second::add);
+
+        assertThat(first.and(second).cardinality()).isEqualTo(2_500);
+        assertThat(CompressedIdBitmap.or(List.of(first, second)).cardinality()).isEqualTo(7_500);
+        assertThat(first.cardinality()).isEqualTo(5_000);
+        assertThat(second.cardinality()).isEqualTo(5_000);
+    }
+
+    @Test
+    void shouldRejectNegativeIds() {
+        assertThatThrownBy(() -> new CompressedIdBitmap().add(-1)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
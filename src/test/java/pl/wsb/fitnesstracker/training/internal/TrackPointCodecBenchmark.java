@@ -0,0 +1,84 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import org.junit.jupiter.api.Test;
+import pl.wsb.fitnesstracker.Benchmark;
+import pl.wsb.fitnesstracker.training.api.TrackPoint;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.time.Instant;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Benchmark
+class TrackPointCodecBenchmark {
+
+    private static final int POINTS = 4 * 3_600;
+
+    private static final int RAW_BYTES_PER_POINT = Long.BYTES + 3 * Double.BYTES + Integer.BYTES;
+
+    private static final int ROUNDS = 200;
+
+    @Test
+    void shouldStoreTracksCompactlyAndDecodeThemQuickly() {
+        byte[] data = encode(generateTrack());
+        double bytesPerPoint = (data.length - 1) / (double) POINTS;
+
+        for (int round = 0; round < ROUNDS / 10; round++) { // warm-up
+            decode(data);
+        }
+        long start = System.nanoTime();
+        long checksum = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            checksum += decode(data);
+        }
+        double pointsPerSecond = (double) ROUNDS * POINTS / ((System.nanoTime() - start) / 1e9);
+
+        System.out.printf("bytes/point=%.2f (raw %d, x%.1f) decode=%.0f points/s%n",
+                bytesPerPoint, RAW_BYTES_PER_POINT, RAW_BYTES_PER_POINT / bytesPerPoint, pointsPerSecond);
+        assertThat(checksum).isPositive();
+        assertThat(bytesPerPoint).isLessThan(RAW_BYTES_PER_POINT / 3.0);
+        assertThat(pointsPerSecond).isGreaterThan(1_000_000);
+    }
+
+    /**
+     * Four hours of a run sampled every second, with GPS jitter and a varying heart rate.
+     */
+    private static TrackPoint[] generateTrack() {
+        SplittableRandom random = new SplittableRandom(42);
+        TrackPoint[] track = new TrackPoint[POINTS];
+        Instant time = Instant.parse("2024-04-01T06:00:00Z");
+        double latitude = 52.2296756;
+        double longitude = 21.0122287;
+        double elevation = 110;
+        int heartRate = 120;
+        for (int i = 0; i < POINTS; i++) {
+            time = time.plusMillis(1_000 + random.nextInt(-20, 21));
+            latitude += 0.000025 + random.nextDouble(-0.000005, 0.000005);
+            longitude += 0.000015 + random.nextDouble(-0.000005, 0.000005);
+            elevation += random.nextDouble(-0.3, 0.3);
+            heartRate = Math.max(60, Math.min(200, heartRate + random.nextInt(-2, 3)));
+            track[i] = new TrackPoint(time, latitude, longitude, elevation, heartRate);
+        }
+        return track;
+    }
+
+    private static byte[] encode(TrackPoint[] track) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        TrackPointCodec.Encoder encoder = new TrackPointCodec.Encoder(output);
+        for (TrackPoint point : track) {
+            encoder.write(point);
+        }
+        return output.toByteArray();
+    }
+
+    private static long decode(byte[] data) {
+        TrackPointCodec.Decoder decoder = new TrackPointCodec.Decoder(new ByteArrayInputStream(data));
+        long heartBeats = 0;
+        while (decoder.hasNext()) {
+            heartBeats += decoder.next().heartRate();
+        }
+        return heartBeats;
+    }
+}
@@ -0,0 +1,102 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import org.junit.jupiter.api.Test;
+import pl.wsb.fitnesstracker.training.api.TrackPoint;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TrackPointCodecTest {
+
+    @Test
+    void shouldDecodeEncodedPoints() {
+        List<TrackPoint> track = List.of(
+                new TrackPoint(Instant.parse("2024-04-01T11:00:00Z"), 52.2296756, 21.0122287, 112.35, 95),
+                new TrackPoint(Instant.parse("2024-04-01T11:00:01Z"), 52.2296901, 21.0121954, 112.1, 97),
+                new TrackPoint(Instant.parse("2024-04-01T11:00:00.5Z"), -33.8688197, -151.2092955, -4.5, 0),
+                new TrackPoint(Instant.parse("1969-12-31T23:59:59Z"), 90, 180, 0, 0));
+
+        assertThat(decode(encode(track))).containsExactlyElementsOf(track);
+    }
+
+    @Test
+    void shouldDecodeEmptyTrack() {
+        assertThat(decode(encode(List.of()))).isEmpty();
+    }
+
+    @Test
+    void shouldEncodeSecondlySamplesInFewBytes() {
+        List<TrackPoint> track = new ArrayList<>();
+        Instant start = Instant.parse("2024-04-01T11:00:00Z");
+        for (int i = 0; i < 3_600; i++) {
+            track.add(new TrackPoint(start.plusSeconds(i), 52.2296756 + i * 0.000027, 21.0122287 - i * 0.000018,
+                    110 + Math.sin(i / 60.0) * 5, 120 + i % 20));
+        }
+
+        byte[] data = encode(track);
+
+        assertThat(decode(data)).containsExactlyElementsOf(roundTripped(track));
+        assertThat((data.length - 1) / (double) track.size()).isLessThanOrEqualTo(9);
+    }
+
+    @Test
+    void shouldMapSmallSignedValuesToSmallUnsignedOnes() {
+        assertThat(Arrays.stream(new long[]{0, -1, 1, -2, 2}).map(TrackPointCodec::zigZag))
+                .containsExactly(0L, 1L, 2L, 3L, 4L);
+        for (long value : new long[]{Long.MIN_VALUE, -123_456_789L, 987_654_321L, Long.MAX_VALUE}) {
+            assertThat(TrackPointCodec.unZigZag(TrackPointCodec.zigZag(value))).isEqualTo(value);
+        }
+    }
+
+    @Test
+    void shouldRejectInvalidPoints() {
+        TrackPointCodec.Encoder encoder = new TrackPointCodec.Encoder(new ByteArrayOutputStream());
+        Instant time = Instant.parse("2024-04-01T11:00:00Z");
+
+        assertThatThrownBy(() -> encoder.write(new TrackPoint(null, 0, 0, 0, 0)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> encoder.write(new TrackPoint(time, 91, 0, 0, 0)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> encoder.write(new TrackPoint(time, 0, Double.NaN, 0, 0)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> encoder.write(new TrackPoint(time, 0, 0, 0, -1)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldFailOnTruncatedData() {
+        byte[] data = encode(List.of(new TrackPoint(Instant.parse("2024-04-01T11:00:00Z"), 52, 21, 100, 90)));
+        TrackPointCodec.Decoder decoder =
+                new TrackPointCodec.Decoder(new ByteArrayInputStream(Arrays.copyOf(data, data.length - 1)));
+
+        assertThatThrownBy(decoder::next).isInstanceOf(IllegalStateException.class);
+    }
+
+    private static byte[] encode(List<TrackPoint> track) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        TrackPointCodec.Encoder encoder = new TrackPointCodec.Encoder(output);
+        track.forEach(encoder::write);
+        return output.toByteArray();
+    }
+
+    private static List<TrackPoint> decode(byte[] data) {
+        List<TrackPoint> track = new ArrayList<>();
+        new TrackPointCodec.Decoder(new ByteArrayInputStream(data)).forEachRemaining(track::add);
+        return track;
+    }
+
+    private static List<TrackPoint> roundTripped(List<TrackPoint> track) {
+        return track.stream()
+                .map(point -> new TrackPoint(point.time(), Math.round(point.latitude() * 1e7) / 1e7,
+                        Math.round(point.longitude() * 1e7) / 1e7, Math.round(point.elevation() * 100) / 100.0,
+                        point.heartRate()))
+                .toList();
+    }
+}
@@ -0,0 +1,104 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import pl.wsb.fitnesstracker.Benchmark;
+import pl.wsb.fitnesstracker.training.api.TrainingService;
+import pl.wsb.fitnesstracker.user.api.User;
+import pl.wsb.fitnesstracker.user.internal.UserRepository;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Benchmark
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.jdbc.batch_size=500",
+        "spring.jpa.properties.hibernate.order_inserts=true"
+})
+class TrainingBatchIngestBenchmark {
+
+    private static final int USERS = 20;
+
+    private static final int BATCH_SIZE = 50;
+
+    private static final int BATCHES = 100;
+
+    @Autowired
+    private TrainingService trainingService;
+
+    @Autowired
+    private TrainingBatchIngestor batchIngestor;
+
+    @Autowired
+    private TrainingMapper trainingMapper;
+
+    @Autowired
+    private TrainingRepository trainingRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void cleanUp() {
+        trainingRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void batchIngestionShouldOutperformOneRequestPerTraining() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            users.add(new User(randomUUID().toString(), randomUUID().toString(), LocalDate.of(1990, 1, 1),
+                    randomUUID() + "@domain.com"));
+        }
+        List<Long> userIds = userRepository.saveAll(users).stream().map(User::getId).toList();
+
+        createOneByOne(userIds, BATCHES / 10); // warm-up
+        ingestBatches(userIds, BATCHES / 10);
+
+        long start = System.nanoTime();
+        createOneByOne(userIds, BATCHES);
+        double singlePerSecond = BATCHES * BATCH_SIZE / ((System.nanoTime() - start) / 1e9);
+
+        start = System.nanoTime();
+        ingestBatches(userIds, BATCHES);
+        double batchPerSecond = BATCHES * BATCH_SIZE / ((System.nanoTime() - start) / 1e9);
+
+        System.out.printf("one-by-one=%.0f trainings/s batch=%.0f trainings/s (x%.1f)%n",
+                singlePerSecond, batchPerSecond, batchPerSecond / singlePerSecond);
+        assertThat(batchPerSecond).isGreaterThan(singlePerSecond * 2);
+    }
+
+    private void createOneByOne(List<Long> userIds, int batches) {
+        for (int batch = 0; batch < batches; batch++) {
+            for (CreateTrainingDTO dto : batch(userIds, batch)) {
+                trainingService.createTraining(trainingMapper.convertToEntity(dto), dto.getUserId());
+            }
+        }
+    }
+
+    private void ingestBatches(List<Long> userIds, int batches) {
+        for (int batch = 0; batch < batches; batch++) {
+            List<TrainingBatchResult> results = batchIngestor.ingest(batch(userIds, batch));
+            assertThat(results).allMatch(result -> result.status() == TrainingBatchResult.Status.CREATED);
+        }
+    }
+
+    private static List<CreateTrainingDTO> batch(List<Long> userIds, int batch) {
+        List<CreateTrainingDTO> trainings = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            Instant start = Instant.parse("2024-01-01T00:00:00Z").plusSeconds((long) (batch * BATCH_SIZE + i) * 3_600);
+            trainings.add(new CreateTrainingDTO(null, userIds.get(i % userIds.size()), Date.from(start),
+                    Date.from(start.plusSeconds(1_800)), ActivityType.RUNNING, 5, 10));
+        }
+        return trainings;
+    }
+}
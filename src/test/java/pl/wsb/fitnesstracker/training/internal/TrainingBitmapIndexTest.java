@@ -0,0 +1,79 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrainingBitmapIndexTest {
+
+    private static final long DAY_1 = Instant.parse("2024-01-01T10:00:00Z").toEpochMilli();
+
+    private static final long DAY_2 = Instant.parse("2024-01-02T10:00:00Z").toEpochMilli();
+
+    private static final long DAY_3 = Instant.parse("2024-01-03T10:00:00Z").toEpochMilli();
+
+    private TrainingBitmapIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new TrainingBitmapIndex();
+        index.put(1L, TrainingBitmapIndex.Entry.of(ActivityType.RUNNING, 7L, DAY_1));
+        index.put(2L, TrainingBitmapIndex.Entry.of(ActivityType.CYCLING, 7L, DAY_2));
+        index.put(3L, TrainingBitmapIndex.Entry.of(ActivityType.RUNNING, 8L, DAY_2));
+        index.put(4L, TrainingBitmapIndex.Entry.of(ActivityType.TENNIS, 8L, DAY_3));
+    }
+
+    @Test
+    void shouldIntersectDimensions() {
+        assertThat(find(Set.of(ActivityType.RUNNING), null, null, null, null, 10)).containsExactly(1, 3);
+        assertThat(find(Set.of(ActivityType.RUNNING, ActivityType.CYCLING), Set.of(7L), null, null, null, 10))
+                .containsExactly(1, 2);
+        assertThat(find(null, Set.of(8L), DAY_2, DAY_2, null, 10)).containsExactly(3);
+        assertThat(find(Set.of(ActivityType.WALKING), null, null, null, null, 10)).isEmpty();
+        assertThat(find(null, null, null, null, 1L, 2)).containsExactly(2, 3);
+    }
+
+    @Test
+    void shouldMatchWholeDays_whenFilteringByTimeWindow() {
+        long lateOnDay1 = Instant.parse("2024-01-01T23:00:00Z").toEpochMilli();
+        long earlyOnDay3 = Instant.parse("2024-01-03T01:00:00Z").toEpochMilli();
+
+        assertThat(find(null, null, lateOnDay1, earlyOnDay3, null, 10)).containsExactly(1, 2, 3, 4);
+        assertThat(find(null, null, DAY_3, null, null, 10)).containsExactly(4);
+        assertThat(find(null, null, null, DAY_1, null, 10)).containsExactly(1);
+    }
+
+    @Test
+    void shouldReindexTraining_whenUpdatedOrRemoved() {
+        TrainingBitmapIndex.Entry previous = index.put(1L, TrainingBitmapIndex.Entry.of(ActivityType.TENNIS, 8L, DAY_3));
+        index.remove(2L);
+
+        assertThat(previous).isEqualTo(TrainingBitmapIndex.Entry.of(ActivityType.RUNNING, 7L, DAY_1));
+        assertThat(find(null, Set.of(7L), null, null, null, 10)).isEmpty();
+        assertThat(find(Set.of(ActivityType.TENNIS), null, DAY_3, DAY_3, null, 10)).containsExactly(1, 4);
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldKeepFoundCandidates_whenIndexChangesLater() {
+        CompressedIdBitmap single = index.find(Set.of(ActivityType.RUNNING), null, null, null);
+        CompressedIdBitmap combined = index.find(Set.of(ActivityType.RUNNING), Set.of(7L, 8L), null, null);
+        CompressedIdBitmap all = index.find(null, null, null, null);
+
+        index.put(5L, TrainingBitmapIndex.Entry.of(ActivityType.RUNNING, 7L, DAY_1));
+        index.remove(1L);
+
+        assertThat(single.toArray(-1, 10)).containsExactly(1, 3);
+        assertThat(combined.toArray(-1, 10)).containsExactly(1, 3);
+        assertThat(all.toArray(-1, 10)).containsExactly(1, 2, 3, 4);
+    }
+
+    private long[] find(Set<ActivityType> activityTypes, Set<Long> userIds, Long startedFrom, Long startedTo,
+                        Long afterId, int limit) {
+        return index.find(activityTypes, userIds, startedFrom, startedTo).toArray(afterId == null ? -1 : afterId, limit);
+    }
+}
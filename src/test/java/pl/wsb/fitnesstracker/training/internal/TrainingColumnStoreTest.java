@@ -0,0 +1,76 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pl.wsb.fitnesstracker.training.api.TrainingSummary;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static pl.wsb.fitnesstracker.training.internal.TrainingColumnStore.TimeColumn.END;
+import static pl.wsb.fitnesstracker.training.internal.TrainingColumnStore.TimeColumn.START;
+
+class TrainingColumnStoreTest {
+
+    private TrainingColumnStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new TrainingColumnStore();
+        store.put(1L, row(7L, 100, 200, 10, 8));
+        store.put(2L, row(7L, 300, 400, 20, 12));
+        store.put(3L, row(5L, 150, 250, 5, 5));
+    }
+
+    @Test
+    void shouldSummarizeTrainingsPerUser_orderedByUserId() {
+        assertThat(store.summarizeByUser(START, 0, 1_000)).containsExactly(
+                new TrainingSummary(5L, 1, 5, 5),
+                new TrainingSummary(7L, 2, 30, 10));
+        assertThat(store.summarizeByUser(END, 250, 400)).containsExactly(
+                new TrainingSummary(5L, 1, 5, 5),
+                new TrainingSummary(7L, 1, 20, 12));
+        assertThat(store.summarizeByUser(START, 500, 600)).isEmpty();
+    }
+
+    @Test
+    void shouldOverwriteTraining_whenUpdated() {
+        TrainingColumnStore.Row previous = store.put(1L, row(7L, 100, 200, 15, 8));
+
+        assertThat(previous).isEqualTo(row(7L, 100, 200, 10, 8));
+        assertThat(store.summarizeByUser(START, 0, 1_000))
+                .contains(new TrainingSummary(7L, 2, 35, 10));
+        assertThat(store.size()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldMoveTraining_whenOwnerChanges() {
+        store.put(3L, row(7L, 150, 250, 5, 5));
+
+        assertThat(store.summarizeByUser(START, 0, 1_000))
+                .containsExactly(new TrainingSummary(7L, 3, 35, 25.0 / 3));
+    }
+
+    @Test
+    void shouldForgetTraining_whenRemoved() {
+        store.remove(1L);
+        store.remove(3L);
+        store.remove(42L);
+
+        assertThat(store.summarizeByUser(START, 0, 1_000)).containsExactly(new TrainingSummary(7L, 1, 20, 12));
+        assertThat(store.size()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldOverwriteMovedRow_whenTrainingIsUpdatedAfterRemovalOfAnother() {
+        store.remove(1L);
+        TrainingColumnStore.Row previous = store.put(2L, row(7L, 300, 400, 30, 12));
+
+        assertThat(previous).isEqualTo(row(7L, 300, 400, 20, 12));
+        assertThat(store.summarizeByUser(START, 0, 1_000))
+                .containsExactly(new TrainingSummary(5L, 1, 5, 5), new TrainingSummary(7L, 1, 30, 12));
+        assertThat(store.size()).isEqualTo(2);
+    }
+
+    private static TrainingColumnStore.Row row(long userId, long start, long end, double distance, double speed) {
+        return new TrainingColumnStore.Row(userId, start, end, distance, speed, ActivityType.RUNNING.ordinal());
+    }
+}
@@ -0,0 +1,42 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TrainingIdempotencyKeyFilterTest {
+
+    @Test
+    void shouldContainEveryAddedKey() {
+        TrainingIdempotencyKeyFilter filter = new TrainingIdempotencyKeyFilter(1_000, 0.01);
+        var keys = IntStream.range(0, 1_000).mapToObj(i -> UUID.randomUUID().toString()).toList();
+
+        keys.forEach(filter::put);
+
+        assertThat(keys).allMatch(filter::mightContain);
+    }
+
+    @Test
+    void shouldRarelyReportAbsentKeysAsPresent_whenFilledToExpectedSize() {
+        TrainingIdempotencyKeyFilter filter = new TrainingIdempotencyKeyFilter(10_000, 0.01);
+        IntStream.range(0, 10_000).forEach(i -> filter.put("stored-" + i));
+
+        long falsePositives = IntStream.range(0, 100_000)
+                .filter(i -> filter.mightContain("absent-" + i))
+                .count();
+
+        assertThat(falsePositives).isLessThan(2_000);
+    }
+
+    @Test
+    void shouldRejectInvalidSizing() {
+        assertThatThrownBy(() -> new TrainingIdempotencyKeyFilter(0, 0.01))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TrainingIdempotencyKeyFilter(100, 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
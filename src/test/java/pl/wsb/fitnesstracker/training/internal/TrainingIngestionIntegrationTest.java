@@ -0,0 +1,183 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import pl.wsb.fitnesstracker.IntegrationTest;
+import pl.wsb.fitnesstracker.IntegrationTestBase;
+import pl.wsb.fitnesstracker.training.api.Training;
+import pl.wsb.fitnesstracker.user.api.User;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static java.time.LocalDate.now;
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.log;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Not transactional, as the trainings are written by the background writer in its own transactions.
+ */
+@IntegrationTest
+@AutoConfigureMockMvc(addFilters = false)
+class TrainingIngestionIntegrationTest extends IntegrationTestBase {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TrainingBatchIngestor batchIngestor;
+
+    @Test
+    void shouldQueueTrainingAndCreateItInBackground_whenPreferringAsyncResponse() throws Exception {
+        User user = existingUser(new User(randomUUID().toString(), randomUUID().toString(), now(), randomUUID().toString()));
+
+        String requestBody = """
+                {
+                    "userId": "%s",
+                    "startTime": "2024-04-01T11:00:00",
+                    "endTime": "2024-04-01T12:00:00",
+                    "activityType": "RUNNING",
+                    "distance": 10.52,
+                    "averageSpeed": 8.2
+                }
+                """.formatted(user.getId());
+
+        String location = mockMvc.perform(post("/v1/trainings")
+                        .header("Prefer", "respond-async")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody))
+                .andDo(log())
+                .andExpect(status().isAccepted())
+                .andExpect(header().exists("Location"))
+                .andExpect(jsonPath("$.status").value("QUEUED"))
+                .andReturn().getResponse().getHeader("Location");
+
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() -> mockMvc.perform(get(location))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("CREATED")));
+
+        Long trainingId = objectMapper.readTree(mockMvc.perform(get(location)).andReturn().getResponse()
+                .getContentAsString()).get("trainingId").asLong();
+        assertThat(getAllTrainings())
+                .singleElement()
+                .satisfies(training -> {
+                    assertThat(training.getId()).isEqualTo(trainingId);
+                    assertThat(training.getDistance()).isEqualTo(10.52);
+                });
+    }
+
+    @Test
+    void shouldQueueTraining_whenAsyncResponseIsPreferredAmongOtherPreferences() throws Exception {
+        User user = existingUser(new User(randomUUID().toString(), randomUUID().toString(), now(), randomUUID().toString()));
+
+        String requestBody = """
+                {
+                    "userId": "%s",
+                    "startTime": "2024-04-01T11:00:00",
+                    "endTime": "2024-04-01T12:00:00",
+                    "activityType": "RUNNING",
+                    "distance": 10.52,
+                    "averageSpeed": 8.2
+                }
+                """.formatted(user.getId());
+
+        mockMvc.perform(post("/v1/trainings")
+                        .header("Prefer", "Respond-Async, wait=5")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody))
+                .andDo(log())
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.status").value("QUEUED"));
+        mockMvc.perform(post("/v1/trainings")
+                        .header("Prefer", "return=minimal", "wait=5; respond-async")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody))
+                .andDo(log())
+                .andExpect(status().isCreated());
+
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() -> assertThat(getAllTrainings()).hasSize(2));
+    }
+
+    @Test
+    void shouldCreateTrainingOnce_whenSubmittingSameAsyncRequestTwice() throws Exception {
+        User user = existingUser(new User(randomUUID().toString(), randomUUID().toString(), now(), randomUUID().toString()));
+        String idempotencyKey = randomUUID().toString();
+
+        String requestBody = """
+                {
+                    "userId": "%s",
+                    "startTime": "2024-04-01T11:00:00",
+                    "endTime": "2024-04-01T12:00:00",
+                    "activityType": "RUNNING",
+                    "distance": 10.52,
+                    "averageSpeed": 8.2
+                }
+                """.formatted(user.getId());
+
+        List<String> locations = new ArrayList<>();
+        for (int attempt = 0; attempt < 2; attempt++) {
+            locations.add(mockMvc.perform(post("/v1/trainings")
+                            .header("Prefer", "respond-async")
+                            .header("Idempotency-Key", idempotencyKey)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(requestBody))
+                    .andDo(log())
+                    .andExpect(status().isAccepted())
+                    .andReturn().getResponse().getHeader("Location"));
+        }
+
+        for (String location : locations) {
+            await().atMost(Duration.ofSeconds(10)).untilAsserted(() -> mockMvc.perform(get(location))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.status").value("CREATED")));
+        }
+
+        List<Long> trainingIds = new ArrayList<>();
+        for (String location : locations) {
+            trainingIds.add(objectMapper.readTree(mockMvc.perform(get(location)).andReturn().getResponse()
+                    .getContentAsString()).get("trainingId").asLong());
+        }
+        assertThat(getAllTrainings())
+                .singleElement()
+                .extracting(Training::getId)
+                .isEqualTo(trainingIds.get(0))
+                .isEqualTo(trainingIds.get(1));
+    }
+
+    @Test
+    void shouldCreateTrainingOnce_whenReplayingTrainingWithSameKey() {
+        User user = existingUser(new User(randomUUID().toString(), randomUUID().toString(), now(), randomUUID().toString()));
+        CreateTrainingDTO training = new CreateTrainingDTO(null, user.getId(), new Date(1_700_000_000_000L),
+                new Date(1_700_003_600_000L), ActivityType.RUNNING, 10, 10);
+        List<String> keys = List.of("ingestion-" + randomUUID());
+
+        TrainingBatchResult first = batchIngestor.ingest(List.of(training), keys).get(0);
+        TrainingBatchResult replayed = batchIngestor.ingest(List.of(training), keys).get(0);
+
+        assertThat(first.status()).isEqualTo(TrainingBatchResult.Status.CREATED);
+        assertThat(replayed).isEqualTo(first);
+        assertThat(getAllTrainings()).singleElement().extracting(Training::getId).isEqualTo(first.id());
+    }
+
+    @Test
+    void shouldReturnNotFound_whenTicketIsUnknown() throws Exception {
+        mockMvc.perform(get("/v1/trainings/ingestion/{ticket}", randomUUID().toString()))
+                .andExpect(status().isNotFound());
+    }
+}
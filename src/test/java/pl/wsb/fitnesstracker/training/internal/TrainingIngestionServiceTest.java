@@ -0,0 +1,159 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TrainingIngestionServiceTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = Jackson2ObjectMapperBuilder.json().build();
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    TrainingBatchIngestor batchIngestor;
+
+    private TrainingIngestionProperties properties;
+
+    private TrainingIngestionLog ingestionLog;
+
+    private TrainingIngestionService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        properties = new TrainingIngestionProperties(2, directory.resolve("ingestion.log"));
+        ingestionLog = new TrainingIngestionLog(properties, OBJECT_MAPPER);
+        service = new TrainingIngestionService(properties, ingestionLog, batchIngestor);
+        service.recover();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        ingestionLog.close();
+    }
+
+    @Test
+    void shouldRefuseSubmission_whenBufferIsFull() {
+        assertThat(service.submit(training(1L))).isPresent();
+        assertThat(service.submit(training(2L))).isPresent();
+
+        assertThat(service.submit(training(3L))).isEmpty();
+        assertThat(service.queued()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldWriteQueuedTrainingsInOneBatch_andTruncateLog() throws IOException {
+        String first = service.submit(training(1L)).orElseThrow().ticket();
+        String second = service.submit(training(2L)).orElseThrow().ticket();
+        when(batchIngestor.ingest(anyList(), anyList())).thenReturn(List.of(
+                TrainingBatchResult.created(0, 10L), TrainingBatchResult.rejected(1, "User with ID 2 not found")));
+
+        service.writePending();
+
+        verify(batchIngestor).ingest(List.of(training(1L), training(2L)),
+                List.of("ingestion-" + first, "ingestion-" + second));
+        assertThat(service.getTicket(first)).contains(
+                new TrainingIngestionTicket(first, TrainingIngestionTicket.Status.CREATED, 10L, null));
+        assertThat(service.getTicket(second)).contains(new TrainingIngestionTicket(second,
+                TrainingIngestionTicket.Status.REJECTED, null, "User with ID 2 not found"));
+        assertThat(service.queued()).isZero();
+        assertThat(Files.size(properties.getLogFile())).isZero();
+    }
+
+    @Test
+    void shouldWriteLoggedTrainings_whenRecoveringAfterRestart() throws IOException {
+        String ticket = service.submit(training(1L)).orElseThrow().ticket();
+        ingestionLog.close();
+        when(batchIngestor.ingest(List.of(training(1L)), List.of("ingestion-" + ticket)))
+                .thenReturn(List.of(TrainingBatchResult.created(0, 10L)));
+
+        ingestionLog = new TrainingIngestionLog(properties, OBJECT_MAPPER);
+        TrainingIngestionService restarted = new TrainingIngestionService(properties, ingestionLog, batchIngestor);
+        restarted.recover();
+
+        assertThat(restarted.getTicket(ticket)).contains(
+                new TrainingIngestionTicket(ticket, TrainingIngestionTicket.Status.CREATED, 10L, null));
+        assertThat(ingestionLog.readPending()).isEmpty();
+    }
+
+    @Test
+    void shouldWriteTrainingWithClientKey_whenRecoveringAfterRestart() throws IOException {
+        String ticket = service.submit(training(1L), "client-key").orElseThrow().ticket();
+        ingestionLog.close();
+        when(batchIngestor.ingest(List.of(training(1L)), List.of("client-key")))
+                .thenReturn(List.of(TrainingBatchResult.created(0, 10L)));
+
+        ingestionLog = new TrainingIngestionLog(properties, OBJECT_MAPPER);
+        TrainingIngestionService restarted = new TrainingIngestionService(properties, ingestionLog, batchIngestor);
+        restarted.recover();
+
+        assertThat(restarted.getTicket(ticket)).contains(
+                new TrainingIngestionTicket(ticket, TrainingIngestionTicket.Status.CREATED, 10L, null));
+        verify(batchIngestor).ingest(List.of(training(1L)), List.of("client-key"));
+    }
+
+    @Test
+    void shouldRetryBatchWithSameKeys_whenIngestionFails() {
+        String ticket = service.submit(training(1L)).orElseThrow().ticket();
+        when(batchIngestor.ingest(List.of(training(1L)), List.of("ingestion-" + ticket)))
+                .thenThrow(new CannotCreateTransactionException("Database is down"))
+                .thenReturn(List.of(TrainingBatchResult.created(0, 10L)));
+
+        service.writePending();
+
+        assertThat(service.getTicket(ticket).orElseThrow().status()).isEqualTo(TrainingIngestionTicket.Status.QUEUED);
+        assertThat(ingestionLog.readPending()).containsOnlyKeys(ticket);
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> {
+            service.writePending();
+            assertThat(service.getTicket(ticket).orElseThrow().status())
+                    .isEqualTo(TrainingIngestionTicket.Status.CREATED);
+        });
+        assertThat(ingestionLog.readPending()).isEmpty();
+        verify(batchIngestor, times(2)).ingest(List.of(training(1L)), List.of("ingestion-" + ticket));
+    }
+
+    @Test
+    void shouldCompleteOnlyDefinitiveOutcomes_whenSomeTrainingsFailed() throws IOException {
+        String created = service.submit(training(1L)).orElseThrow().ticket();
+        String failed = service.submit(training(2L)).orElseThrow().ticket();
+        when(batchIngestor.ingest(anyList(), anyList())).thenReturn(List.of(
+                TrainingBatchResult.created(0, 10L), TrainingBatchResult.failed(1, "Failed to persist training")));
+
+        service.writePending();
+
+        assertThat(service.getTicket(created).orElseThrow().status())
+                .isEqualTo(TrainingIngestionTicket.Status.CREATED);
+        assertThat(service.getTicket(failed).orElseThrow().status()).isEqualTo(TrainingIngestionTicket.Status.QUEUED);
+        assertThat(ingestionLog.readPending()).containsOnlyKeys(failed);
+        assertThat(Files.size(properties.getLogFile())).isPositive();
+    }
+
+    private static CreateTrainingDTO training(Long userId) {
+        return new CreateTrainingDTO(null, userId, new Date(1_700_000_000_000L), new Date(1_700_003_600_000L),
+                ActivityType.RUNNING, 10, 10);
+    }
+}
@@ -0,0 +1,97 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrainingIntervalIndexTest {
+
+    private TrainingIntervalIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new TrainingIntervalIndex();
+        index.put(1L, 800, 930);
+        index.put(2L, 900, 1100);
+        index.put(3L, 1200, 1300);
+    }
+
+    @Test
+    void shouldFindTrainingsByRangeRelation() {
+        assertThat(index.findActiveAt(915)).containsExactly(1L, 2L);
+        assertThat(index.findActiveAt(1130)).isEmpty();
+        assertThat(index.findOverlapping(945, 1230)).containsExactly(2L, 3L);
+        assertThat(index.findOverlapping(1300, 1400)).containsExactly(3L);
+        assertThat(index.findContaining(900, 930)).containsExactly(1L, 2L);
+        assertThat(index.findContaining(900, 1000)).containsExactly(2L);
+    }
+
+    @Test
+    void shouldMoveTraining_whenRangeChanges() {
+        long[] previous = index.put(1L, 1000, 1030);
+
+        assertThat(previous).containsExactly(800, 930);
+        assertThat(index.findActiveAt(900)).containsExactly(2L);
+        assertThat(index.findActiveAt(1015)).containsExactly(2L, 1L);
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldForgetTraining_whenRemoved() {
+        index.remove(2L);
+        index.remove(42L);
+
+        assertThat(index.findActiveAt(915)).containsExactly(1L);
+        assertThat(index.size()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldMatchBruteForce_forRandomIntervals() {
+        Random random = new Random(7);
+        Map<Long, long[]> intervals = new HashMap<>();
+        for (long id = 10; id < 2_000; id++) {
+            long start = random.nextInt(10_000);
+            long[] interval = {start, start + random.nextInt(500)};
+            intervals.put(id, interval);
+            index.put(id, interval[0], interval[1]);
+        }
+        for (long id = 10; id < 2_000; id += 3) {
+            intervals.remove(id);
+            index.remove(id);
+        }
+        index.remove(1L);
+        index.remove(2L);
+        index.remove(3L);
+
+        for (int i = 0; i < 200; i++) {
+            long from = random.nextInt(10_500);
+            long to = from + random.nextInt(300);
+            assertThat(sorted(index.findOverlapping(from, to)))
+                    .containsExactly(bruteForce(intervals, to, from));
+            assertThat(sorted(index.findContaining(from, to)))
+                    .containsExactly(bruteForce(intervals, from, to));
+            assertThat(sorted(index.findActiveAt(from)))
+                    .containsExactly(bruteForce(intervals, from, from));
+        }
+    }
+
+    private static long[] bruteForce(Map<Long, long[]> intervals, long maxStart, long minEnd) {
+        return intervals.entrySet().stream()
+                .filter(entry -> entry.getValue()[0] <= maxStart && entry.getValue()[1] >= minEnd)
+                .mapToLong(Map.Entry::getKey)
+                .sorted()
+                .toArray();
+    }
+
+    private static long[] sorted(long[] ids) {
+        long[] copy = ids.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+}
@@ -0,0 +1,118 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import pl.wsb.fitnesstracker.Benchmark;
+import pl.wsb.fitnesstracker.training.api.Training;
+import pl.wsb.fitnesstracker.user.api.User;
+import pl.wsb.fitnesstracker.user.internal.UserRepository;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Benchmark
+@SpringBootTest
+class TrainingRangeQueryBenchmark {
+
+    private static final int[] TABLE_SIZES = {10_000, 50_000, 100_000};
+
+    private static final int RESULT_SIZE = 100;
+
+    private static final int USERS = 100;
+
+    private static final int ROUNDS = 50;
+
+    private static final Date WINDOW_START = date(LocalDate.of(2024, 1, 1));
+
+    private static final Date WINDOW_END = date(LocalDate.of(2024, 3, 1));
+
+    @Autowired
+    private TrainingRepository trainingRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void cleanUp() {
+        trainingRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void rangeQueryLatencyShouldFollowResultSize_whenTableGrows() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            users.add(new User(randomUUID().toString(), randomUUID().toString(), LocalDate.of(1990, 1, 1),
+                    randomUUID() + "@domain.com"));
+        }
+        users = userRepository.saveAll(users);
+
+        List<Training> recent = new ArrayList<>();
+        for (int i = 0; i < RESULT_SIZE; i++) {
+            Date start = date(LocalDate.of(2024, 1, 10).plusDays(i % 40));
+            recent.add(new Training(users.get(i % USERS), start, new Date(start.getTime() + 3_600_000),
+                    ActivityType.RUNNING, 10, 10));
+        }
+        trainingRepository.saveAll(recent);
+
+        Map<Integer, double[]> microsPerQuery = new LinkedHashMap<>();
+        int populated = RESULT_SIZE;
+        for (int tableSize : TABLE_SIZES) {
+            populateHistory(users, tableSize - populated);
+            populated = tableSize;
+
+            double endDateAfter = measure(() -> trainingRepository.findByEndDateAfter(WINDOW_START));
+            double dateRange = measure(() -> trainingRepository.findByDateRange(WINDOW_START, WINDOW_END));
+            microsPerQuery.put(tableSize, new double[]{endDateAfter, dateRange});
+        }
+
+        microsPerQuery.forEach((tableSize, micros) -> System.out.printf(
+                "trainings=%-7d findByEndDateAfter=%8.1f us  findByDateRange=%8.1f us%n",
+                tableSize, micros[0], micros[1]));
+
+        double[] smallest = microsPerQuery.get(TABLE_SIZES[0]);
+        double[] largest = microsPerQuery.get(TABLE_SIZES[TABLE_SIZES.length - 1]);
+        assertThat(largest[0]).isLessThan(smallest[0] * 3);
+        assertThat(largest[1]).isLessThan(smallest[1] * 3);
+    }
+
+    private void populateHistory(List<User> users, int count) {
+        List<Training> chunk = new ArrayList<>(1_000);
+        for (int i = 0; i < count; i++) {
+            Date start = date(LocalDate.of(2015, 1, 1).plusDays(i % 3_000));
+            chunk.add(new Training(users.get(i % USERS), start, new Date(start.getTime() + 3_600_000),
+                    ActivityType.values()[i % ActivityType.values().length], 5, 8));
+            if (chunk.size() == 1_000) {
+                trainingRepository.saveAll(chunk);
+                chunk.clear();
+            }
+        }
+        trainingRepository.saveAll(chunk);
+    }
+
+    private static double measure(Supplier<List<Training>> query) {
+        for (int i = 0; i < ROUNDS; i++) {
+            assertThat(query.get()).hasSize(RESULT_SIZE); // warm-up
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            query.get();
+        }
+        return (System.nanoTime() - start) / 1_000.0 / ROUNDS;
+    }
+
+    private static Date date(LocalDate date) {
+        return Date.from(date.atStartOfDay().toInstant(ZoneOffset.UTC));
+    }
+}
@@ -4,32 +4,50 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.http.MediaType;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.test.context.transaction.TestTransaction;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
 import pl.wsb.fitnesstracker.IntegrationTest;
 import pl.wsb.fitnesstracker.IntegrationTestBase;
+import pl.wsb.fitnesstracker.training.api.Training;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
 import pl.wsb.fitnesstracker.user.api.User;
+import pl.wsb.fitnesstracker.user.api.UserRemovedEvent;
 
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.Date;
 import java.util.List;
 
 import static java.time.format.DateTimeFormatter.ISO_DATE;
 import static java.util.UUID.randomUUID;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.closeTo;
 import static org.hamcrest.Matchers.hasSize;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.log;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @IntegrationTest
 @Transactional
+@RecordApplicationEvents
 @AutoConfigureMockMvc(addFilters = false)
 class UserApiIntegrationTest extends IntegrationTestBase {
 
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private UserRemovalService userRemovalService;
+
+    @Autowired
+    private ApplicationEvents events;
+
     public static User generateUser() {
         return new User(randomUUID().toString(), randomUUID().toString(), LocalDate.now(), randomUUID().toString());
     }
@@ -76,6 +94,43 @@ class UserApiIntegrationTest extends IntegrationTestBase {
                 .andExpect(jsonPath("$[2]").doesNotExist());
     }
 
+    @Test
+    void shouldReturnUsersPageByPage_whenGettingUsersWithLimit() throws Exception {
+        User user1 = existingUser(generateUser());
+        User user2 = existingUser(generateUser());
+        User user3 = existingUser(generateUser());
+
+        mockMvc.perform(get("/v1/users").param("limit", "2").contentType(MediaType.APPLICATION_JSON))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(header().string(UserController.NEXT_PAGE_HEADER, user2.getId().toString()))
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].id").value(user1.getId().intValue()))
+                .andExpect(jsonPath("$[1].id").value(user2.getId().intValue()));
+
+        mockMvc.perform(get("/v1/users/simple")
+                        .param("after", user2.getId().toString())
+                        .param("limit", "2")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(UserController.NEXT_PAGE_HEADER))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(user3.getId().intValue()))
+                .andExpect(jsonPath("$[0].firstName").value(user3.getFirstName()))
+                .andExpect(jsonPath("$[0].email").doesNotExist());
+    }
+
+    @Test
+    void shouldReturnBadRequest_whenPageLimitIsOutOfRange() throws Exception {
+        mockMvc.perform(get("/v1/users").param("limit", "0"))
+                .andDo(log())
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/v1/users/simple").param("limit", String.valueOf(UserServiceImpl.MAX_PAGE_SIZE + 1)))
+                .andDo(log())
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void shouldReturnDetailsAboutUser_whenGettingUserById() throws Exception {
         User user1 = existingUser(generateUser());
@@ -91,6 +146,29 @@ class UserApiIntegrationTest extends IntegrationTestBase {
 
     }
 
+    @Test
+    void shouldReturnRequestedUsers_whenGettingUsersByIds() throws Exception {
+        User user1 = existingUser(generateUser());
+        existingUser(generateUser());
+        User user3 = existingUser(generateUser());
+
+        mockMvc.perform(get("/v1/users").param("ids", user3.getId() + "," + user1.getId() + ",999999"))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].id").value(user3.getId()))
+                .andExpect(jsonPath("$[1].id").value(user1.getId()));
+    }
+
+    @Test
+    void shouldReturnBadRequest_whenGettingUsersByIdsWithLimit() throws Exception {
+        User user = existingUser(generateUser());
+
+        mockMvc.perform(get("/v1/users").param("ids", String.valueOf(user.getId())).param("limit", "5"))
+                .andDo(log())
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void shouldReturnNotFound_whenGettingNonExistentUserId() throws Exception {
         final Long nonExistentId = 999L;
@@ -167,6 +245,88 @@ class UserApiIntegrationTest extends IntegrationTestBase {
                 .andExpect(jsonPath("$[1]").doesNotExist());
     }
 
+    @Test
+    void shouldReturnUsersBornBetween_whenGettingUsersBornBetween() throws Exception {
+        existingUser(generateUserWithDate(LocalDate.of(1985, 3, 1)));
+        User user2 = existingUser(generateUserWithDate(LocalDate.of(1990, 1, 1)));
+        User user3 = existingUser(generateUserWithDate(LocalDate.of(1995, 12, 31)));
+        existingUser(generateUserWithDate(LocalDate.of(1996, 1, 1)));
+
+        mockMvc.perform(get("/v1/users/born")
+                        .param("from", "1990-01-01")
+                        .param("to", "1995-12-31")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].id").value(user2.getId().intValue()))
+                .andExpect(jsonPath("$[1].id").value(user3.getId().intValue()));
+    }
+
+    @Test
+    void shouldReturnBadRequest_whenBirthdateRangeIsReversed() throws Exception {
+        mockMvc.perform(get("/v1/users/born").param("from", "1995-12-31").param("to", "1990-01-01"))
+                .andDo(log())
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/v1/users/age-buckets").param("size", "0"))
+                .andDo(log())
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldReturnBadRequest_whenAgeBucketSizeIsTooLarge() throws Exception {
+        existingUser(generateUserWithDate(LocalDate.of(1990, 1, 1)));
+
+        mockMvc.perform(get("/v1/users/age-buckets").param("size", String.valueOf(Integer.MAX_VALUE)))
+                .andDo(log())
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/v1/users/age-buckets").param("size", "151"))
+                .andDo(log())
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/v1/users/age-buckets").param("size", "150"))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].count").value(1));
+    }
+
+    @Test
+    void shouldCountUsersInAgeBuckets_whenGettingAgeBuckets() throws Exception {
+        existingUser(generateUserWithDate(LocalDate.now().minusYears(5)));
+        existingUser(generateUserWithDate(LocalDate.now().minusYears(25)));
+        existingUser(generateUserWithDate(LocalDate.now().minusYears(29).minusDays(1)));
+
+        mockMvc.perform(get("/v1/users/age-buckets").param("size", "10").contentType(MediaType.APPLICATION_JSON))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("$[0].fromAge").value(0))
+                .andExpect(jsonPath("$[0].count").value(1))
+                .andExpect(jsonPath("$[1].fromAge").value(10))
+                .andExpect(jsonPath("$[1].count").value(0))
+                .andExpect(jsonPath("$[2].fromAge").value(20))
+                .andExpect(jsonPath("$[2].toAge").value(30))
+                .andExpect(jsonPath("$[2].count").value(2));
+    }
+
+    @Test
+    void shouldReturnPopulationAnalytics_whenGettingAnalytics() throws Exception {
+        existingUser(new User("John", "Doe", LocalDate.now().minusYears(30), "john@example.com"));
+        existingUser(new User("Jane", "Doe", LocalDate.now().minusYears(20), "jane@EXAMPLE.com"));
+        existingUser(new User("Bob", "Smith", LocalDate.now().minusYears(40), "bob@other.com"));
+
+        mockMvc.perform(get("/v1/users/analytics").contentType(MediaType.APPLICATION_JSON))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.userCount").value(3))
+                .andExpect(jsonPath("$.averageAge").value(closeTo(30.0, 0.1)))
+                .andExpect(jsonPath("$.usersByEmailDomain['example.com']").value(2))
+                .andExpect(jsonPath("$.usersByEmailDomain['other.com']").value(1))
+                .andExpect(jsonPath("$.ageDistribution[2].count").value(1))
+                .andExpect(jsonPath("$.ageDistribution[3].count").value(1))
+                .andExpect(jsonPath("$.ageDistribution[4].count").value(1))
+                .andExpect(jsonPath("$.signupsByMonth['" + YearMonth.now(ZoneOffset.UTC) + "']").value(3));
+    }
+
     @Test
     void shouldRemoveUserFromRepository_whenDeletingClient() throws Exception {
         User user1 = existingUser(generateUser());
@@ -175,13 +335,68 @@ class UserApiIntegrationTest extends IntegrationTestBase {
         mockMvc.perform(delete("/v1/users/{userId}", user1.getId())
                         .contentType(MediaType.APPLICATION_JSON))
                 .andDo(log())
-                .andExpect(status().isNoContent());
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.status").value("PENDING"));
+
+        userRemovalService.runPendingJobs();
 
         List<User> allUser = getAllUsers();
         assertThat(allUser).isEmpty();
 
     }
 
+    @Test
+    void shouldRemoveTrainingsInChunksAndReportProgress_whenDeletingUserWithTrainings() throws Exception {
+        User user = existingUser(generateUser());
+        User otherUser = existingUser(generateUser());
+        int trainingCount = UserRemovalService.CHUNK_SIZE + 3;
+        for (int i = 0; i < trainingCount; i++) {
+            persistTraining(new Training(user, new Date(), new Date(), ActivityType.RUNNING, 5, 10));
+        }
+        persistTraining(new Training(otherUser, new Date(), new Date(), ActivityType.RUNNING, 5, 10));
+
+        String location = mockMvc.perform(delete("/v1/users/{userId}", user.getId()))
+                .andExpect(status().isAccepted())
+                .andReturn().getResponse().getHeader("Location");
+
+        userRemovalService.runPendingJobs();
+
+        mockMvc.perform(get(location))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("COMPLETED"))
+                .andExpect(jsonPath("$.removedRows").value(trainingCount));
+        assertThat(getAllUsers()).extracting(User::getId).containsExactly(otherUser.getId());
+        assertThat(events.stream(UserRemovedEvent.class)).containsExactly(new UserRemovedEvent(user.getId()));
+    }
+
+    @Test
+    void shouldAdvanceOnlyOldestJob_whenRunningPendingJobs() throws Exception {
+        User first = existingUser(generateUser());
+        User second = existingUser(generateUser());
+        mockMvc.perform(delete("/v1/users/{userId}", first.getId())).andExpect(status().isAccepted());
+        String location = mockMvc.perform(delete("/v1/users/{userId}", second.getId()))
+                .andExpect(status().isAccepted())
+                .andReturn().getResponse().getHeader("Location");
+
+        userRemovalService.runPendingJobs();
+
+        assertThat(getAllUsers()).extracting(User::getId).containsExactly(second.getId());
+        mockMvc.perform(get(location))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("PENDING"));
+
+        userRemovalService.runPendingJobs();
+
+        assertThat(getAllUsers()).isEmpty();
+    }
+
+    @Test
+    void shouldReturnNotFound_whenDeletingNonExistentUser() throws Exception {
+        mockMvc.perform(delete("/v1/users/{userId}", 999999L))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void shouldPersistUser_whenCreatingUser() throws Exception {
 
@@ -258,5 +473,103 @@ class UserApiIntegrationTest extends IntegrationTestBase {
         assertThat(user.getEmail()).isEqualTo(USER_EMAIL);
     }
 
+    @Test
+    void shouldImportValidUsersAndReportRejectedOnes_whenImportingNdjson() throws Exception {
+        existingUser(new User("John", "Doe", LocalDate.of(1990, 1, 1), "john.doe@domain.com"));
+
+        String importRequest = """
+                {"firstName": "Mike", "lastName": "Scott", "birthdate": "1999-09-29", "email": "mike.scott@domain.com"}
+                {"firstName": "Jane", "lastName": "Doe", "birthdate": "1991-02-03", "email": "JOHN.DOE@domain.com"}
+                {"firstName": "", "lastName": "Smith", "birthdate": "1992-03-04", "email": "smith@domain.com"}
+                not a json
+                {"firstName": "Mike", "lastName": "Other", "birthdate": "1993-04-05", "email": "Mike.Scott@domain.com"}
+                """;
+
+        String report = mockMvc.perform(post("/v1/users/import")
+                        .contentType(UserController.APPLICATION_NDJSON_VALUE)
+                        .content(importRequest))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(report.lines().toList())
+                .hasSize(5)
+                .satisfies(lines -> {
+                    assertThat(lines.get(0)).contains("\"line\":1", "\"status\":\"CREATED\"", "\"id\":");
+                    assertThat(lines.get(1)).contains("\"line\":2", "REJECTED", "Email is already in use");
+                    assertThat(lines.get(2)).contains("\"line\":3", "REJECTED", "First name is required");
+                    assertThat(lines.get(3)).contains("\"line\":4", "REJECTED", "Malformed JSON record");
+                    assertThat(lines.get(4)).contains("\"line\":5", "REJECTED", "Email is already in use");
+                });
+        assertThat(getAllUsers()).extracting(User::getEmail)
+                .containsExactlyInAnyOrder("john.doe@domain.com", "mike.scott@domain.com");
+    }
 
+    @Test
+    void shouldRetryRecordsOneByOne_whenImportedChunkFails() throws Exception {
+        // the import commits on its own, so it must not join the test transaction
+        TestTransaction.end();
+        String record = """
+                {"firstName": "%s", "lastName": "Doe", "birthdate": "1990-01-01", "email": "%s"}
+                """;
+        StringBuilder importRequest = new StringBuilder(record.formatted("x".repeat(300), "jane.doe@domain.com"));
+        for (int i = 1; i < UserImporter.CHUNK_SIZE; i++) {
+            importRequest.append(record.formatted("Jane", "jane.doe" + i + "@domain.com"));
+        }
+        importRequest.append(record.formatted("Jane", "Jane.Doe@domain.com"));
+
+        String report = mockMvc.perform(post("/v1/users/import")
+                        .contentType(UserController.APPLICATION_NDJSON_VALUE)
+                        .content(importRequest.toString()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        TestTransaction.start();
+        // committed as well, so the clean-up removes the rows committed above
+        TestTransaction.flagForCommit();
+
+        List<String> lines = report.lines().toList();
+        assertThat(lines).hasSize(UserImporter.CHUNK_SIZE + 1);
+        assertThat(lines.get(0)).contains("\"line\":1", "REJECTED", "Failed to persist user");
+        assertThat(lines.subList(1, lines.size())).allSatisfy(line -> assertThat(line).contains("CREATED"));
+        assertThat(getAllUsers()).hasSize(UserImporter.CHUNK_SIZE)
+                .extracting(User::getEmail)
+                .contains("Jane.Doe@domain.com");
+    }
+
+    @Test
+    void shouldImportUsers_whenImportingCsv() throws Exception {
+        String importRequest = """
+                email,firstName,lastName,birthdate
+                mike.scott@domain.com,Mike,Scott,1999-09-29
+                "jane.doe@domain.com","Doe, Jane",Doe,1991-02-03
+                smith@domain.com,John,Smith,not-a-date
+                """;
+
+        String report = mockMvc.perform(post("/v1/users/import")
+                        .contentType(UserController.TEXT_CSV_VALUE)
+                        .content(importRequest))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(report.lines().toList())
+                .hasSize(3)
+                .satisfies(lines -> {
+                    assertThat(lines.get(0)).contains("\"line\":2", "CREATED");
+                    assertThat(lines.get(1)).contains("\"line\":3", "CREATED");
+                    assertThat(lines.get(2)).contains("\"line\":4", "REJECTED", "Invalid birthdate");
+                });
+        assertThat(getAllUsers()).extracting(User::getFirstName).containsExactlyInAnyOrder("Mike", "Doe, Jane");
+    }
+
+    @Test
+    void shouldReturnBadRequest_whenImportedCsvHeaderLacksColumn() throws Exception {
+        mockMvc.perform(post("/v1/users/import")
+                        .contentType(UserController.TEXT_CSV_VALUE)
+                        .content("email,firstName,lastName\nmike.scott@domain.com,Mike,Scott\n"))
+                .andDo(log())
+                .andExpect(status().isBadRequest());
+
+        assertThat(getAllUsers()).isEmpty();
+    }
 }
@@ -0,0 +1,62 @@
+package pl.wsb.fitnesstracker.user.internal;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserBirthdateIndexTest {
+
+    private UserBirthdateIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new UserBirthdateIndex();
+        index.put(1L, LocalDate.of(1990, 5, 1));
+        index.put(2L, LocalDate.of(1980, 1, 1));
+        index.put(3L, LocalDate.of(2000, 1, 1));
+        index.put(4L, LocalDate.of(1990, 5, 1));
+    }
+
+    @Test
+    void shouldReturnSliceOrderedByBirthdate() {
+        assertThat(index.findBornBetween(LocalDate.MIN, LocalDate.of(1995, 1, 1))).containsExactly(2L, 1L, 4L);
+        assertThat(index.findBornBetween(LocalDate.of(1990, 5, 1), LocalDate.of(1990, 5, 2))).containsExactly(1L, 4L);
+        assertThat(index.findBornBetween(LocalDate.of(2001, 1, 1), LocalDate.MAX)).isEmpty();
+    }
+
+    @Test
+    void shouldCountUsersBornBefore() {
+        assertThat(index.countBornBefore(LocalDate.of(1980, 1, 1))).isZero();
+        assertThat(index.countBornBefore(LocalDate.of(1990, 5, 2))).isEqualTo(3);
+        assertThat(index.countBornBefore(LocalDate.MAX)).isEqualTo(4);
+    }
+
+    @Test
+    void shouldMoveUser_whenBirthdateChanges() {
+        LocalDate previous = index.put(3L, LocalDate.of(1970, 1, 1));
+
+        assertThat(previous).isEqualTo(LocalDate.of(2000, 1, 1));
+        assertThat(index.findBornBetween(LocalDate.MIN, LocalDate.MAX)).containsExactly(3L, 2L, 1L, 4L);
+    }
+
+    @Test
+    void shouldDropUser_whenRemoved() {
+        index.remove(1L);
+
+        assertThat(index.size()).isEqualTo(3);
+        assertThat(index.findBornBetween(LocalDate.MIN, LocalDate.MAX)).containsExactly(2L, 4L, 3L);
+    }
+
+    @Test
+    void shouldGrowBeyondInitialCapacity() {
+        for (long id = 100; id < 5_000; id++) {
+            index.put(id, LocalDate.of(2010, 1, 1).minusDays(id));
+        }
+
+        assertThat(index.size()).isEqualTo(4_904);
+        assertThat(index.countBornBefore(LocalDate.of(2010, 1, 1).minusDays(4_998))).isEqualTo(4);
+    }
+}
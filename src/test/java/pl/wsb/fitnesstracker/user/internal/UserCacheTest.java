@@ -0,0 +1,97 @@
+package pl.wsb.fitnesstracker.user.internal;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import pl.wsb.fitnesstracker.user.api.User;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserCacheTest {
+
+    private final UserCache cache = new UserCache(2);
+
+    @Test
+    void shouldCountHitsAndMisses() {
+        assertThat(cache.get(1L)).isEmpty();
+
+        cache.putAfterCommit(user(1L), cache.version(1L));
+
+        assertThat(cache.get(1L)).hasValueSatisfying(user -> assertThat(user.getEmail()).isEqualTo("user1@domain.com"));
+        assertThat(cache.hitCount()).isEqualTo(1);
+        assertThat(cache.missCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotCache_whenUserWasInvalidatedWhileLoading() {
+        long version = cache.version(1L);
+        cache.invalidate(1L);
+
+        cache.putAfterCommit(user(1L), version);
+
+        assertThat(cache.get(1L)).isEmpty();
+    }
+
+    @Test
+    void shouldCache_whenOtherUserWasInvalidatedWhileLoading() {
+        long version = cache.version(1L);
+        cache.invalidate(2L);
+
+        cache.putAfterCommit(user(1L), version);
+
+        assertThat(cache.get(1L)).isPresent();
+    }
+
+    @Test
+    void shouldDropUser_whenInvalidated() {
+        cache.putAfterCommit(user(1L), cache.version(1L));
+
+        cache.invalidate(1L);
+
+        assertThat(cache.get(1L)).isEmpty();
+    }
+
+    @Test
+    void shouldKeepFrequentlyReadUsers_whenFull() {
+        cache.putAfterCommit(user(1L), cache.version(1L));
+        cache.putAfterCommit(user(2L), cache.version(2L));
+        for (int i = 0; i < 5; i++) {
+            cache.get(1L);
+            cache.get(2L);
+        }
+
+        cache.get(3L);
+        cache.putAfterCommit(user(3L), cache.version(3L));
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get(3L)).isEmpty();
+        assertThat(cache.evictionCount()).isZero();
+
+        for (int i = 0; i < 10; i++) {
+            cache.get(3L);
+        }
+        cache.putAfterCommit(user(3L), cache.version(3L));
+
+        assertThat(cache.get(3L)).isPresent();
+        assertThat(cache.evictionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldPublishMetrics() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+
+        cache.get(1L);
+
+        assertThat(registry.get("cache.gets").tag("result", "miss").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("cache.gets").tag("result", "hit").functionCounter().count()).isZero();
+        assertThat(registry.get("cache.size").gauge().value()).isZero();
+    }
+
+    private static User user(long id) {
+        User user = new User("First" + id, "Last" + id, LocalDate.of(1990, 1, 1), "user" + id + "@domain.com");
+        user.setId(id);
+        return user;
+    }
+}
@@ -0,0 +1,50 @@
+package pl.wsb.fitnesstracker.user.internal;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserEmailTrigramIndexTest {
+
+    private UserEmailTrigramIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new UserEmailTrigramIndex();
+        index.add(1L, "john.doe@example.com");
+        index.add(2L, "jane.smith@EXAMPLE.com");
+        index.add(3L, "bob.johnson@othermail.com");
+    }
+
+    @Test
+    void shouldReturnCandidatesContainingAllGrams() {
+        assertThat(index.candidates("Example")).hasValueSatisfying(ids -> assertThat(ids).containsOnly(1L, 2L));
+        assertThat(index.candidates("john")).hasValueSatisfying(ids -> assertThat(ids).containsOnly(1L, 3L));
+        assertThat(index.candidates("xyz")).hasValueSatisfying(ids -> assertThat(ids).isEmpty());
+    }
+
+    @Test
+    void shouldNotAnswerQueriesShorterThanGram() {
+        assertThat(index.candidates("jo")).isEmpty();
+    }
+
+    @Test
+    void shouldKeepOldGramsUntilRetained_whenEmailChanges() {
+        index.add(1L, "johnny@mail.com");
+
+        assertThat(index.candidates("example")).hasValueSatisfying(ids -> assertThat(ids).contains(1L));
+
+        index.retain(1L, "johnny@mail.com");
+
+        assertThat(index.candidates("example")).hasValueSatisfying(ids -> assertThat(ids).containsOnly(2L));
+        assertThat(index.candidates("johnny")).hasValueSatisfying(ids -> assertThat(ids).containsOnly(1L));
+    }
+
+    @Test
+    void shouldDropUser_whenRemoved() {
+        index.remove(3L);
+
+        assertThat(index.candidates("othermail")).hasValueSatisfying(ids -> assertThat(ids).isEmpty());
+    }
+}
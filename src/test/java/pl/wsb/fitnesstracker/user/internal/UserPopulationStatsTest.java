@@ -0,0 +1,74 @@
+package pl.wsb.fitnesstracker.user.internal;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+class UserPopulationStatsTest {
+
+    private static final Instant JANUARY = Instant.parse("2024-01-15T10:00:00Z");
+
+    private static final Instant FEBRUARY = Instant.parse("2024-02-01T10:00:00Z");
+
+    private final UserPopulationStats stats = new UserPopulationStats();
+
+    @Test
+    void shouldCountUsersPerDomainAndSignupMonth() {
+        stats.put(1L, contribution("john@example.com", JANUARY, LocalDate.of(1990, 1, 1)));
+        stats.put(2L, contribution("jane@example.com", FEBRUARY, LocalDate.of(1980, 1, 1)));
+        stats.put(3L, contribution("bob@other.com", FEBRUARY, LocalDate.of(1970, 1, 1)));
+
+        UserPopulationStats.Snapshot snapshot = stats.snapshot();
+
+        assertThat(snapshot.userCount()).isEqualTo(3);
+        assertThat(snapshot.usersByEmailDomain()).containsOnly(entry("example.com", 2L), entry("other.com", 1L));
+        assertThat(snapshot.signupsByMonth())
+                .containsExactly(entry(YearMonth.of(2024, 1), 1L), entry(YearMonth.of(2024, 2), 2L));
+        assertThat(snapshot.birthdateEpochDaySum()).isEqualTo(LocalDate.of(1990, 1, 1).toEpochDay()
+                + LocalDate.of(1980, 1, 1).toEpochDay() + LocalDate.of(1970, 1, 1).toEpochDay());
+    }
+
+    @Test
+    void shouldMoveUserBetweenDomains_whenEmailChanges() {
+        stats.put(1L, contribution("john@example.com", JANUARY, LocalDate.of(1990, 1, 1)));
+
+        UserPopulationStats.Contribution previous =
+                stats.put(1L, contribution("john@other.com", JANUARY, LocalDate.of(1990, 1, 1)));
+
+        assertThat(previous.emailDomain()).isEqualTo("example.com");
+        assertThat(stats.snapshot().usersByEmailDomain()).containsOnly(entry("other.com", 1L));
+        assertThat(stats.snapshot().userCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldForgetUser_whenRemoved() {
+        stats.put(1L, contribution("john@example.com", JANUARY, LocalDate.of(1990, 1, 1)));
+
+        stats.remove(1L);
+
+        assertThat(stats.snapshot().userCount()).isZero();
+        assertThat(stats.snapshot().usersByEmailDomain()).isEmpty();
+        assertThat(stats.snapshot().signupsByMonth()).isEmpty();
+        assertThat(stats.snapshot().birthdateEpochDaySum()).isZero();
+    }
+
+    @Test
+    void shouldReuseSnapshot_untilNextChange() {
+        stats.put(1L, contribution("john@example.com", JANUARY, LocalDate.of(1990, 1, 1)));
+
+        UserPopulationStats.Snapshot snapshot = stats.snapshot();
+
+        assertThat(stats.snapshot()).isSameAs(snapshot);
+        stats.put(2L, contribution("jane@example.com", JANUARY, LocalDate.of(1990, 1, 1)));
+        assertThat(stats.snapshot()).isNotSameAs(snapshot);
+    }
+
+    private static UserPopulationStats.Contribution contribution(String email, Instant createdAt, LocalDate birthdate) {
+        return UserPopulationStats.Contribution.of(email, createdAt, birthdate);
+    }
+}
@@ -7,12 +7,18 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import pl.wsb.fitnesstracker.exception.api.BusinessException;
 import pl.wsb.fitnesstracker.user.api.User;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.junit.jupiter.api.Assertions.*;
@@ -24,13 +30,17 @@ class UserServiceImplTest {
     @Mock
     UserRepository userRepository;
 
+    @Mock
+    UserRemovalJobRepository removalJobRepository;
+
     private User user;
     private UserServiceImpl userServiceImpl;
 
     @BeforeEach
     void setUp() {
         user = new User("John", "Doe", LocalDate.of(1990, 1, 1), "<EMAIL>");
-        userServiceImpl = new UserServiceImpl(userRepository);
+        userServiceImpl = new UserServiceImpl(userRepository, new UserBirthdateIndex(), new UserCache(),
+                new UserPopulationStats(), removalJobRepository);
     }
 
     @Test
@@ -105,6 +115,37 @@ class UserServiceImplTest {
         assertEquals(user, result.get());
     }
 
+    @Test
+    void shouldReturnCachedUser_whenGettingSameUserAgain() {
+        Long userId = 1L;
+        user.setId(userId);
+        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+
+        userServiceImpl.getUser(userId);
+        Optional<User> result = userServiceImpl.getUser(userId);
+
+        assertTrue(result.isPresent());
+        assertEquals(user.getEmail(), result.get().getEmail());
+        assertNotSame(user, result.get());
+        verify(userRepository, times(1)).findById(userId);
+    }
+
+    @Test
+    void shouldReturnUsersByIds_loadingOnlyUncachedOnes() {
+        User cachedUser = new User("Jane", "Doe", LocalDate.of(1991, 2, 3), "jane@domain.com");
+        cachedUser.setId(1L);
+        user.setId(2L);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(cachedUser));
+        when(userRepository.findByIdIn(List.of(2L, 3L))).thenReturn(List.of(user));
+        userServiceImpl.getUser(1L);
+
+        Map<Long, User> result = userServiceImpl.getUsers(List.of(2L, 1L, 3L, 2L));
+
+        assertEquals(List.of(2L, 1L), List.copyOf(result.keySet()));
+        assertEquals(user, result.get(2L));
+        assertEquals(cachedUser.getEmail(), result.get(1L).getEmail());
+    }
+
     @Test
     void shouldReturnEmptyOptionalWhenUserNotFoundById() {
         Long userId = 999L;
@@ -127,6 +168,36 @@ class UserServiceImplTest {
         assertEquals(user, result.get());
     }
 
+    @Test
+    void shouldResolveEmailWithSingleQuery_whenUserWasCreatedByService() {
+        User saved = new User("John", "Doe", LocalDate.of(1990, 1, 1), "John.Doe@Example.com");
+        saved.setId(1L);
+        when(userRepository.findByEmail("<EMAIL>")).thenReturn(Optional.empty());
+        when(userRepository.save(user)).thenReturn(saved);
+        when(userRepository.findByEmail("john.doe@example.com")).thenReturn(Optional.of(saved));
+
+        userServiceImpl.createUser(user);
+        Optional<User> result = userServiceImpl.getUserByEmail("john.doe@example.com");
+
+        assertTrue(result.isPresent());
+        assertEquals(saved, result.get());
+        verify(userRepository, never()).findById(1L);
+    }
+
+    @Test
+    void shouldRejectEmailAlreadyInUse_whenCreatingUser() {
+        User existing = new User("Jane", "Doe", LocalDate.of(1990, 1, 1), "<email>");
+        existing.setId(2L);
+        when(userRepository.findByEmail("<EMAIL>")).thenReturn(Optional.of(existing));
+
+        IllegalArgumentException exception = assertThrows(
+                IllegalArgumentException.class,
+                () -> userServiceImpl.createUser(user)
+        );
+
+        assertEquals("Email is already in use", exception.getMessage());
+    }
+
     @Test
     void shouldReturnEmptyOptionalWhenUserNotFoundByEmail() {
         String email = "nonexistent@example.com";
@@ -162,7 +233,7 @@ class UserServiceImplTest {
     @Test
     void shouldReturnAllUsers() {
         List<User> users = List.of(user);
-        when(userRepository.findAll()).thenReturn(users);
+        when(userRepository.findAll(Sort.by("id"))).thenReturn(users);
 
         List<User> result = userServiceImpl.findAllUsers();
 
@@ -172,13 +243,30 @@ class UserServiceImplTest {
 
     @Test
     void shouldReturnEmptyListWhenNoUsersExist() {
-        when(userRepository.findAll()).thenReturn(List.of());
+        when(userRepository.findAll(Sort.by("id"))).thenReturn(List.of());
 
         List<User> result = userServiceImpl.findAllUsers();
 
         assertTrue(result.isEmpty());
     }
 
+    @Test
+    void shouldReturnUsersAfterGivenId() {
+        List<User> users = List.of(user);
+        when(userRepository.findByIdGreaterThanOrderByIdAsc(5L, Limit.of(10))).thenReturn(users);
+
+        List<User> result = userServiceImpl.findUsersAfter(5L, 10);
+
+        assertEquals(users, result);
+    }
+
+    @Test
+    void shouldThrowExceptionWhenPageLimitIsOutOfRange() {
+        assertThrows(BusinessException.class, () -> userServiceImpl.findUsersAfter(null, 0));
+        assertThrows(BusinessException.class,
+                () -> userServiceImpl.findUsersAfter(null, UserServiceImpl.MAX_PAGE_SIZE + 1));
+    }
+
     @Test
     void shouldReturnUsersOlderThanGivenDate() {
         LocalDate date = LocalDate.of(2000, 1, 1);
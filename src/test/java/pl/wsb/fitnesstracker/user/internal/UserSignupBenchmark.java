@@ -0,0 +1,91 @@
+package pl.wsb.fitnesstracker.user.internal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import pl.wsb.fitnesstracker.Benchmark;
+import pl.wsb.fitnesstracker.user.api.User;
+import pl.wsb.fitnesstracker.user.api.UserService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Benchmark
+@SpringBootTest
+class UserSignupBenchmark {
+
+    private static final int[] POPULATIONS = {1_000, 10_000, 50_000};
+
+    private static final int SIGNUPS_PER_ROUND = 200;
+
+    private static final int CHUNK_SIZE = 1_000;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void cleanUp() {
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void signupLatencyShouldStayFlat_whenUserCountGrows() {
+        Map<Integer, Double> microsPerSignup = new LinkedHashMap<>();
+        int populated = 0;
+
+        for (int population : POPULATIONS) {
+            populate(population - populated);
+            populated = population;
+
+            signUp(SIGNUPS_PER_ROUND); // warm-up
+            populated += SIGNUPS_PER_ROUND;
+
+            long start = System.nanoTime();
+            signUp(SIGNUPS_PER_ROUND);
+            long elapsed = System.nanoTime() - start;
+            populated += SIGNUPS_PER_ROUND;
+
+            microsPerSignup.put(population, elapsed / 1_000.0 / SIGNUPS_PER_ROUND);
+        }
+
+        microsPerSignup.forEach((population, micros) ->
+                System.out.printf("users=%-6d signup=%.1f us%n", population, micros));
+
+        double smallest = microsPerSignup.get(POPULATIONS[0]);
+        double largest = microsPerSignup.get(POPULATIONS[POPULATIONS.length - 1]);
+        assertThat(largest).isLessThan(smallest * 5);
+    }
+
+    private void populate(int count) {
+        List<User> chunk = new ArrayList<>(CHUNK_SIZE);
+        for (int i = 0; i < count; i++) {
+            chunk.add(randomUser());
+            if (chunk.size() == CHUNK_SIZE) {
+                userRepository.saveAll(chunk);
+                chunk.clear();
+            }
+        }
+        userRepository.saveAll(chunk);
+    }
+
+    private void signUp(int count) {
+        for (int i = 0; i < count; i++) {
+            userService.createUser(randomUser());
+        }
+    }
+
+    private static User randomUser() {
+        return new User(randomUUID().toString(), randomUUID().toString(), LocalDate.of(1990, 1, 1),
+                randomUUID() + "@domain.com");
+    }
+}
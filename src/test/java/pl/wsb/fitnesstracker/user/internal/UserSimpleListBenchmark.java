@@ -0,0 +1,98 @@
+package pl.wsb.fitnesstracker.user.internal;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import pl.wsb.fitnesstracker.Benchmark;
+import pl.wsb.fitnesstracker.user.api.User;
+import pl.wsb.fitnesstracker.user.api.UserMapper;
+import pl.wsb.fitnesstracker.user.api.UserProvider;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Benchmark
+@SpringBootTest
+class UserSimpleListBenchmark {
+
+    private static final int USERS = 50_000;
+
+    private static final int ROUNDS = 5;
+
+    @Autowired
+    private UserProvider userProvider;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void populate() {
+        List<User> chunk = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            chunk.add(new User(randomUUID().toString(), randomUUID().toString(), LocalDate.of(1990, 1, 1),
+                    randomUUID() + "@domain.com"));
+            if (chunk.size() == 1_000) {
+                userRepository.saveAll(chunk);
+                chunk.clear();
+            }
+        }
+        userRepository.saveAll(chunk);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void projectionShouldAllocateLessThanEntities_whenListingSimpleUsers() {
+        Measurement entities = measure(() -> userProvider.forEachUser(user -> serialize(userMapper.toDto(user))));
+        Measurement projections = measure(() -> userProvider.forEachSimpleUser(this::serialize));
+
+        System.out.printf("entity path:     %6d ms, %6d MB allocated%n", entities.millis(), entities.megabytes());
+        System.out.printf("projection path: %6d ms, %6d MB allocated%n", projections.millis(), projections.megabytes());
+
+        assertThat(projections.megabytes()).isLessThan(entities.megabytes());
+    }
+
+    private void serialize(Object dto) {
+        try {
+            objectMapper.writeValue(OutputStream.nullOutputStream(), dto);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Measurement measure(Runnable listing) {
+        listing.run(); // warm-up
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long nanos = 0;
+        long bytes = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            listing.run();
+            nanos += System.nanoTime() - start;
+            bytes += threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        }
+        return new Measurement(nanos / ROUNDS / 1_000_000, bytes / ROUNDS / (1024 * 1024));
+    }
+
+    private record Measurement(long millis, long megabytes) {
+    }
+}